@@ -0,0 +1,111 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the executor that runs asynchronous calls to the platform's API for API sessions that have not been assigned their own executor
+ */
+public class APIv1AsyncExecutor
+{
+    /**
+     * prefix of the names given to the threads created by the default executor
+     */
+    public static final String THREAD_NAME_PREFIX = "squizz-api-async-";
+    
+    /**
+     * name of the method in the Java runtime's Executors class that creates an executor that starts a new virtual thread for each task
+     */
+    private static final String METHOD_NEW_VIRTUAL_THREAD_EXECUTOR = "newVirtualThreadPerTaskExecutor";
+    
+    /**
+     * executor used to run asynchronous API calls, created when first needed
+     */
+    private static volatile Executor defaultExecutor = null;
+    
+    /**
+     * gets the executor used to run asynchronous calls to the platform's API for API sessions that have not been assigned their own executor.
+     * By default this is a cached thread pool of daemon threads, which creates threads as calls are made and discards threads that have been idle for 60 seconds
+     * @return default executor
+     */
+    public static Executor getDefaultExecutor()
+    {
+        Executor executor = defaultExecutor;
+        if(executor == null){
+            synchronized(APIv1AsyncExecutor.class){
+                if(defaultExecutor == null){
+                    defaultExecutor = createCachedThreadPool();
+                }
+                executor = defaultExecutor;
+            }
+        }
+        return executor;
+    }
+    
+    /**
+     * sets the executor used to run asynchronous calls to the platform's API for API sessions that have not been assigned their own executor.
+     * The executor previously set is not shut down
+     * @param executor executor to use by default, must not be null
+     */
+    public static void setDefaultExecutor(Executor executor)
+    {
+        if(executor != null){
+            defaultExecutor = executor;
+        }
+    }
+    
+    /**
+     * indicates if the Java runtime is able to run tasks on virtual threads (Java 21 or later)
+     * @return true if virtual threads are supported
+     */
+    public static boolean isVirtualThreadsSupported()
+    {
+        try{
+            Executors.class.getMethod(METHOD_NEW_VIRTUAL_THREAD_EXECUTOR);
+            return true;
+        }catch(NoSuchMethodException ex){
+            return false;
+        }
+    }
+    
+    /**
+     * creates an executor that runs each asynchronous call to the platform's API on its own virtual thread, allowing thousands of calls to wait on responses without tying up platform threads.
+     * Set the executor on API sessions, or as the default executor, and limit the calls in progress for each organisation with APIv1OrgSession.setMaxConcurrentRequests().
+     * If the Java runtime does not support virtual threads then a cached thread pool of daemon threads is returned instead
+     * @return executor service, which the caller is responsible for shutting down
+     */
+    public static ExecutorService newVirtualThreadExecutor()
+    {
+        //obtain the virtual thread executor by reflection, since the library is compiled to run on earlier versions of Java
+        try{
+            return (ExecutorService)Executors.class.getMethod(METHOD_NEW_VIRTUAL_THREAD_EXECUTOR).invoke(null);
+        }catch(ReflectiveOperationException | ClassCastException ex){
+            return createCachedThreadPool();
+        }
+    }
+    
+    /**
+     * creates a thread pool of daemon threads, so that the pool does not stop the application from exiting
+     * @return cached thread pool
+     */
+    private static ExecutorService createCachedThreadPool()
+    {
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        ThreadFactory threadFactory = (Runnable runnable) -> {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        
+        return Executors.newCachedThreadPool(threadFactory);
+    }
+}
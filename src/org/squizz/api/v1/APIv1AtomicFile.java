@@ -0,0 +1,63 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes files by writing their content into a temporary file in the same directory, then moving the temporary file over any existing file,
+ * so that a write that fails part way never leaves a partially written file in place of the existing file
+ */
+public class APIv1AtomicFile
+{
+    /**
+     * writes the content of a file into a stream
+     */
+    public interface ContentWriter
+    {
+        /**
+         * writes the content of the file
+         * @param outputStream stream of the temporary file to write the content into, which is closed once the content has been written. Streams wrapping it may be closed by the writer
+         * @throws IOException if the content could not be written
+         */
+        public void write(OutputStream outputStream) throws IOException;
+    }
+    
+    /**
+     * writes a file, creating its directory if needed and replacing any existing file once its content has been written
+     * @param file path of the file to write
+     * @param contentWriter writer of the file's content
+     * @throws IOException if the file could not be written, in which case any existing file is left unchanged
+     */
+    public static void write(Path file, ContentWriter contentWriter) throws IOException
+    {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        
+        try{
+            //write the content into the temporary file
+            try(OutputStream outputStream = Files.newOutputStream(tempFile)){
+                contentWriter.write(outputStream);
+            }
+            
+            //replace the existing file with the temporary file, moving it atomically where the file system supports it
+            try{
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }catch(AtomicMoveNotSupportedException ex){
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }finally{
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of byte buffers that are reused to hold the content of request bodies serialized before they are sent, to avoid allocating new large arrays for each request.
+ * The pool is thread safe. It only keeps up to a set number of idle buffers holding up to a set total number of bytes, and buffers that have grown larger than the set capacity are discarded instead of being kept
+ */
+public class APIv1BufferPool
+{
+    public static final int DEFAULT_MAX_IDLE_BUFFERS = 64;
+    public static final int DEFAULT_MAX_BUFFER_CAPACITY = 16 * 1024 * 1024;
+    public static final int DEFAULT_INITIAL_BUFFER_CAPACITY = 64 * 1024;
+    public static final long DEFAULT_MAX_IDLE_BYTES = 32 * 1024 * 1024;
+    
+    /**
+     * pool shared by the library
+     */
+    private static final APIv1BufferPool defaultPool = new APIv1BufferPool(DEFAULT_MAX_IDLE_BUFFERS, DEFAULT_MAX_BUFFER_CAPACITY, DEFAULT_MAX_IDLE_BYTES);
+    
+    private final ArrayBlockingQueue<APIv1PooledBuffer> idleBuffers;
+    private final int maxBufferCapacity;
+    private final long maxIdleBytes;
+    
+    /**
+     * total capacity of the buffers kept in the pool, including buffers being released that have reserved their capacity
+     */
+    private final AtomicLong idleBytes = new AtomicLong(0);
+    
+    /**
+     * creates a pool that keeps up to the default total number of bytes in its idle buffers
+     * @param maxIdleBuffers maximum number of buffers kept in the pool while not being used
+     * @param maxBufferCapacity maximum number of bytes a buffer can hold for it to be kept in the pool once released
+     */
+    public APIv1BufferPool(int maxIdleBuffers, int maxBufferCapacity)
+    {
+        this(maxIdleBuffers, maxBufferCapacity, DEFAULT_MAX_IDLE_BYTES);
+    }
+    
+    /**
+     * creates a pool
+     * @param maxIdleBuffers maximum number of buffers kept in the pool while not being used
+     * @param maxBufferCapacity maximum number of bytes a buffer can hold for it to be kept in the pool once released
+     * @param maxIdleBytes maximum total number of bytes that the buffers kept in the pool can hold, released buffers that would exceed it are discarded
+     */
+    public APIv1BufferPool(int maxIdleBuffers, int maxBufferCapacity, long maxIdleBytes)
+    {
+        this.idleBuffers = new ArrayBlockingQueue<>(Math.max(maxIdleBuffers, 1));
+        this.maxBufferCapacity = maxBufferCapacity;
+        this.maxIdleBytes = maxIdleBytes;
+    }
+    
+    /**
+     * gets the pool shared by the library
+     * @return default buffer pool
+     */
+    public static APIv1BufferPool getDefaultPool()
+    {
+        return defaultPool;
+    }
+    
+    /**
+     * takes an empty buffer from the pool, creating a new buffer if the pool has no idle buffers
+     * @return empty buffer, which should be released back to the pool once its content is no longer needed
+     */
+    public APIv1PooledBuffer acquire()
+    {
+        APIv1PooledBuffer buffer = idleBuffers.poll();
+        if(buffer == null){
+            return new APIv1PooledBuffer(DEFAULT_INITIAL_BUFFER_CAPACITY);
+        }
+        idleBytes.addAndGet(-buffer.getCapacity());
+        return buffer;
+    }
+    
+    /**
+     * returns a buffer to the pool so that it can be reused, the buffer must not be used by the caller afterwards
+     * @param buffer buffer to release, ignored if null
+     */
+    public void release(APIv1PooledBuffer buffer)
+    {
+        if(buffer == null || buffer.getCapacity() > maxBufferCapacity){
+            return;
+        }
+        
+        //reserve the buffer's capacity within the pool's total before keeping it, discarding the buffer if the pool is full
+        int bufferCapacity = buffer.getCapacity();
+        if(idleBytes.addAndGet(bufferCapacity) > maxIdleBytes){
+            idleBytes.addAndGet(-bufferCapacity);
+            return;
+        }
+        
+        buffer.reset();
+        if(!idleBuffers.offer(buffer)){
+            idleBytes.addAndGet(-bufferCapacity);
+        }
+    }
+    
+    /**
+     * gets the number of buffers in the pool that are not being used
+     * @return number of idle buffers
+     */
+    public int getIdleBuffersCount()
+    {
+        return idleBuffers.size();
+    }
+    
+    /**
+     * gets the total number of bytes that the buffers in the pool that are not being used can hold
+     * @return capacity of the idle buffers
+     */
+    public long getIdleBytes()
+    {
+        return idleBytes.get();
+    }
+}
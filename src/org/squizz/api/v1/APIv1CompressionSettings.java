@@ -0,0 +1,139 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Settings that control how the Ecommerce Standards Documents placed in the bodies of requests sent to the platform's API are compressed, along with statistics of the bodies sent using the settings.
+ * Lower compression levels reduce the time taken to send latency sensitive requests such as orders, higher levels reduce the bandwidth used by large pushes of data such as product catalogues.
+ * Settings can be assigned to an API session for all endpoints or for individual endpoints. The settings cannot be changed once created, so may be shared by multiple sessions and threads
+ */
+public class APIv1CompressionSettings
+{
+    public static final String CODEC_GZIP = APIv1HTTPRequest.HTTP_HEADER_CONTENT_ENCODING_GZIP;
+    public static final String CODEC_NONE = "none";
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    
+    private final String codec;
+    private final int level;
+    private final int bufferSize;
+    private final int uncompressedThresholdBytes;
+    private final APIv1CompressionStatistics statistics = new APIv1CompressionStatistics();
+    
+    /**
+     * creates settings that compress all request bodies with gzip at the default compression level
+     */
+    public APIv1CompressionSettings()
+    {
+        this(CODEC_GZIP, Deflater.DEFAULT_COMPRESSION, DEFAULT_BUFFER_SIZE, 0);
+    }
+    
+    /**
+     * creates settings
+     * @param codec codec to compress request bodies with, either CODEC_GZIP or CODEC_NONE to not compress request bodies
+     * @param level compression level from 1 (fastest) to 9 (smallest), 0 to send bodies in the gzip format without compressing them, or -1 for the default level of the codec. Any other level uses the default level
+     * @param bufferSize number of bytes of compressed data buffered at a time before being written into the request, set 0 or less to use the default of 8192
+     * @param uncompressedThresholdBytes request bodies smaller than this number of bytes are sent without being compressed, set 0 to compress all request bodies
+     */
+    public APIv1CompressionSettings(String codec, int level, int bufferSize, int uncompressedThresholdBytes)
+    {
+        this.codec = (codec != null && codec.equalsIgnoreCase(CODEC_NONE)? CODEC_NONE: CODEC_GZIP);
+        this.level = (level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION? level: Deflater.DEFAULT_COMPRESSION);
+        this.bufferSize = (bufferSize > 0? bufferSize: DEFAULT_BUFFER_SIZE);
+        this.uncompressedThresholdBytes = Math.max(uncompressedThresholdBytes, 0);
+    }
+    
+    /**
+     * gets the codec that request bodies are compressed with
+     * @return CODEC_GZIP or CODEC_NONE
+     */
+    public String getCodec()
+    {
+        return codec;
+    }
+    
+    /**
+     * checks if request bodies are compressed
+     * @return true if request bodies at or above the threshold are compressed
+     */
+    public boolean isCompressed()
+    {
+        return codec.equals(CODEC_GZIP);
+    }
+    
+    /**
+     * gets the level that request bodies are compressed at
+     * @return compression level from 0 (not compressed) to 9 (smallest), or -1 for the default level
+     */
+    public int getLevel()
+    {
+        return level;
+    }
+    
+    /**
+     * gets the number of bytes of compressed data buffered at a time before being written into the request
+     * @return buffer size in bytes
+     */
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+    
+    /**
+     * gets the size that request bodies must reach for them to be compressed
+     * @return threshold in bytes, or 0 if all request bodies are compressed
+     */
+    public int getUncompressedThresholdBytes()
+    {
+        return uncompressedThresholdBytes;
+    }
+    
+    /**
+     * gets the statistics of the request bodies sent using the settings
+     * @return compression statistics
+     */
+    public APIv1CompressionStatistics getStatistics()
+    {
+        return statistics;
+    }
+    
+    /**
+     * creates a stream that compresses data written into it with gzip, at the level and buffer size of the settings
+     * @param outputStream stream to write the compressed data into
+     * @return compressing stream, which must be finished or closed to write the end of the compressed data
+     * @throws IOException if the compressed data could not be started
+     */
+    public CompressingStream createCompressingStream(OutputStream outputStream) throws IOException
+    {
+        return new CompressingStream(outputStream, bufferSize, level);
+    }
+    
+    /**
+     * stream that compresses data with gzip at a set level, whose compressor can be released without writing the end of the compressed data
+     */
+    public static class CompressingStream extends GZIPOutputStream
+    {
+        private CompressingStream(OutputStream outputStream, int bufferSize, int level) throws IOException
+        {
+            super(outputStream, bufferSize);
+            def.setLevel(level);
+        }
+        
+        /**
+         * releases the memory held by the compressor without writing the end of the compressed data or closing the stream being written into.
+         * If the stream has not been finished then the data written into the underlying stream never forms complete gzip data. The stream must not be written to afterwards
+         */
+        public void end()
+        {
+            def.end();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the sizes of request bodies sent to the platform's API before and after compression. Each body is counted once, even if it is written again when its request is retried. The statistics are thread safe
+ */
+public class APIv1CompressionStatistics
+{
+    private final AtomicLong requestsCompressed = new AtomicLong();
+    private final AtomicLong requestsUncompressed = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    
+    /**
+     * records the sizes of a request body that has been written, which bodies call only the first time they are written
+     * @param bodyRawBytes number of bytes in the body before compression
+     * @param bodySentBytes number of bytes written into the request
+     * @param compressed true if the body was compressed
+     */
+    public void recordRequestBody(long bodyRawBytes, long bodySentBytes, boolean compressed)
+    {
+        (compressed? requestsCompressed: requestsUncompressed).incrementAndGet();
+        rawBytes.addAndGet(bodyRawBytes);
+        sentBytes.addAndGet(bodySentBytes);
+    }
+    
+    /**
+     * gets the number of request bodies written that were compressed
+     * @return number of compressed request bodies
+     */
+    public long getRequestsCompressed()
+    {
+        return requestsCompressed.get();
+    }
+    
+    /**
+     * gets the number of request bodies written without being compressed
+     * @return number of uncompressed request bodies
+     */
+    public long getRequestsUncompressed()
+    {
+        return requestsUncompressed.get();
+    }
+    
+    /**
+     * gets the total number of bytes of request bodies before compression
+     * @return number of raw bytes
+     */
+    public long getRawBytes()
+    {
+        return rawBytes.get();
+    }
+    
+    /**
+     * gets the total number of bytes of request bodies written into requests, after compression
+     * @return number of bytes sent
+     */
+    public long getSentBytes()
+    {
+        return sentBytes.get();
+    }
+    
+    /**
+     * gets the size of the request bodies sent compared with their size before compression
+     * @return number of bytes sent divided by the number of raw bytes, or 1 if no bytes have been sent
+     */
+    public double getCompressionRatio()
+    {
+        long totalRawBytes = rawBytes.get();
+        return (totalRawBytes > 0? (double)sentBytes.get() / totalRawBytes: 1);
+    }
+}
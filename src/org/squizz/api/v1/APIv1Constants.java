@@ -28,6 +28,11 @@ public class APIv1Constants
      */
     public static final String API_ORG_PATH = "/rest/1/org/";
     
+    /**
+     * URL of the platform's API that organisation endpoints are called at, used by API sessions that have not been set to call a different URL
+     */
+    public static final String API_ORG_URL = API_PROTOCOL + API_DOMAIN + API_ORG_PATH;
+    
     /**
      * slash character to set within URL path to API endpoint requests
      */
@@ -0,0 +1,79 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashes the JSON content of documents and records, so that content can be checked for changes without holding onto the content itself.
+ * The JSON is hashed as it is serialized, without being held in memory
+ */
+public class APIv1ContentHash
+{
+    /**
+     * algorithm used to hash content
+     */
+    public static final String HASH_ALGORITHM = "SHA-256";
+    
+    /**
+     * stream that discards bytes written to it, once they have been hashed
+     */
+    private static final OutputStream DISCARD_OUTPUT_STREAM = new OutputStream(){
+        @Override
+        public void write(int b){}
+        
+        @Override
+        public void write(byte[] bytes, int offset, int length){}
+    };
+    
+    /**
+     * creates a digest that hashes content with the hash algorithm
+     * @return message digest
+     */
+    public static MessageDigest createMessageDigest()
+    {
+        try{
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        }catch(NoSuchAlgorithmException ex){
+            //every Java runtime is required to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    /**
+     * gets the writer that serializes objects of a class into JSON to be hashed.
+     * Map properties are serialized in a consistent order so that objects with the same content always have the same hash
+     * @param valueClass class of the objects to hash
+     * @return JSON writer
+     */
+    public static ObjectWriter getWriter(Class<?> valueClass)
+    {
+        return APIv1JSONMapper.getWriter(valueClass).with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+    
+    /**
+     * hashes the JSON content of an object
+     * @param jsonWriter writer obtained from getWriter() for the class of the object
+     * @param value object to hash
+     * @param messageDigest digest to hash the content with, which is reset before the content is hashed
+     * @return hash of the object's content
+     * @throws IOException if the object could not be serialized
+     */
+    public static byte[] hash(ObjectWriter jsonWriter, Object value, MessageDigest messageDigest) throws IOException
+    {
+        messageDigest.reset();
+        jsonWriter.writeValue(new DigestOutputStream(DISCARD_OUTPUT_STREAM, messageDigest), value);
+        return messageDigest.digest();
+    }
+}
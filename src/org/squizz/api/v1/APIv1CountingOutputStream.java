@@ -0,0 +1,51 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Stream that counts the number of bytes written through it into another stream
+ */
+public class APIv1CountingOutputStream extends FilterOutputStream
+{
+    private long bytesWritten = 0;
+    
+    /**
+     * creates a stream
+     * @param outputStream stream to write bytes into
+     */
+    public APIv1CountingOutputStream(OutputStream outputStream)
+    {
+        super(outputStream);
+    }
+    
+    @Override
+    public void write(int b) throws IOException
+    {
+        out.write(b);
+        bytesWritten++;
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        out.write(b, off, len);
+        bytesWritten += len;
+    }
+    
+    /**
+     * gets the number of bytes written through the stream
+     * @return number of bytes written
+     */
+    public long getBytesWritten()
+    {
+        return bytesWritten;
+    }
+}
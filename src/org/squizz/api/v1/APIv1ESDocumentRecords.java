@@ -0,0 +1,132 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.esd.EcommerceStandardsDocuments.ESDocument;
+
+/**
+ * Accesses the records stored in Ecommerce Standards Documents of any type.
+ * Each type of document stores its records in its own typed dataRecords array, since the documents have no common way to access their records, so the array is accessed by reflection, with the field of each class of document looked up once
+ */
+public class APIv1ESDocumentRecords
+{
+    /**
+     * name of the field that Ecommerce Standards Documents store their records in
+     */
+    public static final String ESD_FIELD_DATA_RECORDS = "dataRecords";
+    
+    /**
+     * fields that store the records of each class of document, empty for classes of documents that do not store records
+     */
+    private static final ConcurrentHashMap<Class<?>, Optional<Field>> dataRecordsFields = new ConcurrentHashMap<>();
+    
+    /**
+     * gets the field that a class of document stores its records in
+     * @param documentClass class of the document
+     * @return records array field, or null if the class of document does not store records
+     */
+    public static Field getDataRecordsField(Class<? extends ESDocument> documentClass)
+    {
+        return dataRecordsFields.computeIfAbsent(documentClass, fieldClass -> {
+            try{
+                Field field = fieldClass.getField(ESD_FIELD_DATA_RECORDS);
+                return (field.getType().isArray()? Optional.of(field): Optional.<Field>empty());
+            }catch(NoSuchFieldException ex){
+                return Optional.<Field>empty();
+            }
+        }).orElse(null);
+    }
+    
+    /**
+     * gets the number of records stored in a document
+     * @param esDocument document
+     * @return number of records, or 0 if the document has no records
+     */
+    public static int getRecordsCount(ESDocument esDocument)
+    {
+        Field dataRecordsField = getDataRecordsField(esDocument.getClass());
+        if(dataRecordsField == null){
+            return 0;
+        }
+        
+        try{
+            Object dataRecords = dataRecordsField.get(esDocument);
+            return (dataRecords == null? 0: Array.getLength(dataRecords));
+        }catch(IllegalAccessException ex){
+            return 0;
+        }
+    }
+    
+    /**
+     * gets the array of records stored in a document
+     * @param esDocument document
+     * @return array of records, or null if the document has no records
+     */
+    public static Object[] getRecords(ESDocument esDocument)
+    {
+        Field dataRecordsField = getDataRecordsField(esDocument.getClass());
+        if(dataRecordsField == null){
+            return null;
+        }
+        
+        try{
+            return (Object[])dataRecordsField.get(esDocument);
+        }catch(IllegalAccessException ex){
+            return null;
+        }
+    }
+    
+    /**
+     * creates a copy of a document that holds all of its properties other than its records, with the properties of the copy referencing the same objects as the document
+     * @param esDocument document to copy
+     * @return copy of the document without records
+     * @throws ReflectiveOperationException if the class of document could not be created or its properties could not be copied
+     */
+    public static ESDocument copyWithoutRecords(ESDocument esDocument) throws ReflectiveOperationException
+    {
+        ESDocument documentCopy = esDocument.getClass().getDeclaredConstructor().newInstance();
+        Field dataRecordsField = getDataRecordsField(esDocument.getClass());
+        for(Field field: esDocument.getClass().getFields()){
+            if(!Modifier.isStatic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers()) && !field.equals(dataRecordsField)){
+                field.set(documentCopy, field.get(esDocument));
+            }
+        }
+        return documentCopy;
+    }
+    
+    /**
+     * replaces the records stored in a document with a list of records
+     * @param esDocument document to set the records of
+     * @param records records to place into the document, which must be of the class stored by the document
+     * @return true if the records were set, false if the document does not store records
+     */
+    public static boolean setRecords(ESDocument esDocument, List<?> records)
+    {
+        Field dataRecordsField = getDataRecordsField(esDocument.getClass());
+        if(dataRecordsField == null){
+            return false;
+        }
+        
+        Object dataRecords = Array.newInstance(dataRecordsField.getType().getComponentType(), records.size());
+        for(int i=0; i < records.size(); i++){
+            Array.set(dataRecords, i, records.get(i));
+        }
+        
+        try{
+            dataRecordsField.set(esDocument, dataRecords);
+            return true;
+        }catch(IllegalAccessException ex){
+            return false;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import org.esd.EcommerceStandardsDocuments.ESDocument;
+
+/**
+ * Body of a request containing an Ecommerce Standards Document that has been serialized into JSON and compressed with gzip before the request is sent, so that the connection is only held while the compressed bytes are written.
+ * The document's records are split into ranges that are serialized and compressed on separate cores, with each range written as its own gzip member into a pooled buffer. The members are sent one after another, which gzip decompresses as a single stream.
+ * Since its length is known and its content is held in memory the body can be written any number of times, until it is closed and its buffers are released back to their pool
+ */
+public class APIv1ESDocumentRequestBody implements APIv1HTTPRequestBody, AutoCloseable
+{
+    /**
+     * minimum number of records serialized into each gzip member, so that small documents are not split across cores
+     */
+    public static final int MIN_RECORDS_PER_MEMBER = 1000;
+    
+    private static final byte[] JSON_DATA_RECORDS_START = ("\"" + APIv1ESDocumentRecords.ESD_FIELD_DATA_RECORDS + "\":[").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] JSON_DATA_RECORDS_END = "]}".getBytes(StandardCharsets.UTF_8);
+    private static final byte JSON_SEPARATOR = ',';
+    
+    private final APIv1BufferPool bufferPool;
+    private final ArrayList<APIv1PooledBuffer> memberBuffers;
+    private final long contentLength;
+    private final long uncompressedLength;
+    private final APIv1CompressionStatistics compressionStatistics;
+    private final AtomicBoolean statisticsRecorded = new AtomicBoolean(false);
+    
+    /**
+     * creates a body from compressed members
+     * @param bufferPool pool to release the buffers into once the body is closed
+     * @param memberBuffers buffers holding each gzip member in the order they are sent
+     * @param uncompressedLength number of bytes of JSON that were compressed into the members
+     * @param compressionStatistics statistics to record the sizes of the body in the first time it is written
+     */
+    private APIv1ESDocumentRequestBody(APIv1BufferPool bufferPool, ArrayList<APIv1PooledBuffer> memberBuffers, long uncompressedLength, APIv1CompressionStatistics compressionStatistics)
+    {
+        long bodyLength = 0;
+        for(APIv1PooledBuffer memberBuffer: memberBuffers){
+            bodyLength += memberBuffer.size();
+        }
+        
+        this.bufferPool = bufferPool;
+        this.memberBuffers = memberBuffers;
+        this.contentLength = bodyLength;
+        this.uncompressedLength = uncompressedLength;
+        this.compressionStatistics = compressionStatistics;
+    }
+    
+    /**
+     * serializes and compresses a document, splitting its records across as many cores as are available, using the library's shared buffer pool
+     * @param esDocument Ecommerce Standards Document to serialize
+     * @param compressionSettings settings containing the level and buffer size to compress the document with
+     * @return compressed body, which must be closed once the request has been sent
+     * @throws IOException if the document could not be serialized
+     */
+    public static APIv1ESDocumentRequestBody serialize(ESDocument esDocument, APIv1CompressionSettings compressionSettings) throws IOException
+    {
+        return serialize(esDocument, Runtime.getRuntime().availableProcessors(), APIv1BufferPool.getDefaultPool(), compressionSettings);
+    }
+    
+    /**
+     * serializes and compresses a document, splitting its records into up to a given number of gzip members that are compressed at the same time.
+     * The first member is compressed by the calling thread, and the others by the Java runtime's common fork join pool
+     * @param esDocument Ecommerce Standards Document to serialize
+     * @param parallelism maximum number of members to split the document's records into
+     * @param bufferPool pool to take the buffers holding each member from
+     * @param compressionSettings settings containing the level and buffer size to compress the document with
+     * @return compressed body, which must be closed once the request has been sent
+     * @throws IOException if the document could not be serialized
+     */
+    public static APIv1ESDocumentRequestBody serialize(ESDocument esDocument, int parallelism, APIv1BufferPool bufferPool, APIv1CompressionSettings compressionSettings) throws IOException
+    {
+        ArrayList<APIv1PooledBuffer> memberBuffers = new ArrayList<>();
+        AtomicLong uncompressedLength = new AtomicLong();
+        ObjectWriter documentWriter = APIv1JSONMapper.getWriter(esDocument.getClass());
+        Object[] records = APIv1ESDocumentRecords.getRecords(esDocument);
+        
+        //compress documents without records as a single member
+        if(records == null || records.length == 0){
+            APIv1PooledBuffer memberBuffer = bufferPool.acquire();
+            try(GZIPOutputStream gzipOutputStream = compressionSettings.createCompressingStream(memberBuffer)){
+                APIv1CountingOutputStream countingOutputStream = new APIv1CountingOutputStream(gzipOutputStream);
+                documentWriter.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(countingOutputStream, esDocument);
+                uncompressedLength.addAndGet(countingOutputStream.getBytesWritten());
+            }catch(IOException | RuntimeException ex){
+                bufferPool.release(memberBuffer);
+                throw ex;
+            }
+            memberBuffers.add(memberBuffer);
+            return new APIv1ESDocumentRequestBody(bufferPool, memberBuffers, uncompressedLength.get(), compressionSettings.getStatistics());
+        }
+        
+        //serialize the document's other properties, opening its records array in place of the closing brace of the document
+        byte[] documentJSON;
+        try{
+            documentJSON = documentWriter.writeValueAsBytes(APIv1ESDocumentRecords.copyWithoutRecords(esDocument));
+        }catch(ReflectiveOperationException ex){
+            throw new IOException(ex);
+        }
+        int documentPropertiesLength = documentJSON.length - 1;
+        boolean hasProperties = documentPropertiesLength > 1;
+        byte[] documentStart = new byte[documentPropertiesLength + (hasProperties? 1: 0) + JSON_DATA_RECORDS_START.length];
+        System.arraycopy(documentJSON, 0, documentStart, 0, documentPropertiesLength);
+        if(hasProperties){
+            documentStart[documentPropertiesLength] = JSON_SEPARATOR;
+        }
+        System.arraycopy(JSON_DATA_RECORDS_START, 0, documentStart, documentStart.length - JSON_DATA_RECORDS_START.length, JSON_DATA_RECORDS_START.length);
+        
+        //get the writer that separates each record with a comma, so that the records of each member can be written one after another into the array
+        final ObjectWriter recordWriter = APIv1JSONMapper.getWriter(records.getClass().getComponentType()).withRootValueSeparator(",").without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        
+        //start compressing each range of records after the first in the background
+        int membersCount = Math.max(1, Math.min(parallelism, records.length / MIN_RECORDS_PER_MEMBER));
+        ArrayList<CompletableFuture<APIv1PooledBuffer>> memberFutures = new ArrayList<>(membersCount);
+        for(int i=1; i < membersCount; i++){
+            final int fromIndex = (int)((long)records.length * i / membersCount);
+            final int toIndex = (int)((long)records.length * (i+1) / membersCount);
+            final byte[] memberEnd = (i == membersCount - 1? JSON_DATA_RECORDS_END: null);
+            memberFutures.add(CompletableFuture.supplyAsync(() -> {
+                try{
+                    return compressMember(null, records, fromIndex, toIndex, memberEnd, recordWriter, bufferPool, compressionSettings, uncompressedLength);
+                }catch(IOException ex){
+                    throw new UncheckedIOException(ex);
+                }
+            }));
+        }
+        
+        //compress the first range of records on the calling thread, then wait for the other ranges to be compressed
+        Throwable memberError = null;
+        try{
+            memberBuffers.add(compressMember(documentStart, records, 0, (int)((long)records.length / membersCount), (membersCount == 1? JSON_DATA_RECORDS_END: null), recordWriter, bufferPool, compressionSettings, uncompressedLength));
+        }catch(IOException | RuntimeException ex){
+            memberError = ex;
+        }
+        for(CompletableFuture<APIv1PooledBuffer> memberFuture: memberFutures){
+            try{
+                memberBuffers.add(memberFuture.join());
+            }catch(CompletionException ex){
+                if(memberError == null){
+                    memberError = (ex.getCause() instanceof UncheckedIOException? ex.getCause().getCause(): ex.getCause());
+                }
+            }
+        }
+        
+        //release the compressed members if any range of records failed to be serialized
+        if(memberError != null){
+            for(APIv1PooledBuffer memberBuffer: memberBuffers){
+                bufferPool.release(memberBuffer);
+            }
+            throw (memberError instanceof IOException? (IOException)memberError: new IOException(memberError));
+        }
+        
+        return new APIv1ESDocumentRequestBody(bufferPool, memberBuffers, uncompressedLength.get(), compressionSettings.getStatistics());
+    }
+    
+    /**
+     * serializes a range of records into JSON and compresses it as a gzip member into a pooled buffer, adding the number of bytes of JSON compressed to the uncompressed length
+     * @return buffer holding the member
+     */
+    private static APIv1PooledBuffer compressMember(byte[] memberStart, Object[] records, int fromIndex, int toIndex, byte[] memberEnd, ObjectWriter recordWriter, APIv1BufferPool bufferPool, APIv1CompressionSettings compressionSettings, AtomicLong uncompressedLength) throws IOException
+    {
+        APIv1PooledBuffer memberBuffer = bufferPool.acquire();
+        try(GZIPOutputStream gzipOutputStream = compressionSettings.createCompressingStream(memberBuffer)){
+            APIv1CountingOutputStream countingOutputStream = new APIv1CountingOutputStream(gzipOutputStream);
+            if(memberStart != null){
+                countingOutputStream.write(memberStart);
+            }
+            
+            //write the records, separating them from the records of the previous member
+            if(fromIndex < toIndex){
+                if(fromIndex > 0){
+                    countingOutputStream.write(JSON_SEPARATOR);
+                }
+                try(SequenceWriter sequenceWriter = recordWriter.writeValues(countingOutputStream)){
+                    for(int i=fromIndex; i < toIndex; i++){
+                        sequenceWriter.write(records[i]);
+                    }
+                }
+            }
+            
+            if(memberEnd != null){
+                countingOutputStream.write(memberEnd);
+            }
+            uncompressedLength.addAndGet(countingOutputStream.getBytesWritten());
+        }catch(IOException | RuntimeException ex){
+            bufferPool.release(memberBuffer);
+            throw ex;
+        }
+        return memberBuffer;
+    }
+    
+    /**
+     * writes the compressed members of the document into the request, recording the sizes of the body in the compression statistics only the first time it is written, so that retried requests are not counted again
+     * @param outputStream stream of the request to write the body into
+     * @throws IOException if the body could not be written
+     */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException
+    {
+        for(APIv1PooledBuffer memberBuffer: memberBuffers){
+            memberBuffer.writeTo(outputStream);
+        }
+        if(statisticsRecorded.compareAndSet(false, true)){
+            compressionStatistics.recordRequestBody(uncompressedLength, contentLength, true);
+        }
+    }
+    
+    /**
+     * gets the number of compressed bytes that will be written into the request
+     * @return number of bytes in the body
+     */
+    @Override
+    public long getContentLength()
+    {
+        return contentLength;
+    }
+    
+    /**
+     * gets the encoding that the body is compressed with
+     * @return gzip, since the document is always compressed
+     */
+    @Override
+    public String getContentEncoding()
+    {
+        return APIv1HTTPRequest.HTTP_HEADER_CONTENT_ENCODING_GZIP;
+    }
+    
+    /**
+     * gets the number of bytes of JSON that the document was serialized into before it was compressed
+     * @return number of uncompressed bytes
+     */
+    public long getUncompressedLength()
+    {
+        return uncompressedLength;
+    }
+    
+    /**
+     * gets the number of gzip members that the document was compressed into
+     * @return number of members
+     */
+    public int getMembersCount()
+    {
+        return memberBuffers.size();
+    }
+    
+    /**
+     * releases the buffers holding the compressed document back into their pool, after which the body must not be written
+     */
+    @Override
+    public void close()
+    {
+        for(APIv1PooledBuffer memberBuffer: memberBuffers){
+            bufferPool.release(memberBuffer);
+        }
+        memberBuffers.clear();
+    }
+}
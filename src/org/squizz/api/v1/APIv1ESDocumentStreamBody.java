@@ -0,0 +1,291 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+
+/**
+ * Body of a request that compresses an Ecommerce Standards Document already serialized as JSON in a file or stream straight into the request as it is sent, without deserializing the document into objects, so that documents of any size are sent using a constant amount of memory.
+ * The JSON is either copied into the request as raw bytes, or copied token by token while checking that the document is correctly formed, in which case the request fails as soon as a problem is found in the document.
+ * Documents are sent uncompressed if the compression settings do not compress request bodies, or if a file is smaller than the settings' uncompressed threshold. Since the length of a stream is not known before it is read, documents read from streams are compressed whatever their size.
+ * Bodies read from a file can be written again when requests are retried, bodies read from a stream can only be written once
+ */
+public class APIv1ESDocumentStreamBody implements APIv1HTTPRequestBody
+{
+    /**
+     * number of bytes read from the file or stream at a time when copying raw bytes into the request
+     */
+    public static final int COPY_BUFFER_SIZE = 65536;
+    
+    private static final String ESD_FIELD_VERSION = "version";
+    private static final String ESD_FIELD_RESULT_STATUS = "resultStatus";
+    private static final String ESD_FIELD_MESSAGE = "message";
+    private static final String ESD_FIELD_DATA_TRANSFER_MODE = "dataTransferMode";
+    private static final String ESD_FIELD_TOTAL_DATA_RECORDS = "totalDataRecords";
+    private static final String ESD_FIELD_CONFIGS = "configs";
+    
+    private final Path esDocumentFile;
+    private final InputStream esDocumentStream;
+    private final boolean validateDocument;
+    private final APIv1CompressionSettings compressionSettings;
+    private final boolean compressed;
+    private final AtomicBoolean statisticsRecorded = new AtomicBoolean(false);
+    private volatile long recordsWritten = 0;
+    
+    /**
+     * creates a body that reads the document from a file each time the body is written
+     * @param esDocumentFile path of the file containing the Ecommerce Standards Document serialized as JSON
+     * @param validateDocument set to true to check that the document is correctly formed while it is copied, false to copy its raw bytes
+     * @param compressionSettings settings containing the codec, level, buffer size and uncompressed threshold to compress the document with, which the sizes of the body are recorded in
+     */
+    public APIv1ESDocumentStreamBody(Path esDocumentFile, boolean validateDocument, APIv1CompressionSettings compressionSettings)
+    {
+        this.esDocumentFile = esDocumentFile;
+        this.esDocumentStream = null;
+        this.validateDocument = validateDocument;
+        this.compressionSettings = compressionSettings;
+        this.compressed = compressionSettings.isCompressed() && getFileSize(esDocumentFile) >= compressionSettings.getUncompressedThresholdBytes();
+    }
+    
+    /**
+     * creates a body that reads the document from a stream, which the body can only be written from once. The stream is read to its end but not closed
+     * @param esDocumentStream stream containing the Ecommerce Standards Document serialized as JSON
+     * @param validateDocument set to true to check that the document is correctly formed while it is copied, false to copy its raw bytes
+     * @param compressionSettings settings containing the codec, level and buffer size to compress the document with, which the sizes of the body are recorded in. The settings' uncompressed threshold is not used
+     */
+    public APIv1ESDocumentStreamBody(InputStream esDocumentStream, boolean validateDocument, APIv1CompressionSettings compressionSettings)
+    {
+        this.esDocumentFile = null;
+        this.esDocumentStream = esDocumentStream;
+        this.validateDocument = validateDocument;
+        this.compressionSettings = compressionSettings;
+        this.compressed = compressionSettings.isCompressed();
+    }
+    
+    /**
+     * gets the size of a file, or the largest size if the file cannot be read, leaving the error to be reported when the body is written
+     */
+    private static long getFileSize(Path esDocumentFile)
+    {
+        try{
+            return Files.size(esDocumentFile);
+        }catch(IOException ex){
+            return Long.MAX_VALUE;
+        }
+    }
+    
+    /**
+     * copies the document into the request as it is read from the file or stream, compressing it if set, and recording the sizes of the body in the compression statistics only the first time the whole body is written
+     * @param outputStream stream of the request to write the body into
+     * @throws IOException if the document could not be read or written
+     * @throws APIv1ESDocumentValidationException if the document is being validated and is not correctly formed
+     */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException
+    {
+        ReadableByteChannel documentChannel = (esDocumentFile != null? FileChannel.open(esDocumentFile, StandardOpenOption.READ): Channels.newChannel(esDocumentStream));
+        try{
+            //copy the document straight into the request without compressing it
+            if(!compressed){
+                APIv1CountingOutputStream rawCountingStream = new APIv1CountingOutputStream(outputStream);
+                copyDocument(documentChannel, rawCountingStream);
+                rawCountingStream.flush();
+                if(statisticsRecorded.compareAndSet(false, true)){
+                    compressionSettings.getStatistics().recordRequestBody(rawCountingStream.getBytesWritten(), rawCountingStream.getBytesWritten(), false);
+                }
+                return;
+            }
+            
+            //write the end of the compressed data only once the whole document has been copied, so that a document that fails to be read or validated never reaches the server as complete gzip data
+            APIv1CountingOutputStream compressedCountingStream = new APIv1CountingOutputStream(outputStream);
+            APIv1CompressionSettings.CompressingStream gzipOutputStream = compressionSettings.createCompressingStream(compressedCountingStream);
+            try{
+                APIv1CountingOutputStream rawCountingStream = new APIv1CountingOutputStream(gzipOutputStream);
+                copyDocument(documentChannel, rawCountingStream);
+                gzipOutputStream.finish();
+                gzipOutputStream.flush();
+                if(statisticsRecorded.compareAndSet(false, true)){
+                    compressionSettings.getStatistics().recordRequestBody(rawCountingStream.getBytesWritten(), compressedCountingStream.getBytesWritten(), true);
+                }
+            }finally{
+                gzipOutputStream.end();
+            }
+        }finally{
+            //only close the channel of the file, since closing the channel of a stream would close the caller's stream
+            if(esDocumentFile != null){
+                documentChannel.close();
+            }
+        }
+    }
+    
+    /**
+     * gets the encoding that the body is compressed with
+     * @return gzip, or null if the document is sent uncompressed
+     */
+    @Override
+    public String getContentEncoding()
+    {
+        return (compressed? APIv1HTTPRequest.HTTP_HEADER_CONTENT_ENCODING_GZIP: null);
+    }
+    
+    /**
+     * copies the document from its channel into the request, validating it if set
+     */
+    private void copyDocument(ReadableByteChannel documentChannel, OutputStream outputStream) throws IOException
+    {
+        if(validateDocument){
+            copyValidatedDocument(Channels.newInputStream(documentChannel), outputStream);
+        }else{
+            copyRawDocument(documentChannel, outputStream);
+        }
+    }
+    
+    /**
+     * copies the raw bytes of the document from its channel into the request
+     */
+    private void copyRawDocument(ReadableByteChannel documentChannel, OutputStream outputStream) throws IOException
+    {
+        ByteBuffer copyBuffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        while(documentChannel.read(copyBuffer) != -1){
+            copyBuffer.flip();
+            outputStream.write(copyBuffer.array(), 0, copyBuffer.limit());
+            copyBuffer.clear();
+        }
+        recordsWritten = -1;
+    }
+    
+    /**
+     * copies the document token by token into the request, checking that it is a single JSON object whose known header properties have the correct types, and whose records are stored in an array of objects or nulls
+     */
+    private void copyValidatedDocument(InputStream documentInputStream, OutputStream outputStream) throws IOException
+    {
+        long recordsCount = 0;
+        JsonParser jsonParser = APIv1JSONMapper.getObjectMapper().getFactory().createParser(documentInputStream);
+        JsonGenerator jsonGenerator = APIv1JSONMapper.getObjectMapper().getFactory().createGenerator(outputStream);
+        jsonParser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        jsonGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        jsonGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        
+        try{
+            //check that the document is a JSON object
+            if(jsonParser.nextToken() != JsonToken.START_OBJECT){
+                throw new APIv1ESDocumentValidationException(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_ESD_DOCUMENT_HEADER_MALFORMED, "document does not start with a JSON object");
+            }
+            jsonGenerator.copyCurrentEvent(jsonParser);
+            
+            //copy each property of the document
+            while(jsonParser.nextToken() == JsonToken.FIELD_NAME)
+            {
+                String fieldName = jsonParser.getCurrentName();
+                jsonGenerator.copyCurrentEvent(jsonParser);
+                JsonToken valueToken = jsonParser.nextToken();
+                
+                if(fieldName.equals(APIv1ESDocumentRecords.ESD_FIELD_DATA_RECORDS))
+                {
+                    //copy the records, checking that each record is an object or null
+                    if(valueToken == JsonToken.START_ARRAY){
+                        jsonGenerator.copyCurrentEvent(jsonParser);
+                        while((valueToken = jsonParser.nextToken()) != JsonToken.END_ARRAY){
+                            if(valueToken == JsonToken.VALUE_NULL){
+                                jsonGenerator.copyCurrentEvent(jsonParser);
+                                continue;
+                            }else if(valueToken != JsonToken.START_OBJECT){
+                                throw new APIv1ESDocumentValidationException(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_JSON_MALFORMED, "record " + recordsCount + " is not a JSON object");
+                            }
+                            jsonGenerator.copyCurrentStructure(jsonParser);
+                            recordsCount++;
+                            recordsWritten = recordsCount;
+                        }
+                        jsonGenerator.copyCurrentEvent(jsonParser);
+                    }
+                    else if(valueToken == JsonToken.VALUE_NULL){
+                        jsonGenerator.copyCurrentEvent(jsonParser);
+                    }else{
+                        throw new APIv1ESDocumentValidationException(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_ESD_DOCUMENT_HEADER_MALFORMED, "property " + fieldName + " is not an array");
+                    }
+                }else{
+                    //check the type of the header properties defined by Ecommerce Standards Documents
+                    if(!isHeaderValueValid(fieldName, valueToken)){
+                        throw new APIv1ESDocumentValidationException(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_ESD_DOCUMENT_HEADER_MALFORMED, "property " + fieldName + " has an incorrect type of value");
+                    }
+                    jsonGenerator.copyCurrentStructure(jsonParser);
+                }
+            }
+            jsonGenerator.copyCurrentEvent(jsonParser);
+            
+            //check that nothing follows the document
+            if(jsonParser.nextToken() != null){
+                throw new APIv1ESDocumentValidationException(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_JSON_MALFORMED, "content found after the end of the document");
+            }
+        }catch(JsonParseException ex){
+            throw new APIv1ESDocumentValidationException(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_JSON_MALFORMED, ex.getOriginalMessage() + " at line " + ex.getLocation().getLineNr() + " column " + ex.getLocation().getColumnNr());
+        }finally{
+            jsonGenerator.close();
+            jsonParser.close();
+        }
+    }
+    
+    /**
+     * checks if the value of a property in the header of a document has the type defined for the property by Ecommerce Standards Documents
+     * @return true if the value has the correct type, or the property is not a known header property
+     */
+    private static boolean isHeaderValueValid(String fieldName, JsonToken valueToken)
+    {
+        if(valueToken == JsonToken.VALUE_NULL){
+            return true;
+        }
+        
+        switch(fieldName){
+            case ESD_FIELD_VERSION:
+                return valueToken.isNumeric();
+            case ESD_FIELD_RESULT_STATUS:
+            case ESD_FIELD_TOTAL_DATA_RECORDS:
+                return valueToken == JsonToken.VALUE_NUMBER_INT;
+            case ESD_FIELD_MESSAGE:
+            case ESD_FIELD_DATA_TRANSFER_MODE:
+                return valueToken == JsonToken.VALUE_STRING;
+            case ESD_FIELD_CONFIGS:
+                return valueToken == JsonToken.START_OBJECT;
+            default:
+                return true;
+        }
+    }
+    
+    /**
+     * checks if the body can be written again when the request is retried
+     * @return true if the document is read from a file
+     */
+    @Override
+    public boolean isRepeatable()
+    {
+        return esDocumentFile != null;
+    }
+    
+    /**
+     * gets the number of records copied into the request the last time the body was written, when the document is being validated
+     * @return number of records copied, or -1 if the raw bytes of the document were copied
+     */
+    public long getRecordsWritten()
+    {
+        return recordsWritten;
+    }
+}
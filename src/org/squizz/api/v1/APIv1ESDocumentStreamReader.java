@@ -0,0 +1,111 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.util.function.Consumer;
+import org.esd.EcommerceStandardsDocuments.ESDocument;
+
+/**
+ * Reads an Ecommerce Standards Document from JSON one record at a time, passing each record to a consumer as soon as it has been parsed instead of building the document's array of records.
+ * This allows documents containing a large number of records to be processed using a constant amount of memory.
+ * The properties of the document other than its records (such as its result status and configs) are returned in a document whose dataRecords array does not contain the records
+ * @param <T> class of the records stored within the document
+ */
+public class APIv1ESDocumentStreamReader<T> implements APIv1JSONResponseReader<ESDocument>
+{
+    /**
+     * name of the JSON property that Ecommerce Standards Documents store their records within
+     */
+    public static final String ESD_PROPERTY_DATA_RECORDS = "dataRecords";
+    
+    private final Class<? extends ESDocument> documentClass;
+    private final ObjectReader recordJSONReader;
+    private final Consumer<? super T> recordConsumer;
+    private long recordsRead = 0;
+    
+    /**
+     * creates a reader for a type of Ecommerce Standards Document
+     * @param documentClass class of the Ecommerce Standards Document being read
+     * @param recordClass class of the records stored in the document's dataRecords array
+     * @param recordConsumer consumer that is given each record as it is read, on the thread reading the document
+     */
+    public APIv1ESDocumentStreamReader(Class<? extends ESDocument> documentClass, Class<T> recordClass, Consumer<? super T> recordConsumer)
+    {
+        this.documentClass = documentClass;
+        this.recordJSONReader = APIv1JSONMapper.getReader(recordClass);
+        this.recordConsumer = recordConsumer;
+    }
+    
+    /**
+     * gets the number of records that have been read and passed to the consumer
+     * @return number of records read
+     */
+    public long getRecordsRead()
+    {
+        return recordsRead;
+    }
+    
+    /**
+     * indicates if the request can be retried using the reader, which is only possible if no records have already been passed to the consumer
+     * @return true if no records have been read
+     */
+    @Override
+    public boolean isRepeatable()
+    {
+        return recordsRead == 0;
+    }
+    
+    /**
+     * reads the Ecommerce Standards Document, passing each of its records to the consumer
+     * @param jsonParser parser positioned before the start of the document
+     * @return the document without its records, or null if the JSON contains no document
+     * @throws IOException if the JSON could not be read, or is not an object
+     */
+    @Override
+    public ESDocument read(JsonParser jsonParser) throws IOException
+    {
+        ObjectMapper jsonMapper = APIv1JSONMapper.getObjectMapper();
+        
+        JsonToken token = jsonParser.nextToken();
+        if(token == null || token == JsonToken.VALUE_NULL){
+            return null;
+        }
+        if(token != JsonToken.START_OBJECT){
+            throw new IOException("Expected the start of an Ecommerce Standards Document but found "+token);
+        }
+        
+        //collect the document's properties, other than its records, into a tree
+        ObjectNode documentHeader = jsonMapper.createObjectNode();
+        while(jsonParser.nextToken() == JsonToken.FIELD_NAME)
+        {
+            String propertyName = jsonParser.getCurrentName();
+            token = jsonParser.nextToken();
+            
+            if(propertyName.equals(ESD_PROPERTY_DATA_RECORDS) && token == JsonToken.START_ARRAY)
+            {
+                //parse each record and hand it to the consumer, without keeping a reference to it
+                while(jsonParser.nextToken() != JsonToken.END_ARRAY)
+                {
+                    T record = recordJSONReader.readValue(jsonParser);
+                    recordsRead++;
+                    recordConsumer.accept(record);
+                }
+            }else{
+                documentHeader.set(propertyName, jsonMapper.readTree(jsonParser));
+            }
+        }
+        
+        return jsonMapper.treeToValue(documentHeader, documentClass);
+    }
+}
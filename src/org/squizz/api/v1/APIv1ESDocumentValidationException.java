@@ -0,0 +1,39 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an Ecommerce Standards Document being written into a request is found to not be correctly formed, with the result code that the failed request is reported with
+ */
+public class APIv1ESDocumentValidationException extends IOException
+{
+    private static final long serialVersionUID = 1L;
+    
+    private final String resultCode;
+    
+    /**
+     * creates an exception
+     * @param resultCode result code that describes why the document is not correctly formed
+     * @param message details of where the document is not correctly formed
+     */
+    public APIv1ESDocumentValidationException(String resultCode, String message)
+    {
+        super(message);
+        this.resultCode = resultCode;
+    }
+    
+    /**
+     * gets the result code that describes why the document is not correctly formed
+     * @return endpoint result code
+     */
+    public String getResultCode()
+    {
+        return resultCode;
+    }
+}
@@ -8,32 +8,31 @@ package org.squizz.api.v1;
 
 import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
 import org.esd.EcommerceStandardsDocuments.ESDocumentConstants;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import java.io.BufferedReader;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.ProtocolException;
-import java.net.URL;
-import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.ResourceBundle;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 import javafx.util.Pair;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.esd.EcommerceStandardsDocuments.*;
-import com.fasterxml.jackson.annotation.JsonInclude;
 import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
 
 /**
@@ -46,6 +45,53 @@ public class APIv1HTTPRequest
     public static final String HTTP_HEADER_CONTENT_TYPE_JSON = "application/json";
     public static final String HTTP_HEADER_CONTENT_ENCODING = "Content-Encoding";
     public static final String HTTP_HEADER_CONTENT_ENCODING_GZIP = "gzip";
+    public static final String HTTP_HEADER_CONTENT_ENCODING_DEFLATE = "deflate";
+    
+    /**
+     * number of bytes of compressed data read from the response at a time when decompressing a response body
+     */
+    private static final int RESPONSE_INFLATE_BUFFER_SIZE = 8192;
+    
+    /**
+     * settings used to compress documents sent in requests that are not made for an API session
+     */
+    private static final APIv1CompressionSettings defaultCompressionSettings = new APIv1CompressionSettings();
+    
+    /**
+     * transport used to send requests for API sessions that have not been assigned their own transport
+     */
+    private static volatile APIv1HTTPTransport defaultTransport = new APIv1HTTPTransportURLConnection();
+    
+    /**
+     * gets the name of the endpoint that a request is sent to, without any path following the name such as the ID of the session
+     * @param endpointPath name of the endpoint, optionally followed by a path, such as import_esd/{sessionID}
+     * @return name of the endpoint, such as import_esd
+     */
+    public static String getEndpointName(String endpointPath)
+    {
+        int pathIndex = endpointPath.indexOf(APIv1Constants.API_PATH_SLASH);
+        return (pathIndex >= 0? endpointPath.substring(0, pathIndex): endpointPath);
+    }
+    
+    /**
+     * gets the transport used to send requests for API sessions that have not been assigned their own transport
+     * @return default HTTP transport
+     */
+    public static APIv1HTTPTransport getDefaultTransport()
+    {
+        return defaultTransport;
+    }
+    
+    /**
+     * sets the transport used to send requests for API sessions that have not been assigned their own transport
+     * @param transport HTTP transport to use by default, must not be null
+     */
+    public static void setDefaultTransport(APIv1HTTPTransport transport)
+    {
+        if(transport != null){
+            defaultTransport = transport;
+        }
+    }
     
     /**
      * Sends a HTTP request with a specified URL, headers and optionally post data to the SQUIZZ.com platform's API. Parses JSON data returned into a HTTP response
@@ -63,72 +109,82 @@ public class APIv1HTTPRequest
      */
     public static <T extends APIv1EndpointResponse> T sendHTTPRequest(String requestMethod, String endpointName, String endpointParams, ArrayList<Pair<String, String>> requestHeaders, String endpointPostData, int timeoutMilliseconds, ResourceBundle langBundle, ObjectReader endpointJSONReader, T endpointResponse)
     {
-        //make a request to login to the API with the credentials
-        HttpURLConnection webConnection = null;
-        OutputStreamWriter httpRequestContentWriter = null;
-        BufferedReader httpResponseBufferReader = null;
-        StringBuilder builder = null;
+        return sendHTTPRequest(defaultTransport, APIv1Constants.API_ORG_URL, requestMethod, endpointName, endpointParams, requestHeaders, endpointPostData, timeoutMilliseconds, langBundle, endpointJSONReader, endpointResponse);
+    }
+    
+    /**
+     * Sends a HTTP request with a specified URL, headers and optionally post data to the SQUIZZ.com platform's API, using the transport, language and concurrent request limit of an organisation's API session. Parses JSON data returned into a HTTP response
+     * @param <T> The endpoint response class used to de-serialize the JSON response. This class should contain the properties that are expected to be returned from the API's endpoint
+     * @param apiOrgSession organisation API session that the request is being made for
+     * @param requestMethod method to send the HTTP request with. Set to POST to push up data
+     * @param endpointName name of the endpoint in the platform's API to send the request to
+     * @param endpointParams list of parameters to append to the end of the request's URL
+     * @param requestHeaders list of key value pairs to add to the request's headers
+     * @param endpointPostData data to place in the body of the HTTP request and post up
+     * @param timeoutMilliseconds amount of milliseconds to wait before giving up waiting on receiving a response from the API. For larger amounts of data posted increase the timeout time
+     * @param endpointJSONReader the reader used to deserialize the JSON response from the request. ensure that the reader can deserialize the same generic class set when calling the method
+     * @param endpointResponse the response object that may be used to report the response from the server
+     * @return a type of endpoint response based on the type of endpoint being called.
+     */
+    public static <T extends APIv1EndpointResponse> T sendHTTPRequest(APIv1OrgSession apiOrgSession, String requestMethod, String endpointName, String endpointParams, ArrayList<Pair<String, String>> requestHeaders, String endpointPostData, int timeoutMilliseconds, ObjectReader endpointJSONReader, T endpointResponse)
+    {
+        APIv1RetryPolicy retryPolicy = apiOrgSession.getRetryPolicy();
+        for(int attempt = 1; ; attempt++)
+        {
+            //wait until the organisation is able to send another request
+            Semaphore orgPermits = null;
+            try{
+                orgPermits = APIv1OrgRequestLimiter.acquire(apiOrgSession.getOrgID());
+            }catch(InterruptedException ex){
+                Thread.currentThread().interrupt();
+                endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
+                endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_UNKNOWN;
+                endpointResponse.result_message = apiOrgSession.getLangBundle().getString(endpointResponse.result_code) + "\n" + ex.getLocalizedMessage();
+                return endpointResponse;
+            }
+            
+            try{
+                endpointResponse = sendHTTPRequest(apiOrgSession.getTransport(), apiOrgSession.getAPIOrgURL(), requestMethod, endpointName, endpointParams, requestHeaders, endpointPostData, timeoutMilliseconds, apiOrgSession.getLangBundle(), endpointJSONReader, endpointResponse);
+            }finally{
+                APIv1OrgRequestLimiter.release(orgPermits);
+            }
+            
+            //send the request again if it failed with a result that may succeed on another attempt, after waiting a random amount of time
+            if(retryPolicy == null || !retryPolicy.shouldRetry(endpointName, endpointResponse.result, endpointResponse.result_code, attempt) || !retryPolicy.waitBeforeRetry(attempt)){
+                return endpointResponse;
+            }
+            
+            //clear the result of the failed attempt, so that it is not reported if the next attempt does not return a result code
+            endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_UNKNOWN;
+            endpointResponse.result_message = "";
+        }
+    }
+    
+    /**
+     * Sends a HTTP request through a given transport to an API at a given URL. Parses JSON data returned into a HTTP response
+     */
+    private static <T extends APIv1EndpointResponse> T sendHTTPRequest(APIv1HTTPTransport transport, String apiOrgURL, String requestMethod, String endpointName, String endpointParams, ArrayList<Pair<String, String>> requestHeaders, String endpointPostData, int timeoutMilliseconds, ResourceBundle langBundle, final ObjectReader endpointJSONReader, T endpointResponse)
+    {
+        APIv1HTTPTransportResponse transportResponse = null;
         int responseCode = 0;
         
         try 
 		{
-            //create a new HTTP connection
-            URL serverAddress = new URL(APIv1Constants.API_PROTOCOL + APIv1Constants.API_DOMAIN + APIv1Constants.API_ORG_PATH + endpointName + "?" + endpointParams);
-            webConnection = (HttpURLConnection)serverAddress.openConnection();
-            webConnection.setRequestMethod(requestMethod);
-            webConnection.setReadTimeout(timeoutMilliseconds);
-            
-            //add the header properties to the request
-            for(int i=0; i < requestHeaders.size(); i++){
-                webConnection.setRequestProperty(requestHeaders.get(i).getKey(), requestHeaders.get(i).getValue());
-            }
-            
             //set the body of the request
+            APIv1HTTPRequestBody requestBody = null;
             if(requestMethod.equalsIgnoreCase(APIv1Constants.HTTP_REQUEST_METHOD_POST)){
-                webConnection.setDoOutput(true);
-                webConnection.setRequestProperty("Content-Length", String.valueOf(endpointPostData.length()));
-                
-                httpRequestContentWriter = new OutputStreamWriter(webConnection.getOutputStream());
-                httpRequestContentWriter.write(endpointPostData);
-                httpRequestContentWriter.flush();
+                requestBody = APIv1HTTPRequestBody.fromString(endpointPostData);
             }
             
             //send HTTP request
-			webConnection.connect();
+            transportResponse = transport.send(requestMethod, apiOrgURL + endpointName + "?" + endpointParams, requestHeaders, requestBody, timeoutMilliseconds);
             
             //get the output of the HTTP response
-			responseCode = webConnection.getResponseCode();
+			responseCode = transportResponse.getResponseCode();
 			if(responseCode == HttpURLConnection.HTTP_OK)
 			{	
-				//obtain the encoding returned by the server
-				String encoding = webConnection.getContentEncoding();
-				
-				//The Content-Type can be used later to determine the nature of the content regardless of compression
-				String contentType = webConnection.getContentType();
-                
-                //get the body of the response based from the encoding type
-				InputStream resultingInputStream = null;
-				if (encoding != null && encoding.equalsIgnoreCase(HTTP_HEADER_CONTENT_ENCODING_GZIP)) {
-					resultingInputStream = new GZIPInputStream((InputStream)webConnection.getContent());
-				}
-				else if (encoding != null && encoding.equalsIgnoreCase("deflate")) {
-					resultingInputStream = new InflaterInputStream((InputStream)webConnection.getContent(), new Inflater(true));
-				}
-				else {
-					resultingInputStream = (InputStream)webConnection.getContent();
-				}
-                
-                //build a string from the content of the HTTP response
-                httpResponseBufferReader  = new BufferedReader( new InputStreamReader(resultingInputStream));
-                builder = new StringBuilder();
-                String line = null;
-                while ((line = httpResponseBufferReader.readLine()) != null)
-                {
-                    builder.append(line);
-                }
-                
-                //deserialize HTTP response from JSON into the endpoint response object
-                endpointResponse = endpointJSONReader.readValue(builder.toString());
+                //deserialize HTTP response from JSON into the endpoint response object, directly from the content of the HTTP response as it is received
+                endpointResponse = readResponseBody(transportResponse, (JsonParser jsonParser) -> endpointJSONReader.<T>readValue(jsonParser));
                 
                 //get the message that corresponds with the result code
                 if(langBundle.containsKey(endpointResponse.result_code)){
@@ -165,14 +221,9 @@ public class APIv1HTTPRequest
 		
 		finally
 		{
-			//close the connection, set all objects to null
-			if(webConnection != null){
-				webConnection.disconnect();
-			}
-			httpResponseBufferReader = null;
-			builder = null;
-			httpRequestContentWriter = null;
-			webConnection = null;
+			//close the response so that its connection can be reused, set all objects to null
+			closeTransportResponse(transportResponse);
+			transportResponse = null;
 		}
         
         return endpointResponse;
@@ -196,110 +247,179 @@ public class APIv1HTTPRequest
      */
     public static APIv1EndpointResponseESD sendESDocumentHTTPRequest(String requestMethod, String endpointName, String endpointParams, ArrayList<Pair<String, String>> requestHeaders, String postData, ESDocument esDocument, int timeoutMilliseconds, ResourceBundle langBundle, ObjectReader endpointJSONReader, APIv1EndpointResponseESD endpointResponse)
     {
-        //make a request to login to the API with the credentials
-        HttpURLConnection webConnection = null;
-        OutputStreamWriter httpRequestContentWriter = null;
-        BufferedReader httpResponseBufferReader = null;
-        StringBuilder builder = null;
+        return sendESDocumentHTTPRequest(defaultTransport, APIv1Constants.API_ORG_URL, requestMethod, endpointName, endpointParams, requestHeaders, postData, esDocument, null, defaultCompressionSettings, timeoutMilliseconds, langBundle, getDocumentReader(endpointJSONReader), endpointResponse);
+    }
+    
+    /**
+     * Sends a HTTP request with a specified URL, headers and data of a Ecommerce Standards Document to the SQUIZZ.com platform's API, using the transport, language and concurrent request limit of an organisation's API session. 
+     * Parses JSON data returned from a HTTP response into an Ecommerce Standards Document of a specified type
+     * Note that data uploaded is compressed using GZIP
+     * @param apiOrgSession organisation API session that the request is being made for
+     * @param requestMethod method to send the HTTP request as, either GET or POST
+     * @param endpointName name of the endpoint in the platform's API to send the request to
+     * @param endpointParams list of parameters to append to the end of the request's URL
+     * @param requestHeaders list of key value pairs to add to the request's headers
+     * @param postData content to send in the body of the request, this text is ignored if esDocument is not null
+     * @param esDocument Ecommerce Standards Document containing the records and data to push up to the platform's API
+     * @param timeoutMilliseconds amount of milliseconds to wait before giving up waiting on receiving a response from the API. For larger amounts of data posted increase the timeout time
+     * @param endpointJSONReader the reader used to deserialize the JSON response from the request. ensure that the reader can deserialize the same generic class set when calling the method
+     * @param endpointResponse the response object that may be used to report the response from the server
+     * @return a type of endpoint response based on the type of endpoint being called, with the response containing the ESDocument
+     */
+    public static APIv1EndpointResponseESD sendESDocumentHTTPRequest(APIv1OrgSession apiOrgSession, String requestMethod, String endpointName, String endpointParams, ArrayList<Pair<String, String>> requestHeaders, String postData, ESDocument esDocument, int timeoutMilliseconds, ObjectReader endpointJSONReader, APIv1EndpointResponseESD endpointResponse)
+    {
+        return sendESDocumentHTTPRequest(apiOrgSession, requestMethod, endpointName, endpointParams, requestHeaders, postData, esDocument, timeoutMilliseconds, getDocumentReader(endpointJSONReader), endpointResponse);
+    }
+    
+    /**
+     * Sends a HTTP request with a specified URL, headers and data of a Ecommerce Standards Document to the SQUIZZ.com platform's API, using the transport, language and concurrent request limit of an organisation's API session. 
+     * Reads the Ecommerce Standards Document returned in the HTTP response with a given reader as the response is received, such as a reader that streams the document's records
+     * @param apiOrgSession organisation API session that the request is being made for
+     * @param requestMethod method to send the HTTP request as, either GET or POST
+     * @param endpointName name of the endpoint in the platform's API to send the request to
+     * @param endpointParams list of parameters to append to the end of the request's URL
+     * @param requestHeaders list of key value pairs to add to the request's headers
+     * @param postData content to send in the body of the request, this text is ignored if esDocument is not null
+     * @param esDocument Ecommerce Standards Document containing the records and data to push up to the platform's API
+     * @param timeoutMilliseconds amount of milliseconds to wait before giving up waiting on receiving a response from the API. For larger amounts of data posted increase the timeout time
+     * @param documentReader reader used to read the Ecommerce Standards Document from the JSON response
+     * @param endpointResponse the response object that may be used to report the response from the server
+     * @return a type of endpoint response based on the type of endpoint being called, with the response containing the ESDocument returned by the document reader
+     */
+    public static APIv1EndpointResponseESD sendESDocumentHTTPRequest(APIv1OrgSession apiOrgSession, String requestMethod, String endpointName, String endpointParams, ArrayList<Pair<String, String>> requestHeaders, String postData, ESDocument esDocument, int timeoutMilliseconds, APIv1JSONResponseReader<? extends ESDocument> documentReader, APIv1EndpointResponseESD endpointResponse)
+    {
+        return sendESDocumentHTTPRequest(apiOrgSession, requestMethod, endpointName, endpointParams, requestHeaders, postData, esDocument, null, timeoutMilliseconds, documentReader, endpointResponse);
+    }
+    
+    /**
+     * Sends a HTTP request with a specified URL, headers and a body containing an Ecommerce Standards Document serialized into JSON, and compressed if set by the body, to the SQUIZZ.com platform's API, using the transport, language and concurrent request limit of an organisation's API session.
+     * The body is written again for each retry of the request, unless the body cannot be repeated, in which case the request is not retried
+     * @param apiOrgSession organisation API session that the request is being made for
+     * @param requestMethod method to send the HTTP request as, which must be POST
+     * @param endpointName name of the endpoint in the platform's API to send the request to
+     * @param endpointParams list of parameters to append to the end of the request's URL
+     * @param requestHeaders list of key value pairs to add to the request's headers
+     * @param documentBody body that writes the Ecommerce Standards Document serialized into JSON, compressed with the encoding that the body returns from getContentEncoding(). The caller remains responsible for closing the body once the request has been sent
+     * @param timeoutMilliseconds amount of milliseconds to wait before giving up waiting on receiving a response from the API. For larger amounts of data posted increase the timeout time
+     * @param endpointJSONReader the reader used to deserialize the JSON response from the request. ensure that the reader can deserialize the same generic class set when calling the method
+     * @param endpointResponse the response object that may be used to report the response from the server
+     * @return a type of endpoint response based on the type of endpoint being called, with the response containing the ESDocument
+     */
+    public static APIv1EndpointResponseESD sendESDocumentHTTPRequest(APIv1OrgSession apiOrgSession, String requestMethod, String endpointName, String endpointParams, ArrayList<Pair<String, String>> requestHeaders, APIv1HTTPRequestBody documentBody, int timeoutMilliseconds, ObjectReader endpointJSONReader, APIv1EndpointResponseESD endpointResponse)
+    {
+        return sendESDocumentHTTPRequest(apiOrgSession, requestMethod, endpointName, endpointParams, requestHeaders, "", null, documentBody, timeoutMilliseconds, getDocumentReader(endpointJSONReader), endpointResponse);
+    }
+    
+    /**
+     * Sends a HTTP request through the transport of an organisation's API session, waiting for the organisation's concurrent request limit and retrying the request as set by the session's retry policy
+     */
+    private static APIv1EndpointResponseESD sendESDocumentHTTPRequest(APIv1OrgSession apiOrgSession, String requestMethod, String endpointName, String endpointParams, ArrayList<Pair<String, String>> requestHeaders, String postData, ESDocument esDocument, APIv1HTTPRequestBody documentBody, int timeoutMilliseconds, APIv1JSONResponseReader<? extends ESDocument> documentReader, APIv1EndpointResponseESD endpointResponse)
+    {
+        APIv1RetryPolicy retryPolicy = apiOrgSession.getRetryPolicy();
+        for(int attempt = 1; ; attempt++)
+        {
+            //wait until the organisation is able to send another request
+            Semaphore orgPermits = null;
+            try{
+                orgPermits = APIv1OrgRequestLimiter.acquire(apiOrgSession.getOrgID());
+            }catch(InterruptedException ex){
+                Thread.currentThread().interrupt();
+                endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
+                endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_UNKNOWN;
+                endpointResponse.result_message = apiOrgSession.getLangBundle().getString(endpointResponse.result_code) + "\n" + ex.getLocalizedMessage();
+                return endpointResponse;
+            }
+            
+            try{
+                endpointResponse = sendESDocumentHTTPRequest(apiOrgSession.getTransport(), apiOrgSession.getAPIOrgURL(), requestMethod, endpointName, endpointParams, requestHeaders, postData, esDocument, documentBody, apiOrgSession.getCompressionSettings(endpointName), timeoutMilliseconds, apiOrgSession.getLangBundle(), documentReader, endpointResponse);
+            }finally{
+                APIv1OrgRequestLimiter.release(orgPermits);
+            }
+            
+            //send the request again if it failed with a result that may succeed on another attempt, after waiting a random amount of time
+            if(retryPolicy == null || !retryPolicy.shouldRetry(endpointName, endpointResponse.result, endpointResponse.result_code, attempt) || !documentReader.isRepeatable() || (documentBody != null && !documentBody.isRepeatable()) || !retryPolicy.waitBeforeRetry(attempt)){
+                return endpointResponse;
+            }
+            
+            //clear the result of the failed attempt, so that it is not reported if the next attempt does not return a result code
+            endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_UNKNOWN;
+            endpointResponse.result_message = "";
+        }
+    }
+    
+    /**
+     * Places an Ecommerce Standards Document into an endpoint response, setting the response's result from the document's result status and result code
+     * @param endpointResponse endpoint response to set the document and result of
+     * @param esDocument Ecommerce Standards Document returned from the platform's API, or null if no document was returned
+     * @param langBundle language bundle to get the message of the result code from
+     */
+    public static void setESDocumentResult(APIv1EndpointResponseESD endpointResponse, ESDocument esDocument, ResourceBundle langBundle)
+    {
+        endpointResponse.esDocument = esDocument;
+        endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
+        
+        //get result status and result code from document
+        if(endpointResponse.esDocument != null){
+            //get the result status from the esDocument
+            if(endpointResponse.esDocument.resultStatus == ESDocumentConstants.RESULT_SUCCESS){
+                endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS;
+            }
+            
+            //get the result code from the ESdocument's configs if possible
+            if(endpointResponse.esDocument.configs != null){
+                endpointResponse.result_code = endpointResponse.esDocument.configs.getOrDefault(APIv1Constants.API_ORG_ENDPOINT_ATTRIBUTE_RESULT_CODE, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_UNKNOWN);
+            }
+        }
+        
+        //get the message that corresponds with the result code
+        if(langBundle.containsKey(endpointResponse.result_code)){
+            endpointResponse.result_message = langBundle.getString(endpointResponse.result_code);
+        }
+    }
+    
+    /**
+     * Sends a HTTP request containing an optional Ecommerce Standards Document through a given transport to an API at a given URL. Parses JSON data returned from a HTTP response into an Ecommerce Standards Document
+     */
+    private static APIv1EndpointResponseESD sendESDocumentHTTPRequest(APIv1HTTPTransport transport, String apiOrgURL, String requestMethod, String endpointName, String endpointParams, ArrayList<Pair<String, String>> requestHeaders, String postData, ESDocument esDocument, APIv1HTTPRequestBody documentBody, APIv1CompressionSettings compressionSettings, int timeoutMilliseconds, ResourceBundle langBundle, APIv1JSONResponseReader<? extends ESDocument> documentReader, APIv1EndpointResponseESD endpointResponse)
+    {
+        APIv1HTTPTransportResponse transportResponse = null;
         int responseCode = 0;
         
         try 
 		{
-            //create a new HTTP connection
-            URL serverAddress = new URL(APIv1Constants.API_PROTOCOL + APIv1Constants.API_DOMAIN + APIv1Constants.API_ORG_PATH + endpointName + "?" + endpointParams);
-            webConnection = (HttpURLConnection)serverAddress.openConnection();
-            webConnection.setRequestMethod(requestMethod);
-            webConnection.setReadTimeout(timeoutMilliseconds);
-            
-            //add the header properties to the request
-            for(int i=0; i < requestHeaders.size(); i++){
-                webConnection.setRequestProperty(requestHeaders.get(i).getKey(), requestHeaders.get(i).getValue());
-            }
-            
             //set the body of the request
+            APIv1HTTPRequestBody requestBody = null;
             if(requestMethod.equalsIgnoreCase(APIv1Constants.HTTP_REQUEST_METHOD_POST)){
-                if(esDocument != null)
+                if(documentBody != null)
                 {
-                    //set the that the data has been compressed within the request
-                    webConnection.setRequestProperty(HTTP_HEADER_CONTENT_ENCODING, HTTP_HEADER_CONTENT_ENCODING_GZIP);
-                    webConnection.setRequestProperty(HTTP_HEADER_CONTENT_TYPE, HTTP_HEADER_CONTENT_TYPE_JSON);
-                    webConnection.setDoOutput(true);
-                    
-                    //create JSON mapper for serialisation ofESDocument into JSON and compress with GZIP
-                    ObjectMapper jsonObjectMapper = new ObjectMapper();
-
-                    //dont serialize properties that contain default values
-                    jsonObjectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
-                    
-                    //serialise and compress the ESDocument
-                    GZIPOutputStream gzipOutputStream = new GZIPOutputStream(webConnection.getOutputStream());
-                    jsonObjectMapper.writeValue(gzipOutputStream, esDocument);
-                    gzipOutputStream.flush();
+                    //set how the data has been compressed within the request, and send the document written by the body
+                    requestHeaders = new ArrayList<>(requestHeaders);
+                    if(documentBody.getContentEncoding() != null){
+                        requestHeaders.add(new Pair<>(HTTP_HEADER_CONTENT_ENCODING, documentBody.getContentEncoding()));
+                    }
+                    requestHeaders.add(new Pair<>(HTTP_HEADER_CONTENT_TYPE, HTTP_HEADER_CONTENT_TYPE_JSON));
+                    requestBody = documentBody;
+                }
+                else if(esDocument != null)
+                {
+                    //serialise the ESDocument into the request, compressed as set by the compression settings
+                    requestHeaders = new ArrayList<>(requestHeaders);
+                    requestBody = getESDocumentRequestBody(esDocument, compressionSettings, requestHeaders);
                 }else{
                     //add post body text to request
-                    webConnection.setDoOutput(true);
-                    webConnection.setRequestProperty("Content-Length", String.valueOf(postData.length()));
-                    httpRequestContentWriter = new OutputStreamWriter(webConnection.getOutputStream());
-                    httpRequestContentWriter.write(postData);
-                    httpRequestContentWriter.flush();
+                    requestBody = APIv1HTTPRequestBody.fromString(postData);
                 }
             }
             
             //send HTTP request
-			webConnection.connect();
+            transportResponse = transport.send(requestMethod, apiOrgURL + endpointName + "?" + endpointParams, requestHeaders, requestBody, timeoutMilliseconds);
             
             //get the output of the HTTP response
-			responseCode = webConnection.getResponseCode();
+			responseCode = transportResponse.getResponseCode();
 			if(responseCode == HttpURLConnection.HTTP_OK)
 			{	
-				//obtain the encoding returned by the server
-				String encoding = webConnection.getContentEncoding();
-				
-				//The Content-Type can be used later to determine the nature of the content regardless of compression
-				String contentType = webConnection.getContentType();
-                
-                //get the body of the response based from the encoding type
-				InputStream resultingInputStream = null;
-				if (encoding != null && encoding.equalsIgnoreCase(HTTP_HEADER_CONTENT_ENCODING_GZIP)) {
-					resultingInputStream = new GZIPInputStream((InputStream)webConnection.getContent());
-				}
-				else if (encoding != null && encoding.equalsIgnoreCase("deflate")) {
-					resultingInputStream = new InflaterInputStream((InputStream)webConnection.getContent(), new Inflater(true));
-				}
-				else {
-					resultingInputStream = (InputStream)webConnection.getContent();
-				}
-                
-                //build a string from the content of the HTTP response
-                httpResponseBufferReader  = new BufferedReader( new InputStreamReader(resultingInputStream));
-                builder = new StringBuilder();
-                String line = null;
-                while ((line = httpResponseBufferReader.readLine()) != null)
-                {
-                    builder.append(line);
-                }
-                
-                //deserialize HTTP response from JSON into the endpoint response object
-                endpointResponse.esDocument = endpointJSONReader.readValue(builder.toString());
-                endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
-                
-                //get result status and result code from document
-                if(endpointResponse.esDocument != null){
-                    //get the result status from the esDocument
-                    if(endpointResponse.esDocument.resultStatus == ESDocumentConstants.RESULT_SUCCESS){
-                        endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS;
-                    }
-                    
-                    //get the result code from the ESdocument's configs if possible
-                    if(endpointResponse.esDocument.configs != null){
-                        endpointResponse.result_code = endpointResponse.esDocument.configs.getOrDefault(APIv1Constants.API_ORG_ENDPOINT_ATTRIBUTE_RESULT_CODE, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_UNKNOWN);
-                    }
-                }
-                
-                //get the message that corresponds with the result code
-                if(langBundle.containsKey(endpointResponse.result_code)){
-                    endpointResponse.result_message = langBundle.getString(endpointResponse.result_code);
-                }
+                //deserialize HTTP response from JSON into the endpoint response object, directly from the content of the HTTP response as it is received
+                setESDocumentResult(endpointResponse, readResponseBody(transportResponse, documentReader), langBundle);
             }else{
                 endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
                 endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_RESPONSE;
@@ -318,6 +438,10 @@ public class APIv1HTTPRequest
             endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
             endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_CONNECTION;
 			endpointResponse.result_message = langBundle.getString(endpointResponse.result_code) + "\n" + e.getLocalizedMessage();
+		}catch(APIv1ESDocumentValidationException e){
+            endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
+            endpointResponse.result_code = e.getResultCode();
+			endpointResponse.result_message = langBundle.getString(endpointResponse.result_code) + "\n" + e.getLocalizedMessage();
 		}catch (IOException e) {
             endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
             endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_IO;
@@ -331,16 +455,228 @@ public class APIv1HTTPRequest
 		
 		finally
 		{
-			//close the connection, set all objects to null
-			if(webConnection != null){
-				webConnection.disconnect();
-			}
-			httpResponseBufferReader = null;
-			builder = null;
-			httpRequestContentWriter = null;
-			webConnection = null;
+			//close the response so that its connection can be reused, set all objects to null
+			closeTransportResponse(transportResponse);
+			transportResponse = null;
 		}
         
         return endpointResponse;
     }
+    
+    /**
+     * gets the body of a request that serializes an Ecommerce Standards Document into JSON as the request is sent, compressing it with gzip unless the compression settings send the document uncompressed.
+     * If the settings have an uncompressed threshold then the document is first serialized into memory only up to the threshold. Documents smaller than the threshold are sent uncompressed from memory,
+     * whilst larger documents are discarded from memory once they reach the threshold and are serialized again as they are streamed compressed into the request
+     * @param esDocument Ecommerce Standards Document to place in the body
+     * @param compressionSettings settings to compress the document with, which the sizes of the body are recorded in the first time the body is written
+     * @param requestHeaders headers of the request, which the content type and encoding of the body are added to
+     * @return request body
+     * @throws IOException if a document being checked against the settings' uncompressed threshold could not be serialized
+     */
+    private static APIv1HTTPRequestBody getESDocumentRequestBody(final ESDocument esDocument, final APIv1CompressionSettings compressionSettings, ArrayList<Pair<String, String>> requestHeaders) throws IOException
+    {
+        //get the shared JSON writer for serialisation of the ESDocument into JSON, which doesn't serialize properties that contain default values, and leaves closing the stream it writes into to the request body
+        final ObjectWriter jsonObjectWriter = APIv1JSONMapper.getWriter(esDocument.getClass()).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        final APIv1CompressionStatistics compressionStatistics = compressionSettings.getStatistics();
+        final AtomicBoolean statisticsRecorded = new AtomicBoolean(false);
+        requestHeaders.add(new Pair<>(HTTP_HEADER_CONTENT_TYPE, HTTP_HEADER_CONTENT_TYPE_JSON));
+        
+        //serialise the ESDocument into memory up to the threshold, and send it uncompressed if the whole document fits below the threshold
+        int uncompressedThresholdBytes = compressionSettings.getUncompressedThresholdBytes();
+        if(compressionSettings.isCompressed() && uncompressedThresholdBytes > 0)
+        {
+            ThresholdBufferStream thresholdStream = new ThresholdBufferStream(uncompressedThresholdBytes);
+            try{
+                jsonObjectWriter.writeValue(thresholdStream, esDocument);
+            }catch(IOException ex){
+                if(!thresholdStream.isThresholdReached()){
+                    throw ex;
+                }
+            }
+            
+            if(!thresholdStream.isThresholdReached()){
+                final byte[] documentBody = thresholdStream.toByteArray();
+                return new APIv1HTTPRequestBody(){
+                    @Override
+                    public void writeTo(OutputStream requestOutputStream) throws IOException{
+                        requestOutputStream.write(documentBody);
+                        if(statisticsRecorded.compareAndSet(false, true)){
+                            compressionStatistics.recordRequestBody(documentBody.length, documentBody.length, false);
+                        }
+                    }
+                    
+                    @Override
+                    public long getContentLength(){
+                        return documentBody.length;
+                    }
+                };
+            }
+        }
+        
+        //serialise the ESDocument straight into the request as it is sent without compressing it
+        if(!compressionSettings.isCompressed()){
+            return (OutputStream requestOutputStream) -> {
+                APIv1CountingOutputStream countingOutputStream = new APIv1CountingOutputStream(requestOutputStream);
+                jsonObjectWriter.writeValue(countingOutputStream, esDocument);
+                if(statisticsRecorded.compareAndSet(false, true)){
+                    compressionStatistics.recordRequestBody(countingOutputStream.getBytesWritten(), countingOutputStream.getBytesWritten(), false);
+                }
+            };
+        }
+        
+        //serialise and compress the ESDocument straight into the request as it is sent, only finishing the gzip stream to write its trailer once the whole document has been serialized
+        requestHeaders.add(new Pair<>(HTTP_HEADER_CONTENT_ENCODING, HTTP_HEADER_CONTENT_ENCODING_GZIP));
+        return (OutputStream requestOutputStream) -> {
+            APIv1CountingOutputStream compressedCountingStream = new APIv1CountingOutputStream(requestOutputStream);
+            APIv1CompressionSettings.CompressingStream compressingStream = compressionSettings.createCompressingStream(compressedCountingStream);
+            try{
+                APIv1CountingOutputStream rawCountingStream = new APIv1CountingOutputStream(compressingStream);
+                jsonObjectWriter.writeValue(rawCountingStream, esDocument);
+                compressingStream.finish();
+                compressingStream.flush();
+                if(statisticsRecorded.compareAndSet(false, true)){
+                    compressionStatistics.recordRequestBody(rawCountingStream.getBytesWritten(), compressedCountingStream.getBytesWritten(), true);
+                }
+            }finally{
+                compressingStream.end();
+            }
+        };
+    }
+    
+    /**
+     * stream that holds the bytes written into it in memory until they reach a given number of bytes, then discards them and fails every write to stop the serialization writing into it,
+     * used to find if a document is smaller than a size without holding more than that size of the document in memory
+     */
+    private static class ThresholdBufferStream extends OutputStream
+    {
+        private final int thresholdBytes;
+        private ByteArrayOutputStream buffer;
+        
+        public ThresholdBufferStream(int thresholdBytes)
+        {
+            this.thresholdBytes = thresholdBytes;
+            this.buffer = new ByteArrayOutputStream(Math.min(thresholdBytes, APIv1CompressionSettings.DEFAULT_BUFFER_SIZE));
+        }
+        
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[]{(byte)b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            if(buffer == null || buffer.size() + len >= thresholdBytes){
+                buffer = null;
+                throw new IOException("document reached the uncompressed threshold of " + thresholdBytes + " bytes");
+            }
+            buffer.write(b, off, len);
+        }
+        
+        public boolean isThresholdReached()
+        {
+            return buffer == null;
+        }
+        
+        /**
+         * gets the bytes held by the stream
+         * @return bytes written, or null if the threshold was reached
+         */
+        public byte[] toByteArray()
+        {
+            return (buffer != null? buffer.toByteArray(): null);
+        }
+    }
+    
+    /**
+     * gets a reader that deserializes a whole Ecommerce Standards Document from a HTTP response
+     * @param endpointJSONReader the reader used to deserialize the JSON response into an Ecommerce Standards Document
+     * @return document reader
+     */
+    private static APIv1JSONResponseReader<ESDocument> getDocumentReader(final ObjectReader endpointJSONReader)
+    {
+        return (JsonParser jsonParser) -> endpointJSONReader.<ESDocument>readValue(jsonParser);
+    }
+    
+    /**
+     * deserializes the JSON body of a HTTP response as it is read from the transport, without first buffering the body into a string.
+     * Jackson parses the stream using its own recycled per-thread buffers. The stream used to decompress the body is closed to free the native memory of its inflater,
+     * whilst the transport's stream is left open so that the transport can consume any remaining bytes and reuse the connection
+     * @param <V> type of object being deserialized
+     * @param transportResponse response returned from the transport
+     * @param responseReader the reader used to read the object from the JSON response
+     * @return object deserialized from the response body
+     * @throws IOException if the body could not be read or is not valid JSON
+     */
+    private static <V> V readResponseBody(APIv1HTTPTransportResponse transportResponse, APIv1JSONResponseReader<V> responseReader) throws IOException
+    {
+        InputStream responseBodyInputStream = getResponseBodyInputStream(transportResponse);
+        try{
+            JsonParser jsonParser = APIv1JSONMapper.getObjectMapper().getFactory().createParser(responseBodyInputStream);
+            try{
+                jsonParser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+                return responseReader.read(jsonParser);
+            }finally{
+                jsonParser.close();
+            }
+        }finally{
+            responseBodyInputStream.close();
+        }
+    }
+    
+    /**
+     * gets a stream to read the body of a HTTP response from, decompressing the body based on the encoding returned by the server.
+     * Closing the stream ends any inflater used to decompress the body, without closing the transport's stream of the body
+     * @param transportResponse response returned from the transport
+     * @return stream of the decompressed response body
+     * @throws IOException if the body could not be read
+     */
+    private static InputStream getResponseBodyInputStream(APIv1HTTPTransportResponse transportResponse) throws IOException
+    {
+        //obtain the encoding returned by the server
+        String encoding = transportResponse.getContentEncoding();
+        
+        //shield the transport's stream from being closed, leaving it to be closed by the transport response
+        InputStream responseBody = new FilterInputStream(transportResponse.getBody()){
+            @Override
+            public void close(){}
+        };
+        
+        //get the body of the response based from the encoding type
+        if (encoding != null && encoding.equalsIgnoreCase(HTTP_HEADER_CONTENT_ENCODING_GZIP)) {
+            return new GZIPInputStream(responseBody, RESPONSE_INFLATE_BUFFER_SIZE);
+        }
+        else if (encoding != null && encoding.equalsIgnoreCase(HTTP_HEADER_CONTENT_ENCODING_DEFLATE)) {
+            //end the inflater when the stream is closed, since a stream given its own inflater does not end it
+            final Inflater inflater = new Inflater(true);
+            return new InflaterInputStream(responseBody, inflater){
+                @Override
+                public void close() throws IOException {
+                    try{
+                        super.close();
+                    }finally{
+                        inflater.end();
+                    }
+                }
+            };
+        }
+        else {
+            return responseBody;
+        }
+    }
+    
+    /**
+     * closes a response returned from a transport, ignoring any errors that occur
+     * @param transportResponse response to close, may be null
+     */
+    private static void closeTransportResponse(APIv1HTTPTransportResponse transportResponse)
+    {
+        if(transportResponse != null){
+            try{
+                transportResponse.close();
+            }catch(IOException ex){
+            }
+        }
+    }
 }
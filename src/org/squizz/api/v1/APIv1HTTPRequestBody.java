@@ -0,0 +1,73 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the body of a HTTP request sent to the platform's API through a transport
+ */
+public interface APIv1HTTPRequestBody
+{
+    /**
+     * writes the content of the body into the request
+     * @param outputStream stream of the request to write the body into. The transport closes the stream once the body has been written
+     * @throws IOException if the body could not be written
+     */
+    public void writeTo(OutputStream outputStream) throws IOException;
+
+    /**
+     * gets the number of bytes that will be written into the request
+     * @return number of bytes in the body, or -1 if the length is not known before the body is written
+     */
+    public default long getContentLength()
+    {
+        return -1;
+    }
+
+    /**
+     * gets the encoding that the body is compressed with, which is set in the Content-Encoding header of requests sending a document written by the body
+     * @return content encoding such as gzip, or null if the body is not compressed
+     */
+    public default String getContentEncoding()
+    {
+        return null;
+    }
+
+    /**
+     * checks if the body can be written again, allowing the request to be retried if it fails
+     * @return true if the body can be written more than once
+     */
+    public default boolean isRepeatable()
+    {
+        return true;
+    }
+    
+    /**
+     * creates a request body containing text encoded in UTF-8
+     * @param text text to place in the body
+     * @return request body
+     */
+    public static APIv1HTTPRequestBody fromString(String text)
+    {
+        final byte[] bodyBytes = text.getBytes(StandardCharsets.UTF_8);
+
+        return new APIv1HTTPRequestBody(){
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException{
+                outputStream.write(bodyBytes);
+            }
+
+            @Override
+            public long getContentLength(){
+                return bodyBytes.length;
+            }
+        };
+    }
+}
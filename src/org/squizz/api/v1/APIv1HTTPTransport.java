@@ -0,0 +1,30 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import javafx.util.Pair;
+
+/**
+ * Transport used to send HTTP requests to the platform's API and obtain the raw HTTP responses.
+ * Implementations must be thread safe, since a single transport is shared by all endpoint calls made with the API sessions that it is assigned to
+ */
+public interface APIv1HTTPTransport
+{
+    /**
+     * Sends a HTTP request and waits for the headers of the HTTP response to be returned
+     * @param requestMethod method to send the HTTP request with, either GET or POST
+     * @param requestURL full URL of the request, including its query string
+     * @param requestHeaders list of key value pairs to add to the request's headers
+     * @param requestBody body to write into the request, or null if the request has no body
+     * @param timeoutMilliseconds amount of milliseconds to wait before giving up waiting on receiving a response from the API
+     * @return response from the server. The caller must close the response once its body has been read so that the connection can be reused
+     * @throws IOException if the request could not be sent or the response could not be received
+     */
+    public APIv1HTTPTransportResponse send(String requestMethod, String requestURL, ArrayList<Pair<String, String>> requestHeaders, APIv1HTTPRequestBody requestBody, int timeoutMilliseconds) throws IOException;
+}
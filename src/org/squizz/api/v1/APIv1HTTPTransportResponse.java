@@ -0,0 +1,103 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Represents the raw HTTP response returned by a transport after sending a request to the platform's API
+ */
+public class APIv1HTTPTransportResponse implements Closeable
+{
+    /**
+     * maximum number of unread bytes to discard from the body when closing the response, so that the connection can be reused
+     */
+    private static final int MAX_DRAIN_BYTES = 65536;
+
+    private final int responseCode;
+    private final String contentEncoding;
+    private final String contentType;
+    private final InputStream body;
+
+    /**
+     * creates a response
+     * @param responseCode HTTP status code returned by the server
+     * @param contentEncoding value of the Content-Encoding header, or null if not set
+     * @param contentType value of the Content-Type header, or null if not set
+     * @param body stream of the (possibly compressed) body of the response, or null if the response has no body
+     */
+    public APIv1HTTPTransportResponse(int responseCode, String contentEncoding, String contentType, InputStream body)
+    {
+        this.responseCode = responseCode;
+        this.contentEncoding = contentEncoding;
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+    /**
+     * gets the HTTP status code returned by the server
+     * @return HTTP status code
+     */
+    public int getResponseCode()
+    {
+        return responseCode;
+    }
+
+    /**
+     * gets the encoding that the body of the response has been compressed with
+     * @return value of the Content-Encoding header, or null if not set
+     */
+    public String getContentEncoding()
+    {
+        return contentEncoding;
+    }
+
+    /**
+     * gets the type of content stored in the body of the response
+     * @return value of the Content-Type header, or null if not set
+     */
+    public String getContentType()
+    {
+        return contentType;
+    }
+
+    /**
+     * gets the stream to read the body of the response from, as it was sent by the server without being decompressed
+     * @return stream of the response body, or null if the response has no body
+     */
+    public InputStream getBody()
+    {
+        return body;
+    }
+
+    /**
+     * discards any unread content of the body and closes it, allowing the transport to reuse the connection for later requests
+     * @throws IOException if the body could not be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if(body == null){
+            return;
+        }
+
+        try{
+            byte[] drainBuffer = new byte[4096];
+            int drainedBytes = 0;
+            int bytesRead;
+            while(drainedBytes < MAX_DRAIN_BYTES && (bytesRead = body.read(drainBuffer)) != -1){
+                drainedBytes += bytesRead;
+            }
+        }catch(IOException ex){
+        }
+        finally{
+            body.close();
+        }
+    }
+}
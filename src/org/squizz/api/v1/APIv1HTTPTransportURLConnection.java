@@ -0,0 +1,133 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import javafx.util.Pair;
+
+/**
+ * Default transport that sends requests to the platform's API using the Java runtime's HttpURLConnection.
+ * Connections are never forcibly disconnected, instead each response body is fully read and closed so that the runtime's keep-alive cache can reuse the
+ * underlying socket and TLS session for later requests made to the same host, avoiding a new TLS handshake on each call to the API
+ */
+public class APIv1HTTPTransportURLConnection implements APIv1HTTPTransport
+{
+    /**
+     * name of the system property that the Java runtime reads to set the maximum number of idle keep-alive connections kept per host
+     */
+    public static final String SYSTEM_PROPERTY_MAX_KEEP_ALIVE_CONNECTIONS = "http.maxConnections";
+
+    /**
+     * number of bytes sent in each chunk of request bodies whose length is not known before they are written
+     */
+    public static final int REQUEST_BODY_CHUNK_SIZE = 65536;
+
+    /**
+     * amount of milliseconds to wait for a connection to be established with the server, 0 to wait indefinitely
+     */
+    private final int connectTimeoutMilliseconds;
+
+    /**
+     * creates a transport that uses the Java runtime's default connection settings
+     */
+    public APIv1HTTPTransportURLConnection()
+    {
+        this(0);
+    }
+
+    /**
+     * creates a transport with the given connection settings
+     * @param connectTimeoutMilliseconds amount of milliseconds to wait for a connection to be established with the server, set 0 to wait indefinitely
+     */
+    public APIv1HTTPTransportURLConnection(int connectTimeoutMilliseconds)
+    {
+        this.connectTimeoutMilliseconds = connectTimeoutMilliseconds;
+    }
+
+    /**
+     * sets the maximum number of idle connections the Java runtime keeps open per host for reuse, for all HTTP connections made by the application.
+     * This sets the JVM-wide http.maxConnections system property, which the runtime only reads when it makes its first HTTP connection, so call this once at startup before any requests are sent.
+     * The property is not changed if the application has already set it
+     * @param maxKeepAliveConnections maximum number of idle connections kept per host, the runtime's default is 5
+     * @return true if the system property was set
+     */
+    public static boolean setMaxKeepAliveConnections(int maxKeepAliveConnections)
+    {
+        if(maxKeepAliveConnections <= 0 || System.getProperty(SYSTEM_PROPERTY_MAX_KEEP_ALIVE_CONNECTIONS) != null){
+            return false;
+        }
+
+        System.setProperty(SYSTEM_PROPERTY_MAX_KEEP_ALIVE_CONNECTIONS, String.valueOf(maxKeepAliveConnections));
+        return true;
+    }
+
+    /**
+     * Sends a HTTP request using a HttpURLConnection and waits for the headers of the HTTP response to be returned
+     * @param requestMethod method to send the HTTP request with, either GET or POST
+     * @param requestURL full URL of the request, including its query string
+     * @param requestHeaders list of key value pairs to add to the request's headers
+     * @param requestBody body to write into the request, or null if the request has no body
+     * @param timeoutMilliseconds amount of milliseconds to wait before giving up waiting on receiving a response from the API
+     * @return response from the server
+     * @throws IOException if the request could not be sent or the response could not be received
+     */
+    @Override
+    public APIv1HTTPTransportResponse send(String requestMethod, String requestURL, ArrayList<Pair<String, String>> requestHeaders, APIv1HTTPRequestBody requestBody, int timeoutMilliseconds) throws IOException
+    {
+        //create a new HTTP connection, which the runtime may serve from its cache of kept alive connections
+        URL serverAddress = new URL(requestURL);
+        HttpURLConnection webConnection = (HttpURLConnection)serverAddress.openConnection();
+        webConnection.setRequestMethod(requestMethod);
+        webConnection.setConnectTimeout(connectTimeoutMilliseconds);
+        webConnection.setReadTimeout(timeoutMilliseconds);
+
+        //add the header properties to the request
+        for(int i=0; i < requestHeaders.size(); i++){
+            webConnection.setRequestProperty(requestHeaders.get(i).getKey(), requestHeaders.get(i).getValue());
+        }
+
+        //set the body of the request, streaming it to the server as it is written rather than letting the connection buffer the whole body in memory,
+        //using a fixed length when the body's length is known, otherwise sending it with chunked transfer encoding
+        if(requestBody != null){
+            webConnection.setDoOutput(true);
+            long contentLength = requestBody.getContentLength();
+            if(contentLength >= 0){
+                webConnection.setFixedLengthStreamingMode(contentLength);
+            }else{
+                webConnection.setChunkedStreamingMode(REQUEST_BODY_CHUNK_SIZE);
+            }
+            OutputStream requestOutputStream = webConnection.getOutputStream();
+            try{
+                requestBody.writeTo(requestOutputStream);
+            }catch(IOException | RuntimeException ex){
+                //drop the connection without closing the body's stream, so that a body that failed to be written is never completed and processed by the server
+                webConnection.disconnect();
+                throw ex;
+            }
+            requestOutputStream.close();
+        }
+
+        //send HTTP request and get the status of the HTTP response
+        webConnection.connect();
+        int responseCode = webConnection.getResponseCode();
+
+        //get the body of the response, for unsuccessful responses the error stream must still be read for the connection to be reused
+        InputStream responseBody;
+        if(responseCode < HttpURLConnection.HTTP_BAD_REQUEST){
+            responseBody = webConnection.getInputStream();
+        }else{
+            responseBody = webConnection.getErrorStream();
+        }
+
+        return new APIv1HTTPTransportResponse(responseCode, webConnection.getContentEncoding(), webConnection.getContentType(), responseBody);
+    }
+}
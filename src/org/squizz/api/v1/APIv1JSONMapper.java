@@ -0,0 +1,125 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.util.concurrent.ConcurrentHashMap;
+import org.esd.EcommerceStandardsDocuments.*;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+
+/**
+ * Library wide registry of the JSON mapper, readers and writers used to serialize and deserialize data sent to and from the platform's API.
+ * Jackson mappers, readers and writers are thread safe once configured, so a single instance is shared by all API sessions and endpoint calls, which allows Jackson to cache the serializers and deserializers it builds for each class
+ */
+public class APIv1JSONMapper
+{
+    /**
+     * mapper configured to ignore unknown properties when deserializing, and to not serialize properties that contain default values
+     */
+    private static final ObjectMapper jsonMapper = createObjectMapper();
+
+    /**
+     * readers that have been resolved for each class being deserialized
+     */
+    private static final ConcurrentHashMap<Class<?>, ObjectReader> jsonReaders = new ConcurrentHashMap<>();
+
+    /**
+     * writers that have been resolved for each class being serialized
+     */
+    private static final ConcurrentHashMap<Class<?>, ObjectWriter> jsonWriters = new ConcurrentHashMap<>();
+
+    static
+    {
+        //pre-resolve the readers for the responses and Ecommerce Standards Documents returned from the platform's API
+        Class<?>[] readerClasses = new Class<?>[]{
+            APIv1EndpointResponse.class,
+            ESDocumentProduct.class,
+            ESDocumentPrice.class,
+            ESDocumentStockQuantity.class,
+            ESDocumentCategory.class,
+            ESDocumentAttribute.class,
+            ESDocumentMaker.class,
+            ESDocumentMakerModel.class,
+            ESDocumentMakerModelMapping.class,
+            ESDocumentOrderSale.class,
+            ESDocumentSupplierInvoice.class,
+            ESDocumentCustomerAccountEnquiry.class
+        };
+        for(Class<?> readerClass: readerClasses){
+            getReader(readerClass);
+        }
+
+        //pre-resolve the writers for the Ecommerce Standards Documents commonly sent to the platform's API
+        Class<?>[] writerClasses = new Class<?>[]{
+            ESDocumentProduct.class,
+            ESDocumentPrice.class,
+            ESDocumentStockQuantity.class,
+            ESDocumentOrderSale.class,
+            ESDocumentOrderPurchase.class,
+            ESDocumentCustomerInvoice.class
+        };
+        for(Class<?> writerClass: writerClasses){
+            getWriter(writerClass);
+        }
+    }
+
+    /**
+     * creates the mapper shared by the library
+     * @return configured JSON object mapper
+     */
+    private static ObjectMapper createObjectMapper()
+    {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        //dont serialize properties that contain default values
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
+
+        return objectMapper;
+    }
+
+    /**
+     * gets the JSON mapper shared by the library. The mapper must not be reconfigured once obtained, since it is used concurrently by all API calls
+     * @return JSON object mapper
+     */
+    public static ObjectMapper getObjectMapper()
+    {
+        return jsonMapper;
+    }
+
+    /**
+     * gets a reader that deserializes JSON into objects of a given class
+     * @param readerClass class of the objects to deserialize
+     * @return thread safe JSON object reader
+     */
+    public static ObjectReader getReader(Class<?> readerClass)
+    {
+        ObjectReader jsonReader = jsonReaders.get(readerClass);
+        if(jsonReader == null){
+            jsonReader = jsonReaders.computeIfAbsent(readerClass, jsonMapper::readerFor);
+        }
+        return jsonReader;
+    }
+
+    /**
+     * gets a writer that serializes objects of a given class into JSON, without serializing properties that contain default values
+     * @param writerClass class of the objects to serialize
+     * @return thread safe JSON object writer
+     */
+    public static ObjectWriter getWriter(Class<?> writerClass)
+    {
+        ObjectWriter jsonWriter = jsonWriters.get(writerClass);
+        if(jsonWriter == null){
+            jsonWriter = jsonWriters.computeIfAbsent(writerClass, jsonMapper::writerFor);
+        }
+        return jsonWriter;
+    }
+}
@@ -0,0 +1,35 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.IOException;
+
+/**
+ * Reads an object from the JSON body of a HTTP response returned from the platform's API, as the body is being received
+ * @param <V> type of object read from the response
+ */
+public interface APIv1JSONResponseReader<V>
+{
+    /**
+     * reads an object from the JSON parser of a HTTP response
+     * @param jsonParser parser positioned before the first token of the response body. The parser is closed by the caller once the object has been read
+     * @return object read from the response
+     * @throws IOException if the response could not be read or is not valid JSON
+     */
+    public V read(JsonParser jsonParser) throws IOException;
+    
+    /**
+     * indicates if the reader can read the response of a request that is sent again, after it has already been used to read a response
+     * @return true if the request can be retried using the reader
+     */
+    public default boolean isRepeatable()
+    {
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of requests that can be sent at the same time to the platform's API for each organisation, across all of the organisation's API sessions.
+ * Calls that are made while the limit has been reached wait until one of the organisation's requests has completed, which allows large numbers of calls to be started at once
+ * (such as on virtual threads) without each of them holding open a connection to the platform
+ */
+public class APIv1OrgRequestLimiter
+{
+    /**
+     * permits of each organisation that has had a limit set, keyed by the organisation's ID
+     */
+    private static final ConcurrentHashMap<String, Semaphore> orgPermits = new ConcurrentHashMap<>();
+    
+    /**
+     * limits set for each organisation, keyed by the organisation's ID
+     */
+    private static final ConcurrentHashMap<String, Integer> orgLimits = new ConcurrentHashMap<>();
+    
+    /**
+     * sets the maximum number of requests that can be sent at the same time for an organisation.
+     * Requests that have already acquired a permit under a previous limit continue and release their permit back to the previous limit
+     * @param orgID unique ID of the organisation in the platform
+     * @param maxConcurrentRequests maximum number of requests that can be in progress at once, set 0 or less to remove the limit
+     */
+    public static synchronized void setMaxConcurrentRequests(String orgID, int maxConcurrentRequests)
+    {
+        if(maxConcurrentRequests > 0){
+            orgLimits.put(orgID, maxConcurrentRequests);
+            orgPermits.put(orgID, new Semaphore(maxConcurrentRequests, true));
+        }else{
+            orgLimits.remove(orgID);
+            orgPermits.remove(orgID);
+        }
+    }
+    
+    /**
+     * gets the maximum number of requests that can be sent at the same time for an organisation
+     * @param orgID unique ID of the organisation in the platform
+     * @return maximum number of requests, or 0 if the organisation has no limit
+     */
+    public static int getMaxConcurrentRequests(String orgID)
+    {
+        return orgLimits.getOrDefault(orgID, 0);
+    }
+    
+    /**
+     * waits until a request can be sent for an organisation, then takes a permit to send the request
+     * @param orgID unique ID of the organisation in the platform
+     * @return the permits that one permit was taken from, which must be given to release() once the request has completed, or null if the organisation has no limit
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public static Semaphore acquire(String orgID) throws InterruptedException
+    {
+        Semaphore permits = orgPermits.get(orgID);
+        if(permits != null){
+            permits.acquire();
+        }
+        return permits;
+    }
+    
+    /**
+     * releases a permit taken to send a request
+     * @param permits permits returned from acquire(), may be null
+     */
+    public static void release(Semaphore permits)
+    {
+        if(permits != null){
+            permits.release();
+        }
+    }
+}
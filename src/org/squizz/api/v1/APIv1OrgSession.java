@@ -10,13 +10,16 @@ import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import org.esd.EcommerceStandardsDocuments.ESDocumentConstants;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import java.util.ArrayList;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import javafx.util.Pair;
+import org.squizz.api.v1.cache.APIv1ImportHashStore;
+import org.squizz.api.v1.cache.APIv1RetrieveCache;
 
 /**
  * Represents a session created within the API of the SQUIZZ.com platform for an organisation
@@ -63,6 +66,56 @@ public class APIv1OrgSession
      */
     private ResourceBundle langBundle = null;
     
+    /**
+     * transport used to send requests to the platform's API for the session, if null then the library's default transport is used
+     */
+    private APIv1HTTPTransport transport = null;
+    
+    /**
+     * executor used to run asynchronous calls to the platform's API for the session, if null then the library's default executor is used
+     */
+    private Executor executor = null;
+    
+    /**
+     * policy that controls how failed requests to the platform's API are retried for the session, if null then requests are not retried
+     */
+    private APIv1RetryPolicy retryPolicy = null;
+    
+    /**
+     * URL of the API that the session's requests are sent to, followed by the name of the endpoint being called
+     */
+    private String apiOrgURL = APIv1Constants.API_ORG_URL;
+    
+    /**
+     * cache checked before retrieving Ecommerce Standards Documents from the platform's API for the session, if null then documents are not cached
+     */
+    private APIv1RetrieveCache retrieveCache = null;
+    
+    /**
+     * coalescer that shares the responses of identical retrieve requests in flight at the same time for the session, if null then each request is sent
+     */
+    private APIv1RequestCoalescer requestCoalescer = null;
+    
+    /**
+     * minimum number of records that a document being imported for the session must contain for it to be serialized and compressed across multiple cores before its request is sent, if 0 then documents are serialized as they are sent
+     */
+    private int importPreSerializeRecordsThreshold = 0;
+    
+    /**
+     * store of the hashes of documents last successfully imported for the session, if null then every document is imported
+     */
+    private APIv1ImportHashStore importHashStore = null;
+    
+    /**
+     * settings used to compress the documents sent in requests to endpoints that have not been assigned their own settings
+     */
+    private APIv1CompressionSettings defaultCompressionSettings = new APIv1CompressionSettings();
+    
+    /**
+     * settings used to compress the documents sent in requests, keyed by the name of the endpoint that each is assigned to
+     */
+    private final ConcurrentHashMap<String, APIv1CompressionSettings> endpointCompressionSettings = new ConcurrentHashMap<>();
+    
     /**
      * Makes a HTTP request to the platform's API to create a new session for an organisation
      * @param orgID Unique ID set for the organisation within the platform
@@ -101,6 +154,15 @@ public class APIv1OrgSession
         return apiVersion;
     }
     
+    /**
+     * gets the ID of the organisation logged into the API session
+     * @return organisation ID
+     */
+    public String getOrgID()
+    {
+        return orgID;
+    }
+    
     /**
      * gets the language bundle that controls the language that messages of the API are displayed in
      * @return Resource bundle
@@ -110,6 +172,225 @@ public class APIv1OrgSession
         return langBundle;
     }
     
+    /**
+     * gets the URL of the API that the session's requests are sent to
+     * @return URL of the organisation endpoints of the API, ending with a slash
+     */
+    public String getAPIOrgURL()
+    {
+        return apiOrgURL;
+    }
+    
+    /**
+     * sets the URL of the API that the session's requests are sent to, such as to call a test server instead of the platform's production API.
+     * Set this before creating the session
+     * @param apiOrgURL URL of the organisation endpoints of the API, such as http://localhost:8080/rest/1/org/, set to null to call the platform's API
+     */
+    public void setAPIOrgURL(String apiOrgURL)
+    {
+        if(apiOrgURL == null || apiOrgURL.isEmpty()){
+            this.apiOrgURL = APIv1Constants.API_ORG_URL;
+        }else{
+            this.apiOrgURL = (apiOrgURL.endsWith(APIv1Constants.API_PATH_SLASH)? apiOrgURL: apiOrgURL + APIv1Constants.API_PATH_SLASH);
+        }
+    }
+    
+    /**
+     * gets the transport used to send requests to the platform's API for the session
+     * @return the transport assigned to the session, or the library's default transport if none has been assigned
+     */
+    public APIv1HTTPTransport getTransport()
+    {
+        APIv1HTTPTransport sessionTransport = transport;
+        return (sessionTransport != null? sessionTransport: APIv1HTTPRequest.getDefaultTransport());
+    }
+    
+    /**
+     * sets the transport used to send requests to the platform's API for the session
+     * @param transport transport to send requests with, set to null to use the library's default transport
+     */
+    public void setTransport(APIv1HTTPTransport transport)
+    {
+        this.transport = transport;
+    }
+    
+    /**
+     * gets the executor used to run asynchronous calls to the platform's API for the session
+     * @return the executor assigned to the session, or the library's default executor if none has been assigned
+     */
+    public Executor getExecutor()
+    {
+        Executor sessionExecutor = executor;
+        return (sessionExecutor != null? sessionExecutor: APIv1AsyncExecutor.getDefaultExecutor());
+    }
+    
+    /**
+     * sets the executor used to run asynchronous calls to the platform's API for the session
+     * @param executor executor to run asynchronous calls with, set to null to use the library's default executor
+     */
+    public void setExecutor(Executor executor)
+    {
+        this.executor = executor;
+    }
+    
+    /**
+     * gets the policy that controls how failed requests to the platform's API are retried for the session
+     * @return retry policy, or null if requests are not retried
+     */
+    public APIv1RetryPolicy getRetryPolicy()
+    {
+        return retryPolicy;
+    }
+    
+    /**
+     * sets the policy that controls how failed requests to the platform's API are retried for the session.
+     * Requests for importing sales orders, procuring purchase orders, sending invoices and creating notifications are never retried automatically, since they may have been processed by the platform even when they fail
+     * @param retryPolicy policy used to retry requests that fail with retryable result codes, set to null to not retry requests
+     */
+    public void setRetryPolicy(APIv1RetryPolicy retryPolicy)
+    {
+        this.retryPolicy = retryPolicy;
+    }
+    
+    /**
+     * gets the cache checked before retrieving Ecommerce Standards Documents from the platform's API for the session
+     * @return retrieve cache, or null if documents are not cached
+     */
+    public APIv1RetrieveCache getRetrieveCache()
+    {
+        return retrieveCache;
+    }
+    
+    /**
+     * sets the cache checked before retrieving Ecommerce Standards Documents from the platform's API for the session.
+     * Documents successfully retrieved are placed into the cache, and later calls to retrieve the same page of data are returned from the cache without calling the platform
+     * @param retrieveCache cache of retrieved documents, set to null to not cache documents
+     */
+    public void setRetrieveCache(APIv1RetrieveCache retrieveCache)
+    {
+        this.retrieveCache = retrieveCache;
+    }
+    
+    /**
+     * gets the coalescer that shares the responses of identical retrieve requests in flight at the same time for the session
+     * @return request coalescer, or null if each request is sent
+     */
+    public APIv1RequestCoalescer getRequestCoalescer()
+    {
+        return requestCoalescer;
+    }
+    
+    /**
+     * sets the coalescer that shares the responses of identical retrieve requests in flight at the same time for the session.
+     * Calls to the retrieve_esd and retrieve_customer_account_record_esd endpoints made while an identical call is in flight wait for and return the same response, instead of sending their own request
+     * @param requestCoalescer request coalescer, set to null to send each request
+     */
+    public void setRequestCoalescer(APIv1RequestCoalescer requestCoalescer)
+    {
+        this.requestCoalescer = requestCoalescer;
+    }
+    
+    /**
+     * gets the minimum number of records that a document being imported for the session must contain for it to be serialized and compressed before its request is sent
+     * @return minimum number of records, or 0 if documents are serialized as they are sent
+     */
+    public int getImportPreSerializeRecordsThreshold()
+    {
+        return importPreSerializeRecordsThreshold;
+    }
+    
+    /**
+     * sets the minimum number of records that a document being imported for the session must contain for it to be serialized and compressed before its request is sent.
+     * The records of these documents are split across the available cores and compressed into pooled buffers, so that the connection is only held while the compressed document is written
+     * @param importPreSerializeRecordsThreshold minimum number of records, set 0 to serialize documents as they are sent
+     */
+    public void setImportPreSerializeRecordsThreshold(int importPreSerializeRecordsThreshold)
+    {
+        this.importPreSerializeRecordsThreshold = Math.max(importPreSerializeRecordsThreshold, 0);
+    }
+    
+    /**
+     * gets the store of the hashes of documents last successfully imported for the session
+     * @return import hash store, or null if every document is imported
+     */
+    public APIv1ImportHashStore getImportHashStore()
+    {
+        return importHashStore;
+    }
+    
+    /**
+     * sets the store of the hashes of documents last successfully imported for the session.
+     * Documents given to the import_esd endpoint are hashed, and are not sent to the platform if they have the same hash as the last document of the same type successfully imported for the session's organisation
+     * @param importHashStore import hash store, set to null to import every document
+     */
+    public void setImportHashStore(APIv1ImportHashStore importHashStore)
+    {
+        this.importHashStore = importHashStore;
+    }
+    
+    /**
+     * gets the settings used to compress the documents sent in requests to endpoints that have not been assigned their own settings
+     * @return default compression settings
+     */
+    public APIv1CompressionSettings getDefaultCompressionSettings()
+    {
+        return defaultCompressionSettings;
+    }
+    
+    /**
+     * sets the settings used to compress the documents sent in requests to endpoints that have not been assigned their own settings
+     * @param compressionSettings default compression settings, set to null to compress with gzip at the default level
+     */
+    public void setDefaultCompressionSettings(APIv1CompressionSettings compressionSettings)
+    {
+        this.defaultCompressionSettings = (compressionSettings != null? compressionSettings: new APIv1CompressionSettings());
+    }
+    
+    /**
+     * gets the settings used to compress the documents sent in requests to an endpoint
+     * @param endpointName name of the endpoint, such as APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD. Any path following the name is ignored
+     * @return settings assigned to the endpoint, or the default compression settings if the endpoint has not been assigned its own settings
+     */
+    public APIv1CompressionSettings getCompressionSettings(String endpointName)
+    {
+        APIv1CompressionSettings compressionSettings = endpointCompressionSettings.get(APIv1HTTPRequest.getEndpointName(endpointName));
+        return (compressionSettings != null? compressionSettings: defaultCompressionSettings);
+    }
+    
+    /**
+     * sets the settings used to compress the documents sent in requests to an endpoint, such as a fast level for importing sales orders, or the best level for importing product catalogues
+     * @param endpointName name of the endpoint, such as APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD. Any path following the name is ignored
+     * @param compressionSettings settings assigned to the endpoint, set to null for the endpoint to use the default compression settings
+     */
+    public void setCompressionSettings(String endpointName, APIv1CompressionSettings compressionSettings)
+    {
+        endpointName = APIv1HTTPRequest.getEndpointName(endpointName);
+        if(compressionSettings != null){
+            endpointCompressionSettings.put(endpointName, compressionSettings);
+        }else{
+            endpointCompressionSettings.remove(endpointName);
+        }
+    }
+    
+    /**
+     * gets the maximum number of requests that can be sent to the platform's API at the same time for the session's organisation
+     * @return maximum number of requests in progress, or 0 if there is no limit
+     */
+    public int getMaxConcurrentRequests()
+    {
+        return APIv1OrgRequestLimiter.getMaxConcurrentRequests(orgID);
+    }
+    
+    /**
+     * sets the maximum number of requests that can be sent to the platform's API at the same time for the session's organisation.
+     * The limit is shared by all API sessions of the organisation, calls made once the limit is reached wait for earlier requests to complete
+     * @param maxConcurrentRequests maximum number of requests in progress, set 0 to remove the limit
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests)
+    {
+        APIv1OrgRequestLimiter.setMaxConcurrentRequests(orgID, maxConcurrentRequests);
+    }
+    
     /**
      * indicates if the session with the platform's API has been created
      * @return true if the session has been created
@@ -144,13 +425,11 @@ public class APIv1OrgSession
             //set endpoint parameters
             String requestPostBody = "org_id="+URLEncoder.encode(orgID, StandardCharsets.UTF_8.name())+"&api_org_key="+URLEncoder.encode(apiOrgKey, StandardCharsets.UTF_8.name())+"&api_org_pw="+URLEncoder.encode(apiOrgPassword, StandardCharsets.UTF_8.name())+"&create_session=" + ESDocumentConstants.ESD_VALUE_YES;
         
-            //create JSON deserializer to interpret the response from the endpoint
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            ObjectReader endpointJSONReader = jsonMapper.readerFor(APIv1EndpointResponse.class);
+            //get the JSON deserializer to interpret the response from the endpoint
+            ObjectReader endpointJSONReader = APIv1JSONMapper.getReader(APIv1EndpointResponse.class);
             
             //make a HTTP request to the platform's API endpoint to create a new session
-            endpointResponse = APIv1HTTPRequest.<APIv1EndpointResponse>sendHTTPRequest(APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_CREATE_SESSION, endpointParams, requestHeaders, requestPostBody, defaultRequestTimeoutMilliseconds, langBundle, endpointJSONReader, endpointResponse);
+            endpointResponse = APIv1HTTPRequest.<APIv1EndpointResponse>sendHTTPRequest(this, APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_CREATE_SESSION, endpointParams, requestHeaders, requestPostBody, defaultRequestTimeoutMilliseconds, endpointJSONReader, endpointResponse);
             
             //update session credentials if the session was successfully created
             if(endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
@@ -183,13 +462,11 @@ public class APIv1OrgSession
         APIv1EndpointResponse endpointResponse = new APIv1EndpointResponse();
         
         try{
-            //create JSON deserializer to interpret the response from the endpoint
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            ObjectReader endpointJSONReader = jsonMapper.readerFor(APIv1EndpointResponse.class);
+            //get the JSON deserializer to interpret the response from the endpoint
+            ObjectReader endpointJSONReader = APIv1JSONMapper.getReader(APIv1EndpointResponse.class);
             
             //make a HTTP request to the platform's API endpoint to create a new session
-            endpointResponse = APIv1HTTPRequest.<APIv1EndpointResponse>sendHTTPRequest(APIv1Constants.HTTP_REQUEST_METHOD_GET, APIv1Constants.API_ORG_ENDPOINT_DESTROY_SESSION+APIv1Constants.API_PATH_SLASH+sessionID, endpointParams, requestHeaders, requestPostBody, defaultRequestTimeoutMilliseconds, langBundle, endpointJSONReader, endpointResponse);
+            endpointResponse = APIv1HTTPRequest.<APIv1EndpointResponse>sendHTTPRequest(this, APIv1Constants.HTTP_REQUEST_METHOD_GET, APIv1Constants.API_ORG_ENDPOINT_DESTROY_SESSION+APIv1Constants.API_PATH_SLASH+sessionID, endpointParams, requestHeaders, requestPostBody, defaultRequestTimeoutMilliseconds, endpointJSONReader, endpointResponse);
             
             //update session credentials if the session was successfully destroyed
             if(endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
@@ -222,13 +499,11 @@ public class APIv1OrgSession
         APIv1EndpointResponse endpointResponse = new APIv1EndpointResponse();
         
         try{
-            //create JSON deserializer to interpret the response from the endpoint
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            ObjectReader endpointJSONReader = jsonMapper.readerFor(APIv1EndpointResponse.class);
+            //get the JSON deserializer to interpret the response from the endpoint
+            ObjectReader endpointJSONReader = APIv1JSONMapper.getReader(APIv1EndpointResponse.class);
             
             //make a HTTP request to the platform's API endpoint to create a new session
-            endpointResponse = APIv1HTTPRequest.<APIv1EndpointResponse>sendHTTPRequest(APIv1Constants.HTTP_REQUEST_METHOD_GET, APIv1Constants.API_ORG_ENDPOINT_VALIDATE_SESSION+APIv1Constants.API_PATH_SLASH+sessionID, endpointParams, requestHeaders, requestPostBody, defaultRequestTimeoutMilliseconds, langBundle, endpointJSONReader, endpointResponse);
+            endpointResponse = APIv1HTTPRequest.<APIv1EndpointResponse>sendHTTPRequest(this, APIv1Constants.HTTP_REQUEST_METHOD_GET, APIv1Constants.API_ORG_ENDPOINT_VALIDATE_SESSION+APIv1Constants.API_PATH_SLASH+sessionID, endpointParams, requestHeaders, requestPostBody, defaultRequestTimeoutMilliseconds, endpointJSONReader, endpointResponse);
             
             //update session credentials if the session was successfully destroyed
             if(endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
@@ -283,4 +558,40 @@ public class APIv1OrgSession
         
         return endpointResponse;
     }
+    
+    /**
+     * calls the platform's API to create a new organisation session, without blocking the calling thread
+     * @return future completed with the response from trying to create the session, using the session's executor
+     */
+    public CompletableFuture<APIv1EndpointResponse> createOrgSessionAsync()
+    {
+        return CompletableFuture.supplyAsync(this::createOrgSession, getExecutor());
+    }
+    
+    /**
+     * calls the platform's API to destroy an existing organisation session, without blocking the calling thread
+     * @return future completed with the response from trying to destroy the API session, using the session's executor
+     */
+    public CompletableFuture<APIv1EndpointResponse> destroyOrgSessionAsync()
+    {
+        return CompletableFuture.supplyAsync(this::destroyOrgSession, getExecutor());
+    }
+    
+    /**
+     * calls the platform's API to validate an existing organisation session exists and is valid, without blocking the calling thread
+     * @return future completed with the response from trying to validate the API session, using the session's executor
+     */
+    public CompletableFuture<APIv1EndpointResponse> validateOrgSessionAsync()
+    {
+        return CompletableFuture.supplyAsync(this::validateOrgSession, getExecutor());
+    }
+    
+    /**
+     * calls the platform's API to validate an existing organisation session exists and is valid, if not then attempts to create a new session, without blocking the calling thread
+     * @return future completed with the response from trying to validate the API session or create the API session, using the session's executor
+     */
+    public CompletableFuture<APIv1EndpointResponse> validateCreateOrgSessionAsync()
+    {
+        return CompletableFuture.supplyAsync(this::validateCreateOrgSession, getExecutor());
+    }
 }
@@ -0,0 +1,33 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Growable byte buffer that can be returned to a buffer pool once its content is no longer needed, so that its memory can be reused by later requests
+ */
+public class APIv1PooledBuffer extends ByteArrayOutputStream
+{
+    /**
+     * creates a buffer
+     * @param initialCapacity number of bytes the buffer can hold before it needs to grow
+     */
+    public APIv1PooledBuffer(int initialCapacity)
+    {
+        super(initialCapacity);
+    }
+    
+    /**
+     * gets the number of bytes the buffer can hold before it needs to grow
+     * @return capacity of the buffer in bytes
+     */
+    public synchronized int getCapacity()
+    {
+        return buf.length;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+
+/**
+ * Coalesces identical requests that retrieve data from the platform's API at the same time, so that only the first request is sent and the requests made while it is in flight wait for and share its response.
+ * Requests are identical if they call the same endpoint of the same API for the same organisation with the same parameters. Once a request completes, the next identical request is sent to the platform again.
+ * All callers of a coalesced request are given the same response object, which must not be modified
+ */
+public class APIv1RequestCoalescer
+{
+    /**
+     * character placed between the parts of the keys identifying requests
+     */
+    private static final char KEY_SEPARATOR = '\u001F';
+    
+    /**
+     * futures of the requests in flight, keyed by the API URL, endpoint, organisation and parameters of each request
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<APIv1EndpointResponseESD>> inFlightRequests = new ConcurrentHashMap<>();
+    
+    private final AtomicLong requestsSent = new AtomicLong();
+    private final AtomicLong requestsCoalesced = new AtomicLong();
+    
+    /**
+     * sends a request, or if an identical request is already in flight waits for its response instead
+     * @param apiOrgURL URL of the platform's API that the request is sent to
+     * @param orgID unique ID of the organisation logged into the API session making the request
+     * @param endpointName name of the endpoint being called
+     * @param endpointParams parameters placed in the URL of the request
+     * @param requestCall call that sends the request to the platform and returns its response
+     * @return response of the request, which may be shared with other callers
+     */
+    public APIv1EndpointResponseESD call(String apiOrgURL, String orgID, String endpointName, String endpointParams, Supplier<APIv1EndpointResponseESD> requestCall)
+    {
+        String requestKey = apiOrgURL + KEY_SEPARATOR + endpointName + KEY_SEPARATOR + orgID + KEY_SEPARATOR + endpointParams;
+        
+        //wait for the response of the identical request in flight
+        CompletableFuture<APIv1EndpointResponseESD> requestFuture = new CompletableFuture<>();
+        CompletableFuture<APIv1EndpointResponseESD> inFlightFuture = inFlightRequests.putIfAbsent(requestKey, requestFuture);
+        if(inFlightFuture != null){
+            requestsCoalesced.incrementAndGet();
+            return inFlightFuture.join();
+        }
+        
+        //send the request, completing it for the waiting callers before allowing the next identical request to be sent
+        requestsSent.incrementAndGet();
+        try{
+            APIv1EndpointResponseESD endpointResponse = requestCall.get();
+            requestFuture.complete(endpointResponse);
+            return endpointResponse;
+        }catch(Throwable ex){
+            //fail the waiting callers with any error, including errors such as running out of memory, so that they are never left waiting
+            requestFuture.completeExceptionally(ex);
+            throw ex;
+        }finally{
+            inFlightRequests.remove(requestKey, requestFuture);
+        }
+    }
+    
+    /**
+     * gets the number of requests currently in flight
+     * @return number of requests in flight
+     */
+    public int getInFlightRequestsCount()
+    {
+        return inFlightRequests.size();
+    }
+    
+    /**
+     * gets the number of requests that have been sent to the platform
+     * @return number of requests sent
+     */
+    public long getRequestsSent()
+    {
+        return requestsSent.get();
+    }
+    
+    /**
+     * gets the number of requests that were not sent, and were instead given the response of an identical request in flight
+     * @return number of requests coalesced
+     */
+    public long getRequestsCoalesced()
+    {
+        return requestsCoalesced.get();
+    }
+}
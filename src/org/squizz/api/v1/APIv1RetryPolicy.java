@@ -0,0 +1,184 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+
+/**
+ * Controls how requests sent to the platform's API are retried when they fail with a result code that may succeed if the request is sent again, such as when the platform is busy importing other data.
+ * Retries are delayed using exponential backoff with full jitter, each delay being a random amount of time up to a limit that doubles after each attempt,
+ * so that many clients that fail at the same time do not all retry at the same time.
+ * Result codes that are not marked as retryable (such as SERVER_ERROR_SESSION_INVALID) are treated as fatal and returned straight away.
+ * Only requests to endpoints that can safely be sent more than once (retrieving and searching data, importing data with import_esd, and validating sessions and certificates) are retried.
+ * Requests to all other endpoints, including importing sales orders, procuring purchase orders, sending invoices and creating notifications, are never retried automatically,
+ * since a request that timed out may have already been processed by the platform, and sending it again could create a duplicate order, invoice or notification
+ */
+public class APIv1RetryPolicy
+{
+    public static final int DEFAULT_MAX_ATTEMPTS = 4;
+    public static final long DEFAULT_BASE_DELAY_MILLISECONDS = 1000;
+    public static final long DEFAULT_MAX_DELAY_MILLISECONDS = 30000;
+    
+    /**
+     * names of the endpoints whose requests can be sent more than once without changing the result, which are the only endpoints that requests are retried for
+     */
+    private static final Set<String> RETRYABLE_ENDPOINTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        APIv1Constants.API_ORG_ENDPOINT_VALIDATE_SESSION,
+        APIv1Constants.API_ORG_ENDPOINT_VALIDATE_CERT,
+        APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD,
+        APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD,
+        APIv1Constants.API_ORG_ENDPOINT_SEARCH_CUSTOMER_ACCOUNT_RECORDS_ESD,
+        APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_CUSTOMER_ACCOUNT_RECORD_ESD
+    )));
+    
+    private final int maxAttempts;
+    private final long baseDelayMilliseconds;
+    private final long maxDelayMilliseconds;
+    
+    /**
+     * result codes of failed requests that are retried
+     */
+    private final Set<String> retryableResultCodes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    
+    /**
+     * creates a retry policy with the default number of attempts and delays
+     */
+    public APIv1RetryPolicy()
+    {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLISECONDS, DEFAULT_MAX_DELAY_MILLISECONDS);
+    }
+    
+    /**
+     * creates a retry policy that retries requests that failed due to the platform's data imports being busy, or the platform's API not being reachable or not returning a valid response
+     * @param maxAttempts maximum number of times a request is sent, including the first attempt. Set 1 to not retry requests
+     * @param baseDelayMilliseconds upper limit of the random delay before the first retry, which doubles for each retry after
+     * @param maxDelayMilliseconds largest upper limit of the random delay before any retry
+     */
+    public APIv1RetryPolicy(int maxAttempts, long baseDelayMilliseconds, long maxDelayMilliseconds)
+    {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMilliseconds = Math.max(0, baseDelayMilliseconds);
+        this.maxDelayMilliseconds = Math.max(this.baseDelayMilliseconds, maxDelayMilliseconds);
+        
+        retryableResultCodes.add(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_BUSY);
+        retryableResultCodes.add(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_MAX_IMPORTS_RUNNING);
+        retryableResultCodes.add(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_CONNECTION);
+        retryableResultCodes.add(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_RESPONSE);
+    }
+    
+    /**
+     * gets the maximum number of times a request is sent, including the first attempt
+     * @return maximum attempts
+     */
+    public int getMaxAttempts()
+    {
+        return maxAttempts;
+    }
+    
+    /**
+     * marks that requests that fail with a result code should be retried
+     * @param resultCode result code returned from the platform's API, or set by the library, such as SERVER_ERROR_IO
+     */
+    public void addRetryableResultCode(String resultCode)
+    {
+        retryableResultCodes.add(resultCode);
+    }
+    
+    /**
+     * marks that requests that fail with a result code should not be retried
+     * @param resultCode result code returned from the platform's API
+     */
+    public void removeRetryableResultCode(String resultCode)
+    {
+        retryableResultCodes.remove(resultCode);
+    }
+    
+    /**
+     * indicates if requests that fail with a result code are retried
+     * @param resultCode result code returned from the platform's API
+     * @return true if the result code is retryable
+     */
+    public boolean isRetryableResultCode(String resultCode)
+    {
+        return resultCode != null && retryableResultCodes.contains(resultCode);
+    }
+    
+    /**
+     * indicates if a request should be sent again, based on the result of the attempt just made
+     * @param result result of the request, either SUCCESS or FAILURE
+     * @param resultCode result code of the request
+     * @param attempt number of attempts that have been made to send the request, starting at 1
+     * @return true if the request failed with a retryable result code and attempts remain
+     */
+    public boolean shouldRetry(String result, String resultCode, int attempt)
+    {
+        return attempt < maxAttempts && APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE.equalsIgnoreCase(result) && isRetryableResultCode(resultCode);
+    }
+    
+    /**
+     * indicates if a request to an endpoint should be sent again, based on the result of the attempt just made.
+     * Requests to endpoints that may not be safely sent more than once, such as importing sales orders, are never retried
+     * @param endpointName name of the endpoint that the request was sent to, optionally followed by a path such as the ID of the session
+     * @param result result of the request, either SUCCESS or FAILURE
+     * @param resultCode result code of the request
+     * @param attempt number of attempts that have been made to send the request, starting at 1
+     * @return true if the endpoint's requests can be retried, the request failed with a retryable result code and attempts remain
+     */
+    public boolean shouldRetry(String endpointName, String result, String resultCode, int attempt)
+    {
+        return isRetryableEndpoint(endpointName) && shouldRetry(result, resultCode, attempt);
+    }
+    
+    /**
+     * checks if requests to an endpoint can be retried, being requests that can be sent more than once without changing the result
+     * @param endpointName name of the endpoint, optionally followed by a path such as the ID of the session
+     * @return true if the endpoint's requests can be retried
+     */
+    public static boolean isRetryableEndpoint(String endpointName)
+    {
+        return RETRYABLE_ENDPOINTS.contains(APIv1HTTPRequest.getEndpointName(endpointName));
+    }
+    
+    /**
+     * gets the amount of time to wait before retrying a request, chosen at random between 0 and the backoff limit of the attempt
+     * @param attempt number of attempts that have been made to send the request, starting at 1
+     * @return delay in milliseconds
+     */
+    public long getRetryDelayMilliseconds(int attempt)
+    {
+        //double the limit of the delay for each attempt made, without overflowing
+        long delayLimit = maxDelayMilliseconds;
+        int exponent = Math.max(0, attempt - 1);
+        if(exponent < 62 && baseDelayMilliseconds <= (maxDelayMilliseconds >> exponent)){
+            delayLimit = baseDelayMilliseconds << exponent;
+        }
+        
+        return (delayLimit > 0? ThreadLocalRandom.current().nextLong(delayLimit + 1): 0);
+    }
+    
+    /**
+     * waits before retrying a request
+     * @param attempt number of attempts that have been made to send the request, starting at 1
+     * @return true if the wait completed, false if the thread was interrupted and the request should not be retried
+     */
+    public boolean waitBeforeRetry(int attempt)
+    {
+        try{
+            Thread.sleep(getRetryDelayMilliseconds(attempt));
+            return true;
+        }catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
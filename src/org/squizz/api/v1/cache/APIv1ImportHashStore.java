@@ -0,0 +1,179 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import org.esd.EcommerceStandardsDocuments.ESDocument;
+import org.squizz.api.v1.APIv1AtomicFile;
+import org.squizz.api.v1.APIv1ContentHash;
+
+/**
+ * Stores a hash of the content of the last document successfully imported for each organisation and type of data into each instance of the platform's API, so that a document that has not changed since it was last imported can be skipped instead of being sent to the platform again.
+ * If the store has a file then it is saved each time a hash is stored, written to a temporary file first then moved over the existing file, so that hashes remain available after the application restarts and a failed save never leaves a partially written file
+ */
+public class APIv1ImportHashStore
+{
+    /**
+     * algorithm used to hash the content of documents
+     */
+    public static final String DOCUMENT_HASH_ALGORITHM = APIv1ContentHash.HASH_ALGORITHM;
+    
+    /**
+     * number written at the start of store files to identify them
+     */
+    private static final int FILE_MAGIC_NUMBER = 0x5351494D;
+    
+    /**
+     * version of the format of store files
+     */
+    private static final int FILE_FORMAT_VERSION = 1;
+    
+    /**
+     * character placed between the API URL, organisation ID and import type ID of each key
+     */
+    private static final char KEY_SEPARATOR = '\u001F';
+    
+    private final Path storeFile;
+    private final HashMap<String, byte[]> importHashes = new HashMap<>();
+    
+    /**
+     * creates a store that only holds hashes in memory, which are lost once the application stops
+     */
+    public APIv1ImportHashStore()
+    {
+        this.storeFile = null;
+    }
+    
+    /**
+     * creates a store that saves hashes into a file, loading any hashes already saved in the file
+     * @param storeFile path of the file to load and save the hashes in
+     * @throws IOException if the file exists but could not be read, or is not a store file
+     */
+    public APIv1ImportHashStore(Path storeFile) throws IOException
+    {
+        this.storeFile = storeFile;
+        
+        if(!Files.exists(storeFile)){
+            return;
+        }
+        
+        try(DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(storeFile)))){
+            if(dataInputStream.readInt() != FILE_MAGIC_NUMBER || dataInputStream.readInt() != FILE_FORMAT_VERSION){
+                throw new IOException("File is not a supported import hash store: " + storeFile);
+            }
+            
+            int hashesAmount = dataInputStream.readInt();
+            for(int i=0; i < hashesAmount; i++){
+                String key = dataInputStream.readUTF();
+                byte[] importHash = new byte[dataInputStream.readUnsignedShort()];
+                dataInputStream.readFully(importHash);
+                importHashes.put(key, importHash);
+            }
+        }
+    }
+    
+    /**
+     * hashes the JSON content of a document
+     * @param esDocument Ecommerce Standards Document to hash
+     * @return hash of the document's content
+     * @throws IOException if the document could not be serialized
+     */
+    public static byte[] getDocumentHash(ESDocument esDocument) throws IOException
+    {
+        return APIv1ContentHash.hash(APIv1ContentHash.getWriter(esDocument.getClass()), esDocument, APIv1ContentHash.createMessageDigest());
+    }
+    
+    /**
+     * checks if a document has the same hash as the last document successfully imported for an organisation and type of data
+     * @param apiOrgURL URL of the platform's API that the document is imported into
+     * @param orgID ID of the organisation that the document is imported into
+     * @param importTypeID ID of the type of data being imported
+     * @param documentHash hash of the document's content
+     * @return true if the document has not changed since it was last imported
+     */
+    public synchronized boolean isImportUnchanged(String apiOrgURL, String orgID, int importTypeID, byte[] documentHash)
+    {
+        return Arrays.equals(importHashes.get(getKey(apiOrgURL, orgID, importTypeID)), documentHash);
+    }
+    
+    /**
+     * stores the hash of a document successfully imported for an organisation and type of data, saving the store into its file if it has one
+     * @param apiOrgURL URL of the platform's API that the document was imported into
+     * @param orgID ID of the organisation that the document was imported into
+     * @param importTypeID ID of the type of data imported
+     * @param documentHash hash of the document's content
+     * @throws IOException if the store's file could not be written, in which case the hash is still held in memory
+     */
+    public synchronized void putImportHash(String apiOrgURL, String orgID, int importTypeID, byte[] documentHash) throws IOException
+    {
+        importHashes.put(getKey(apiOrgURL, orgID, importTypeID), documentHash.clone());
+        save();
+    }
+    
+    /**
+     * removes the hash stored for an organisation and type of data, so that the next document of the type is imported even if it has not changed
+     * @param apiOrgURL URL of the platform's API
+     * @param orgID ID of the organisation
+     * @param importTypeID ID of the type of data
+     * @throws IOException if the store's file could not be written, in which case the hash is still removed from memory
+     */
+    public synchronized void removeImportHash(String apiOrgURL, String orgID, int importTypeID) throws IOException
+    {
+        if(importHashes.remove(getKey(apiOrgURL, orgID, importTypeID)) != null){
+            save();
+        }
+    }
+    
+    /**
+     * gets the number of hashes held in the store
+     * @return number of hashes
+     */
+    public synchronized int size()
+    {
+        return importHashes.size();
+    }
+    
+    /**
+     * gets the key that a hash is stored with
+     */
+    private static String getKey(String apiOrgURL, String orgID, int importTypeID)
+    {
+        return apiOrgURL + KEY_SEPARATOR + orgID + KEY_SEPARATOR + importTypeID;
+    }
+    
+    /**
+     * saves the hashes into the store's file, replacing the existing file
+     */
+    private void save() throws IOException
+    {
+        if(storeFile == null){
+            return;
+        }
+        
+        APIv1AtomicFile.write(storeFile, (OutputStream outputStream) -> {
+            DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream));
+            dataOutputStream.writeInt(FILE_MAGIC_NUMBER);
+            dataOutputStream.writeInt(FILE_FORMAT_VERSION);
+            dataOutputStream.writeInt(importHashes.size());
+            for(HashMap.Entry<String, byte[]> importHash: importHashes.entrySet()){
+                dataOutputStream.writeUTF(importHash.getKey());
+                dataOutputStream.writeShort(importHash.getValue().length);
+                dataOutputStream.write(importHash.getValue());
+            }
+            dataOutputStream.flush();
+        });
+    }
+}
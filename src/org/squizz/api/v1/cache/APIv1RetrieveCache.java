@@ -0,0 +1,42 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.cache;
+
+import org.esd.EcommerceStandardsDocuments.ESDocument;
+
+/**
+ * Cache of the Ecommerce Standards Documents returned from the platform's retrieve_esd endpoint, which is checked before the endpoint is called when set on an API session.
+ * Caches must be thread safe, and must treat failures to read or write cached documents as cache misses rather than throwing exceptions.
+ * Documents returned from a cache may be shared with other callers, so they must not be modified
+ */
+public interface APIv1RetrieveCache
+{
+    /**
+     * gets a document from the cache
+     * @param key key of the page of data retrieved
+     * @return cached document, or null if the document is not cached or has expired
+     */
+    public ESDocument get(APIv1RetrieveCacheKey key);
+    
+    /**
+     * places a successfully retrieved document into the cache. Caches may choose not to store the document, such as for types of data that are not cached
+     * @param key key of the page of data retrieved
+     * @param esDocument document retrieved from the platform
+     */
+    public void put(APIv1RetrieveCacheKey key, ESDocument esDocument);
+    
+    /**
+     * removes a document from the cache
+     * @param key key of the page of data retrieved
+     */
+    public void invalidate(APIv1RetrieveCacheKey key);
+    
+    /**
+     * removes all documents from the cache
+     */
+    public void clear();
+}
@@ -0,0 +1,160 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.cache;
+
+import java.util.Objects;
+
+/**
+ * Identifies a page of data retrieved from the platform's retrieve_esd endpoint, used to store and look up the data in a retrieve cache.
+ * The key includes the ID of the organisation logged into the API session, since the data retrieved from a supplier can differ for each customer organisation,
+ * and the URL of the API that the data is retrieved from, so that data retrieved from one instance of the platform, such as a test instance, is never returned for another
+ */
+public class APIv1RetrieveCacheKey
+{
+    private final String apiOrgURL;
+    private final String orgID;
+    private final String supplierOrgID;
+    private final String customerAccountCode;
+    private final int retrieveTypeID;
+    private final int recordsMaxAmount;
+    private final int recordsStartIndex;
+    private final String requestParameters;
+    private final int hashCode;
+    
+    /**
+     * creates a key
+     * @param apiOrgURL URL of the platform's API that the data is retrieved from
+     * @param orgID unique ID of the organisation logged into the API session retrieving the data
+     * @param supplierOrgID unique ID of the supplier organisation that the data is retrieved from
+     * @param customerAccountCode code of the supplier organisation's customer account that the data is retrieved for
+     * @param retrieveTypeID ID of the type of data retrieved
+     * @param recordsMaxAmount maximum number of records retrieved
+     * @param recordsStartIndex index of the first record retrieved
+     * @param requestParameters additional parameters placed in the request URL
+     */
+    public APIv1RetrieveCacheKey(String apiOrgURL, String orgID, String supplierOrgID, String customerAccountCode, int retrieveTypeID, int recordsMaxAmount, int recordsStartIndex, String requestParameters)
+    {
+        this.apiOrgURL = (apiOrgURL == null? "": apiOrgURL);
+        this.orgID = (orgID == null? "": orgID);
+        this.supplierOrgID = (supplierOrgID == null? "": supplierOrgID);
+        this.customerAccountCode = (customerAccountCode == null? "": customerAccountCode);
+        this.retrieveTypeID = retrieveTypeID;
+        this.recordsMaxAmount = recordsMaxAmount;
+        this.recordsStartIndex = recordsStartIndex;
+        this.requestParameters = (requestParameters == null? "": requestParameters);
+        this.hashCode = Objects.hash(this.apiOrgURL, this.orgID, this.supplierOrgID, this.customerAccountCode, retrieveTypeID, recordsMaxAmount, recordsStartIndex, this.requestParameters);
+    }
+    
+    /**
+     * gets the URL of the platform's API that the data is retrieved from
+     * @return API organisation URL, or an empty string if not set
+     */
+    public String getAPIOrgURL()
+    {
+        return apiOrgURL;
+    }
+    
+    /**
+     * gets the unique ID of the organisation logged into the API session retrieving the data
+     * @return organisation ID
+     */
+    public String getOrgID()
+    {
+        return orgID;
+    }
+    
+    /**
+     * gets the unique ID of the supplier organisation that the data is retrieved from
+     * @return supplier organisation ID
+     */
+    public String getSupplierOrgID()
+    {
+        return supplierOrgID;
+    }
+    
+    /**
+     * gets the code of the supplier organisation's customer account that the data is retrieved for
+     * @return customer account code, or an empty string if not set
+     */
+    public String getCustomerAccountCode()
+    {
+        return customerAccountCode;
+    }
+    
+    /**
+     * gets the ID of the type of data retrieved
+     * @return retrieve type ID
+     */
+    public int getRetrieveTypeID()
+    {
+        return retrieveTypeID;
+    }
+    
+    /**
+     * gets the maximum number of records retrieved
+     * @return records max amount
+     */
+    public int getRecordsMaxAmount()
+    {
+        return recordsMaxAmount;
+    }
+    
+    /**
+     * gets the index of the first record retrieved
+     * @return records start index
+     */
+    public int getRecordsStartIndex()
+    {
+        return recordsStartIndex;
+    }
+    
+    /**
+     * gets the additional parameters placed in the request URL
+     * @return request parameters, or an empty string if not set
+     */
+    public String getRequestParameters()
+    {
+        return requestParameters;
+    }
+    
+    @Override
+    public boolean equals(Object obj)
+    {
+        if(this == obj){
+            return true;
+        }
+        if(!(obj instanceof APIv1RetrieveCacheKey)){
+            return false;
+        }
+        
+        APIv1RetrieveCacheKey key = (APIv1RetrieveCacheKey)obj;
+        return retrieveTypeID == key.retrieveTypeID && 
+            recordsMaxAmount == key.recordsMaxAmount && 
+            recordsStartIndex == key.recordsStartIndex && 
+            orgID.equals(key.orgID) && 
+            apiOrgURL.equals(key.apiOrgURL) && 
+            supplierOrgID.equals(key.supplierOrgID) && 
+            customerAccountCode.equals(key.customerAccountCode) && 
+            requestParameters.equals(key.requestParameters);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+    
+    /**
+     * gets the key's values joined together into text, with each value separated by a line feed
+     * @return text of the key
+     */
+    @Override
+    public String toString()
+    {
+        return apiOrgURL + "\n" + orgID + "\n" + supplierOrgID + "\n" + customerAccountCode + "\n" + retrieveTypeID + "\n" + recordsMaxAmount + "\n" + recordsStartIndex + "\n" + requestParameters;
+    }
+}
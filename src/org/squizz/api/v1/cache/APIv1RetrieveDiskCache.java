@@ -0,0 +1,219 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.cache;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.esd.EcommerceStandardsDocuments.ESDocument;
+import org.squizz.api.v1.APIv1AtomicFile;
+import org.squizz.api.v1.APIv1ContentHash;
+import org.squizz.api.v1.APIv1JSONMapper;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+
+/**
+ * Caches documents retrieved from the platform in gzip compressed JSON files within a directory, so that cached data remains available after the application restarts.
+ * Each type of data is only cached if a time to live has been set for it, and a cached document expires once the time to live has passed since its file was written.
+ * By default slow moving types of data (categories, attributes, makers, maker models and maker model mappings) are cached for 24 hours.
+ * Files are written to a temporary file first then moved into place, so that other threads and processes sharing the directory never read a partially written file
+ */
+public class APIv1RetrieveDiskCache implements APIv1RetrieveCache
+{
+    /**
+     * default number of milliseconds that slow moving types of data are cached for
+     */
+    public static final long DEFAULT_SLOW_MOVING_TIME_TO_LIVE_MILLISECONDS = 24L * 60 * 60 * 1000;
+    
+    /**
+     * extension of the files that documents are cached in
+     */
+    public static final String CACHE_FILE_EXTENSION = ".json.gz";
+    
+    private final Path cacheDirectory;
+    private final ConcurrentHashMap<Integer, Long> timeToLiveMilliseconds = new ConcurrentHashMap<>();
+    
+    /**
+     * creates a cache that stores documents in a directory, caching the slow moving types of data for the default time to live
+     * @param cacheDirectory path of the directory to store cached documents in. The directory is created if it does not exist
+     */
+    public APIv1RetrieveDiskCache(Path cacheDirectory)
+    {
+        this.cacheDirectory = cacheDirectory;
+        
+        setTimeToLive(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_CATEGORIES, DEFAULT_SLOW_MOVING_TIME_TO_LIVE_MILLISECONDS);
+        setTimeToLive(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_ATTRIBUTES, DEFAULT_SLOW_MOVING_TIME_TO_LIVE_MILLISECONDS);
+        setTimeToLive(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_MAKERS, DEFAULT_SLOW_MOVING_TIME_TO_LIVE_MILLISECONDS);
+        setTimeToLive(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_MAKER_MODELS, DEFAULT_SLOW_MOVING_TIME_TO_LIVE_MILLISECONDS);
+        setTimeToLive(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_MAKER_MODEL_MAPPINGS, DEFAULT_SLOW_MOVING_TIME_TO_LIVE_MILLISECONDS);
+    }
+    
+    /**
+     * sets how long documents of a type of data are cached for
+     * @param retrieveTypeID ID of the type of data
+     * @param timeToLiveMilliseconds number of milliseconds that documents are cached for, set 0 or less to not cache the type of data
+     */
+    public void setTimeToLive(int retrieveTypeID, long timeToLiveMilliseconds)
+    {
+        if(timeToLiveMilliseconds > 0){
+            this.timeToLiveMilliseconds.put(retrieveTypeID, timeToLiveMilliseconds);
+        }else{
+            this.timeToLiveMilliseconds.remove(retrieveTypeID);
+        }
+    }
+    
+    /**
+     * gets how long documents of a type of data are cached for
+     * @param retrieveTypeID ID of the type of data
+     * @return number of milliseconds that documents are cached for, or 0 if the type of data is not cached
+     */
+    public long getTimeToLive(int retrieveTypeID)
+    {
+        return timeToLiveMilliseconds.getOrDefault(retrieveTypeID, 0L);
+    }
+    
+    /**
+     * gets a document from the cache, deleting its file if it has expired
+     * @param key key of the page of data retrieved
+     * @return cached document, or null if the document is not cached, has expired, or could not be read
+     */
+    @Override
+    public ESDocument get(APIv1RetrieveCacheKey key)
+    {
+        long timeToLive = getTimeToLive(key.getRetrieveTypeID());
+        Class<? extends ESDocument> documentClass = APIv1EndpointOrgRetrieveESDocument.getDocumentClass(key.getRetrieveTypeID());
+        if(timeToLive <= 0 || documentClass == null){
+            return null;
+        }
+        
+        try{
+            Path cacheFile = getCacheFile(key);
+            if(!Files.exists(cacheFile)){
+                return null;
+            }
+            
+            //remove the file if it has expired
+            if(System.currentTimeMillis() - Files.getLastModifiedTime(cacheFile).toMillis() > timeToLive){
+                Files.deleteIfExists(cacheFile);
+                return null;
+            }
+            
+            try(InputStream inputStream = new GZIPInputStream(Files.newInputStream(cacheFile))){
+                return APIv1JSONMapper.getReader(documentClass).readValue(inputStream);
+            }
+        }catch(IOException ex){
+            return null;
+        }
+    }
+    
+    /**
+     * writes a document into the cache, if its type of data is cached
+     * @param key key of the page of data retrieved
+     * @param esDocument document retrieved from the platform
+     */
+    @Override
+    public void put(APIv1RetrieveCacheKey key, ESDocument esDocument)
+    {
+        if(esDocument == null || getTimeToLive(key.getRetrieveTypeID()) <= 0){
+            return;
+        }
+        
+        //write the document into a temporary file, then replace any existing cache file with it
+        try{
+            APIv1AtomicFile.write(getCacheFile(key), (OutputStream outputStream) -> {
+                try(GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)){
+                    APIv1JSONMapper.getWriter(esDocument.getClass()).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(gzipOutputStream, esDocument);
+                }
+            });
+        }catch(IOException ex){
+        }
+    }
+    
+    /**
+     * deletes the file of a cached document
+     * @param key key of the page of data retrieved
+     */
+    @Override
+    public void invalidate(APIv1RetrieveCacheKey key)
+    {
+        deleteQuietly(getCacheFile(key));
+    }
+    
+    /**
+     * deletes the files of all cached documents within the cache directory
+     */
+    @Override
+    public void clear()
+    {
+        if(!Files.isDirectory(cacheDirectory)){
+            return;
+        }
+        
+        try(DirectoryStream<Path> typeDirectories = Files.newDirectoryStream(cacheDirectory)){
+            for(Path typeDirectory: typeDirectories){
+                if(!Files.isDirectory(typeDirectory)){
+                    continue;
+                }
+                try(DirectoryStream<Path> cacheFiles = Files.newDirectoryStream(typeDirectory, "*" + CACHE_FILE_EXTENSION)){
+                    for(Path cacheFile: cacheFiles){
+                        deleteQuietly(cacheFile);
+                    }
+                }
+            }
+        }catch(IOException ex){
+        }
+    }
+    
+    /**
+     * gets the path of the file that a document is cached in, within a sub directory named by the type of data, with the file named by the SHA-256 hash of the key
+     * @param key key of the page of data retrieved
+     * @return path of the cache file
+     */
+    private Path getCacheFile(APIv1RetrieveCacheKey key)
+    {
+        byte[] keyHash = APIv1ContentHash.createMessageDigest().digest(key.toString().getBytes(StandardCharsets.UTF_8));
+        
+        StringBuilder fileName = new StringBuilder(keyHash.length * 2 + CACHE_FILE_EXTENSION.length());
+        for(byte keyHashByte: keyHash){
+            fileName.append(Character.forDigit((keyHashByte >> 4) & 0xF, 16)).append(Character.forDigit(keyHashByte & 0xF, 16));
+        }
+        fileName.append(CACHE_FILE_EXTENSION);
+        
+        return cacheDirectory.resolve(Integer.toString(key.getRetrieveTypeID())).resolve(fileName.toString());
+    }
+    
+    /**
+     * deletes a file, ignoring any failure to delete it
+     * @param file path of the file to delete, or null
+     */
+    private static void deleteQuietly(Path file)
+    {
+        if(file == null){
+            return;
+        }
+        try{
+            Files.deleteIfExists(file);
+        }catch(IOException ex){
+        }
+    }
+    
+    /**
+     * gets the directory that cached documents are stored in
+     * @return path of the cache directory
+     */
+    public Path getCacheDirectory()
+    {
+        return cacheDirectory;
+    }
+}
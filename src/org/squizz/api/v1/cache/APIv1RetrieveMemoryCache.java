@@ -0,0 +1,309 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.esd.EcommerceStandardsDocuments.ESDocument;
+import org.squizz.api.v1.APIv1ESDocumentRecords;
+
+/**
+ * Caches documents retrieved from the platform in memory, evicting the least recently used documents once the total weight of cached documents exceeds a maximum.
+ * The weight of each document is the number of records it contains, so the maximum weight bounds the number of records held in memory.
+ * Each document expires once its time to live has passed since it was cached, with a default time to live that can be overridden for each type of data.
+ * The cache is guarded by a lock that is only held while entries are looked up or changed, never while data is being retrieved from the platform, so it is safe to share between many request threads
+ */
+public class APIv1RetrieveMemoryCache implements APIv1RetrieveCache
+{
+    /**
+     * document cached in memory
+     */
+    private static class CacheEntry
+    {
+        private final ESDocument esDocument;
+        private final long weight;
+        private final long expiryTimeMilliseconds;
+        
+        private CacheEntry(ESDocument esDocument, long weight, long expiryTimeMilliseconds)
+        {
+            this.esDocument = esDocument;
+            this.weight = weight;
+            this.expiryTimeMilliseconds = expiryTimeMilliseconds;
+        }
+    }
+    
+    private final long maxWeight;
+    private final long defaultTimeToLiveMilliseconds;
+    private final ConcurrentHashMap<Integer, Long> typeTimeToLiveMilliseconds = new ConcurrentHashMap<>();
+    private final ReentrantLock cacheLock = new ReentrantLock();
+    private final LinkedHashMap<APIv1RetrieveCacheKey, CacheEntry> cacheEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long expiredCount = 0;
+    
+    /**
+     * creates a cache
+     * @param maxWeight maximum total number of records contained in the documents held in the cache
+     * @param defaultTimeToLiveMilliseconds number of milliseconds that documents are cached for, unless overridden for their type of data
+     */
+    public APIv1RetrieveMemoryCache(long maxWeight, long defaultTimeToLiveMilliseconds)
+    {
+        this.maxWeight = maxWeight;
+        this.defaultTimeToLiveMilliseconds = defaultTimeToLiveMilliseconds;
+    }
+    
+    /**
+     * sets how long documents of a type of data are cached for, overriding the default time to live
+     * @param retrieveTypeID ID of the type of data
+     * @param timeToLiveMilliseconds number of milliseconds that documents are cached for, set 0 or less to not cache the type of data
+     */
+    public void setTimeToLive(int retrieveTypeID, long timeToLiveMilliseconds)
+    {
+        typeTimeToLiveMilliseconds.put(retrieveTypeID, timeToLiveMilliseconds);
+    }
+    
+    /**
+     * gets how long documents of a type of data are cached for
+     * @param retrieveTypeID ID of the type of data
+     * @return number of milliseconds that documents are cached for, 0 or less if the type of data is not cached
+     */
+    public long getTimeToLive(int retrieveTypeID)
+    {
+        return typeTimeToLiveMilliseconds.getOrDefault(retrieveTypeID, defaultTimeToLiveMilliseconds);
+    }
+    
+    /**
+     * gets a document from the cache, marking it as the most recently used
+     * @param key key of the page of data retrieved
+     * @return cached document, or null if the document is not cached or has expired
+     */
+    @Override
+    public ESDocument get(APIv1RetrieveCacheKey key)
+    {
+        long currentTime = System.currentTimeMillis();
+        
+        cacheLock.lock();
+        try{
+            CacheEntry cacheEntry = cacheEntries.get(key);
+            if(cacheEntry == null){
+                missCount++;
+                return null;
+            }
+            
+            //remove the entry if it has expired
+            if(currentTime >= cacheEntry.expiryTimeMilliseconds){
+                cacheEntries.remove(key);
+                totalWeight -= cacheEntry.weight;
+                expiredCount++;
+                missCount++;
+                return null;
+            }
+            
+            hitCount++;
+            return cacheEntry.esDocument;
+        }finally{
+            cacheLock.unlock();
+        }
+    }
+    
+    /**
+     * places a document into the cache, evicting the least recently used documents until the cache is within its maximum weight.
+     * Documents containing more records than the maximum weight are not cached
+     * @param key key of the page of data retrieved
+     * @param esDocument document retrieved from the platform
+     */
+    @Override
+    public void put(APIv1RetrieveCacheKey key, ESDocument esDocument)
+    {
+        long timeToLive = getTimeToLive(key.getRetrieveTypeID());
+        if(esDocument == null || timeToLive <= 0){
+            return;
+        }
+        
+        long weight = getWeight(esDocument);
+        if(weight > maxWeight){
+            return;
+        }
+        CacheEntry cacheEntry = new CacheEntry(esDocument, weight, System.currentTimeMillis() + timeToLive);
+        
+        cacheLock.lock();
+        try{
+            CacheEntry previousEntry = cacheEntries.put(key, cacheEntry);
+            if(previousEntry != null){
+                totalWeight -= previousEntry.weight;
+            }
+            totalWeight += weight;
+            
+            //evict the least recently used entries
+            Iterator<CacheEntry> entryIterator = cacheEntries.values().iterator();
+            while(totalWeight > maxWeight && entryIterator.hasNext())
+            {
+                CacheEntry eldestEntry = entryIterator.next();
+                entryIterator.remove();
+                totalWeight -= eldestEntry.weight;
+                evictionCount++;
+            }
+        }finally{
+            cacheLock.unlock();
+        }
+    }
+    
+    /**
+     * removes a document from the cache
+     * @param key key of the page of data retrieved
+     */
+    @Override
+    public void invalidate(APIv1RetrieveCacheKey key)
+    {
+        cacheLock.lock();
+        try{
+            CacheEntry cacheEntry = cacheEntries.remove(key);
+            if(cacheEntry != null){
+                totalWeight -= cacheEntry.weight;
+            }
+        }finally{
+            cacheLock.unlock();
+        }
+    }
+    
+    /**
+     * removes all documents from the cache, keeping its statistics
+     */
+    @Override
+    public void clear()
+    {
+        cacheLock.lock();
+        try{
+            cacheEntries.clear();
+            totalWeight = 0;
+        }finally{
+            cacheLock.unlock();
+        }
+    }
+    
+    /**
+     * gets the weight of a document, being the number of records it contains, with documents without records weighing 1
+     * @param esDocument document to weigh
+     * @return weight of the document
+     */
+    private static long getWeight(ESDocument esDocument)
+    {
+        return Math.max(1, APIv1ESDocumentRecords.getRecordsCount(esDocument));
+    }
+    
+    /**
+     * gets the number of documents held in the cache
+     * @return number of cached documents
+     */
+    public int size()
+    {
+        cacheLock.lock();
+        try{
+            return cacheEntries.size();
+        }finally{
+            cacheLock.unlock();
+        }
+    }
+    
+    /**
+     * gets the total weight of the documents held in the cache
+     * @return total number of records in the cached documents
+     */
+    public long getTotalWeight()
+    {
+        cacheLock.lock();
+        try{
+            return totalWeight;
+        }finally{
+            cacheLock.unlock();
+        }
+    }
+    
+    /**
+     * gets the maximum total weight of the documents held in the cache
+     * @return maximum total number of records in the cached documents
+     */
+    public long getMaxWeight()
+    {
+        return maxWeight;
+    }
+    
+    /**
+     * gets the number of times a document was found in the cache
+     * @return number of cache hits
+     */
+    public long getHitCount()
+    {
+        cacheLock.lock();
+        try{
+            return hitCount;
+        }finally{
+            cacheLock.unlock();
+        }
+    }
+    
+    /**
+     * gets the number of times a document was not found in the cache, including documents that had expired
+     * @return number of cache misses
+     */
+    public long getMissCount()
+    {
+        cacheLock.lock();
+        try{
+            return missCount;
+        }finally{
+            cacheLock.unlock();
+        }
+    }
+    
+    /**
+     * gets the number of documents removed from the cache to keep it within its maximum weight
+     * @return number of evicted documents
+     */
+    public long getEvictionCount()
+    {
+        cacheLock.lock();
+        try{
+            return evictionCount;
+        }finally{
+            cacheLock.unlock();
+        }
+    }
+    
+    /**
+     * gets the number of documents removed from the cache after their time to live passed
+     * @return number of expired documents
+     */
+    public long getExpiredCount()
+    {
+        cacheLock.lock();
+        try{
+            return expiredCount;
+        }finally{
+            cacheLock.unlock();
+        }
+    }
+    
+    /**
+     * gets the proportion of lookups that found a document in the cache
+     * @return hit rate between 0 and 1, or 0 if no lookups have been made
+     */
+    public double getHitRate()
+    {
+        cacheLock.lock();
+        try{
+            long lookupCount = hitCount + missCount;
+            return (lookupCount == 0? 0: (double)hitCount / lookupCount);
+        }finally{
+            cacheLock.unlock();
+        }
+    }
+}
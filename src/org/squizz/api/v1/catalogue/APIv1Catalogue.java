@@ -0,0 +1,101 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.catalogue;
+
+import org.esd.EcommerceStandardsDocuments.*;
+import org.squizz.api.v1.APIv1OrgSession;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.endpoint.APIv1MultiTypeRetrieveResult;
+
+/**
+ * Catalogue of a supplier organisation's products, prices and stock quantities that can be looked up by many threads at once.
+ * The catalogue holds a loaded index, which is replaced as a whole by swapping in a newly loaded index, so readers never see a partially loaded catalogue.
+ * Readers making several lookups that must be consistent with each other should get the index once and make all lookups against it
+ */
+public class APIv1Catalogue
+{
+    private volatile APIv1CatalogueIndex catalogueIndex = new APIv1CatalogueIndex();
+    
+    /**
+     * gets the index currently held by the catalogue
+     * @return catalogue index
+     */
+    public APIv1CatalogueIndex getIndex()
+    {
+        return catalogueIndex;
+    }
+    
+    /**
+     * replaces the index held by the catalogue with a fully loaded index
+     * @param catalogueIndex loaded catalogue index, which must not be modified afterwards
+     * @return index previously held by the catalogue
+     */
+    public synchronized APIv1CatalogueIndex swapIndex(APIv1CatalogueIndex catalogueIndex)
+    {
+        APIv1CatalogueIndex previousIndex = this.catalogueIndex;
+        this.catalogueIndex = catalogueIndex;
+        return previousIndex;
+    }
+    
+    /**
+     * gets a product by its key product ID from the current index
+     * @param keyProductID key of the product
+     * @return catalogue product, or null if not found
+     */
+    public APIv1CatalogueProduct getProductByKeyProductID(String keyProductID)
+    {
+        return catalogueIndex.getProductByKeyProductID(keyProductID);
+    }
+    
+    /**
+     * gets a product by its product code from the current index
+     * @param productCode code of the product
+     * @return catalogue product, or null if not found
+     */
+    public APIv1CatalogueProduct getProductByProductCode(String productCode)
+    {
+        return catalogueIndex.getProductByProductCode(productCode);
+    }
+    
+    /**
+     * Retrieves all products, prices and stock quantities of a supplier organisation from the platform at the same time, each type of data retrieved page by page by the session's executor, loading them into a new index.
+     * The new index is only swapped into the catalogue if all data was successfully retrieved, otherwise the catalogue keeps its current index
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API for each page of records before giving up, set a positive number
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+     * @param pageSize maximum number of records to obtain in each call to the endpoint, set 0 or less to use the default
+     * @return response of the type of data that failed to be retrieved, otherwise the response of the stock quantities, which is successful if the catalogue was refreshed
+     */
+    public APIv1EndpointResponseESD refresh(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, String supplierOrgID, String customerAccountCode, int pageSize)
+    {
+        //retrieve products, prices and stock quantities
+        int[] retrieveTypeIDs = new int[]{
+            APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS,
+            APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRICING,
+            APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCT_STOCK
+        };
+        APIv1MultiTypeRetrieveResult multiTypeResult = APIv1EndpointOrgRetrieveESDocument.callMultipleTypes(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeIDs, supplierOrgID, customerAccountCode, pageSize, "");
+        for(int retrieveTypeID: retrieveTypeIDs){
+            APIv1EndpointResponseESD endpointResponse = multiTypeResult.getResponse(retrieveTypeID);
+            if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS)){
+                return endpointResponse;
+            }
+        }
+        
+        //load products before their prices and stock quantities
+        APIv1CatalogueIndex loadingIndex = new APIv1CatalogueIndex();
+        loadingIndex.addProducts(multiTypeResult.getDocument(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, ESDocumentProduct.class));
+        loadingIndex.addPrices(multiTypeResult.getDocument(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRICING, ESDocumentPrice.class));
+        loadingIndex.addStockQuantities(multiTypeResult.getDocument(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCT_STOCK, ESDocumentStockQuantity.class));
+        
+        swapIndex(loadingIndex);
+        return multiTypeResult.getResponse(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCT_STOCK);
+    }
+}
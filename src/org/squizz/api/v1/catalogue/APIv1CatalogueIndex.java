@@ -0,0 +1,160 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.catalogue;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import org.esd.EcommerceStandardsDocuments.*;
+
+/**
+ * Indexes products by their key product ID and product code, joining each product with its prices and stock quantity, so that they can be looked up in constant time.
+ * Records can be loaded in any order, with prices and stock quantities joined to products by their key product ID.
+ * An index is not thread safe while it is being loaded. Once loaded it should be published to readers by swapping it into a catalogue, after which it must not be modified
+ */
+public class APIv1CatalogueIndex
+{
+    private final HashMap<String, APIv1CatalogueProduct> productsByKeyProductID = new HashMap<>();
+    private final HashMap<String, APIv1CatalogueProduct> productsByProductCode = new HashMap<>();
+    
+    /**
+     * adds all product records of a document into the index
+     * @param esDocumentProduct product document
+     */
+    public void addProducts(ESDocumentProduct esDocumentProduct)
+    {
+        if(esDocumentProduct != null && esDocumentProduct.dataRecords != null){
+            for(ESDRecordProduct productRecord: esDocumentProduct.dataRecords){
+                addProduct(productRecord);
+            }
+        }
+    }
+    
+    /**
+     * adds all price records of a document into the index
+     * @param esDocumentPrice price document
+     */
+    public void addPrices(ESDocumentPrice esDocumentPrice)
+    {
+        if(esDocumentPrice != null && esDocumentPrice.dataRecords != null){
+            for(ESDRecordPrice priceRecord: esDocumentPrice.dataRecords){
+                addPrice(priceRecord);
+            }
+        }
+    }
+    
+    /**
+     * adds all stock quantity records of a document into the index
+     * @param esDocumentStockQuantity stock quantity document
+     */
+    public void addStockQuantities(ESDocumentStockQuantity esDocumentStockQuantity)
+    {
+        if(esDocumentStockQuantity != null && esDocumentStockQuantity.dataRecords != null){
+            for(ESDRecordStockQuantity stockQuantityRecord: esDocumentStockQuantity.dataRecords){
+                addStockQuantity(stockQuantityRecord);
+            }
+        }
+    }
+    
+    /**
+     * adds a product record into the index, replacing any product previously added with the same key product ID
+     * @param productRecord product record
+     */
+    public void addProduct(ESDRecordProduct productRecord)
+    {
+        if(productRecord == null || productRecord.keyProductID == null){
+            return;
+        }
+        
+        APIv1CatalogueProduct catalogueProduct = getOrCreateProduct(productRecord.keyProductID);
+        ESDRecordProduct previousProductRecord = catalogueProduct.getProductRecord();
+        if(previousProductRecord != null && previousProductRecord.productCode != null){
+            productsByProductCode.remove(previousProductRecord.productCode, catalogueProduct);
+        }
+        
+        catalogueProduct.setProductRecord(productRecord);
+        if(productRecord.productCode != null){
+            productsByProductCode.put(productRecord.productCode, catalogueProduct);
+        }
+    }
+    
+    /**
+     * adds a price record into the index, joining it to the product with the same key product ID
+     * @param priceRecord price record
+     */
+    public void addPrice(ESDRecordPrice priceRecord)
+    {
+        if(priceRecord != null && priceRecord.keyProductID != null){
+            getOrCreateProduct(priceRecord.keyProductID).addPriceRecord(priceRecord);
+        }
+    }
+    
+    /**
+     * adds a stock quantity record into the index, joining it to the product with the same key product ID and replacing any stock quantity previously added for the product
+     * @param stockQuantityRecord stock quantity record
+     */
+    public void addStockQuantity(ESDRecordStockQuantity stockQuantityRecord)
+    {
+        if(stockQuantityRecord != null && stockQuantityRecord.keyProductID != null){
+            getOrCreateProduct(stockQuantityRecord.keyProductID).setStockQuantityRecord(stockQuantityRecord);
+        }
+    }
+    
+    /**
+     * gets the catalogue product with a key product ID, creating it if it does not exist
+     * @param keyProductID key of the product
+     * @return catalogue product
+     */
+    private APIv1CatalogueProduct getOrCreateProduct(String keyProductID)
+    {
+        APIv1CatalogueProduct catalogueProduct = productsByKeyProductID.get(keyProductID);
+        if(catalogueProduct == null){
+            catalogueProduct = new APIv1CatalogueProduct(keyProductID);
+            productsByKeyProductID.put(keyProductID, catalogueProduct);
+        }
+        return catalogueProduct;
+    }
+    
+    /**
+     * gets a product by its key product ID
+     * @param keyProductID key of the product
+     * @return catalogue product, or null if no product record has been loaded with the key
+     */
+    public APIv1CatalogueProduct getProductByKeyProductID(String keyProductID)
+    {
+        APIv1CatalogueProduct catalogueProduct = productsByKeyProductID.get(keyProductID);
+        return (catalogueProduct != null && catalogueProduct.getProductRecord() != null? catalogueProduct: null);
+    }
+    
+    /**
+     * gets a product by its product code
+     * @param productCode code of the product
+     * @return catalogue product, or null if no product record has been loaded with the code
+     */
+    public APIv1CatalogueProduct getProductByProductCode(String productCode)
+    {
+        return productsByProductCode.get(productCode);
+    }
+    
+    /**
+     * gets all products in the index, including products that only have prices or stock quantities loaded
+     * @return unmodifiable collection of catalogue products
+     */
+    public Collection<APIv1CatalogueProduct> getProducts()
+    {
+        return Collections.unmodifiableCollection(productsByKeyProductID.values());
+    }
+    
+    /**
+     * gets the number of products in the index, including products that only have prices or stock quantities loaded
+     * @return number of products
+     */
+    public int size()
+    {
+        return productsByKeyProductID.size();
+    }
+}
@@ -0,0 +1,128 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.catalogue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.esd.EcommerceStandardsDocuments.ESDRecordPrice;
+import org.esd.EcommerceStandardsDocuments.ESDRecordProduct;
+import org.esd.EcommerceStandardsDocuments.ESDRecordStockQuantity;
+
+/**
+ * Represents a product within a catalogue, joined together with its prices and stock quantity
+ */
+public class APIv1CatalogueProduct
+{
+    private final String keyProductID;
+    private ESDRecordProduct productRecord = null;
+    private ESDRecordStockQuantity stockQuantityRecord = null;
+    
+    /**
+     * prices of the product, sorted by the quantity that each price applies from
+     */
+    private final ArrayList<ESDRecordPrice> priceRecords = new ArrayList<>(1);
+    
+    /**
+     * creates a catalogue product
+     * @param keyProductID key of the product
+     */
+    APIv1CatalogueProduct(String keyProductID)
+    {
+        this.keyProductID = keyProductID;
+    }
+    
+    /**
+     * sets the record of the product
+     * @param productRecord product record
+     */
+    void setProductRecord(ESDRecordProduct productRecord)
+    {
+        this.productRecord = productRecord;
+    }
+    
+    /**
+     * sets the stock quantity of the product
+     * @param stockQuantityRecord stock quantity record
+     */
+    void setStockQuantityRecord(ESDRecordStockQuantity stockQuantityRecord)
+    {
+        this.stockQuantityRecord = stockQuantityRecord;
+    }
+    
+    /**
+     * adds a price of the product, keeping the prices sorted by the quantity that each applies from
+     * @param priceRecord price record
+     */
+    void addPriceRecord(ESDRecordPrice priceRecord)
+    {
+        int insertIndex = priceRecords.size();
+        while(insertIndex > 0 && priceRecords.get(insertIndex - 1).quantity > priceRecord.quantity){
+            insertIndex--;
+        }
+        priceRecords.add(insertIndex, priceRecord);
+    }
+    
+    /**
+     * gets the key of the product
+     * @return key product ID
+     */
+    public String getKeyProductID()
+    {
+        return keyProductID;
+    }
+    
+    /**
+     * gets the record of the product
+     * @return product record, or null if only prices or stock have been loaded for the product
+     */
+    public ESDRecordProduct getProductRecord()
+    {
+        return productRecord;
+    }
+    
+    /**
+     * gets the stock quantity of the product
+     * @return stock quantity record, or null if no stock quantity has been loaded for the product
+     */
+    public ESDRecordStockQuantity getStockQuantityRecord()
+    {
+        return stockQuantityRecord;
+    }
+    
+    /**
+     * gets all prices of the product, across all price levels, accounts and quantity breaks
+     * @return unmodifiable list of price records, sorted by the quantity that each price applies from
+     */
+    public List<ESDRecordPrice> getPriceRecords()
+    {
+        return Collections.unmodifiableList(priceRecords);
+    }
+    
+    /**
+     * gets the price of the product that applies when buying a quantity at a price level, being the price with the largest quantity break that does not exceed the quantity
+     * @param keyPriceLevelID key of the price level, or null to match prices not assigned to a price level
+     * @param quantity quantity of the product being bought
+     * @return price record, or null if no price of the price level applies to the quantity
+     */
+    public ESDRecordPrice getPriceRecord(String keyPriceLevelID, double quantity)
+    {
+        String priceLevelID = (keyPriceLevelID == null? "": keyPriceLevelID);
+        ESDRecordPrice matchedPriceRecord = null;
+        
+        for(ESDRecordPrice priceRecord: priceRecords){
+            if(priceRecord.quantity > quantity){
+                break;
+            }
+            if(priceLevelID.equals(priceRecord.keyPriceLevelID == null? "": priceRecord.keyPriceLevelID)){
+                matchedPriceRecord = priceRecord;
+            }
+        }
+        
+        return matchedPriceRecord;
+    }
+}
@@ -0,0 +1,505 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.catalogue;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import org.esd.EcommerceStandardsDocuments.ESDRecordPrice;
+import org.esd.EcommerceStandardsDocuments.ESDRecordProduct;
+import org.esd.EcommerceStandardsDocuments.ESDRecordStockQuantity;
+import org.squizz.api.v1.APIv1AtomicFile;
+
+/**
+ * Read only catalogue of products, prices and stock quantities stored in a compact file that is memory mapped, so that the catalogue is held outside of the Java heap and can be shared by all processes on a machine through the operating system's page cache.
+ * The file contains a header, a table of fixed width product rows, a table of fixed width price rows, open addressing hash indexes of products by key product ID and by product code, and a heap of the UTF-8 encoded text values that rows refer to by offset.
+ * Products are read through lightweight views that only decode the values being asked for. Snapshots are safe to read from many threads at once.
+ * Snapshot files are limited to 2GB, being the largest file that can be memory mapped into a single buffer
+ */
+public class APIv1CatalogueSnapshot
+{
+    private static final int FILE_MAGIC_NUMBER = 0x53515A43;
+    private static final int FILE_FORMAT_VERSION = 1;
+    
+    //layout of the header
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC_NUMBER = 0;
+    private static final int HEADER_FORMAT_VERSION = 4;
+    private static final int HEADER_PRODUCT_COUNT = 8;
+    private static final int HEADER_PRICE_COUNT = 12;
+    private static final int HEADER_INDEX_SLOT_COUNT = 16;
+    private static final int HEADER_PRODUCT_TABLE_OFFSET = 20;
+    private static final int HEADER_PRICE_TABLE_OFFSET = 24;
+    private static final int HEADER_KEY_INDEX_OFFSET = 28;
+    private static final int HEADER_CODE_INDEX_OFFSET = 32;
+    private static final int HEADER_STRING_HEAP_OFFSET = 36;
+    private static final int HEADER_STRING_HEAP_SIZE = 40;
+    
+    //layout of each product row
+    static final int PRODUCT_ROW_SIZE = 64;
+    static final int PRODUCT_KEY_PRODUCT_ID = 0;
+    static final int PRODUCT_PRODUCT_CODE = 4;
+    static final int PRODUCT_NAME = 8;
+    static final int PRODUCT_BARCODE = 12;
+    static final int PRODUCT_BRAND = 16;
+    static final int PRODUCT_UNIT = 20;
+    static final int PRODUCT_KEY_SELL_UNIT_ID = 24;
+    static final int PRODUCT_FIRST_PRICE_INDEX = 28;
+    static final int PRODUCT_PRICE_COUNT = 32;
+    static final int PRODUCT_QTY_AVAILABLE = 40;
+    static final int PRODUCT_QTY_ON_HAND = 48;
+    static final int PRODUCT_QTY_ORDERABLE = 56;
+    
+    //layout of each price row
+    static final int PRICE_ROW_SIZE = 40;
+    static final int PRICE_KEY_PRICE_LEVEL_ID = 0;
+    static final int PRICE_KEY_ACCOUNT_ID = 4;
+    static final int PRICE_KEY_PRICE_GROUP_ID = 8;
+    static final int PRICE_KEY_SELL_UNIT_ID = 12;
+    static final int PRICE_QUANTITY = 16;
+    static final int PRICE_PRICE = 24;
+    static final int PRICE_TAX_RATE = 32;
+    
+    /**
+     * offset stored in place of text values that are null
+     */
+    static final int NULL_STRING_OFFSET = -1;
+    
+    /**
+     * value stored in place of stock quantities of products that have no stock quantity loaded
+     */
+    static final double NO_STOCK_QUANTITY = Double.NaN;
+    
+    private final ByteBuffer snapshotBuffer;
+    private final int productCount;
+    private final int priceCount;
+    private final int indexSlotCount;
+    private final int productTableOffset;
+    private final int priceTableOffset;
+    private final int keyIndexOffset;
+    private final int codeIndexOffset;
+    private final int stringHeapOffset;
+    
+    /**
+     * creates a snapshot that reads from a buffer containing the content of a snapshot file
+     * @param snapshotBuffer buffer of the snapshot file
+     * @throws IOException if the buffer does not contain a supported snapshot
+     */
+    private APIv1CatalogueSnapshot(ByteBuffer snapshotBuffer) throws IOException
+    {
+        if(snapshotBuffer.capacity() < HEADER_SIZE || snapshotBuffer.getInt(HEADER_MAGIC_NUMBER) != FILE_MAGIC_NUMBER || snapshotBuffer.getInt(HEADER_FORMAT_VERSION) != FILE_FORMAT_VERSION){
+            throw new IOException("File is not a supported catalogue snapshot");
+        }
+        
+        this.snapshotBuffer = snapshotBuffer;
+        this.productCount = snapshotBuffer.getInt(HEADER_PRODUCT_COUNT);
+        this.priceCount = snapshotBuffer.getInt(HEADER_PRICE_COUNT);
+        this.indexSlotCount = snapshotBuffer.getInt(HEADER_INDEX_SLOT_COUNT);
+        this.productTableOffset = snapshotBuffer.getInt(HEADER_PRODUCT_TABLE_OFFSET);
+        this.priceTableOffset = snapshotBuffer.getInt(HEADER_PRICE_TABLE_OFFSET);
+        this.keyIndexOffset = snapshotBuffer.getInt(HEADER_KEY_INDEX_OFFSET);
+        this.codeIndexOffset = snapshotBuffer.getInt(HEADER_CODE_INDEX_OFFSET);
+        this.stringHeapOffset = snapshotBuffer.getInt(HEADER_STRING_HEAP_OFFSET);
+        
+        if((long)stringHeapOffset + snapshotBuffer.getInt(HEADER_STRING_HEAP_SIZE) != snapshotBuffer.capacity()){
+            throw new IOException("Catalogue snapshot file is incomplete");
+        }
+    }
+    
+    /**
+     * opens a snapshot file, memory mapping it for reading. The file remains mapped until the snapshot is garbage collected
+     * @param snapshotFile path of the snapshot file
+     * @return snapshot
+     * @throws IOException if the file could not be mapped, or is not a supported snapshot file
+     */
+    public static APIv1CatalogueSnapshot open(Path snapshotFile) throws IOException
+    {
+        try(FileChannel fileChannel = FileChannel.open(snapshotFile, StandardOpenOption.READ)){
+            if(fileChannel.size() > Integer.MAX_VALUE){
+                throw new IOException("Catalogue snapshot file is larger than 2GB: " + snapshotFile);
+            }
+            return new APIv1CatalogueSnapshot(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size()));
+        }
+    }
+    
+    /**
+     * gets the number of products in the snapshot
+     * @return number of products
+     */
+    public int getProductCount()
+    {
+        return productCount;
+    }
+    
+    /**
+     * gets the number of prices in the snapshot, across all products
+     * @return number of prices
+     */
+    public int getPriceCount()
+    {
+        return priceCount;
+    }
+    
+    /**
+     * gets a view of a product by its position in the snapshot, used to iterate through all products
+     * @param productIndex index of the product, from 0 to one less than the number of products
+     * @return view of the product
+     */
+    public APIv1CatalogueSnapshotProduct getProduct(int productIndex)
+    {
+        if(productIndex < 0 || productIndex >= productCount){
+            throw new IndexOutOfBoundsException("Product index: " + productIndex);
+        }
+        return new APIv1CatalogueSnapshotProduct(this, productTableOffset + productIndex * PRODUCT_ROW_SIZE);
+    }
+    
+    /**
+     * gets a product by its key product ID
+     * @param keyProductID key of the product
+     * @return view of the product, or null if not found
+     */
+    public APIv1CatalogueSnapshotProduct getProductByKeyProductID(String keyProductID)
+    {
+        return findProduct(keyIndexOffset, PRODUCT_KEY_PRODUCT_ID, keyProductID);
+    }
+    
+    /**
+     * gets a product by its product code
+     * @param productCode code of the product
+     * @return view of the product, or null if not found
+     */
+    public APIv1CatalogueSnapshotProduct getProductByProductCode(String productCode)
+    {
+        return findProduct(codeIndexOffset, PRODUCT_PRODUCT_CODE, productCode);
+    }
+    
+    /**
+     * finds a product by probing a hash index, comparing the UTF-8 bytes of the text being found against the text stored in each product row probed
+     * @param indexOffset position of the index within the file
+     * @param productField position of the product row field holding the text being indexed
+     * @param text text to find
+     * @return view of the product, or null if not found
+     */
+    private APIv1CatalogueSnapshotProduct findProduct(int indexOffset, int productField, String text)
+    {
+        if(text == null || indexSlotCount == 0){
+            return null;
+        }
+        
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        int slotMask = indexSlotCount - 1;
+        for(int slot = getIndexSlot(text, slotMask);; slot = (slot + 1) & slotMask)
+        {
+            int slotValue = snapshotBuffer.getInt(indexOffset + slot * 4);
+            if(slotValue == 0){
+                return null;
+            }
+            
+            int productRowOffset = productTableOffset + (slotValue - 1) * PRODUCT_ROW_SIZE;
+            if(stringEquals(snapshotBuffer.getInt(productRowOffset + productField), textBytes)){
+                return new APIv1CatalogueSnapshotProduct(this, productRowOffset);
+            }
+        }
+    }
+    
+    /**
+     * gets the slot of a hash index to start probing from for a text value
+     * @param text text being indexed
+     * @param slotMask one less than the number of slots in the index
+     * @return index slot
+     */
+    private static int getIndexSlot(String text, int slotMask)
+    {
+        int hash = text.hashCode() * 0x9E3779B1;
+        return (hash ^ (hash >>> 16)) & slotMask;
+    }
+    
+    /**
+     * reads a 32 bit integer from the file
+     * @param position position within the file
+     * @return integer value
+     */
+    int getInt(int position)
+    {
+        return snapshotBuffer.getInt(position);
+    }
+    
+    /**
+     * reads a 64 bit floating point number from the file
+     * @param position position within the file
+     * @return double value
+     */
+    double getDouble(int position)
+    {
+        return snapshotBuffer.getDouble(position);
+    }
+    
+    /**
+     * gets the position of a price row within the file
+     * @param priceIndex index of the price across all products
+     * @return position of the price row
+     */
+    int getPriceRowOffset(int priceIndex)
+    {
+        return priceTableOffset + priceIndex * PRICE_ROW_SIZE;
+    }
+    
+    /**
+     * reads text from the string heap
+     * @param stringOffset offset of the text within the string heap
+     * @return text, or null if the offset is the null string offset
+     */
+    String getString(int stringOffset)
+    {
+        if(stringOffset == NULL_STRING_OFFSET){
+            return null;
+        }
+        
+        int position = stringHeapOffset + stringOffset;
+        byte[] textBytes = new byte[snapshotBuffer.getInt(position)];
+        position += 4;
+        for(int i=0; i < textBytes.length; i++){
+            textBytes[i] = snapshotBuffer.get(position + i);
+        }
+        return new String(textBytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * checks if text in the string heap matches the given UTF-8 bytes, without decoding the text
+     * @param stringOffset offset of the text within the string heap
+     * @param textBytes UTF-8 bytes to compare against
+     * @return true if the text matches
+     */
+    boolean stringEquals(int stringOffset, byte[] textBytes)
+    {
+        if(stringOffset == NULL_STRING_OFFSET){
+            return false;
+        }
+        
+        int position = stringHeapOffset + stringOffset;
+        if(snapshotBuffer.getInt(position) != textBytes.length){
+            return false;
+        }
+        position += 4;
+        for(int i=0; i < textBytes.length; i++){
+            if(snapshotBuffer.get(position + i) != textBytes[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * text values stored once each in the string heap of a snapshot file being written
+     */
+    private static class StringHeap
+    {
+        private final HashMap<String, Integer> stringOffsets = new HashMap<>();
+        private byte[] heapBytes = new byte[65536];
+        private int heapSize = 0;
+        
+        /**
+         * adds text into the heap if it has not already been added
+         * @param text text to add
+         * @return offset of the text within the heap, or the null string offset if the text is null
+         * @throws IOException if the heap has grown past 2GB
+         */
+        private int add(String text) throws IOException
+        {
+            if(text == null){
+                return NULL_STRING_OFFSET;
+            }
+            
+            Integer stringOffset = stringOffsets.get(text);
+            if(stringOffset != null){
+                return stringOffset;
+            }
+            
+            byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+            long requiredSize = (long)heapSize + 4 + textBytes.length;
+            if(requiredSize > Integer.MAX_VALUE - 8){
+                throw new IOException("Catalogue snapshot text exceeds 2GB");
+            }
+            if(requiredSize > heapBytes.length){
+                heapBytes = Arrays.copyOf(heapBytes, (int)Math.min(Integer.MAX_VALUE - 8, Math.max(requiredSize, heapBytes.length * 2L)));
+            }
+            
+            ByteBuffer.wrap(heapBytes, heapSize, 4).putInt(textBytes.length);
+            System.arraycopy(textBytes, 0, heapBytes, heapSize + 4, textBytes.length);
+            stringOffset = heapSize;
+            heapSize = (int)requiredSize;
+            stringOffsets.put(text, stringOffset);
+            return stringOffset;
+        }
+    }
+    
+    /**
+     * Writes the products of a catalogue index into a snapshot file, replacing any existing file.
+     * Only products that have a product record loaded are written. The file is written to a temporary file first then moved over the existing file, so processes that have the existing file open keep reading it unchanged
+     * @param snapshotFile path of the file to write the snapshot to
+     * @param catalogueIndex loaded catalogue index
+     * @throws IOException if the file could not be written, or the snapshot would be larger than 2GB
+     */
+    public static void write(Path snapshotFile, APIv1CatalogueIndex catalogueIndex) throws IOException
+    {
+        //get the products to write
+        ArrayList<APIv1CatalogueProduct> products = new ArrayList<>(catalogueIndex.size());
+        long totalPriceCount = 0;
+        for(APIv1CatalogueProduct catalogueProduct: catalogueIndex.getProducts()){
+            if(catalogueProduct.getProductRecord() != null){
+                products.add(catalogueProduct);
+                totalPriceCount += catalogueProduct.getPriceRecords().size();
+            }
+        }
+        
+        int indexSlotCount = Integer.highestOneBit(Math.max(1, products.size()) * 2 - 1) << 1;
+        long headerAndTablesSize = HEADER_SIZE + (long)products.size() * PRODUCT_ROW_SIZE + totalPriceCount * PRICE_ROW_SIZE + indexSlotCount * 8L;
+        if(headerAndTablesSize > Integer.MAX_VALUE){
+            throw new IOException("Catalogue snapshot would exceed 2GB");
+        }
+        
+        //place all text values into the string heap, and index the products
+        StringHeap stringHeap = new StringHeap();
+        int[] keyIndex = new int[indexSlotCount];
+        int[] codeIndex = new int[indexSlotCount];
+        for(int i=0; i < products.size(); i++)
+        {
+            ESDRecordProduct productRecord = products.get(i).getProductRecord();
+            addIndexSlot(keyIndex, productRecord.keyProductID, i, products, true);
+            addIndexSlot(codeIndex, productRecord.productCode, i, products, false);
+            
+            stringHeap.add(productRecord.keyProductID);
+            stringHeap.add(productRecord.productCode);
+            stringHeap.add(productRecord.name);
+            stringHeap.add(productRecord.barcode);
+            stringHeap.add(productRecord.brand);
+            stringHeap.add(productRecord.unit);
+            stringHeap.add(productRecord.keySellUnitID);
+            for(ESDRecordPrice priceRecord: products.get(i).getPriceRecords()){
+                stringHeap.add(priceRecord.keyPriceLevelID);
+                stringHeap.add(priceRecord.keyAccountID);
+                stringHeap.add(priceRecord.keyPriceGroupID);
+                stringHeap.add(priceRecord.keySellUnitID);
+            }
+        }
+        if(headerAndTablesSize + stringHeap.heapSize > Integer.MAX_VALUE){
+            throw new IOException("Catalogue snapshot would exceed 2GB");
+        }
+        
+        int priceCount = (int)totalPriceCount;
+        int productTableOffset = HEADER_SIZE;
+        int priceTableOffset = productTableOffset + products.size() * PRODUCT_ROW_SIZE;
+        int keyIndexOffset = priceTableOffset + priceCount * PRICE_ROW_SIZE;
+        int codeIndexOffset = keyIndexOffset + indexSlotCount * 4;
+        int stringHeapOffset = codeIndexOffset + indexSlotCount * 4;
+        
+        APIv1AtomicFile.write(snapshotFile, (OutputStream outputStream) -> {
+            try(DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream, 65536)))
+            {
+                //write the header
+                dataOutputStream.writeInt(FILE_MAGIC_NUMBER);
+                dataOutputStream.writeInt(FILE_FORMAT_VERSION);
+                dataOutputStream.writeInt(products.size());
+                dataOutputStream.writeInt(priceCount);
+                dataOutputStream.writeInt(indexSlotCount);
+                dataOutputStream.writeInt(productTableOffset);
+                dataOutputStream.writeInt(priceTableOffset);
+                dataOutputStream.writeInt(keyIndexOffset);
+                dataOutputStream.writeInt(codeIndexOffset);
+                dataOutputStream.writeInt(stringHeapOffset);
+                dataOutputStream.writeInt(stringHeap.heapSize);
+                dataOutputStream.write(new byte[HEADER_SIZE - 44]);
+                
+                //write the product rows
+                int firstPriceIndex = 0;
+                for(APIv1CatalogueProduct catalogueProduct: products)
+                {
+                    ESDRecordProduct productRecord = catalogueProduct.getProductRecord();
+                    ESDRecordStockQuantity stockQuantityRecord = catalogueProduct.getStockQuantityRecord();
+                    int productPriceCount = catalogueProduct.getPriceRecords().size();
+                    
+                    dataOutputStream.writeInt(stringHeap.add(productRecord.keyProductID));
+                    dataOutputStream.writeInt(stringHeap.add(productRecord.productCode));
+                    dataOutputStream.writeInt(stringHeap.add(productRecord.name));
+                    dataOutputStream.writeInt(stringHeap.add(productRecord.barcode));
+                    dataOutputStream.writeInt(stringHeap.add(productRecord.brand));
+                    dataOutputStream.writeInt(stringHeap.add(productRecord.unit));
+                    dataOutputStream.writeInt(stringHeap.add(productRecord.keySellUnitID));
+                    dataOutputStream.writeInt(firstPriceIndex);
+                    dataOutputStream.writeInt(productPriceCount);
+                    dataOutputStream.writeInt(0);
+                    dataOutputStream.writeDouble(stockQuantityRecord != null? stockQuantityRecord.qtyAvailable: NO_STOCK_QUANTITY);
+                    dataOutputStream.writeDouble(stockQuantityRecord != null? stockQuantityRecord.qtyOnHand: NO_STOCK_QUANTITY);
+                    dataOutputStream.writeDouble(stockQuantityRecord != null? stockQuantityRecord.qtyOrderable: NO_STOCK_QUANTITY);
+                    firstPriceIndex += productPriceCount;
+                }
+                
+                //write the price rows, in the order of the products they belong to
+                for(APIv1CatalogueProduct catalogueProduct: products){
+                    for(ESDRecordPrice priceRecord: catalogueProduct.getPriceRecords()){
+                        dataOutputStream.writeInt(stringHeap.add(priceRecord.keyPriceLevelID));
+                        dataOutputStream.writeInt(stringHeap.add(priceRecord.keyAccountID));
+                        dataOutputStream.writeInt(stringHeap.add(priceRecord.keyPriceGroupID));
+                        dataOutputStream.writeInt(stringHeap.add(priceRecord.keySellUnitID));
+                        dataOutputStream.writeDouble(priceRecord.quantity);
+                        dataOutputStream.writeDouble(priceRecord.price);
+                        dataOutputStream.writeDouble(priceRecord.taxRate);
+                    }
+                }
+                
+                //write the indexes and string heap
+                for(int slotValue: keyIndex){
+                    dataOutputStream.writeInt(slotValue);
+                }
+                for(int slotValue: codeIndex){
+                    dataOutputStream.writeInt(slotValue);
+                }
+                dataOutputStream.write(stringHeap.heapBytes, 0, stringHeap.heapSize);
+            }
+        });
+    }
+    
+    /**
+     * places a product into a hash index being written, ignoring null text. If an earlier product has been indexed with the same text then it is replaced, matching how catalogue indexes keep the last product loaded
+     * @param index slots of the index, each storing one more than the index of a product, or 0 if empty
+     * @param text text being indexed
+     * @param productIndex index of the product
+     * @param products products being written
+     * @param byKeyProductID true if indexing by key product ID, false if indexing by product code
+     */
+    private static void addIndexSlot(int[] index, String text, int productIndex, List<APIv1CatalogueProduct> products, boolean byKeyProductID)
+    {
+        if(text == null){
+            return;
+        }
+        
+        int slotMask = index.length - 1;
+        for(int slot = getIndexSlot(text, slotMask);; slot = (slot + 1) & slotMask)
+        {
+            if(index[slot] == 0){
+                index[slot] = productIndex + 1;
+                return;
+            }
+            
+            ESDRecordProduct slotProductRecord = products.get(index[slot] - 1).getProductRecord();
+            if(text.equals(byKeyProductID? slotProductRecord.keyProductID: slotProductRecord.productCode)){
+                index[slot] = productIndex + 1;
+                return;
+            }
+        }
+    }
+}
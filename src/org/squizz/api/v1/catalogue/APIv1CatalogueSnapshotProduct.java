@@ -0,0 +1,256 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.catalogue;
+
+import java.nio.charset.StandardCharsets;
+import static org.squizz.api.v1.catalogue.APIv1CatalogueSnapshot.*;
+
+/**
+ * Lightweight view of a product stored in a catalogue snapshot, that reads each value from the memory mapped file only when it is asked for.
+ * Prices of the product are accessed by their position, from 0 to one less than the price count, and are sorted by the quantity that each price applies from
+ */
+public class APIv1CatalogueSnapshotProduct
+{
+    private final APIv1CatalogueSnapshot snapshot;
+    private final int productRowOffset;
+    
+    /**
+     * creates a view of a product
+     * @param snapshot snapshot containing the product
+     * @param productRowOffset position of the product's row within the snapshot file
+     */
+    APIv1CatalogueSnapshotProduct(APIv1CatalogueSnapshot snapshot, int productRowOffset)
+    {
+        this.snapshot = snapshot;
+        this.productRowOffset = productRowOffset;
+    }
+    
+    /**
+     * gets the key of the product
+     * @return key product ID
+     */
+    public String getKeyProductID()
+    {
+        return snapshot.getString(snapshot.getInt(productRowOffset + PRODUCT_KEY_PRODUCT_ID));
+    }
+    
+    /**
+     * gets the code of the product
+     * @return product code, or null if not set
+     */
+    public String getProductCode()
+    {
+        return snapshot.getString(snapshot.getInt(productRowOffset + PRODUCT_PRODUCT_CODE));
+    }
+    
+    /**
+     * gets the name of the product
+     * @return name, or null if not set
+     */
+    public String getName()
+    {
+        return snapshot.getString(snapshot.getInt(productRowOffset + PRODUCT_NAME));
+    }
+    
+    /**
+     * gets the barcode of the product
+     * @return barcode, or null if not set
+     */
+    public String getBarcode()
+    {
+        return snapshot.getString(snapshot.getInt(productRowOffset + PRODUCT_BARCODE));
+    }
+    
+    /**
+     * gets the brand of the product
+     * @return brand, or null if not set
+     */
+    public String getBrand()
+    {
+        return snapshot.getString(snapshot.getInt(productRowOffset + PRODUCT_BRAND));
+    }
+    
+    /**
+     * gets the unit that the product is sold in
+     * @return unit, or null if not set
+     */
+    public String getUnit()
+    {
+        return snapshot.getString(snapshot.getInt(productRowOffset + PRODUCT_UNIT));
+    }
+    
+    /**
+     * gets the key of the sell unit of the product
+     * @return key sell unit ID, or null if not set
+     */
+    public String getKeySellUnitID()
+    {
+        return snapshot.getString(snapshot.getInt(productRowOffset + PRODUCT_KEY_SELL_UNIT_ID));
+    }
+    
+    /**
+     * checks if a stock quantity was loaded for the product
+     * @return true if the product has a stock quantity
+     */
+    public boolean hasStockQuantity()
+    {
+        return !Double.isNaN(snapshot.getDouble(productRowOffset + PRODUCT_QTY_AVAILABLE));
+    }
+    
+    /**
+     * gets the quantity of the product available
+     * @return quantity available, or NaN if the product has no stock quantity
+     */
+    public double getQtyAvailable()
+    {
+        return snapshot.getDouble(productRowOffset + PRODUCT_QTY_AVAILABLE);
+    }
+    
+    /**
+     * gets the quantity of the product on hand
+     * @return quantity on hand, or NaN if the product has no stock quantity
+     */
+    public double getQtyOnHand()
+    {
+        return snapshot.getDouble(productRowOffset + PRODUCT_QTY_ON_HAND);
+    }
+    
+    /**
+     * gets the quantity of the product that can be ordered
+     * @return quantity orderable, or NaN if the product has no stock quantity
+     */
+    public double getQtyOrderable()
+    {
+        return snapshot.getDouble(productRowOffset + PRODUCT_QTY_ORDERABLE);
+    }
+    
+    /**
+     * gets the number of prices of the product
+     * @return price count
+     */
+    public int getPriceCount()
+    {
+        return snapshot.getInt(productRowOffset + PRODUCT_PRICE_COUNT);
+    }
+    
+    /**
+     * gets the position of a price row of the product within the snapshot file
+     * @param priceNumber position of the price within the product's prices
+     * @return position of the price row
+     */
+    private int getPriceRowOffset(int priceNumber)
+    {
+        if(priceNumber < 0 || priceNumber >= getPriceCount()){
+            throw new IndexOutOfBoundsException("Price number: " + priceNumber);
+        }
+        return snapshot.getPriceRowOffset(snapshot.getInt(productRowOffset + PRODUCT_FIRST_PRICE_INDEX) + priceNumber);
+    }
+    
+    /**
+     * gets the key of the price level that a price applies to
+     * @param priceNumber position of the price within the product's prices
+     * @return key price level ID, or null if not set
+     */
+    public String getPriceKeyPriceLevelID(int priceNumber)
+    {
+        return snapshot.getString(snapshot.getInt(getPriceRowOffset(priceNumber) + PRICE_KEY_PRICE_LEVEL_ID));
+    }
+    
+    /**
+     * gets the key of the customer account that a price applies to
+     * @param priceNumber position of the price within the product's prices
+     * @return key account ID, or null if not set
+     */
+    public String getPriceKeyAccountID(int priceNumber)
+    {
+        return snapshot.getString(snapshot.getInt(getPriceRowOffset(priceNumber) + PRICE_KEY_ACCOUNT_ID));
+    }
+    
+    /**
+     * gets the key of the price group that a price applies to
+     * @param priceNumber position of the price within the product's prices
+     * @return key price group ID, or null if not set
+     */
+    public String getPriceKeyPriceGroupID(int priceNumber)
+    {
+        return snapshot.getString(snapshot.getInt(getPriceRowOffset(priceNumber) + PRICE_KEY_PRICE_GROUP_ID));
+    }
+    
+    /**
+     * gets the key of the sell unit that a price applies to
+     * @param priceNumber position of the price within the product's prices
+     * @return key sell unit ID, or null if not set
+     */
+    public String getPriceKeySellUnitID(int priceNumber)
+    {
+        return snapshot.getString(snapshot.getInt(getPriceRowOffset(priceNumber) + PRICE_KEY_SELL_UNIT_ID));
+    }
+    
+    /**
+     * gets the quantity that a price applies from
+     * @param priceNumber position of the price within the product's prices
+     * @return quantity break of the price
+     */
+    public double getPriceQuantity(int priceNumber)
+    {
+        return snapshot.getDouble(getPriceRowOffset(priceNumber) + PRICE_QUANTITY);
+    }
+    
+    /**
+     * gets the amount of a price
+     * @param priceNumber position of the price within the product's prices
+     * @return price
+     */
+    public double getPrice(int priceNumber)
+    {
+        return snapshot.getDouble(getPriceRowOffset(priceNumber) + PRICE_PRICE);
+    }
+    
+    /**
+     * gets the tax rate of a price
+     * @param priceNumber position of the price within the product's prices
+     * @return tax rate
+     */
+    public double getPriceTaxRate(int priceNumber)
+    {
+        return snapshot.getDouble(getPriceRowOffset(priceNumber) + PRICE_TAX_RATE);
+    }
+    
+    /**
+     * finds the price of the product that applies when buying a quantity at a price level, being the price with the largest quantity break that does not exceed the quantity
+     * @param keyPriceLevelID key of the price level, or null to match prices not assigned to a price level
+     * @param quantity quantity of the product being bought
+     * @return position of the price within the product's prices, or -1 if no price of the price level applies to the quantity
+     */
+    public int findPriceNumber(String keyPriceLevelID, double quantity)
+    {
+        byte[] priceLevelBytes = (keyPriceLevelID == null || keyPriceLevelID.isEmpty()? null: keyPriceLevelID.getBytes(StandardCharsets.UTF_8));
+        int matchedPriceNumber = -1;
+        
+        int priceCount = getPriceCount();
+        for(int priceNumber=0; priceNumber < priceCount; priceNumber++)
+        {
+            int priceRowOffset = getPriceRowOffset(priceNumber);
+            if(snapshot.getDouble(priceRowOffset + PRICE_QUANTITY) > quantity){
+                break;
+            }
+            
+            int priceLevelOffset = snapshot.getInt(priceRowOffset + PRICE_KEY_PRICE_LEVEL_ID);
+            boolean priceLevelMatches;
+            if(priceLevelBytes == null){
+                priceLevelMatches = (priceLevelOffset == NULL_STRING_OFFSET || snapshot.stringEquals(priceLevelOffset, new byte[0]));
+            }else{
+                priceLevelMatches = snapshot.stringEquals(priceLevelOffset, priceLevelBytes);
+            }
+            if(priceLevelMatches){
+                matchedPriceNumber = priceNumber;
+            }
+        }
+        
+        return matchedPriceNumber;
+    }
+}
@@ -0,0 +1,154 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.endpoint;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import org.squizz.api.v1.APIv1OrgSession;
+
+/**
+ * Retrieves pages of records from the platform's retrieve_esd endpoint ahead of a consumer, keeping a set number of pages in flight so that the platform's response time overlaps with the consumer processing earlier pages.
+ * Pages are requested using the executor of the API session, and each page is only requested once the consumer takes an earlier page, so no more than the set number of pages are ever held waiting for the consumer.
+ * Since the last page is only known once a page is returned with less records than the page size, up to one less than the number of prefetched pages may be requested past the end of the records, returning no records.
+ * Prefetchers are not thread safe and must only be used by one consumer thread. Close the prefetcher if the consumer stops taking pages before the last page is reached.
+ * @param <T> class of the records being retrieved, such as ESDRecordProduct for products
+ */
+public class APIv1ESDocumentPagePrefetcher<T> implements AutoCloseable
+{
+    /**
+     * default number of pages kept in flight ahead of the consumer
+     */
+    public static final int DEFAULT_PREFETCH_PAGES = 3;
+    
+    private final APIv1OrgSession apiOrgSession;
+    private final int endpointTimeoutMilliseconds;
+    private final int retrieveTypeID;
+    private final String supplierOrgID;
+    private final String customerAccountCode;
+    private final String requestParameters;
+    private final int pageSize;
+    private final int prefetchPages;
+    private final Class<T> recordClass;
+    
+    private final ArrayDeque<CompletableFuture<APIv1ESDocumentRecordPage<T>>> pagesInFlight = new ArrayDeque<>();
+    private int nextRecordsStartIndex = 0;
+    private boolean lastPageReached = false;
+    
+    /**
+     * creates a prefetcher that retrieves records from the first record onwards
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API for each page before giving up, set a positive number
+     * @param retrieveTypeID ID of the type of data to retrieve
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+     * @param requestParameters set additional parameters to in the request URL. Ensure parameter values are URI encoded
+     * @param pageSize maximum number of records to retrieve in each call to the endpoint, set 0 or less to use the default page size
+     * @param prefetchPages number of pages to keep in flight ahead of the consumer, set 0 or less to use the default
+     * @param recordClass class of the records being retrieved, which must match the type of data being retrieved
+     */
+    public APIv1ESDocumentPagePrefetcher(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int retrieveTypeID, String supplierOrgID, String customerAccountCode, String requestParameters, int pageSize, int prefetchPages, Class<T> recordClass)
+    {
+        this.apiOrgSession = apiOrgSession;
+        this.endpointTimeoutMilliseconds = endpointTimeoutMilliseconds;
+        this.retrieveTypeID = retrieveTypeID;
+        this.supplierOrgID = supplierOrgID;
+        this.customerAccountCode = customerAccountCode;
+        this.requestParameters = requestParameters;
+        this.pageSize = (pageSize > 0? pageSize: APIv1ESDocumentRecordIterator.DEFAULT_PAGE_SIZE);
+        this.prefetchPages = (prefetchPages > 0? prefetchPages: DEFAULT_PREFETCH_PAGES);
+        this.recordClass = recordClass;
+    }
+    
+    /**
+     * gets the next page of records, waiting for it to be retrieved if it has not yet been returned from the platform
+     * @return next page of records, or null if the last page has already been taken or the prefetcher has been closed. 
+     * A page that failed to be retrieved is returned as the last page, check its isSuccessful() and getEndpointResponse() to find out why it failed
+     */
+    public APIv1ESDocumentRecordPage<T> nextPage()
+    {
+        if(lastPageReached){
+            return null;
+        }
+        
+        requestPages();
+        int recordsStartIndex = nextRecordsStartIndex - (pagesInFlight.size() * pageSize);
+        CompletableFuture<APIv1ESDocumentRecordPage<T>> pageFuture = pagesInFlight.poll();
+        
+        //wait for the page to be retrieved
+        APIv1ESDocumentRecordPage<T> page;
+        try{
+            page = pageFuture.join();
+        }catch(RuntimeException ex){
+            APIv1EndpointResponseESD endpointResponse = new APIv1EndpointResponseESD();
+            endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
+            endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_UNKNOWN;
+            endpointResponse.result_message = apiOrgSession.getLangBundle().getString(endpointResponse.result_code) + "\n" + ex.getLocalizedMessage();
+            page = new APIv1ESDocumentRecordPage<>(recordsStartIndex, new ArrayList<T>(), endpointResponse);
+        }
+        
+        //stop once a page fails or is not full, otherwise replace the page taken with a request for another page
+        if(!page.isSuccessful() || page.getRecords().size() < pageSize){
+            close();
+        }else{
+            requestPages();
+        }
+        
+        return page;
+    }
+    
+    /**
+     * requests pages from the platform until the set number of pages are in flight
+     */
+    private void requestPages()
+    {
+        while(pagesInFlight.size() < prefetchPages)
+        {
+            final int recordsStartIndex = nextRecordsStartIndex;
+            try{
+                pagesInFlight.add(CompletableFuture.supplyAsync(() -> APIv1ESDocumentRecordPage.retrieve(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode, pageSize, recordsStartIndex, requestParameters, recordClass), apiOrgSession.getExecutor()));
+            }catch(RuntimeException ex){
+                //the executor rejected the task, so fail the page when it is taken
+                CompletableFuture<APIv1ESDocumentRecordPage<T>> rejectedPage = new CompletableFuture<>();
+                rejectedPage.completeExceptionally(ex);
+                pagesInFlight.add(rejectedPage);
+            }
+            nextRecordsStartIndex += pageSize;
+        }
+    }
+    
+    /**
+     * stops retrieving pages, discarding any pages in flight. Requests that have already been sent to the platform are left to complete in the background
+     */
+    @Override
+    public void close()
+    {
+        lastPageReached = true;
+        for(CompletableFuture<APIv1ESDocumentRecordPage<T>> pageFuture: pagesInFlight){
+            pageFuture.cancel(false);
+        }
+        pagesInFlight.clear();
+    }
+    
+    /**
+     * gets the number of pages kept in flight ahead of the consumer
+     * @return number of prefetched pages
+     */
+    public int getPrefetchPages()
+    {
+        return prefetchPages;
+    }
+    
+    /**
+     * gets the maximum number of records retrieved in each page
+     * @return page size
+     */
+    public int getPageSize()
+    {
+        return pageSize;
+    }
+}
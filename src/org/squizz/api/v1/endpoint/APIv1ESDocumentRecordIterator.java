@@ -0,0 +1,224 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.endpoint;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.squizz.api.v1.APIv1OrgSession;
+
+/**
+ * Iterates through all of the records of a type of data retrieved from a connected organisation, calling the platform's retrieve_esd endpoint page by page as records are iterated.
+ * Pages are retrieved until a page is returned containing less records than the page size. Each page's records are read straight from the response as it is received, and only one page of records is held in memory at a time.
+ * If a page fails to be retrieved then iteration stops, and the failure can be checked by calling isFailed() and getLastResponse() once hasNext() returns false.
+ * Pages can optionally be prefetched, where a set number of pages are retrieved in the background ahead of the records being iterated. Close the iterator (or its stream) if iteration is abandoned before the last record, to stop any prefetching.
+ * Iterators are not thread safe and must only be used by one thread.
+ * @param <T> class of the records being retrieved, such as ESDRecordProduct for products
+ */
+public class APIv1ESDocumentRecordIterator<T> implements Iterator<T>, AutoCloseable
+{
+    /**
+     * default maximum number of records retrieved in each page
+     */
+    public static final int DEFAULT_PAGE_SIZE = 5000;
+    
+    private final APIv1OrgSession apiOrgSession;
+    private final int endpointTimeoutMilliseconds;
+    private final int retrieveTypeID;
+    private final String supplierOrgID;
+    private final String customerAccountCode;
+    private final String requestParameters;
+    private final int pageSize;
+    private final Class<T> recordClass;
+    private final APIv1ESDocumentPagePrefetcher<T> pagePrefetcher;
+    
+    private ArrayList<T> pageRecords = new ArrayList<>();
+    private int pageRecordIndex = 0;
+    private int recordsStartIndex = 0;
+    private int pagesRetrieved = 0;
+    private long recordsIterated = 0;
+    private boolean lastPageRetrieved = false;
+    private boolean failed = false;
+    private APIv1EndpointResponseESD lastResponse = null;
+    
+    /**
+     * creates an iterator that retrieves records from the first record onwards
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API for each page before giving up, set a positive number
+     * @param retrieveTypeID ID of the type of data to retrieve
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+     * @param requestParameters set additional parameters to in the request URL. Ensure parameter values are URI encoded
+     * @param pageSize maximum number of records to retrieve in each call to the endpoint, set 0 or less to use the default page size
+     * @param recordClass class of the records being retrieved, which must match the type of data being retrieved
+     */
+    public APIv1ESDocumentRecordIterator(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int retrieveTypeID, String supplierOrgID, String customerAccountCode, String requestParameters, int pageSize, Class<T> recordClass)
+    {
+        this(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode, requestParameters, pageSize, 0, recordClass);
+    }
+    
+    /**
+     * creates an iterator that retrieves records from the first record onwards, optionally prefetching pages of records in the background using the executor of the API session
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API for each page before giving up, set a positive number
+     * @param retrieveTypeID ID of the type of data to retrieve
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+     * @param requestParameters set additional parameters to in the request URL. Ensure parameter values are URI encoded
+     * @param pageSize maximum number of records to retrieve in each call to the endpoint, set 0 or less to use the default page size
+     * @param prefetchPages number of pages to keep in flight ahead of the records being iterated, set 0 to retrieve each page only once all records of the previous page have been iterated
+     * @param recordClass class of the records being retrieved, which must match the type of data being retrieved
+     */
+    public APIv1ESDocumentRecordIterator(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int retrieveTypeID, String supplierOrgID, String customerAccountCode, String requestParameters, int pageSize, int prefetchPages, Class<T> recordClass)
+    {
+        this.apiOrgSession = apiOrgSession;
+        this.endpointTimeoutMilliseconds = endpointTimeoutMilliseconds;
+        this.retrieveTypeID = retrieveTypeID;
+        this.supplierOrgID = supplierOrgID;
+        this.customerAccountCode = customerAccountCode;
+        this.requestParameters = requestParameters;
+        this.pageSize = (pageSize > 0? pageSize: DEFAULT_PAGE_SIZE);
+        this.recordClass = recordClass;
+        this.pagePrefetcher = (prefetchPages > 0? new APIv1ESDocumentPagePrefetcher<>(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode, requestParameters, this.pageSize, prefetchPages, recordClass): null);
+    }
+    
+    /**
+     * checks if there is another record to iterate, retrieving the next page of records from the platform if all records in the current page have been iterated
+     * @return true if there is another record
+     */
+    @Override
+    public boolean hasNext()
+    {
+        while(pageRecordIndex >= pageRecords.size())
+        {
+            if(lastPageRetrieved){
+                return false;
+            }
+            retrieveNextPage();
+        }
+        return true;
+    }
+    
+    /**
+     * gets the next record
+     * @return next record
+     * @throws NoSuchElementException if all records have been iterated, or a page failed to be retrieved
+     */
+    @Override
+    public T next()
+    {
+        if(!hasNext()){
+            throw new NoSuchElementException();
+        }
+        
+        //release the reference to the record so that the page's records can be garbage collected as they are iterated
+        T record = pageRecords.set(pageRecordIndex, null);
+        pageRecordIndex++;
+        recordsIterated++;
+        return record;
+    }
+    
+    /**
+     * gets the next page of records, either from the prefetcher or by calling the platform's API
+     */
+    private void retrieveNextPage()
+    {
+        APIv1ESDocumentRecordPage<T> page;
+        if(pagePrefetcher != null){
+            page = pagePrefetcher.nextPage();
+        }else{
+            page = APIv1ESDocumentRecordPage.retrieve(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode, pageSize, recordsStartIndex, requestParameters, recordClass);
+        }
+        
+        //stop iterating if the page could not be retrieved, or it is the last page
+        lastResponse = page.getEndpointResponse();
+        if(!page.isSuccessful()){
+            failed = true;
+            lastPageRetrieved = true;
+        }
+        else if(page.getRecords().size() < pageSize){
+            lastPageRetrieved = true;
+        }
+        
+        pageRecords = page.getRecords();
+        pageRecordIndex = 0;
+        recordsStartIndex += pageRecords.size();
+        pagesRetrieved++;
+    }
+    
+    /**
+     * stops iterating records, discarding any pages being prefetched
+     */
+    @Override
+    public void close()
+    {
+        lastPageRetrieved = true;
+        pageRecords = new ArrayList<>();
+        pageRecordIndex = 0;
+        if(pagePrefetcher != null){
+            pagePrefetcher.close();
+        }
+    }
+    
+    /**
+     * gets a sequential stream of the records that are retrieved as the stream is consumed. Closing the stream closes the iterator
+     * @return stream of records
+     */
+    public Stream<T> stream()
+    {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+    
+    /**
+     * gets the response from the last call made to the endpoint
+     * @return response of the last page retrieved, or null if no pages have been retrieved
+     */
+    public APIv1EndpointResponseESD getLastResponse()
+    {
+        return lastResponse;
+    }
+    
+    /**
+     * checks if iteration stopped because a page of records failed to be retrieved
+     * @return true if a page failed to be retrieved
+     */
+    public boolean isFailed()
+    {
+        return failed;
+    }
+    
+    /**
+     * gets the number of calls made to the endpoint to retrieve pages of records
+     * @return number of pages retrieved
+     */
+    public int getPagesRetrieved()
+    {
+        return pagesRetrieved;
+    }
+    
+    /**
+     * gets the number of records that have been iterated
+     * @return number of records iterated
+     */
+    public long getRecordsIterated()
+    {
+        return recordsIterated;
+    }
+    
+    /**
+     * gets the maximum number of records retrieved in each page
+     * @return page size
+     */
+    public int getPageSize()
+    {
+        return pageSize;
+    }
+}
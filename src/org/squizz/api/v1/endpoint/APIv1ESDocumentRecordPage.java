@@ -0,0 +1,97 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.endpoint;
+
+import java.util.ArrayList;
+import org.squizz.api.v1.APIv1OrgSession;
+
+/**
+ * Represents a page of records retrieved from a connected organisation by calling the platform's retrieve_esd endpoint
+ * @param <T> class of the records retrieved, such as ESDRecordProduct for products
+ */
+public class APIv1ESDocumentRecordPage<T>
+{
+    private final int recordsStartIndex;
+    private final ArrayList<T> records;
+    private final APIv1EndpointResponseESD endpointResponse;
+    
+    /**
+     * creates a page
+     * @param recordsStartIndex index of the first record of the page, within all records of the type of data
+     * @param records records contained in the page
+     * @param endpointResponse response from calling the endpoint to retrieve the page
+     */
+    public APIv1ESDocumentRecordPage(int recordsStartIndex, ArrayList<T> records, APIv1EndpointResponseESD endpointResponse)
+    {
+        this.recordsStartIndex = recordsStartIndex;
+        this.records = records;
+        this.endpointResponse = endpointResponse;
+    }
+    
+    /**
+     * Calls the platform's API endpoint to retrieve a page of records, reading each record straight from the response as it is received
+     * @param <T> class of the records being retrieved
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param retrieveTypeID ID of the type of data to retrieve
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account, or an empty string
+     * @param pageSize maximum number of records to retrieve
+     * @param recordsStartIndex index containing the position of records to start obtaining from the server
+     * @param requestParameters set additional parameters to in the request URL. Ensure parameter values are URI encoded
+     * @param recordClass class of the records being retrieved, which must match the type of data being retrieved
+     * @return page of records. If the page failed to be retrieved then it contains no records
+     */
+    public static <T> APIv1ESDocumentRecordPage<T> retrieve(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int retrieveTypeID, String supplierOrgID, String customerAccountCode, int pageSize, int recordsStartIndex, String requestParameters, Class<T> recordClass)
+    {
+        ArrayList<T> records = new ArrayList<>();
+        APIv1EndpointResponseESD endpointResponse = APIv1EndpointOrgRetrieveESDocument.callStreamed(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode, pageSize, recordsStartIndex, requestParameters, recordClass, records::add);
+        
+        //discard any records read from the response before it failed
+        if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS)){
+            records.clear();
+        }
+        
+        return new APIv1ESDocumentRecordPage<>(recordsStartIndex, records, endpointResponse);
+    }
+    
+    /**
+     * gets the index of the first record of the page, within all records of the type of data
+     * @return index of the page's first record
+     */
+    public int getRecordsStartIndex()
+    {
+        return recordsStartIndex;
+    }
+    
+    /**
+     * gets the records contained in the page
+     * @return list of records
+     */
+    public ArrayList<T> getRecords()
+    {
+        return records;
+    }
+    
+    /**
+     * gets the response from calling the endpoint to retrieve the page
+     * @return endpoint response
+     */
+    public APIv1EndpointResponseESD getEndpointResponse()
+    {
+        return endpointResponse;
+    }
+    
+    /**
+     * checks if the page was successfully retrieved
+     * @return true if the endpoint returned a successful result
+     */
+    public boolean isSuccessful()
+    {
+        return endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS);
+    }
+}
@@ -7,15 +7,15 @@
 package org.squizz.api.v1.endpoint;
 
 import org.esd.EcommerceStandardsDocuments.ESDocumentConstants;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 import javafx.util.Pair;
 import org.squizz.api.v1.APIv1Constants;
 import org.squizz.api.v1.APIv1HTTPRequest;
+import org.squizz.api.v1.APIv1JSONMapper;
 import org.squizz.api.v1.APIv1OrgSession;
 
 /**
@@ -71,13 +71,11 @@ public class APIv1EndpointOrgCreateNotification
             //set notification parameters
             String requestPostBody = "notify_category="+URLEncoder.encode(notifyCategory, StandardCharsets.UTF_8.name())+"&message="+ URLEncoder.encode(message, StandardCharsets.UTF_8.name()) + linkURLParams + linkLabelParams;
             
-            //create JSON deserializer to interpret the response from the endpoint
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            ObjectReader endpointJSONReader = jsonMapper.readerFor(APIv1EndpointResponse.class);
+            //get the JSON deserializer to interpret the response from the endpoint
+            ObjectReader endpointJSONReader = APIv1JSONMapper.getReader(APIv1EndpointResponse.class);
             
             //make a HTTP request to the platform's API endpoint to create the organisation notifications
-            endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_CREATE_NOTIFCATION+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, requestPostBody, null, endpointTimeoutMilliseconds, apiOrgSession.getLangBundle(), endpointJSONReader, endpointResponse);
+            endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(apiOrgSession, APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_CREATE_NOTIFCATION+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, requestPostBody, null, endpointTimeoutMilliseconds, endpointJSONReader, endpointResponse);
             
             //check that the notification were successfully sent
             if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
@@ -98,4 +96,20 @@ public class APIv1EndpointOrgCreateNotification
         
         return endpointResponse;
     }
+    
+    /**
+     * Calls the platform's API endpoint to create an organisation notification and notify selected people assigned to an organisation's notification category, without blocking the calling thread
+     * To allow notifications to be sent to the platform the organisation must have sufficient trading tokens
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param notifyCategory notification category that the notification appears within for the organisation's people. Set to one of the NOTIFY_CATEGORY_ constants
+     * @param message message to display in the notification. Put placeholders in message {1}, {2}, {3}, {4}, {5} to replace with links or labels
+     * @param linkURLs ordered array of URLs to replace in each of the place holders of the message. Set empty strings to ignore placing values into place holders
+     * @param linkLabels ordered array of labels to replace in each of the place holders of the message. Set empty strings to ignore placing values into place holders
+     * @return future completed with the response from calling the API endpoint, once the call has been run by the executor assigned to the API session
+     */
+    public static CompletableFuture<APIv1EndpointResponseESD> callAsync(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, String notifyCategory, String message, String[] linkURLs, String[] linkLabels)
+    {
+        return CompletableFuture.supplyAsync(() -> call(apiOrgSession, endpointTimeoutMilliseconds, notifyCategory, message, linkURLs, linkLabels), apiOrgSession.getExecutor());
+    }
 }
@@ -6,14 +6,23 @@
 */
 package org.squizz.api.v1.endpoint;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 import javafx.util.Pair;
+import org.squizz.api.v1.APIv1CompressionSettings;
 import org.squizz.api.v1.APIv1Constants;
+import org.squizz.api.v1.APIv1ESDocumentRecords;
+import org.squizz.api.v1.APIv1ESDocumentRequestBody;
+import org.squizz.api.v1.APIv1ESDocumentStreamBody;
 import org.squizz.api.v1.APIv1HTTPRequest;
+import org.squizz.api.v1.APIv1HTTPRequestBody;
+import org.squizz.api.v1.APIv1JSONMapper;
 import org.squizz.api.v1.APIv1OrgSession;
+import org.squizz.api.v1.cache.APIv1ImportHashStore;
 import org.esd.EcommerceStandardsDocuments.*;
 
 /**
@@ -47,7 +56,9 @@ public class APIv1EndpointOrgImportESDocument
 	public static final int IMPORT_TYPE_ID_MAKER_MODEL_MAPPINGS = 46;
     
     /**
-     * Calls the platform's API endpoint and pushes up and import organisation data in a Ecommerce Standards Document of a specified type
+     * Calls the platform's API endpoint and pushes up and import organisation data in a Ecommerce Standards Document of a specified type.
+     * If the document contains at least the number of records set by the API session's import pre-serialize threshold, then the document is serialized and compressed across multiple cores before the request is sent.
+     * If the API session has an import hash store, then the endpoint is not called when the document has not changed since the last document of the same type was successfully imported, returning a successful response with the result code ENDPOINT_RESULT_CODE_SUCCESS_IMPORT_UNCHANGED
      * @param apiOrgSession existing organisation API session
      * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
      * @param importTypeID ID of the of the type of data to import
@@ -60,16 +71,35 @@ public class APIv1EndpointOrgImportESDocument
         APIv1EndpointResponseESD endpointResponse = new APIv1EndpointResponseESD();
         
         try{
+            //skip importing the document if it has not changed since the same type of data was last successfully imported for the organisation into the same API
+            APIv1ImportHashStore importHashStore = apiOrgSession.getImportHashStore();
+            byte[] documentHash = null;
+            if(importHashStore != null){
+                documentHash = APIv1ImportHashStore.getDocumentHash(esDocument);
+                if(importHashStore.isImportUnchanged(apiOrgSession.getAPIOrgURL(), apiOrgSession.getOrgID(), importTypeID, documentHash)){
+                    endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS;
+                    endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_SUCCESS_IMPORT_UNCHANGED;
+                    endpointResponse.result_message = apiOrgSession.getLangBundle().getString(endpointResponse.result_code);
+                    return endpointResponse;
+                }
+            }
+            
             //set endpoint parameters
             String endpointParams = "import_type_id="+importTypeID;
             
-            //create JSON deserializer to interpret the response from the endpoint
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            ObjectReader endpointJSONReader = jsonMapper.readerFor(APIv1EndpointResponse.class);
+            //get the JSON deserializer to interpret the response from the endpoint
+            ObjectReader endpointJSONReader = APIv1JSONMapper.getReader(APIv1EndpointResponse.class);
             
-            //make a HTTP request to the platform's API endpoint to push the ESDocument data up
-            endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", esDocument, endpointTimeoutMilliseconds, apiOrgSession.getLangBundle(), endpointJSONReader, endpointResponse);
+            //make a HTTP request to the platform's API endpoint to push the ESDocument data up, serializing and compressing large documents across multiple cores before the request is sent if set for the session
+            int preSerializeRecordsThreshold = apiOrgSession.getImportPreSerializeRecordsThreshold();
+            APIv1CompressionSettings compressionSettings = apiOrgSession.getCompressionSettings(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD);
+            if(preSerializeRecordsThreshold > 0 && compressionSettings.isCompressed() && APIv1ESDocumentRecords.getRecordsCount(esDocument) >= preSerializeRecordsThreshold){
+                try(APIv1ESDocumentRequestBody documentBody = APIv1ESDocumentRequestBody.serialize(esDocument, compressionSettings)){
+                    endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(apiOrgSession, APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, documentBody, endpointTimeoutMilliseconds, endpointJSONReader, endpointResponse);
+                }
+            }else{
+                endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(apiOrgSession, APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", esDocument, endpointTimeoutMilliseconds, endpointJSONReader, endpointResponse);
+            }
             
             //check that the data was successfully pushed up
             if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
@@ -80,6 +110,14 @@ public class APIv1EndpointOrgImportESDocument
                     apiOrgSession.markSessionExpired();
                 }
             }
+            else if(documentHash != null)
+            {
+                //store the hash of the imported document, if the store can't be saved then the next unchanged document of the type is only imported again
+                try{
+                    importHashStore.putImportHash(apiOrgSession.getAPIOrgURL(), apiOrgSession.getOrgID(), importTypeID, documentHash);
+                }catch(IOException ex){
+                }
+            }
         }
         catch(Exception ex)
         {
@@ -90,4 +128,116 @@ public class APIv1EndpointOrgImportESDocument
         
         return endpointResponse;
     }
+    
+    /**
+     * Calls the platform's API endpoint and pushes up and import organisation data in a Ecommerce Standards Document of a specified type, that has already been serialized as JSON into a file.
+     * The file is compressed straight into the request as it is read, so that files of any size are imported using a constant amount of memory. The file is sent uncompressed if the compression settings of the import_esd endpoint do not compress request bodies, or if it is smaller than the settings' uncompressed threshold
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param importTypeID ID of the of the type of data to import
+     * @param esDocumentFile path of the file containing the Ecommerce Standards Document serialized as JSON. Ensure the document matches the import type given
+     * @param validateDocument set to true to check that the document is correctly formed as it is sent, cancelling the import if it is not
+     * @return response from calling the API endpoint
+     */
+    public static APIv1EndpointResponseESD call(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int importTypeID, Path esDocumentFile, boolean validateDocument)
+    {
+        APIv1CompressionSettings compressionSettings = apiOrgSession.getCompressionSettings(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD);
+        return call(apiOrgSession, endpointTimeoutMilliseconds, importTypeID, new APIv1ESDocumentStreamBody(esDocumentFile, validateDocument, compressionSettings));
+    }
+    
+    /**
+     * Calls the platform's API endpoint and pushes up and import organisation data in a Ecommerce Standards Document of a specified type, that is read as JSON from a stream.
+     * The stream is compressed straight into the request as it is read, so that documents of any size are imported using a constant amount of memory. The stream is sent uncompressed if the compression settings of the import_esd endpoint do not compress request bodies,
+     * however since its length is not known before it is read the settings' uncompressed threshold is not used. Since the stream can only be read once the request is not retried if it fails
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param importTypeID ID of the of the type of data to import
+     * @param esDocumentStream stream containing the Ecommerce Standards Document serialized as JSON, which is read to its end but not closed. Ensure the document matches the import type given
+     * @param validateDocument set to true to check that the document is correctly formed as it is sent, cancelling the import if it is not
+     * @return response from calling the API endpoint
+     */
+    public static APIv1EndpointResponseESD call(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int importTypeID, InputStream esDocumentStream, boolean validateDocument)
+    {
+        APIv1CompressionSettings compressionSettings = apiOrgSession.getCompressionSettings(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD);
+        return call(apiOrgSession, endpointTimeoutMilliseconds, importTypeID, new APIv1ESDocumentStreamBody(esDocumentStream, validateDocument, compressionSettings));
+    }
+    
+    /**
+     * Calls the platform's API endpoint and pushes up and import organisation data from a body that writes an Ecommerce Standards Document into the request
+     */
+    private static APIv1EndpointResponseESD call(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int importTypeID, APIv1HTTPRequestBody documentBody)
+    {
+        ArrayList<Pair<String, String>> requestHeaders = new ArrayList<>();
+        APIv1EndpointResponseESD endpointResponse = new APIv1EndpointResponseESD();
+        
+        try{
+            //set endpoint parameters
+            String endpointParams = "import_type_id="+importTypeID;
+            
+            //get the JSON deserializer to interpret the response from the endpoint
+            ObjectReader endpointJSONReader = APIv1JSONMapper.getReader(APIv1EndpointResponse.class);
+            
+            //make a HTTP request to the platform's API endpoint to push the document up as it is read
+            endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(apiOrgSession, APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, documentBody, endpointTimeoutMilliseconds, endpointJSONReader, endpointResponse);
+            
+            //check that the data was successfully pushed up
+            if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
+            {
+                //check if the session still exists
+                if(endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_SESSION_INVALID)){
+                    //mark that the session has expired
+                    apiOrgSession.markSessionExpired();
+                }
+            }
+        }
+        catch(Exception ex)
+        {
+            endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
+            endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_UNKNOWN;
+			endpointResponse.result_message = apiOrgSession.getLangBundle().getString(endpointResponse.result_code) + "\n" + ex.getLocalizedMessage();
+        }
+        
+        return endpointResponse;
+    }
+    
+    /**
+     * Calls the platform's API endpoint and pushes up and import organisation data in a Ecommerce Standards Document of a specified type, without blocking the calling thread
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param importTypeID ID of the of the type of data to import
+     * @param esDocument Ecommerce Standards Document that contains records and data to to upload. Ensure the document matches the import type given
+     * @return future completed with the response from calling the API endpoint, once the call has been run by the executor assigned to the API session
+     */
+    public static CompletableFuture<APIv1EndpointResponseESD> callAsync(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int importTypeID, ESDocument esDocument)
+    {
+        return CompletableFuture.supplyAsync(() -> call(apiOrgSession, endpointTimeoutMilliseconds, importTypeID, esDocument), apiOrgSession.getExecutor());
+    }
+    
+    /**
+     * Calls the platform's API endpoint and pushes up and import organisation data in a Ecommerce Standards Document of a specified type that has already been serialized as JSON into a file, without blocking the calling thread
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param importTypeID ID of the of the type of data to import
+     * @param esDocumentFile path of the file containing the Ecommerce Standards Document serialized as JSON. Ensure the document matches the import type given
+     * @param validateDocument set to true to check that the document is correctly formed as it is sent, cancelling the import if it is not
+     * @return future completed with the response from calling the API endpoint, once the call has been run by the executor assigned to the API session
+     */
+    public static CompletableFuture<APIv1EndpointResponseESD> callAsync(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int importTypeID, Path esDocumentFile, boolean validateDocument)
+    {
+        return CompletableFuture.supplyAsync(() -> call(apiOrgSession, endpointTimeoutMilliseconds, importTypeID, esDocumentFile, validateDocument), apiOrgSession.getExecutor());
+    }
+    
+    /**
+     * Calls the platform's API endpoint and pushes up and import organisation data in a Ecommerce Standards Document of a specified type that is read as JSON from a stream, without blocking the calling thread
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param importTypeID ID of the of the type of data to import
+     * @param esDocumentStream stream containing the Ecommerce Standards Document serialized as JSON, which is read to its end by the session's executor but not closed. Ensure the document matches the import type given
+     * @param validateDocument set to true to check that the document is correctly formed as it is sent, cancelling the import if it is not
+     * @return future completed with the response from calling the API endpoint, once the call has been run by the executor assigned to the API session
+     */
+    public static CompletableFuture<APIv1EndpointResponseESD> callAsync(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int importTypeID, InputStream esDocumentStream, boolean validateDocument)
+    {
+        return CompletableFuture.supplyAsync(() -> call(apiOrgSession, endpointTimeoutMilliseconds, importTypeID, esDocumentStream, validateDocument), apiOrgSession.getExecutor());
+    }
 }
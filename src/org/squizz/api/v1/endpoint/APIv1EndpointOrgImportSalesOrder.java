@@ -9,16 +9,16 @@ package org.squizz.api.v1.endpoint;
 import org.esd.EcommerceStandardsDocuments.ESDocument;
 import org.esd.EcommerceStandardsDocuments.ESDocumentOrderPurchase;
 import org.esd.EcommerceStandardsDocuments.ESDocumentOrderSale;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 import javafx.util.Pair;
 import org.esd.EcommerceStandardsDocuments.ESDocumentConstants;
 import org.squizz.api.v1.APIv1Constants;
 import org.squizz.api.v1.APIv1HTTPRequest;
+import org.squizz.api.v1.APIv1JSONMapper;
 import org.squizz.api.v1.APIv1OrgSession;
 
 /**
@@ -44,13 +44,11 @@ public class APIv1EndpointOrgImportSalesOrder
             //set notification parameters
             String endpointParams = "reprice_order="+ (repriceOrder? ESDocumentConstants.ESD_VALUE_YES: ESDocumentConstants.ESD_VALUE_NO);
             
-            //create JSON deserializer to interpret the response from the endpoint
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            ObjectReader endpointJSONReader = jsonMapper.readerFor(ESDocumentOrderSale.class);
+            //get the JSON deserializer to interpret the response from the endpoint
+            ObjectReader endpointJSONReader = APIv1JSONMapper.getReader(ESDocumentOrderSale.class);
             
             //make a HTTP request to the platform's API endpoint to send the ESD containing the sales orders
-            endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_IMPORT_SALES_ORDER_ESD+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", esDocumentOrderSale, endpointTimeoutMilliseconds, apiOrgSession.getLangBundle(), endpointJSONReader, endpointResponse);
+            endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(apiOrgSession, APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_IMPORT_SALES_ORDER_ESD+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", esDocumentOrderSale, endpointTimeoutMilliseconds, endpointJSONReader, endpointResponse);
             
             //check that the data was successfully pushed up
             if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
@@ -271,4 +269,17 @@ public class APIv1EndpointOrgImportSalesOrder
         
         return unmatchedOrderPayments;
     }
+    
+    /**
+     * Calls the platform's API endpoint and pushes up and import organisation sales order record in a Ecommerce Standards Document of a specified type, without blocking the calling thread
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param esDocumentOrderSale Sales Order Ecommerce Standards Document that contains one or more sales order records
+	 * @param repriceOrder if true then allow the order lines and surcharges to be repriced on import
+     * @return future completed with the response from calling the API endpoint, once the call has been run by the executor assigned to the API session
+     */
+    public static CompletableFuture<APIv1EndpointResponseESD> callAsync(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, ESDocumentOrderSale esDocumentOrderSale, boolean repriceOrder)
+    {
+        return CompletableFuture.supplyAsync(() -> call(apiOrgSession, endpointTimeoutMilliseconds, esDocumentOrderSale, repriceOrder), apiOrgSession.getExecutor());
+    }
 }
\ No newline at end of file
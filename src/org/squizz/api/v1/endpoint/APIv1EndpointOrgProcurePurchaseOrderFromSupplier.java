@@ -9,15 +9,15 @@ package org.squizz.api.v1.endpoint;
 import org.esd.EcommerceStandardsDocuments.ESDocument;
 import org.esd.EcommerceStandardsDocuments.ESDocumentOrderPurchase;
 import org.esd.EcommerceStandardsDocuments.ESDocumentOrderSale;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 import javafx.util.Pair;
 import org.squizz.api.v1.APIv1Constants;
 import org.squizz.api.v1.APIv1HTTPRequest;
+import org.squizz.api.v1.APIv1JSONMapper;
 import org.squizz.api.v1.APIv1OrgSession;
 
 /**
@@ -44,13 +44,11 @@ public class APIv1EndpointOrgProcurePurchaseOrderFromSupplier
             //set notification parameters
             String endpointParams = "supplier_org_id="+ URLEncoder.encode(supplierOrgID, StandardCharsets.UTF_8.name()) + "&customer_account_code="+URLEncoder.encode(customerAccountCode, StandardCharsets.UTF_8.name());
             
-            //create JSON deserializer to interpret the response from the endpoint
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            ObjectReader endpointJSONReader = jsonMapper.readerFor(ESDocumentOrderSale.class);
+            //get the JSON deserializer to interpret the response from the endpoint
+            ObjectReader endpointJSONReader = APIv1JSONMapper.getReader(ESDocumentOrderSale.class);
             
             //make a HTTP request to the platform's API endpoint to send the ESD containing the purchase orders
-            endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_PROCURE_PURCHASE_ORDER_FROM_SUPPLIER+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", esDocumentOrderPurchase, endpointTimeoutMilliseconds, apiOrgSession.getLangBundle(), endpointJSONReader, endpointResponse);
+            endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(apiOrgSession, APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_PROCURE_PURCHASE_ORDER_FROM_SUPPLIER+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", esDocumentOrderPurchase, endpointTimeoutMilliseconds, endpointJSONReader, endpointResponse);
             
             //check that the data was successfully pushed up
             if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
@@ -191,4 +189,18 @@ public class APIv1EndpointOrgProcurePurchaseOrderFromSupplier
         
         return unstockedOrderLines;
     }
+    
+    /**
+     * Calls the platform's API endpoint and pushes up and import organisation data in a Ecommerce Standards Document of a specified type, without blocking the calling thread
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org)
+     * @param esDocumentOrderPurchase Purchase Order Ecommerce Standards Document that contains one or more purchase order records
+     * @return future completed with the response from calling the API endpoint, once the call has been run by the executor assigned to the API session
+     */
+    public static CompletableFuture<APIv1EndpointResponseESD> callAsync(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, String supplierOrgID, String customerAccountCode, ESDocumentOrderPurchase esDocumentOrderPurchase)
+    {
+        return CompletableFuture.supplyAsync(() -> call(apiOrgSession, endpointTimeoutMilliseconds, supplierOrgID, customerAccountCode, esDocumentOrderPurchase), apiOrgSession.getExecutor());
+    }
 }
@@ -5,17 +5,18 @@
 * You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
 */
 package org.squizz.api.v1.endpoint;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 import javafx.util.Pair;
 import org.squizz.api.v1.APIv1Constants;
 import org.squizz.api.v1.APIv1HTTPRequest;
+import org.squizz.api.v1.APIv1JSONMapper;
 import org.squizz.api.v1.APIv1OrgSession;
+import org.squizz.api.v1.APIv1RequestCoalescer;
 import org.esd.EcommerceStandardsDocuments.*;
 import org.squizz.api.v1.APIv1Constants;
 import org.squizz.api.v1.APIv1HTTPRequest;
@@ -30,7 +31,8 @@ import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
 public class APIv1EndpointOrgRetrieveCustomerAccountRecord
 {
     /**
-     * Calls the platform's API endpoint and retrieves for a connected organisation a customer account record retrieved live from organisation's connected business system
+     * Calls the platform's API endpoint and retrieves for a connected organisation a customer account record retrieved live from organisation's connected business system.
+     * If the API session has a request coalescer set, then a call made while an identical call is in flight returns the same response as the call in flight
      * @param apiOrgSession existing organisation API session
      * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
      * @param recordType type of record data to retrieve
@@ -47,7 +49,6 @@ public class APIv1EndpointOrgRetrieveCustomerAccountRecord
         String customerAccountCode,
         String keyRecordID)
     {
-        ArrayList<Pair<String, String>> requestHeaders = new ArrayList<>();
         APIv1EndpointResponseESD endpointResponse = new APIv1EndpointResponseESD();
         ObjectReader endpointJSONReader = null;
         boolean callEndpoint = true;
@@ -60,24 +61,19 @@ public class APIv1EndpointOrgRetrieveCustomerAccountRecord
                 "&customer_account_code="+URLEncoder.encode(customerAccountCode, StandardCharsets.UTF_8.name()) +
                 "&key_record_id=" + URLEncoder.encode(keyRecordID, StandardCharsets.UTF_8.name());
             
-            //create JSON deserializer to interpret the response from the endpoint
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            endpointJSONReader = jsonMapper.readerFor(ESDocumentCustomerAccountEnquiry.class);
+            //get the JSON deserializer to interpret the response from the endpoint
+            endpointJSONReader = APIv1JSONMapper.getReader(ESDocumentCustomerAccountEnquiry.class);
             
-            //make a HTTP request to the platform's API endpoint to retrieve the customer account record
+            //make a HTTP request to the platform's API endpoint to retrieve the customer account record,
+            //sharing the response of an identical request already in flight if the session coalesces requests
             if(callEndpoint && endpointJSONReader != null)
             {
-                endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(APIv1Constants.HTTP_REQUEST_METHOD_GET, APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_CUSTOMER_ACCOUNT_RECORD_ESD+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", null, endpointTimeoutMilliseconds, apiOrgSession.getLangBundle(), endpointJSONReader, endpointResponse);
-
-                //check that the data was successfully retrieved
-                if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
-                {
-                    //check if the session still exists
-                    if(endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_SESSION_INVALID)){
-                        //mark that the session has expired
-                        apiOrgSession.markSessionExpired();
-                    }
+                APIv1RequestCoalescer requestCoalescer = apiOrgSession.getRequestCoalescer();
+                if(requestCoalescer != null){
+                    final ObjectReader documentJSONReader = endpointJSONReader;
+                    endpointResponse = requestCoalescer.call(apiOrgSession.getAPIOrgURL(), apiOrgSession.getOrgID(), APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_CUSTOMER_ACCOUNT_RECORD_ESD, endpointParams, () -> sendRequest(apiOrgSession, endpointTimeoutMilliseconds, endpointParams, documentJSONReader));
+                }else{
+                    endpointResponse = sendRequest(apiOrgSession, endpointTimeoutMilliseconds, endpointParams, endpointJSONReader);
                 }
             }
         }
@@ -90,4 +86,41 @@ public class APIv1EndpointOrgRetrieveCustomerAccountRecord
         
         return endpointResponse;
     }
+    
+    /**
+     * makes a HTTP request to the platform's API endpoint to retrieve a customer account record
+     * @return response from calling the API endpoint
+     */
+    private static APIv1EndpointResponseESD sendRequest(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, String endpointParams, ObjectReader endpointJSONReader)
+    {
+        ArrayList<Pair<String, String>> requestHeaders = new ArrayList<>();
+        APIv1EndpointResponseESD endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(apiOrgSession, APIv1Constants.HTTP_REQUEST_METHOD_GET, APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_CUSTOMER_ACCOUNT_RECORD_ESD+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", null, endpointTimeoutMilliseconds, endpointJSONReader, new APIv1EndpointResponseESD());
+        
+        //check that the data was successfully retrieved
+        if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
+        {
+            //check if the session still exists
+            if(endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_SESSION_INVALID)){
+                //mark that the session has expired
+                apiOrgSession.markSessionExpired();
+            }
+        }
+        
+        return endpointResponse;
+    }
+    
+    /**
+     * Calls the platform's API endpoint and retrieves for a connected organisation a customer account record retrieved live from organisation's connected business system, without blocking the calling thread
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param recordType type of record data to retrieve
+     * @param supplierOrgID unique ID of the organisation in the SQUIZZ.com platform that has supplies the customer account
+     * @param customerAccountCode code of the account organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+     * @param keyRecordID comma delimited list of records unique key record ID to match on. Each Key Record ID value needs to be URI encoded
+     * @return future completed with the response from calling the API endpoint, once the call has been run by the executor assigned to the API session
+     */
+    public static CompletableFuture<APIv1EndpointResponseESD> callAsync(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, String recordType, String supplierOrgID, String customerAccountCode, String keyRecordID)
+    {
+        return CompletableFuture.supplyAsync(() -> call(apiOrgSession, endpointTimeoutMilliseconds, recordType, supplierOrgID, customerAccountCode, keyRecordID), apiOrgSession.getExecutor());
+    }
 }
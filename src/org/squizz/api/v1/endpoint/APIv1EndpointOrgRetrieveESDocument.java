@@ -7,17 +7,24 @@ package org.squizz.api.v1.endpoint;
 * You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
 */
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import javafx.util.Pair;
 import org.squizz.api.v1.APIv1Constants;
+import org.squizz.api.v1.APIv1ESDocumentRecords;
+import org.squizz.api.v1.APIv1ESDocumentStreamReader;
 import org.squizz.api.v1.APIv1HTTPRequest;
+import org.squizz.api.v1.APIv1JSONMapper;
 import org.squizz.api.v1.APIv1OrgSession;
+import org.squizz.api.v1.APIv1RequestCoalescer;
+import org.squizz.api.v1.cache.APIv1RetrieveCache;
+import org.squizz.api.v1.cache.APIv1RetrieveCacheKey;
 import org.esd.EcommerceStandardsDocuments.*;
 import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
 import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
@@ -38,7 +45,9 @@ public class APIv1EndpointOrgRetrieveESDocument
 	public static final int RETRIEVE_TYPE_ID_MAKER_MODEL_MAPPINGS = 46;
     
     /**
-     * Calls the platform's API endpoint and gets organisation data in a Ecommerce Standards Document of a specified type
+     * Calls the platform's API endpoint and gets organisation data in a Ecommerce Standards Document of a specified type.
+     * If the API session has a retrieve cache set, then the document is returned from the cache when it has been cached, otherwise a successfully retrieved document is placed into the cache.
+     * If the API session has a request coalescer set, then a call made while an identical call is in flight returns the same response as the call in flight
      * @param apiOrgSession existing organisation API session
      * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
      * @param retrieveTypeID ID of the type of data to retrieve
@@ -51,72 +60,48 @@ public class APIv1EndpointOrgRetrieveESDocument
      */
     public static APIv1EndpointResponseESD call(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int retrieveTypeID, String supplierOrgID, String customerAccountCode, int recordsMaxAmount, int recordsStartIndex, String requestParameters)
     {
-        ArrayList<Pair<String, String>> requestHeaders = new ArrayList<>();
         APIv1EndpointResponseESD endpointResponse = new APIv1EndpointResponseESD();
         ObjectReader endpointJSONReader = null;
         boolean callEndpoint = true;
         
         try{
             //set endpoint parameters
-            String endpointParams = 
-				"data_type_id="+retrieveTypeID + 
-				"&supplier_org_id=" + 
-				URLEncoder.encode(supplierOrgID, StandardCharsets.UTF_8.name()) + 
-				"&customer_account_code="+URLEncoder.encode(customerAccountCode, StandardCharsets.UTF_8.name())+
-				"&records_max_amount="+recordsMaxAmount+
-				"&records_start_index="+recordsStartIndex+ 
-				(requestParameters!= null && !requestParameters.isEmpty()? "&"+requestParameters: "");
-            
-            //create JSON deserializer to interpret the response from the endpoint
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            String endpointParams = getEndpointParams(retrieveTypeID, supplierOrgID, customerAccountCode, recordsMaxAmount, recordsStartIndex, requestParameters);
             
             //set the class to use to deserialise the ecommerce standards documents that has been returned from the platform's API
-            switch(retrieveTypeID){
-                case RETRIEVE_TYPE_ID_PRODUCTS:
-                    endpointJSONReader = jsonMapper.readerFor(ESDocumentProduct.class);
-                    break;
-                case RETRIEVE_TYPE_ID_PRICING:
-                    endpointJSONReader = jsonMapper.readerFor(ESDocumentPrice.class);
-                    break;
-                case RETRIEVE_TYPE_ID_PRODUCT_STOCK:
-                    endpointJSONReader = jsonMapper.readerFor(ESDocumentStockQuantity.class);
-                    break;
-				case RETRIEVE_TYPE_ID_CATEGORIES:
-                    endpointJSONReader = jsonMapper.readerFor(ESDocumentCategory.class);
-                    break;
-				case RETRIEVE_TYPE_ID_ATTRIBUTES:
-                    endpointJSONReader = jsonMapper.readerFor(ESDocumentAttribute.class);
-                    break;
-				case RETRIEVE_TYPE_ID_MAKERS:
-                    endpointJSONReader = jsonMapper.readerFor(ESDocumentMaker.class);
-                    break;
-				case RETRIEVE_TYPE_ID_MAKER_MODELS:
-                    endpointJSONReader = jsonMapper.readerFor(ESDocumentMakerModel.class);
-                    break;
-				case RETRIEVE_TYPE_ID_MAKER_MODEL_MAPPINGS:
-                    endpointJSONReader = jsonMapper.readerFor(ESDocumentMakerModelMapping.class);
-                    break;
-                default:
-                    callEndpoint  = false;
-                    endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
-                    endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_INCORRECT_DATA_TYPE;
-                    break;
+            Class<? extends ESDocument> documentClass = getDocumentClass(retrieveTypeID);
+            if(documentClass != null){
+                endpointJSONReader = APIv1JSONMapper.getReader(documentClass);
+            }else{
+                callEndpoint  = false;
+                endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
+                endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_INCORRECT_DATA_TYPE;
+            }
+            
+            //return the document from the session's cache if it has already been retrieved
+            APIv1RetrieveCache retrieveCache = apiOrgSession.getRetrieveCache();
+            APIv1RetrieveCacheKey cacheKey = null;
+            if(callEndpoint && retrieveCache != null)
+            {
+                cacheKey = new APIv1RetrieveCacheKey(apiOrgSession.getAPIOrgURL(), apiOrgSession.getOrgID(), supplierOrgID, customerAccountCode, retrieveTypeID, recordsMaxAmount, recordsStartIndex, requestParameters);
+                ESDocument cachedDocument = retrieveCache.get(cacheKey);
+                if(cachedDocument != null){
+                    callEndpoint = false;
+                    APIv1HTTPRequest.setESDocumentResult(endpointResponse, cachedDocument, apiOrgSession.getLangBundle());
+                }
             }
             
-            //make a HTTP request to the platform's API endpoint to retrieve the specified organisation data contained in the Ecommerce Standards Document
+            //make a HTTP request to the platform's API endpoint to retrieve the specified organisation data contained in the Ecommerce Standards Document,
+            //sharing the response of an identical request already in flight if the session coalesces requests
             if(callEndpoint && endpointJSONReader != null)
             {
-                endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(APIv1Constants.HTTP_REQUEST_METHOD_GET, APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", null, endpointTimeoutMilliseconds, apiOrgSession.getLangBundle(), endpointJSONReader, endpointResponse);
-
-                //check that the data was successfully pushed up
-                if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
-                {
-                    //check if the session still exists
-                    if(endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_SESSION_INVALID)){
-                        //mark that the session has expired
-                        apiOrgSession.markSessionExpired();
-                    }
+                APIv1RequestCoalescer requestCoalescer = apiOrgSession.getRequestCoalescer();
+                if(requestCoalescer != null){
+                    final ObjectReader documentJSONReader = endpointJSONReader;
+                    final APIv1RetrieveCacheKey documentCacheKey = cacheKey;
+                    endpointResponse = requestCoalescer.call(apiOrgSession.getAPIOrgURL(), apiOrgSession.getOrgID(), APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD, endpointParams, () -> sendRequest(apiOrgSession, endpointTimeoutMilliseconds, endpointParams, documentJSONReader, retrieveCache, documentCacheKey));
+                }else{
+                    endpointResponse = sendRequest(apiOrgSession, endpointTimeoutMilliseconds, endpointParams, endpointJSONReader, retrieveCache, cacheKey);
                 }
             }
         }
@@ -130,6 +115,32 @@ public class APIv1EndpointOrgRetrieveESDocument
         return endpointResponse;
     }
 	
+    /**
+     * makes a HTTP request to the platform's API endpoint to retrieve a document, placing the document into the cache if it was successfully retrieved
+     * @return response from calling the API endpoint
+     */
+    private static APIv1EndpointResponseESD sendRequest(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, String endpointParams, ObjectReader endpointJSONReader, APIv1RetrieveCache retrieveCache, APIv1RetrieveCacheKey cacheKey)
+    {
+        ArrayList<Pair<String, String>> requestHeaders = new ArrayList<>();
+        APIv1EndpointResponseESD endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(apiOrgSession, APIv1Constants.HTTP_REQUEST_METHOD_GET, APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", null, endpointTimeoutMilliseconds, endpointJSONReader, new APIv1EndpointResponseESD());
+        
+        //check that the data was successfully retrieved
+        if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
+        {
+            //check if the session still exists
+            if(endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_SESSION_INVALID)){
+                //mark that the session has expired
+                apiOrgSession.markSessionExpired();
+            }
+        }
+        else if(cacheKey != null){
+            //place the retrieved document into the cache
+            retrieveCache.put(cacheKey, endpointResponse.esDocument);
+        }
+        
+        return endpointResponse;
+    }
+    
 	/**
      * Calls the platform's API endpoint and gets organisation data in a Ecommerce Standards Document of a specified type
      * @param apiOrgSession existing organisation API session
@@ -143,4 +154,289 @@ public class APIv1EndpointOrgRetrieveESDocument
     {
 		return call(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode, 5000, 0, "");
 	}
-}
+    
+    /**
+     * Calls the platform's API endpoint and gets organisation data in a Ecommerce Standards Document of a specified type, passing each record to a consumer as soon as it has been read from the response.
+     * Records are not stored in the returned document, allowing large amounts of records to be retrieved using a constant amount of memory.
+     * The consumer is called on the thread making the call while the response is still being received, so it should return quickly
+     * @param <T> class of the records being retrieved
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param retrieveTypeID ID of the type of data to retrieve
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+	 * @param recordsMaxAmount maximum number of records to obtain from the platform
+	 * @param recordsStartIndex index containing the position of records to start obtaining from the server
+	 * @param requestParameters set additional parameters to in the request URL. Ensure parameter values are URI encoded
+     * @param recordClass class of the records being retrieved, which must match the type of data being retrieved, such as ESDRecordProduct for products
+     * @param recordConsumer consumer that is given each record as it is read
+     * @return response from calling the API endpoint, containing the document's result status, configs and other properties, without the records placed in its dataRecords array
+     */
+    public static <T> APIv1EndpointResponseESD callStreamed(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int retrieveTypeID, String supplierOrgID, String customerAccountCode, int recordsMaxAmount, int recordsStartIndex, String requestParameters, Class<T> recordClass, Consumer<? super T> recordConsumer)
+    {
+        ArrayList<Pair<String, String>> requestHeaders = new ArrayList<>();
+        APIv1EndpointResponseESD endpointResponse = new APIv1EndpointResponseESD();
+        
+        try{
+            //set endpoint parameters
+            String endpointParams = getEndpointParams(retrieveTypeID, supplierOrgID, customerAccountCode, recordsMaxAmount, recordsStartIndex, requestParameters);
+            
+            //check that the class of the records matches the type of data being retrieved
+            Class<? extends ESDocument> documentClass = getDocumentClass(retrieveTypeID);
+            if(documentClass == null || !recordClass.equals(getRecordClass(retrieveTypeID)))
+            {
+                endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
+                endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_INCORRECT_DATA_TYPE;
+                endpointResponse.result_message = apiOrgSession.getLangBundle().getString(endpointResponse.result_code);
+                return endpointResponse;
+            }
+            
+            //make a HTTP request to the platform's API endpoint to retrieve the specified organisation data, reading each record as it is received
+            APIv1ESDocumentStreamReader<T> documentReader = new APIv1ESDocumentStreamReader<>(documentClass, recordClass, recordConsumer);
+            endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(apiOrgSession, APIv1Constants.HTTP_REQUEST_METHOD_GET, APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", null, endpointTimeoutMilliseconds, documentReader, endpointResponse);
+            
+            //check if the session still exists
+            if(endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_SESSION_INVALID)){
+                apiOrgSession.markSessionExpired();
+            }
+        }
+        catch(Exception ex)
+        {
+            endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
+            endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_UNKNOWN;
+			endpointResponse.result_message = apiOrgSession.getLangBundle().getString(endpointResponse.result_code) + "\n" + ex.getLocalizedMessage();
+        }
+        
+        return endpointResponse;
+    }
+    
+    /**
+     * Creates an iterator over all records of a specified type of data, that calls the platform's API endpoint page by page as the records are iterated, until a page is returned with less records than the page size
+     * @param <T> class of the records being retrieved
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API for each page before giving up, set a positive number
+     * @param retrieveTypeID ID of the type of data to retrieve
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+     * @param pageSize maximum number of records to obtain in each call to the endpoint, set 0 or less to use the default of 5000
+	 * @param requestParameters set additional parameters to in the request URL. Ensure parameter values are URI encoded
+     * @param recordClass class of the records being retrieved, which must match the type of data being retrieved, such as ESDRecordProduct for products
+     * @return iterator of the records. Check the iterator's isFailed() and getLastResponse() once iteration has finished to determine if all records were retrieved
+     */
+    public static <T> APIv1ESDocumentRecordIterator<T> iterateRecords(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int retrieveTypeID, String supplierOrgID, String customerAccountCode, int pageSize, String requestParameters, Class<T> recordClass)
+    {
+        return new APIv1ESDocumentRecordIterator<>(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode, requestParameters, pageSize, recordClass);
+    }
+    
+    /**
+     * Creates an iterator over all records of a specified type of data, that retrieves pages of records in the background ahead of the records being iterated, so that the platform's response time overlaps with processing the records of earlier pages.
+     * No more than the set number of pages are held in flight, and a new page is only requested once an earlier page has been taken by the iterator
+     * @param <T> class of the records being retrieved
+     * @param apiOrgSession existing organisation API session, whose executor is used to retrieve pages
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API for each page before giving up, set a positive number
+     * @param retrieveTypeID ID of the type of data to retrieve
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+     * @param pageSize maximum number of records to obtain in each call to the endpoint, set 0 or less to use the default of 5000
+     * @param prefetchPages number of pages to keep in flight ahead of the records being iterated
+	 * @param requestParameters set additional parameters to in the request URL. Ensure parameter values are URI encoded
+     * @param recordClass class of the records being retrieved, which must match the type of data being retrieved, such as ESDRecordProduct for products
+     * @return iterator of the records, which must be closed if iteration is stopped before the last record. Check the iterator's isFailed() and getLastResponse() once iteration has finished to determine if all records were retrieved
+     */
+    public static <T> APIv1ESDocumentRecordIterator<T> iterateRecordsPrefetched(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int retrieveTypeID, String supplierOrgID, String customerAccountCode, int pageSize, int prefetchPages, String requestParameters, Class<T> recordClass)
+    {
+        return new APIv1ESDocumentRecordIterator<>(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode, requestParameters, pageSize, Math.max(prefetchPages, 1), recordClass);
+    }
+    
+    /**
+     * Retrieves all records of several types of data from a supplier organisation at the same time, with each type of data retrieved page by page by the executor assigned to the API session.
+     * Waits until all types of data have been retrieved, so must not be called by a thread of the session's executor
+     * @param apiOrgSession existing organisation API session, whose executor is used to retrieve each type of data
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API for each page of records before giving up, set a positive number
+     * @param retrieveTypeIDs IDs of the types of data to retrieve, such as RETRIEVE_TYPE_ID_PRODUCTS and RETRIEVE_TYPE_ID_PRICING
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+     * @param pageSize maximum number of records to obtain in each call to the endpoint, set 0 or less to use the default of 5000
+	 * @param requestParameters set additional parameters to in the request URL of each type of data. Ensure parameter values are URI encoded
+     * @return result containing a response for each type of data, each holding a document with all records of its type of data if it was successfully retrieved
+     */
+    public static APIv1MultiTypeRetrieveResult callMultipleTypes(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int[] retrieveTypeIDs, String supplierOrgID, String customerAccountCode, int pageSize, String requestParameters)
+    {
+        return callMultipleTypesAsync(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeIDs, supplierOrgID, customerAccountCode, pageSize, requestParameters).join();
+    }
+    
+    /**
+     * Retrieves all records of several types of data from a supplier organisation at the same time, with each type of data retrieved page by page by the executor assigned to the API session, without blocking the calling thread
+     * @param apiOrgSession existing organisation API session, whose executor is used to retrieve each type of data
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API for each page of records before giving up, set a positive number
+     * @param retrieveTypeIDs IDs of the types of data to retrieve, such as RETRIEVE_TYPE_ID_PRODUCTS and RETRIEVE_TYPE_ID_PRICING
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+     * @param pageSize maximum number of records to obtain in each call to the endpoint, set 0 or less to use the default of 5000
+	 * @param requestParameters set additional parameters to in the request URL of each type of data. Ensure parameter values are URI encoded
+     * @return future completed with the result containing a response for each type of data, once all types of data have been retrieved
+     */
+    public static CompletableFuture<APIv1MultiTypeRetrieveResult> callMultipleTypesAsync(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int[] retrieveTypeIDs, String supplierOrgID, String customerAccountCode, int pageSize, String requestParameters)
+    {
+        //start retrieving each type of data
+        ArrayList<CompletableFuture<APIv1EndpointResponseESD>> responseFutures = new ArrayList<>(retrieveTypeIDs.length);
+        for(int retrieveTypeID: retrieveTypeIDs){
+            responseFutures.add(CompletableFuture.supplyAsync(() -> retrieveAllRecords(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode, pageSize, requestParameters, getRecordClass(retrieveTypeID)), apiOrgSession.getExecutor()));
+        }
+        
+        //combine the responses once all types of data have been retrieved
+        return CompletableFuture.allOf(responseFutures.toArray(new CompletableFuture<?>[responseFutures.size()])).thenApply(ignored -> {
+            APIv1MultiTypeRetrieveResult multiTypeResult = new APIv1MultiTypeRetrieveResult();
+            for(int i=0; i < retrieveTypeIDs.length; i++){
+                multiTypeResult.setResponse(retrieveTypeIDs[i], responseFutures.get(i).join());
+            }
+            return multiTypeResult;
+        });
+    }
+    
+    /**
+     * retrieves all records of a type of data page by page, placing them into a single document
+     * @return response holding the document of all records, or the response of the page that failed to be retrieved
+     */
+    private static <T> APIv1EndpointResponseESD retrieveAllRecords(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int retrieveTypeID, String supplierOrgID, String customerAccountCode, int pageSize, String requestParameters, Class<T> recordClass)
+    {
+        APIv1EndpointResponseESD endpointResponse = new APIv1EndpointResponseESD();
+        
+        //check that the type of data can be retrieved
+        if(recordClass == null){
+            endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
+            endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_INCORRECT_DATA_TYPE;
+            endpointResponse.result_message = apiOrgSession.getLangBundle().getString(endpointResponse.result_code);
+            return endpointResponse;
+        }
+        
+        try{
+            //collect the records of each page
+            ArrayList<T> records = new ArrayList<>();
+            APIv1ESDocumentRecordIterator<T> recordIterator = iterateRecords(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode, pageSize, requestParameters, recordClass);
+            recordIterator.forEachRemaining(records::add);
+            endpointResponse = recordIterator.getLastResponse();
+            
+            //place all records into the document returned with the last page
+            if(!recordIterator.isFailed()){
+                APIv1ESDocumentRecords.setRecords(endpointResponse.esDocument, records);
+                endpointResponse.esDocument.totalDataRecords = records.size();
+            }
+        }
+        catch(Exception ex)
+        {
+            endpointResponse = new APIv1EndpointResponseESD();
+            endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
+            endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_UNKNOWN;
+			endpointResponse.result_message = apiOrgSession.getLangBundle().getString(endpointResponse.result_code) + "\n" + ex.getLocalizedMessage();
+        }
+        
+        return endpointResponse;
+    }
+    
+    /**
+     * builds the parameters placed in the URL of requests sent to the endpoint
+     * @return URL parameters
+     * @throws UnsupportedEncodingException if the parameter values could not be URL encoded
+     */
+    private static String getEndpointParams(int retrieveTypeID, String supplierOrgID, String customerAccountCode, int recordsMaxAmount, int recordsStartIndex, String requestParameters) throws UnsupportedEncodingException
+    {
+        return
+            "data_type_id="+retrieveTypeID + 
+            "&supplier_org_id=" + 
+            URLEncoder.encode(supplierOrgID, StandardCharsets.UTF_8.name()) + 
+            "&customer_account_code="+URLEncoder.encode(customerAccountCode, StandardCharsets.UTF_8.name())+
+            "&records_max_amount="+recordsMaxAmount+
+            "&records_start_index="+recordsStartIndex+ 
+            (requestParameters!= null && !requestParameters.isEmpty()? "&"+requestParameters: "");
+    }
+    
+    /**
+     * gets the class of Ecommerce Standards Document that the endpoint returns for a type of data
+     * @param retrieveTypeID ID of the type of data to retrieve
+     * @return class of the Ecommerce Standards Document, or null if the type of data cannot be retrieved
+     */
+    public static Class<? extends ESDocument> getDocumentClass(int retrieveTypeID)
+    {
+        switch(retrieveTypeID){
+            case RETRIEVE_TYPE_ID_PRODUCTS:
+                return ESDocumentProduct.class;
+            case RETRIEVE_TYPE_ID_PRICING:
+                return ESDocumentPrice.class;
+            case RETRIEVE_TYPE_ID_PRODUCT_STOCK:
+                return ESDocumentStockQuantity.class;
+            case RETRIEVE_TYPE_ID_CATEGORIES:
+                return ESDocumentCategory.class;
+            case RETRIEVE_TYPE_ID_ATTRIBUTES:
+                return ESDocumentAttribute.class;
+            case RETRIEVE_TYPE_ID_MAKERS:
+                return ESDocumentMaker.class;
+            case RETRIEVE_TYPE_ID_MAKER_MODELS:
+                return ESDocumentMakerModel.class;
+            case RETRIEVE_TYPE_ID_MAKER_MODEL_MAPPINGS:
+                return ESDocumentMakerModelMapping.class;
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * gets the class of the records stored in the Ecommerce Standards Document that the endpoint returns for a type of data
+     * @param retrieveTypeID ID of the type of data to retrieve
+     * @return class of the records, or null if the type of data cannot be retrieved
+     */
+    public static Class<?> getRecordClass(int retrieveTypeID)
+    {
+        switch(retrieveTypeID){
+            case RETRIEVE_TYPE_ID_PRODUCTS:
+                return ESDRecordProduct.class;
+            case RETRIEVE_TYPE_ID_PRICING:
+                return ESDRecordPrice.class;
+            case RETRIEVE_TYPE_ID_PRODUCT_STOCK:
+                return ESDRecordStockQuantity.class;
+            case RETRIEVE_TYPE_ID_CATEGORIES:
+                return ESDRecordCategory.class;
+            case RETRIEVE_TYPE_ID_ATTRIBUTES:
+                return ESDRecordAttributeValue.class;
+            case RETRIEVE_TYPE_ID_MAKERS:
+                return ESDRecordMaker.class;
+            case RETRIEVE_TYPE_ID_MAKER_MODELS:
+                return ESDRecordMakerModel.class;
+            case RETRIEVE_TYPE_ID_MAKER_MODEL_MAPPINGS:
+                return ESDRecordMakerModelMapping.class;
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * Calls the platform's API endpoint and gets organisation data in a Ecommerce Standards Document of a specified type, without blocking the calling thread
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param retrieveTypeID ID of the type of data to retrieve
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+	 * @param recordsMaxAmount maximum number of records to obtain from the platform
+	 * @param recordsStartIndex index containing the position of records to start obtaining from the server
+	 * @param requestParameters set additional parameters to in the request URL. Ensure parameter values are URI encoded
+     * @return future completed with the response from calling the API endpoint, once the call has been run by the executor assigned to the API session
+     */
+    public static CompletableFuture<APIv1EndpointResponseESD> callAsync(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int retrieveTypeID, String supplierOrgID, String customerAccountCode, int recordsMaxAmount, int recordsStartIndex, String requestParameters)
+    {
+        return CompletableFuture.supplyAsync(() -> call(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode, recordsMaxAmount, recordsStartIndex, requestParameters), apiOrgSession.getExecutor());
+    }
+    
+	/**
+     * Calls the platform's API endpoint and gets organisation data in a Ecommerce Standards Document of a specified type, without blocking the calling thread
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param retrieveTypeID ID of the type of data to retrieve
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+     * @return future completed with the response from calling the API endpoint, once the call has been run by the executor assigned to the API session
+     */
+    public static CompletableFuture<APIv1EndpointResponseESD> callAsync(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int retrieveTypeID, String supplierOrgID, String customerAccountCode)
+    {
+        return CompletableFuture.supplyAsync(() -> call(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode), apiOrgSession.getExecutor());
+    }
+}
\ No newline at end of file
@@ -6,16 +6,16 @@
 */
 
 package org.squizz.api.v1.endpoint;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 import javafx.util.Pair;
 import org.squizz.api.v1.APIv1Constants;
 import org.squizz.api.v1.APIv1HTTPRequest;
+import org.squizz.api.v1.APIv1JSONMapper;
 import org.squizz.api.v1.APIv1OrgSession;
 import org.esd.EcommerceStandardsDocuments.*;
 import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
@@ -79,15 +79,13 @@ public class APIv1EndpointOrgSearchCustomerAccountRecords
                 "&key_record_ids=" + URLEncoder.encode(keyRecordIDs, StandardCharsets.UTF_8.name())+
                 "&search_type=" + URLEncoder.encode(searchType, StandardCharsets.UTF_8.name());
             
-            //create JSON deserializer to interpret the response from the endpoint
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            endpointJSONReader = jsonMapper.readerFor(ESDocumentCustomerAccountEnquiry.class);
+            //get the JSON deserializer to interpret the response from the endpoint
+            endpointJSONReader = APIv1JSONMapper.getReader(ESDocumentCustomerAccountEnquiry.class);
             
             //make a HTTP request to the platform's API endpoint to search for the customer account records
             if(callEndpoint && endpointJSONReader != null)
             {
-                endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(APIv1Constants.HTTP_REQUEST_METHOD_GET, APIv1Constants.API_ORG_ENDPOINT_SEARCH_CUSTOMER_ACCOUNT_RECORDS_ESD+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", null, endpointTimeoutMilliseconds, apiOrgSession.getLangBundle(), endpointJSONReader, endpointResponse);
+                endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(apiOrgSession, APIv1Constants.HTTP_REQUEST_METHOD_GET, APIv1Constants.API_ORG_ENDPOINT_SEARCH_CUSTOMER_ACCOUNT_RECORDS_ESD+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", null, endpointTimeoutMilliseconds, endpointJSONReader, endpointResponse);
 
                 //check that the data was successfully retrieved
                 if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
@@ -109,4 +107,26 @@ public class APIv1EndpointOrgSearchCustomerAccountRecords
         
         return endpointResponse;
     }
+    
+    /**
+     * Calls the platform's API endpoint and searches for a connected organisation's customer account records retrieved live from their connected business system, without blocking the calling thread
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param recordType type of record data to search for.
+     * @param supplierOrgID unique ID of the organisation in the SQUIZZ.com platform that has supplies the customer account
+     * @param customerAccountCode code of the account organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+     * @param beginDateTime earliest date time to search for records for. Date time set as milliseconds since 1/1/1970 12am UTC epoch
+     * @param endDateTime latest date time to search for records up to. Date time set as milliseconds since 1/1/1970 12am UTC epoch
+     * @param pageNumber page number to obtain records from
+     * @param recordsMaxAmount maximum number of records to return
+     * @param outstandingRecords if true then only search for records that are marked as outstanding (such as unpaid invoices)
+     * @param searchString search text to match records on
+     * @param keyRecordIDs comma delimited list of records unique key record ID to match on. Each Key Record ID value needs to be URI encoded
+     * @param searchType specifies the field to search for records on, matching the record's field with the search string given
+     * @return future completed with the response from calling the API endpoint, once the call has been run by the executor assigned to the API session
+     */
+    public static CompletableFuture<APIv1EndpointResponseESD> callAsync(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, String recordType, String supplierOrgID, String customerAccountCode, long beginDateTime, long endDateTime, int pageNumber, int recordsMaxAmount, boolean outstandingRecords, String searchString, String keyRecordIDs, String searchType)
+    {
+        return CompletableFuture.supplyAsync(() -> call(apiOrgSession, endpointTimeoutMilliseconds, recordType, supplierOrgID, customerAccountCode, beginDateTime, endDateTime, pageNumber, recordsMaxAmount, outstandingRecords, searchString, keyRecordIDs, searchType), apiOrgSession.getExecutor());
+    }
 }
@@ -9,15 +9,15 @@ package org.squizz.api.v1.endpoint;
 import org.esd.EcommerceStandardsDocuments.ESDocument;
 import org.esd.EcommerceStandardsDocuments.ESDocumentSupplierInvoice;
 import org.esd.EcommerceStandardsDocuments.ESDocumentCustomerInvoice;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 import javafx.util.Pair;
 import org.squizz.api.v1.APIv1Constants;
 import org.squizz.api.v1.APIv1HTTPRequest;
+import org.squizz.api.v1.APIv1JSONMapper;
 import org.squizz.api.v1.APIv1OrgSession;
 
 /**
@@ -45,13 +45,11 @@ public class APIv1EndpointOrgSendCustomerInvoiceToCustomer
 			//set notification parameters
 			String endpointParams = "customer_org_id="+ URLEncoder.encode(customerOrgID, StandardCharsets.UTF_8.name()) + "&supplier_account_code="+URLEncoder.encode(supplierAccountCode, StandardCharsets.UTF_8.name());
 			
-			//create JSON deserializer to interpret the response from the endpoint
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            ObjectReader endpointJSONReader = jsonMapper.readerFor(ESDocumentSupplierInvoice.class);
+			//get the JSON deserializer to interpret the response from the endpoint
+            ObjectReader endpointJSONReader = APIv1JSONMapper.getReader(ESDocumentSupplierInvoice.class);
 
 			//make a HTTP request to the platform's API endpoint to send the ESD containing the customer invoices
-			endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_SEND_CUSTOMER_INVOICE_TO_CUSTOMER+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", esDocumentCustomerInvoice, endpointTimeoutMilliseconds, apiOrgSession.getLangBundle(), endpointJSONReader, endpointResponse);
+			endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(apiOrgSession, APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_SEND_CUSTOMER_INVOICE_TO_CUSTOMER+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, "", esDocumentCustomerInvoice, endpointTimeoutMilliseconds, endpointJSONReader, endpointResponse);
 				
 			//check that the data was successfully pushed up
 			if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
@@ -112,4 +110,18 @@ public class APIv1EndpointOrgSendCustomerInvoiceToCustomer
         
         return upmappedInvoiceLines;
     }
+    
+    /**
+     * Calls the platform's API endpoint and pushes up and import organisation data in a Ecommerce Standards Document of a specified type, without blocking the calling thread
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param customerOrgID unique ID of the customer organisation in the SQUIZZ.com platform
+     * @param supplierAccountCode code of the customer organisation's supplier account. Supplier account only needs to be set if the customer organisation has assigned multiple accounts to the supplier organisation logged into the API session (supplier org)
+     * @param esDocumentCustomerInvoice Customer Invoice Ecommerce Standards Document that contains one or more customer invoice records
+     * @return future completed with the response from calling the API endpoint, once the call has been run by the executor assigned to the API session
+     */
+    public static CompletableFuture<APIv1EndpointResponseESD> callAsync(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, String customerOrgID, String supplierAccountCode, ESDocumentCustomerInvoice esDocumentCustomerInvoice)
+    {
+        return CompletableFuture.supplyAsync(() -> call(apiOrgSession, endpointTimeoutMilliseconds, customerOrgID, supplierAccountCode, esDocumentCustomerInvoice), apiOrgSession.getExecutor());
+    }
 }
@@ -6,15 +6,15 @@
 */
 package org.squizz.api.v1.endpoint;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 import javafx.util.Pair;
 import org.squizz.api.v1.APIv1Constants;
 import org.squizz.api.v1.APIv1HTTPRequest;
+import org.squizz.api.v1.APIv1JSONMapper;
 import org.squizz.api.v1.APIv1OrgSession;
 import static org.squizz.api.v1.endpoint.APIv1EndpointOrgCreateNotification.MAX_MESSAGE_PLACEHOLDERS;
 
@@ -43,13 +43,11 @@ public class APIv1EndpointOrgValidateSecurityCertificate
             //set notification parameters
             String requestPostBody = "org_security_certificate_id="+URLEncoder.encode(orgSecurityCertificateID, StandardCharsets.UTF_8.name());
             
-            //create JSON deserializer to interpret the response from the endpoint
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            ObjectReader endpointJSONReader = jsonMapper.readerFor(APIv1EndpointResponse.class);
+            //get the JSON deserializer to interpret the response from the endpoint
+            ObjectReader endpointJSONReader = APIv1JSONMapper.getReader(APIv1EndpointResponse.class);
             
             //make a HTTP request to the platform's API endpoint to validate the security certificate
-            endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_VALIDATE_CERT+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, requestPostBody, null, endpointTimeoutMilliseconds, apiOrgSession.getLangBundle(), endpointJSONReader, endpointResponse);
+            endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(apiOrgSession, APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_VALIDATE_CERT+APIv1Constants.API_PATH_SLASH+apiOrgSession.getSessionID(), endpointParams, requestHeaders, requestPostBody, null, endpointTimeoutMilliseconds, endpointJSONReader, endpointResponse);
             
             //check that the notification were successfully sent
             if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS))
@@ -70,4 +68,17 @@ public class APIv1EndpointOrgValidateSecurityCertificate
         
         return endpointResponse;
     }
+    
+    /**
+     * Calls the platform's API endpoint to validate the organisation's security certificate, without blocking the calling thread
+     * The public Internet connection used to call the endpoint will be used to validate against the domain or IP address set for the security certificate
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API before giving up, set a positive number
+     * @param orgSecurityCertificateID ID of the orgnisation's security certificate in the platform
+     * @return future completed with the response from calling the API endpoint, once the call has been run by the executor assigned to the API session
+     */
+    public static CompletableFuture<APIv1EndpointResponseESD> callAsync(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, String orgSecurityCertificateID)
+    {
+        return CompletableFuture.supplyAsync(() -> call(apiOrgSession, endpointTimeoutMilliseconds, orgSecurityCertificateID), apiOrgSession.getExecutor());
+    }
 }
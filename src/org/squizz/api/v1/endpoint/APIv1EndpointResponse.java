@@ -45,6 +45,9 @@ public class APIv1EndpointResponse extends ESDocument
     public static final String ENDPOINT_RESULT_CODE_ERROR_ESD_DOCUMENT_UNSUCCESSFUL = "SERVER_ERROR_ESD_DOCUMENT_UNSUCCESSFUL";
     public static final String ENDPOINT_RESULT_CODE_ERROR_ESD_DOCUMENT_NO_RECORD = "SERVER_ERROR_ESD_DOCUMENT_NO_RECORD";
     
+    //import esd results set by the library without calling the server
+    public static final String ENDPOINT_RESULT_CODE_SUCCESS_IMPORT_UNCHANGED = "LIBRARY_SUCCESS_IMPORT_UNCHANGED";
+    
     public static final String ENDPOINT_RESULT_CODE_ERROR_ORG_DOES_NOT_EXIST = "SERVER_ERROR_ORG_DOES_NOT_EXIST";
     public static final String ENDPOINT_RESULT_CODE_ERROR_ORG_NOT_SELLING = "SERVER_ERROR_ORG_NOT_SELLING";
     public static final String ENDPOINT_RESULT_CODE_ERROR_ORG_NOT_ENOUGH_CREDITS = "SERVER_ERROR_ORG_NOT_ENOUGH_CREDITS";
@@ -0,0 +1,80 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.endpoint;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.esd.EcommerceStandardsDocuments.ESDocument;
+
+/**
+ * Contains the responses of retrieving several types of data from a supplier organisation at once, with one response for each type of data.
+ * Each successful response holds a single Ecommerce Standards Document containing all records of its type of data
+ */
+public class APIv1MultiTypeRetrieveResult
+{
+    private final LinkedHashMap<Integer, APIv1EndpointResponseESD> endpointResponses = new LinkedHashMap<>();
+    
+    /**
+     * sets the response of retrieving a type of data
+     * @param retrieveTypeID ID of the type of data retrieved
+     * @param endpointResponse response containing the document of all records retrieved, or describing why the records could not be retrieved
+     */
+    void setResponse(int retrieveTypeID, APIv1EndpointResponseESD endpointResponse)
+    {
+        endpointResponses.put(retrieveTypeID, endpointResponse);
+    }
+    
+    /**
+     * checks if all types of data were successfully retrieved
+     * @return true if every type of data was retrieved
+     */
+    public boolean isSuccessful()
+    {
+        for(APIv1EndpointResponseESD endpointResponse: endpointResponses.values()){
+            if(!endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS)){
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * gets the response of retrieving a type of data
+     * @param retrieveTypeID ID of the type of data retrieved
+     * @return endpoint response, or null if the type of data was not requested
+     */
+    public APIv1EndpointResponseESD getResponse(int retrieveTypeID)
+    {
+        return endpointResponses.get(retrieveTypeID);
+    }
+    
+    /**
+     * gets the responses of all types of data, in the order that the types of data were requested
+     * @return unmodifiable map of endpoint responses keyed by the ID of each type of data
+     */
+    public Map<Integer, APIv1EndpointResponseESD> getResponses()
+    {
+        return Collections.unmodifiableMap(endpointResponses);
+    }
+    
+    /**
+     * gets the document containing all records retrieved for a type of data
+     * @param <T> class of the document
+     * @param retrieveTypeID ID of the type of data retrieved
+     * @param documentClass class of the document that the type of data is returned in, such as ESDocumentProduct for products
+     * @return document, or null if the type of data was not requested, could not be retrieved, or is not returned in the given class of document
+     */
+    public <T extends ESDocument> T getDocument(int retrieveTypeID, Class<T> documentClass)
+    {
+        APIv1EndpointResponseESD endpointResponse = endpointResponses.get(retrieveTypeID);
+        if(endpointResponse == null || !endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS) || !documentClass.isInstance(endpointResponse.esDocument)){
+            return null;
+        }
+        return documentClass.cast(endpointResponse.esDocument);
+    }
+}
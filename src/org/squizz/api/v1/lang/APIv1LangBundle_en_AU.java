@@ -52,6 +52,7 @@ public class APIv1LangBundle_en_AU extends ListResourceBundle
             {APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_ABORTED,"An error occurred when calling SQUIZZ.com's API due to the data import being aborted. It may have been aborted by a person or by the platform."},
             {APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_ESD_DOCUMENT_UNSUCCESSFUL,"An error occurred when calling SQUIZZ.com's API due to Ecommerce Standards Document failing to import. Check that the document was correctly formed."},
             {APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_ESD_DOCUMENT_NO_RECORD,"An error occurred when calling SQUIZZ.com's API due to Ecommerce Standards Document not containing any records to import. Look to add one or more records to the document."},
+            {APIv1EndpointResponse.ENDPOINT_RESULT_CODE_SUCCESS_IMPORT_UNCHANGED,"SQUIZZ.com's API was not called since the Ecommerce Standards Document has not changed since it was last successfully imported."},
             
             {APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_ORG_DOES_NOT_EXIST,"An error occurred when calling SQUIZZ.com's API due to the organisation given not able to be found in the platform, or it is not active."},
             {APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_ORG_NOT_SELLING,"An error occurred when calling SQUIZZ.com's API due to the organisation's Trading Status does not allow it to sell on the platform."},
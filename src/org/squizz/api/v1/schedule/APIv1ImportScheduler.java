@@ -0,0 +1,431 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.schedule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.esd.EcommerceStandardsDocuments.ESDocument;
+import org.squizz.api.v1.APIv1OrgSession;
+import org.squizz.api.v1.APIv1RetryPolicy;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgImportESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+
+/**
+ * Queues jobs that import Ecommerce Standards Documents into the platform, running them through the import_esd endpoint on the scheduler's own threads.
+ * Queued jobs are run in order of their priority, then in the order they were submitted, while limiting how many imports run at the same time for each organisation so that the platform is not asked to run more imports than it allows.
+ * Jobs whose imports fail because the platform's data imports are busy are placed back into the queue once a backoff delay has passed, so that the scheduler's threads are not held while waiting, and other organisations' jobs continue to run
+ */
+public class APIv1ImportScheduler
+{
+    /**
+     * prefix of the names of the threads that run imports
+     */
+    public static final String THREAD_NAME_PREFIX = "squizz-api-import-scheduler-";
+    
+    /**
+     * default number of imports that can run at the same time for each organisation
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_IMPORTS_PER_ORG = 1;
+    
+    /**
+     * priorities given to jobs by default based on their type of data, lower values are run first
+     */
+    public static final int PRIORITY_STOCK_QUANTITIES = 10;
+    public static final int PRIORITY_PRICING = 20;
+    public static final int PRIORITY_PRODUCTS = 30;
+    public static final int PRIORITY_DEFAULT = 40;
+    
+    /**
+     * job that imports a document for an organisation
+     */
+    private static class ImportJob
+    {
+        private final APIv1OrgSession apiOrgSession;
+        private final int importTypeID;
+        private final ESDocument esDocument;
+        private final int priority;
+        private final long sequence;
+        private final CompletableFuture<APIv1EndpointResponseESD> responseFuture = new CompletableFuture<>();
+        private long queuedNanoTime;
+        private int attempts = 0;
+        
+        private ImportJob(APIv1OrgSession apiOrgSession, int importTypeID, ESDocument esDocument, int priority, long sequence)
+        {
+            this.apiOrgSession = apiOrgSession;
+            this.importTypeID = importTypeID;
+            this.esDocument = esDocument;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+    
+    private final int endpointTimeoutMilliseconds;
+    private final ScheduledThreadPoolExecutor importExecutor;
+    private final AtomicLong jobSequence = new AtomicLong(0);
+    private final ConcurrentHashMap<String, Integer> orgMaxConcurrentImports = new ConcurrentHashMap<>();
+    private volatile int defaultMaxConcurrentImportsPerOrg = DEFAULT_MAX_CONCURRENT_IMPORTS_PER_ORG;
+    private volatile APIv1RetryPolicy requeuePolicy;
+    
+    /**
+     * jobs waiting to be run, ordered by priority then the order they were submitted
+     */
+    private final TreeSet<ImportJob> queuedJobs = new TreeSet<>((ImportJob job1, ImportJob job2) -> {
+        int comparison = Integer.compare(job1.priority, job2.priority);
+        return (comparison != 0? comparison: Long.compare(job1.sequence, job2.sequence));
+    });
+    
+    /**
+     * jobs waiting for their backoff delay to pass before being placed back into the queue
+     */
+    private final ArrayList<ImportJob> delayedJobs = new ArrayList<>();
+    
+    /**
+     * number of imports running for each organisation, keyed by the organisation's ID
+     */
+    private final HashMap<String, Integer> orgRunningImports = new HashMap<>();
+    private int runningImports = 0;
+    private boolean shutdown = false;
+    
+    //statistics of the jobs that have been run
+    private long importsStarted = 0;
+    private long jobsRequeued = 0;
+    private long jobsCompleted = 0;
+    private long totalWaitNanos = 0;
+    private long maxWaitNanos = 0;
+    
+    /**
+     * creates a scheduler
+     * @param maxConcurrentImports maximum number of imports that are run at the same time across all organisations
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API for each import before giving up, set a positive number
+     */
+    public APIv1ImportScheduler(int maxConcurrentImports, int endpointTimeoutMilliseconds)
+    {
+        this.endpointTimeoutMilliseconds = endpointTimeoutMilliseconds;
+        
+        //requeue jobs only when the platform's data imports are busy
+        this.requeuePolicy = new APIv1RetryPolicy();
+        this.requeuePolicy.removeRetryableResultCode(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_CONNECTION);
+        this.requeuePolicy.removeRetryableResultCode(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_RESPONSE);
+        
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        this.importExecutor = new ScheduledThreadPoolExecutor(Math.max(1, maxConcurrentImports), (Runnable runnable) -> {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.importExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+    
+    /**
+     * gets the priority that a job is given by default for a type of data, so that stock quantities are imported before pricing, and pricing before products
+     * @param importTypeID ID of the type of data being imported
+     * @return priority of the job, lower values are run first
+     */
+    public static int getDefaultPriority(int importTypeID)
+    {
+        switch(importTypeID){
+            case APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCT_STOCK_QUANTITIES:
+                return PRIORITY_STOCK_QUANTITIES;
+            case APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCT_PRICE_LEVEL_UNIT_PRICING:
+            case APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCT_PRICE_LEVEL_QUANTITY_PRICING:
+            case APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCT_CUSTOMER_ACCOUNT_PRICING:
+                return PRIORITY_PRICING;
+            case APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS:
+                return PRIORITY_PRODUCTS;
+            default:
+                return PRIORITY_DEFAULT;
+        }
+    }
+    
+    /**
+     * queues a job to import a document, with the default priority of its type of data
+     * @param apiOrgSession existing organisation API session to import the document with
+     * @param importTypeID ID of the of the type of data to import
+     * @param esDocument Ecommerce Standards Document that contains records and data to to upload. Ensure the document matches the import type given
+     * @return future completed with the response of the job's last import, once the job has finished
+     */
+    public CompletableFuture<APIv1EndpointResponseESD> submit(APIv1OrgSession apiOrgSession, int importTypeID, ESDocument esDocument)
+    {
+        return submit(apiOrgSession, importTypeID, esDocument, getDefaultPriority(importTypeID));
+    }
+    
+    /**
+     * queues a job to import a document
+     * @param apiOrgSession existing organisation API session to import the document with
+     * @param importTypeID ID of the of the type of data to import
+     * @param esDocument Ecommerce Standards Document that contains records and data to to upload. Ensure the document matches the import type given
+     * @param priority priority of the job, lower values are run first. Jobs with the same priority are run in the order they were submitted
+     * @return future completed with the response of the job's last import, once the job has finished. If the scheduler is shut down before the job is run then the response has the result code ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_ABORTED
+     */
+    public CompletableFuture<APIv1EndpointResponseESD> submit(APIv1OrgSession apiOrgSession, int importTypeID, ESDocument esDocument, int priority)
+    {
+        ImportJob importJob = new ImportJob(apiOrgSession, importTypeID, esDocument, priority, jobSequence.incrementAndGet());
+        
+        synchronized(this){
+            if(shutdown){
+                abortJob(importJob);
+            }else{
+                importJob.queuedNanoTime = System.nanoTime();
+                queuedJobs.add(importJob);
+                runQueuedJobs();
+            }
+        }
+        
+        return importJob.responseFuture;
+    }
+    
+    /**
+     * starts as many queued jobs as can be run, taking jobs in order of priority and skipping the jobs of organisations that are running as many imports as they are allowed
+     */
+    private synchronized void runQueuedJobs()
+    {
+        int maxConcurrentImports = importExecutor.getCorePoolSize();
+        Iterator<ImportJob> queuedJobIterator = queuedJobs.iterator();
+        while(runningImports < maxConcurrentImports && queuedJobIterator.hasNext())
+        {
+            ImportJob importJob = queuedJobIterator.next();
+            String orgID = importJob.apiOrgSession.getOrgID();
+            int orgImports = orgRunningImports.getOrDefault(orgID, 0);
+            if(orgImports >= getMaxConcurrentImports(orgID)){
+                continue;
+            }
+            
+            //record how long the job waited in the queue
+            long waitNanos = System.nanoTime() - importJob.queuedNanoTime;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+            importsStarted++;
+            
+            queuedJobIterator.remove();
+            orgRunningImports.put(orgID, orgImports + 1);
+            runningImports++;
+            importExecutor.execute(() -> runJob(importJob));
+        }
+    }
+    
+    /**
+     * imports the document of a job, then either places the job back into the queue after a backoff delay if the platform's data imports were busy, or completes the job
+     */
+    private void runJob(ImportJob importJob)
+    {
+        APIv1EndpointResponseESD endpointResponse = null;
+        boolean requeued = false;
+        try{
+            importJob.attempts++;
+            endpointResponse = APIv1EndpointOrgImportESDocument.call(importJob.apiOrgSession, endpointTimeoutMilliseconds, importJob.importTypeID, importJob.esDocument);
+        }finally{
+            synchronized(this)
+            {
+                //release the organisation's import
+                String orgID = importJob.apiOrgSession.getOrgID();
+                int orgImports = orgRunningImports.getOrDefault(orgID, 1) - 1;
+                if(orgImports > 0){
+                    orgRunningImports.put(orgID, orgImports);
+                }else{
+                    orgRunningImports.remove(orgID);
+                }
+                runningImports--;
+                
+                //requeue the job once its backoff delay has passed if the platform's data imports were busy
+                APIv1RetryPolicy jobRequeuePolicy = requeuePolicy;
+                if(endpointResponse != null && !shutdown && jobRequeuePolicy != null && jobRequeuePolicy.shouldRetry(endpointResponse.result, endpointResponse.result_code, importJob.attempts)){
+                    requeued = true;
+                    jobsRequeued++;
+                    delayedJobs.add(importJob);
+                    importExecutor.schedule(() -> requeueJob(importJob), jobRequeuePolicy.getRetryDelayMilliseconds(importJob.attempts), TimeUnit.MILLISECONDS);
+                }else{
+                    jobsCompleted++;
+                }
+                
+                runQueuedJobs();
+            }
+            
+            //complete the job with the response of its last import
+            if(endpointResponse == null){
+                abortJob(importJob);
+            }else if(!requeued){
+                importJob.responseFuture.complete(endpointResponse);
+            }
+        }
+    }
+    
+    /**
+     * places a job whose backoff delay has passed back into the queue
+     */
+    private synchronized void requeueJob(ImportJob importJob)
+    {
+        if(delayedJobs.remove(importJob)){
+            importJob.queuedNanoTime = System.nanoTime();
+            queuedJobs.add(importJob);
+            runQueuedJobs();
+        }
+    }
+    
+    /**
+     * completes a job that will not be run with a failed response
+     */
+    private static void abortJob(ImportJob importJob)
+    {
+        APIv1EndpointResponseESD endpointResponse = new APIv1EndpointResponseESD();
+        endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
+        endpointResponse.result_code = APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_ABORTED;
+        endpointResponse.result_message = importJob.apiOrgSession.getLangBundle().getString(endpointResponse.result_code);
+        importJob.responseFuture.complete(endpointResponse);
+    }
+    
+    /**
+     * sets the maximum number of imports that can run at the same time for an organisation
+     * @param orgID unique ID of the organisation in the platform
+     * @param maxConcurrentImports maximum number of imports, set 0 or less to use the scheduler's default limit
+     */
+    public void setMaxConcurrentImports(String orgID, int maxConcurrentImports)
+    {
+        if(maxConcurrentImports > 0){
+            orgMaxConcurrentImports.put(orgID, maxConcurrentImports);
+        }else{
+            orgMaxConcurrentImports.remove(orgID);
+        }
+        
+        //run jobs that a raised limit now allows
+        runQueuedJobs();
+    }
+    
+    /**
+     * gets the maximum number of imports that can run at the same time for an organisation
+     * @param orgID unique ID of the organisation in the platform
+     * @return maximum number of imports
+     */
+    public int getMaxConcurrentImports(String orgID)
+    {
+        return orgMaxConcurrentImports.getOrDefault(orgID, defaultMaxConcurrentImportsPerOrg);
+    }
+    
+    /**
+     * sets the maximum number of imports that can run at the same time for organisations that have not been given their own limit
+     * @param maxConcurrentImports maximum number of imports
+     */
+    public void setDefaultMaxConcurrentImportsPerOrg(int maxConcurrentImports)
+    {
+        defaultMaxConcurrentImportsPerOrg = Math.max(1, maxConcurrentImports);
+        runQueuedJobs();
+    }
+    
+    /**
+     * gets the policy that controls when jobs are placed back into the queue and how long they wait beforehand
+     * @return requeue policy, or null if jobs are never requeued
+     */
+    public APIv1RetryPolicy getRequeuePolicy()
+    {
+        return requeuePolicy;
+    }
+    
+    /**
+     * sets the policy that controls when jobs are placed back into the queue and how long they wait beforehand. By default jobs are requeued when the platform's data imports are busy or running their maximum number of imports.
+     * Since the scheduler requeues these jobs itself, the sessions given to the scheduler may remove these result codes from their own retry policies so that a thread is not held while a retry waits
+     * @param requeuePolicy requeue policy, set to null to never requeue jobs
+     */
+    public void setRequeuePolicy(APIv1RetryPolicy requeuePolicy)
+    {
+        this.requeuePolicy = requeuePolicy;
+    }
+    
+    /**
+     * gets the number of jobs that have not finished and are not running, including jobs waiting for their backoff delay to pass
+     * @return number of jobs in the queue
+     */
+    public synchronized int getQueueDepth()
+    {
+        return queuedJobs.size() + delayedJobs.size();
+    }
+    
+    /**
+     * gets the number of imports currently running
+     * @return number of running imports
+     */
+    public synchronized int getRunningImportsCount()
+    {
+        return runningImports;
+    }
+    
+    /**
+     * gets the number of milliseconds that the job waiting longest in the queue has waited since it was submitted or requeued
+     * @return wait time in milliseconds, or 0 if no jobs are waiting to run
+     */
+    public synchronized long getOldestWaitMilliseconds()
+    {
+        long oldestQueuedNanoTime = Long.MAX_VALUE;
+        for(ImportJob importJob: queuedJobs){
+            oldestQueuedNanoTime = Math.min(oldestQueuedNanoTime, importJob.queuedNanoTime);
+        }
+        return (queuedJobs.isEmpty()? 0: TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldestQueuedNanoTime));
+    }
+    
+    /**
+     * gets the average number of milliseconds that jobs waited in the queue before each of their imports started
+     * @return average wait time in milliseconds, or 0 if no imports have started
+     */
+    public synchronized double getAverageWaitMilliseconds()
+    {
+        return (importsStarted > 0? (totalWaitNanos / (double)importsStarted) / 1000000.0: 0);
+    }
+    
+    /**
+     * gets the longest number of milliseconds that a job waited in the queue before one of its imports started
+     * @return longest wait time in milliseconds
+     */
+    public synchronized long getMaxWaitMilliseconds()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+    }
+    
+    /**
+     * gets the number of times jobs have been placed back into the queue
+     * @return number of requeued jobs
+     */
+    public synchronized long getJobsRequeued()
+    {
+        return jobsRequeued;
+    }
+    
+    /**
+     * gets the number of jobs that have finished running, successfully or not
+     * @return number of completed jobs
+     */
+    public synchronized long getJobsCompleted()
+    {
+        return jobsCompleted;
+    }
+    
+    /**
+     * stops running jobs and shuts down the scheduler's threads. Imports already running finish, while jobs still in the queue are completed with responses that have the result code ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_ABORTED
+     */
+    public void shutdown()
+    {
+        ArrayList<ImportJob> abortedJobs;
+        synchronized(this){
+            shutdown = true;
+            abortedJobs = new ArrayList<>(queuedJobs);
+            abortedJobs.addAll(delayedJobs);
+            queuedJobs.clear();
+            delayedJobs.clear();
+        }
+        
+        importExecutor.shutdown();
+        for(ImportJob importJob: abortedJobs){
+            abortJob(importJob);
+        }
+    }
+}
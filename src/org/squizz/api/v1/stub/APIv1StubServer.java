@@ -0,0 +1,625 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.stub;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.esd.EcommerceStandardsDocuments.*;
+import org.squizz.api.v1.APIv1Constants;
+import org.squizz.api.v1.APIv1HTTPRequest;
+import org.squizz.api.v1.APIv1JSONMapper;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+
+/**
+ * Lightweight HTTP server that stands in for the SQUIZZ.com platform's API, so that applications using the library can be load tested and benchmarked offline.
+ * The server implements the organisation session endpoints and the Ecommerce Standards Document endpoints, accepting any API credentials,
+ * returning synthetic data records for data being retrieved and discarding data being imported. Responses can be delayed, and imports made to report that the platform is busy,
+ * to test how applications behave under latency and load.
+ * Point an API session at the server by calling setAPIOrgURL() on the session with the URL returned from getAPIOrgURL()
+ */
+public class APIv1StubServer
+{
+    /**
+     * result code returned by the server when a call was successful
+     */
+    public static final String RESULT_CODE_SUCCESS = "SERVER_SUCCESS";
+    
+    /**
+     * version of the API that the server reports
+     */
+    public static final String API_VERSION = "1.0.0.0";
+    
+    /**
+     * total number of synthetic records that can be retrieved for each type of data, unless set otherwise
+     */
+    public static final int DEFAULT_RECORDS_AMOUNT = 1000;
+    
+    private static final String ESD_PROPERTY_DATA_RECORDS = "dataRecords";
+    private static final int HTTP_STATUS_OK = 200;
+    private static final int HTTP_STATUS_SERVER_ERROR = 500;
+    private static final String HTTP_HEADER_TRANSFER_ENCODING = "Transfer-Encoding";
+    private static final String HTTP_HEADER_TRANSFER_ENCODING_CHUNKED = "chunked";
+    
+    /**
+     * name of the system property that the Java runtime's HTTP server reads to disable Nagle's algorithm on its connections
+     */
+    public static final String SYSTEM_PROPERTY_HTTP_SERVER_NO_DELAY = "sun.net.httpserver.nodelay";
+    
+    private final HttpServer httpServer;
+    private final ExecutorService requestExecutor;
+    
+    /**
+     * IDs of the sessions created in the server, mapped to the IDs of the organisations logged into them
+     */
+    private final ConcurrentHashMap<String, String> sessions = new ConcurrentHashMap<>();
+    
+    /**
+     * number of requests received for each endpoint
+     */
+    private final ConcurrentHashMap<String, AtomicLong> endpointRequestCounts = new ConcurrentHashMap<>();
+    
+    /**
+     * number of requests received for each endpoint whose body was streamed with chunked transfer encoding
+     */
+    private final ConcurrentHashMap<String, AtomicLong> endpointChunkedRequestCounts = new ConcurrentHashMap<>();
+    private final AtomicLong importedRecordsCount = new AtomicLong(0);
+    
+    private volatile long latencyMilliseconds = 0;
+    private volatile double importBusyRate = 0;
+    private volatile int recordsAmount = DEFAULT_RECORDS_AMOUNT;
+    
+    /**
+     * creates a server that listens for requests on the loopback address. Call start() to begin accepting requests
+     * @param port port to listen on, set 0 to use any free port
+     * @throws IOException if the server could not listen on the port
+     */
+    public APIv1StubServer(int port) throws IOException
+    {
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext(APIv1Constants.API_ORG_PATH, this::handleRequest);
+        
+        //handle each request on its own daemon thread so that slow requests do not hold up others
+        requestExecutor = Executors.newCachedThreadPool((Runnable runnable) -> {
+            Thread thread = new Thread(runnable, "squizz-api-stub-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer.setExecutor(requestExecutor);
+    }
+    
+    /**
+     * sets the Java runtime's HTTP server to send responses as soon as they are written, by disabling Nagle's algorithm on its connections.
+     * Otherwise small responses are held back waiting on the client's delayed acknowledgement, capping each connection at around 25 requests a second.
+     * This sets the JVM-wide sun.net.httpserver.nodelay system property, which affects every server created from the com.sun.net.httpserver package in the application
+     * and is only read by the runtime when its first server is created, so call this once at startup before creating any server.
+     * The property is not changed if the application has already set it
+     * @return true if the system property was set
+     */
+    public static boolean enableNoDelay()
+    {
+        if(System.getProperty(SYSTEM_PROPERTY_HTTP_SERVER_NO_DELAY) != null){
+            return false;
+        }
+        
+        System.setProperty(SYSTEM_PROPERTY_HTTP_SERVER_NO_DELAY, "true");
+        return true;
+    }
+    
+    /**
+     * starts accepting requests
+     */
+    public void start()
+    {
+        httpServer.start();
+    }
+    
+    /**
+     * stops accepting requests and closes the server
+     */
+    public void stop()
+    {
+        httpServer.stop(0);
+        requestExecutor.shutdownNow();
+    }
+    
+    /**
+     * gets the port that the server is listening on
+     * @return port number
+     */
+    public int getPort()
+    {
+        return httpServer.getAddress().getPort();
+    }
+    
+    /**
+     * gets the URL that API sessions can be set to call to use the server's organisation endpoints
+     * @return URL of the server's organisation endpoints, ending with a slash
+     */
+    public String getAPIOrgURL()
+    {
+        return "http://" + httpServer.getAddress().getHostString() + ":" + getPort() + APIv1Constants.API_ORG_PATH;
+    }
+    
+    /**
+     * sets the amount of time that the server waits before responding to each request, to simulate network and processing latency
+     * @param latencyMilliseconds delay in milliseconds
+     */
+    public void setLatencyMilliseconds(long latencyMilliseconds)
+    {
+        this.latencyMilliseconds = Math.max(0, latencyMilliseconds);
+    }
+    
+    /**
+     * sets the proportion of data imports that fail with the platform reporting it is busy importing other data
+     * @param importBusyRate number between 0 (no imports fail) and 1 (all imports fail)
+     */
+    public void setImportBusyRate(double importBusyRate)
+    {
+        this.importBusyRate = importBusyRate;
+    }
+    
+    /**
+     * sets the total number of synthetic records that can be retrieved for each type of data
+     * @param recordsAmount number of records
+     */
+    public void setRecordsAmount(int recordsAmount)
+    {
+        this.recordsAmount = Math.max(0, recordsAmount);
+    }
+    
+    /**
+     * gets the number of requests that the server has received for an endpoint
+     * @param endpointName name of the endpoint, such as retrieve_esd
+     * @return number of requests
+     */
+    public long getRequestCount(String endpointName)
+    {
+        AtomicLong requestCount = endpointRequestCounts.get(endpointName);
+        return (requestCount != null? requestCount.get(): 0);
+    }
+    
+    /**
+     * gets the number of requests that the server has received for an endpoint whose body was streamed with chunked transfer encoding, rather than sent with a length known before it was written
+     * @param endpointName name of the endpoint, such as import_esd
+     * @return number of requests
+     */
+    public long getChunkedRequestCount(String endpointName)
+    {
+        AtomicLong requestCount = endpointChunkedRequestCounts.get(endpointName);
+        return (requestCount != null? requestCount.get(): 0);
+    }
+    
+    /**
+     * gets the number of records that have been successfully imported into the server
+     * @return number of records
+     */
+    public long getImportedRecordsCount()
+    {
+        return importedRecordsCount.get();
+    }
+    
+    /**
+     * handles a request sent to one of the organisation endpoints
+     * @param exchange HTTP request and response
+     * @throws IOException if the request could not be read or the response could not be written
+     */
+    private void handleRequest(HttpExchange exchange) throws IOException
+    {
+        try{
+            //get the name of the endpoint and the session ID from the request's path
+            String endpointPath = exchange.getRequestURI().getPath().substring(APIv1Constants.API_ORG_PATH.length());
+            int slashIndex = endpointPath.indexOf(APIv1Constants.API_PATH_SLASH);
+            String endpointName = (slashIndex >= 0? endpointPath.substring(0, slashIndex): endpointPath);
+            String sessionID = (slashIndex >= 0? endpointPath.substring(slashIndex + 1): "");
+            HashMap<String, String> params = parseParameters(exchange.getRequestURI().getRawQuery());
+            
+            endpointRequestCounts.computeIfAbsent(endpointName, (String name) -> new AtomicLong(0)).incrementAndGet();
+            if(HTTP_HEADER_TRANSFER_ENCODING_CHUNKED.equalsIgnoreCase(exchange.getRequestHeaders().getFirst(HTTP_HEADER_TRANSFER_ENCODING))){
+                endpointChunkedRequestCounts.computeIfAbsent(endpointName, (String name) -> new AtomicLong(0)).incrementAndGet();
+            }
+            
+            //read the body of the request before waiting, so that the client's upload is not held up by the simulated latency
+            JsonNode requestDocument = null;
+            String requestForm = null;
+            if(exchange.getRequestMethod().equalsIgnoreCase(APIv1Constants.HTTP_REQUEST_METHOD_POST)){
+                if(isJSONRequest(exchange)){
+                    requestDocument = readRequestDocument(exchange);
+                }else{
+                    requestForm = new String(readFully(exchange.getRequestBody()), StandardCharsets.UTF_8);
+                }
+            }
+            
+            if(latencyMilliseconds > 0){
+                Thread.sleep(latencyMilliseconds);
+            }
+            
+            //create a session for any organisation that provides credentials
+            if(endpointName.equals(APIv1Constants.API_ORG_ENDPOINT_CREATE_SESSION))
+            {
+                HashMap<String, String> form = parseParameters(requestForm);
+                String orgID = form.getOrDefault("org_id", "");
+                if(orgID.isEmpty()){
+                    sendResult(exchange, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_INCORRECT_API_CREDENTIALS, null);
+                }else{
+                    String newSessionID = UUID.randomUUID().toString();
+                    sessions.put(newSessionID, orgID);
+                    
+                    ObjectNode response = createResult(RESULT_CODE_SUCCESS);
+                    response.put("session_id", newSessionID);
+                    sendDocument(exchange, response);
+                }
+                return;
+            }
+            
+            //check that the session exists for all other endpoints
+            if(sessionID.isEmpty() || !sessions.containsKey(sessionID)){
+                sendResult(exchange, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_SESSION_INVALID, null);
+                return;
+            }
+            
+            switch(endpointName)
+            {
+                case APIv1Constants.API_ORG_ENDPOINT_DESTROY_SESSION:
+                    sessions.remove(sessionID);
+                    sendResult(exchange, RESULT_CODE_SUCCESS, null);
+                    break;
+                case APIv1Constants.API_ORG_ENDPOINT_VALIDATE_SESSION:
+                    sendResult(exchange, RESULT_CODE_SUCCESS, null);
+                    break;
+                case APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD:
+                    sendRetrievedRecords(exchange, params);
+                    break;
+                case APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD:
+                    if(importBusyRate > 0 && ThreadLocalRandom.current().nextDouble() < importBusyRate){
+                        sendResult(exchange, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_BUSY, null);
+                    }else if(requestDocument == null || !requestDocument.isObject()){
+                        sendResult(exchange, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_JSON_MALFORMED, null);
+                    }else{
+                        importedRecordsCount.addAndGet(requestDocument.path(ESD_PROPERTY_DATA_RECORDS).size());
+                        sendResult(exchange, RESULT_CODE_SUCCESS, null);
+                    }
+                    break;
+                case APIv1Constants.API_ORG_ENDPOINT_IMPORT_SALES_ORDER_ESD:
+                case APIv1Constants.API_ORG_ENDPOINT_PROCURE_PURCHASE_ORDER_FROM_SUPPLIER:
+                case APIv1Constants.API_ORG_ENDPOINT_SEND_CUSTOMER_INVOICE_TO_CUSTOMER:
+                    //return the records that were sent, as if they had all been successfully processed
+                    if(requestDocument == null || !requestDocument.isObject()){
+                        sendResult(exchange, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_JSON_MALFORMED, null);
+                    }else{
+                        sendResult(exchange, RESULT_CODE_SUCCESS, requestDocument.get(ESD_PROPERTY_DATA_RECORDS));
+                    }
+                    break;
+                case APIv1Constants.API_ORG_ENDPOINT_SEARCH_CUSTOMER_ACCOUNT_RECORDS_ESD:
+                case APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_CUSTOMER_ACCOUNT_RECORD_ESD:
+                case APIv1Constants.API_ORG_ENDPOINT_CREATE_NOTIFCATION:
+                case APIv1Constants.API_ORG_ENDPOINT_VALIDATE_CERT:
+                    sendResult(exchange, RESULT_CODE_SUCCESS, null);
+                    break;
+                default:
+                    sendResult(exchange, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_INVALID_API_ACTION, null);
+                    break;
+            }
+        }catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+        }catch(IOException | RuntimeException ex){
+            exchange.sendResponseHeaders(HTTP_STATUS_SERVER_ERROR, -1);
+        }finally{
+            exchange.close();
+        }
+    }
+    
+    /**
+     * indicates if the body of a request contains JSON data
+     * @param exchange HTTP request
+     * @return true if the request's content type is JSON
+     */
+    private static boolean isJSONRequest(HttpExchange exchange)
+    {
+        String contentType = exchange.getRequestHeaders().getFirst(APIv1HTTPRequest.HTTP_HEADER_CONTENT_TYPE);
+        return contentType != null && contentType.startsWith(APIv1HTTPRequest.HTTP_HEADER_CONTENT_TYPE_JSON);
+    }
+    
+    /**
+     * reads the JSON document sent in the body of a request, decompressing the body if it was compressed with gzip, including bodies made of several gzip members.
+     * GZIPInputStream only reads the member following another if the stream reports bytes available, which a body still being received may not,
+     * so the body is reported to have bytes available until it ends
+     * @param exchange HTTP request
+     * @return tree of the JSON document
+     * @throws IOException if the body could not be read or is not valid JSON
+     */
+    private static JsonNode readRequestDocument(HttpExchange exchange) throws IOException
+    {
+        InputStream requestBody = exchange.getRequestBody();
+        String contentEncoding = exchange.getRequestHeaders().getFirst(APIv1HTTPRequest.HTTP_HEADER_CONTENT_ENCODING);
+        if(contentEncoding != null && contentEncoding.equalsIgnoreCase(APIv1HTTPRequest.HTTP_HEADER_CONTENT_ENCODING_GZIP)){
+            requestBody = new GZIPInputStream(new FilterInputStream(requestBody){
+                @Override
+                public int available() throws IOException{
+                    return Math.max(1, super.available());
+                }
+            });
+        }
+        
+        return APIv1JSONMapper.getObjectMapper().readTree(requestBody);
+    }
+    
+    /**
+     * reads all of the bytes from a stream
+     * @param inputStream stream to read
+     * @return bytes read
+     * @throws IOException if the stream could not be read
+     */
+    private static byte[] readFully(InputStream inputStream) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int bytesRead;
+        while((bytesRead = inputStream.read(buffer)) != -1){
+            bytes.write(buffer, 0, bytesRead);
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * parses URL encoded parameters, such as those set in a request's query string or form
+     * @param encodedParameters parameters to parse, may be null
+     * @return parameter values mapped to their names
+     * @throws IOException if a parameter could not be decoded
+     */
+    private static HashMap<String, String> parseParameters(String encodedParameters) throws IOException
+    {
+        HashMap<String, String> params = new HashMap<>();
+        if(encodedParameters == null || encodedParameters.isEmpty()){
+            return params;
+        }
+        
+        for(String param: encodedParameters.split("&")){
+            int equalsIndex = param.indexOf('=');
+            if(equalsIndex > 0){
+                params.put(URLDecoder.decode(param.substring(0, equalsIndex), StandardCharsets.UTF_8.name()), URLDecoder.decode(param.substring(equalsIndex + 1), StandardCharsets.UTF_8.name()));
+            }else if(!param.isEmpty()){
+                params.put(URLDecoder.decode(param, StandardCharsets.UTF_8.name()), "");
+            }
+        }
+        return params;
+    }
+    
+    /**
+     * creates a response containing a result code, in a form that can be read both as an endpoint response and as an Ecommerce Standards Document
+     * @param resultCode result code of the call
+     * @return JSON response
+     */
+    private static ObjectNode createResult(String resultCode)
+    {
+        boolean success = resultCode.equals(RESULT_CODE_SUCCESS);
+        ObjectNode response = APIv1JSONMapper.getObjectMapper().createObjectNode();
+        response.put("result", (success? APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS: APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE));
+        response.put("result_code", resultCode);
+        response.put("api_version", API_VERSION);
+        response.put("session_valid", (resultCode.equals(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_SESSION_INVALID)? ESDocumentConstants.ESD_VALUE_NO: ESDocumentConstants.ESD_VALUE_YES));
+        response.put("version", ESDocumentConstants.ESD_DOCUMENT_VERSION);
+        response.put("resultStatus", (success? ESDocumentConstants.RESULT_SUCCESS: ESDocumentConstants.RESULT_ERROR));
+        response.putObject("configs").put(APIv1Constants.API_ORG_ENDPOINT_ATTRIBUTE_RESULT_CODE, resultCode);
+        return response;
+    }
+    
+    /**
+     * sends a response containing a result code, and optionally records
+     * @param exchange HTTP request and response
+     * @param resultCode result code of the call
+     * @param dataRecords records to place in the response, or null if the response has no records
+     * @throws IOException if the response could not be written
+     */
+    private static void sendResult(HttpExchange exchange, String resultCode, JsonNode dataRecords) throws IOException
+    {
+        ObjectNode response = createResult(resultCode);
+        if(dataRecords != null && dataRecords.isArray()){
+            response.put("totalDataRecords", dataRecords.size());
+            response.set(ESD_PROPERTY_DATA_RECORDS, dataRecords);
+        }
+        sendDocument(exchange, response);
+    }
+    
+    /**
+     * sends a JSON response
+     * @param exchange HTTP request and response
+     * @param response JSON to send
+     * @throws IOException if the response could not be written
+     */
+    private static void sendDocument(HttpExchange exchange, JsonNode response) throws IOException
+    {
+        OutputStream responseBody = startResponse(exchange);
+        try{
+            APIv1JSONMapper.getObjectMapper().writeValue(responseBody, response);
+        }finally{
+            responseBody.close();
+        }
+    }
+    
+    /**
+     * sends the headers of a successful JSON response, compressing the response with gzip if the client accepts it
+     * @param exchange HTTP request and response
+     * @return stream to write the body of the response into
+     * @throws IOException if the headers could not be sent
+     */
+    private static OutputStream startResponse(HttpExchange exchange) throws IOException
+    {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean compress = acceptEncoding != null && acceptEncoding.toLowerCase().contains(APIv1HTTPRequest.HTTP_HEADER_CONTENT_ENCODING_GZIP);
+        
+        exchange.getResponseHeaders().set(APIv1HTTPRequest.HTTP_HEADER_CONTENT_TYPE, APIv1HTTPRequest.HTTP_HEADER_CONTENT_TYPE_JSON);
+        if(compress){
+            exchange.getResponseHeaders().set(APIv1HTTPRequest.HTTP_HEADER_CONTENT_ENCODING, APIv1HTTPRequest.HTTP_HEADER_CONTENT_ENCODING_GZIP);
+        }
+        
+        //send the body in chunks, since its length is not known until it has been written
+        exchange.sendResponseHeaders(HTTP_STATUS_OK, 0);
+        return (compress? new GZIPOutputStream(exchange.getResponseBody(), 8192): exchange.getResponseBody());
+    }
+    
+    /**
+     * sends a page of synthetic records of the type of data being retrieved, writing each record as it is created so that large pages use little memory
+     * @param exchange HTTP request and response
+     * @param params parameters set in the request's URL
+     * @throws IOException if the response could not be written
+     */
+    private void sendRetrievedRecords(HttpExchange exchange, HashMap<String, String> params) throws IOException
+    {
+        int retrieveTypeID = parseInt(params.get("data_type_id"), 0);
+        int recordsMaxAmount = parseInt(params.get("records_max_amount"), 5000);
+        int recordsStartIndex = Math.max(0, parseInt(params.get("records_start_index"), 0));
+        
+        if(APIv1EndpointOrgRetrieveESDocument.getDocumentClass(retrieveTypeID) == null){
+            sendResult(exchange, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_INCORRECT_DATA_TYPE, null);
+            return;
+        }
+        
+        //work out the records that are in the page being retrieved
+        int recordsEndIndex = (int)Math.min((long)recordsAmount, (long)recordsStartIndex + Math.max(0, recordsMaxAmount));
+        int pageRecordsAmount = Math.max(0, recordsEndIndex - recordsStartIndex);
+        
+        ObjectMapper jsonMapper = APIv1JSONMapper.getObjectMapper();
+        ObjectWriter recordWriter = APIv1JSONMapper.getWriter(APIv1EndpointOrgRetrieveESDocument.getRecordClass(retrieveTypeID));
+        OutputStream responseBody = startResponse(exchange);
+        try{
+            JsonGenerator jsonGenerator = jsonMapper.getFactory().createGenerator(responseBody);
+            
+            //write the header of the document, then each of its records
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeNumberField("version", ESDocumentConstants.ESD_DOCUMENT_VERSION);
+            jsonGenerator.writeNumberField("resultStatus", ESDocumentConstants.RESULT_SUCCESS);
+            jsonGenerator.writeStringField("message", "");
+            jsonGenerator.writeNumberField("totalDataRecords", pageRecordsAmount);
+            jsonGenerator.writeObjectFieldStart("configs");
+            jsonGenerator.writeStringField(APIv1Constants.API_ORG_ENDPOINT_ATTRIBUTE_RESULT_CODE, RESULT_CODE_SUCCESS);
+            jsonGenerator.writeEndObject();
+            jsonGenerator.writeArrayFieldStart(ESD_PROPERTY_DATA_RECORDS);
+            for(int i=recordsStartIndex; i < recordsEndIndex; i++){
+                recordWriter.writeValue(jsonGenerator, createRecord(retrieveTypeID, i));
+            }
+            jsonGenerator.writeEndArray();
+            jsonGenerator.writeEndObject();
+            jsonGenerator.close();
+        }finally{
+            responseBody.close();
+        }
+    }
+    
+    /**
+     * creates a synthetic record of a type of data, whose values are based on the record's index so that the same record is returned each time it is retrieved
+     * @param retrieveTypeID ID of the type of data being retrieved
+     * @param index index of the record
+     * @return data record
+     */
+    public static Object createRecord(int retrieveTypeID, int index)
+    {
+        String keyProductID = "PROD-" + index;
+        
+        switch(retrieveTypeID){
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS:
+                ESDRecordProduct productRecord = new ESDRecordProduct();
+                productRecord.keyProductID = keyProductID;
+                productRecord.productCode = "CODE-" + index;
+                productRecord.name = "Stub Product " + index;
+                productRecord.barcode = String.format("93%011d", index);
+                productRecord.brand = "Brand " + (index % 50);
+                productRecord.keySellUnitID = "EA";
+                productRecord.unit = "EACH";
+                return productRecord;
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRICING:
+                ESDRecordPrice priceRecord = new ESDRecordPrice();
+                priceRecord.keyProductID = keyProductID;
+                priceRecord.keyPriceLevelID = "PL-" + (index % 3);
+                priceRecord.keySellUnitID = "EA";
+                priceRecord.quantity = 1;
+                priceRecord.price = 10 + (index % 1000) / 10.0;
+                priceRecord.taxRate = 10;
+                return priceRecord;
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCT_STOCK:
+                ESDRecordStockQuantity stockRecord = new ESDRecordStockQuantity();
+                stockRecord.keyProductID = keyProductID;
+                stockRecord.qtyAvailable = index % 100;
+                stockRecord.qtyOnHand = index % 100;
+                stockRecord.qtyOrderable = index % 100;
+                return stockRecord;
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_CATEGORIES:
+                ESDRecordCategory categoryRecord = new ESDRecordCategory();
+                categoryRecord.keyCategoryID = "CAT-" + index;
+                categoryRecord.categoryCode = "CAT-" + index;
+                categoryRecord.name = "Stub Category " + index;
+                return categoryRecord;
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_ATTRIBUTES:
+                ESDRecordAttributeValue attributeValueRecord = new ESDRecordAttributeValue();
+                attributeValueRecord.keyProductID = keyProductID;
+                attributeValueRecord.keyAttributeProfileID = "PROFILE-1";
+                attributeValueRecord.keyAttributeID = "ATTR-" + (index % 10);
+                attributeValueRecord.stringValue = "Value " + index;
+                return attributeValueRecord;
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_MAKERS:
+                ESDRecordMaker makerRecord = new ESDRecordMaker();
+                makerRecord.keyMakerID = "MAKER-" + index;
+                makerRecord.makerCode = "MAKER-" + index;
+                makerRecord.name = "Stub Maker " + index;
+                return makerRecord;
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_MAKER_MODELS:
+                ESDRecordMakerModel makerModelRecord = new ESDRecordMakerModel();
+                makerModelRecord.keyMakerModelID = "MODEL-" + index;
+                makerModelRecord.keyMakerID = "MAKER-" + (index % 100);
+                makerModelRecord.modelCode = "MODEL-" + index;
+                makerModelRecord.name = "Stub Model " + index;
+                return makerModelRecord;
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_MAKER_MODEL_MAPPINGS:
+                ESDRecordMakerModelMapping mappingRecord = new ESDRecordMakerModelMapping();
+                mappingRecord.keyMakerModelID = "MODEL-" + (index % 1000);
+                mappingRecord.keyCategoryID = "CAT-" + (index % 100);
+                mappingRecord.keyProductID = keyProductID;
+                mappingRecord.quantity = 1;
+                return mappingRecord;
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * parses a whole number from text
+     * @param text text to parse, may be null
+     * @param defaultValue value returned if the text is not a number
+     * @return parsed number
+     */
+    private static int parseInt(String text, int defaultValue)
+    {
+        try{
+            return (text != null? Integer.parseInt(text.trim()): defaultValue);
+        }catch(NumberFormatException ex){
+            return defaultValue;
+        }
+    }
+}
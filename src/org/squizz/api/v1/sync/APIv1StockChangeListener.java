@@ -0,0 +1,36 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.sync;
+
+import org.esd.EcommerceStandardsDocuments.ESDRecordStockQuantity;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+
+/**
+ * Receives the stock quantities that have changed between polls of a supplier organisation's stock
+ */
+public interface APIv1StockChangeListener
+{
+    /**
+     * called when a stock quantity retrieved from a supplier organisation differs from the previous poll, was not retrieved in the previous poll, or was retrieved in the previous poll but is no longer returned
+     * @param supplierOrgID unique ID of the supplier organisation that the stock was retrieved from
+     * @param customerAccountCode code of the supplier organisation's customer account that the stock was retrieved for
+     * @param previousStockQuantityRecord stock quantity retrieved in the previous poll, or null if the stock quantity was not previously retrieved
+     * @param stockQuantityRecord stock quantity retrieved, or null if the stock quantity is no longer returned by the supplier organisation
+     */
+    public void stockQuantityChanged(String supplierOrgID, String customerAccountCode, ESDRecordStockQuantity previousStockQuantityRecord, ESDRecordStockQuantity stockQuantityRecord);
+    
+    /**
+     * called when polling a supplier organisation's stock failed, either because the stock quantities could not be retrieved or because a listener threw an exception whilst being notified of a change. Does nothing by default
+     * @param supplierOrgID unique ID of the supplier organisation that the stock was retrieved from
+     * @param customerAccountCode code of the supplier organisation's customer account that the stock was retrieved for
+     * @param response response of the failed retrieval of stock quantities, or null if an exception was thrown
+     * @param exception exception thrown whilst retrieving stock quantities or notifying a listener, or null if the retrieval of stock quantities failed
+     */
+    public default void stockPollFailed(String supplierOrgID, String customerAccountCode, APIv1EndpointResponseESD response, RuntimeException exception)
+    {
+    }
+}
@@ -0,0 +1,309 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.sync;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.esd.EcommerceStandardsDocuments.ESDRecordStockQuantity;
+import org.squizz.api.v1.APIv1OrgSession;
+import org.squizz.api.v1.endpoint.APIv1ESDocumentRecordIterator;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+
+/**
+ * Polls the stock quantities of supplier organisations, notifying listeners of only the stock quantities that have changed since the previous poll, including stock quantities that are no longer returned.
+ * Each supplier is polled at its own interval, which adapts to how often its stock changes. The interval is halved after a poll finds changes, and lengthened by half (by at least a millisecond) after a poll finds no changes or fails, staying within the set minimum and maximum intervals.
+ * The first poll of a supplier records its stock quantities without notifying listeners. Polls run on the poller's own threads, which also limits how many suppliers are polled at the same time
+ */
+public class APIv1StockPoller
+{
+    /**
+     * prefix of the names of the threads that poll stock
+     */
+    public static final String THREAD_NAME_PREFIX = "squizz-api-stock-poller-";
+    
+    /**
+     * amount that the polling interval is multiplied by after a poll finds no changes
+     */
+    private static final double INTERVAL_GROWTH_FACTOR = 1.5;
+    
+    /**
+     * polling of a supplier organisation's stock for one of its customer accounts
+     */
+    private class SupplierPoll implements Runnable
+    {
+        private final String supplierOrgID;
+        private final String customerAccountCode;
+        private final HashMap<String, ESDRecordStockQuantity> stockQuantityRecords = new HashMap<>();
+        private volatile long pollIntervalMilliseconds = minPollIntervalMilliseconds;
+        private volatile boolean cancelled = false;
+        private boolean baselineRetrieved = false;
+        private ScheduledFuture<?> scheduledPoll;
+        
+        private SupplierPoll(String supplierOrgID, String customerAccountCode)
+        {
+            this.supplierOrgID = supplierOrgID;
+            this.customerAccountCode = customerAccountCode;
+        }
+        
+        /**
+         * retrieves the supplier's stock quantities, notifies listeners of changes, then schedules the next poll
+         */
+        @Override
+        public void run()
+        {
+            boolean stockChanged = false;
+            try{
+                //compare each stock quantity retrieved against the previous poll, noting the ones that changed
+                HashMap<String, ESDRecordStockQuantity> changedRecords = new HashMap<>();
+                HashMap<String, ESDRecordStockQuantity> retrievedRecords = new HashMap<>(stockQuantityRecords.size() * 2 + 16);
+                APIv1ESDocumentRecordIterator<ESDRecordStockQuantity> recordIterator = APIv1EndpointOrgRetrieveESDocument.iterateRecords(apiOrgSession, endpointTimeoutMilliseconds, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCT_STOCK, supplierOrgID, customerAccountCode, 0, "", ESDRecordStockQuantity.class);
+                try{
+                    while(recordIterator.hasNext() && !cancelled)
+                    {
+                        ESDRecordStockQuantity stockQuantityRecord = recordIterator.next();
+                        String key = APIv1SyncRecordKeys.getStockQuantityKey(stockQuantityRecord);
+                        retrievedRecords.put(key, stockQuantityRecord);
+                        
+                        ESDRecordStockQuantity previousRecord = stockQuantityRecords.get(key);
+                        if(baselineRetrieved && (previousRecord == null || !isSameQuantity(previousRecord, stockQuantityRecord))){
+                            changedRecords.put(key, stockQuantityRecord);
+                        }
+                    }
+                }catch(RuntimeException ex){
+                    notifyPollFailed(null, ex);
+                    return;
+                }finally{
+                    recordIterator.close();
+                }
+                
+                if(cancelled){
+                    return;
+                }
+                if(recordIterator.isFailed()){
+                    notifyPollFailed(recordIterator.getLastResponse(), null);
+                    return;
+                }
+                
+                //note the stock quantities of the previous poll that were not retrieved, which have been removed
+                if(baselineRetrieved){
+                    for(String key: stockQuantityRecords.keySet()){
+                        if(!retrievedRecords.containsKey(key)){
+                            changedRecords.put(key, null);
+                        }
+                    }
+                }
+                
+                //commit the stock quantities retrieved as the baseline for the next poll before notifying listeners, so that a failing listener cannot cause changes to be notified again
+                HashMap<String, ESDRecordStockQuantity> previousRecords = new HashMap<>(stockQuantityRecords);
+                stockQuantityRecords.clear();
+                stockQuantityRecords.putAll(retrievedRecords);
+                baselineRetrieved = true;
+                stockChanged = !changedRecords.isEmpty();
+                
+                //notify each listener separately so that one failing listener does not stop the others from being notified
+                for(HashMap.Entry<String, ESDRecordStockQuantity> changedRecord: changedRecords.entrySet()){
+                    ESDRecordStockQuantity previousRecord = previousRecords.get(changedRecord.getKey());
+                    for(APIv1StockChangeListener stockChangeListener: stockChangeListeners){
+                        try{
+                            stockChangeListener.stockQuantityChanged(supplierOrgID, customerAccountCode, previousRecord, changedRecord.getValue());
+                        }catch(RuntimeException ex){
+                            notifyPollFailed(null, ex);
+                        }
+                    }
+                }
+            }
+            finally{
+                //adapt the interval to the observed rate of change then schedule the next poll
+                if(stockChanged){
+                    pollIntervalMilliseconds = Math.max(minPollIntervalMilliseconds, pollIntervalMilliseconds / 2);
+                }else{
+                    pollIntervalMilliseconds = Math.min(maxPollIntervalMilliseconds, Math.max(pollIntervalMilliseconds + 1, (long)(pollIntervalMilliseconds * INTERVAL_GROWTH_FACTOR)));
+                }
+                schedule();
+            }
+        }
+        
+        /**
+         * notifies each listener that polling the supplier failed, ignoring any exceptions thrown by listeners whilst being notified
+         * @param response response of the failed retrieval of stock quantities, or null if an exception was thrown
+         * @param exception exception thrown whilst retrieving stock quantities or notifying a listener, or null if the retrieval failed
+         */
+        private void notifyPollFailed(APIv1EndpointResponseESD response, RuntimeException exception)
+        {
+            for(APIv1StockChangeListener stockChangeListener: stockChangeListeners){
+                try{
+                    stockChangeListener.stockPollFailed(supplierOrgID, customerAccountCode, response, exception);
+                }catch(RuntimeException ex){
+                    //a listener failing to handle a failure has nothing further to be notified to
+                }
+            }
+        }
+        
+        /**
+         * schedules the next poll after the current polling interval
+         */
+        private synchronized void schedule()
+        {
+            if(!cancelled && !pollExecutor.isShutdown()){
+                scheduledPoll = pollExecutor.schedule(this, pollIntervalMilliseconds, TimeUnit.MILLISECONDS);
+            }
+        }
+        
+        /**
+         * stops polling the supplier
+         */
+        private synchronized void cancel()
+        {
+            cancelled = true;
+            if(scheduledPoll != null){
+                scheduledPoll.cancel(false);
+            }
+        }
+    }
+    
+    private final APIv1OrgSession apiOrgSession;
+    private final int endpointTimeoutMilliseconds;
+    private final long minPollIntervalMilliseconds;
+    private final long maxPollIntervalMilliseconds;
+    private final ScheduledThreadPoolExecutor pollExecutor;
+    private final ConcurrentHashMap<String, SupplierPoll> supplierPolls = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<APIv1StockChangeListener> stockChangeListeners = new CopyOnWriteArrayList<>();
+    
+    /**
+     * creates a poller
+     * @param apiOrgSession existing organisation API session used to retrieve stock quantities
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API for each page of stock quantities before giving up, set a positive number
+     * @param minPollIntervalMilliseconds shortest amount of milliseconds to wait between polls of a supplier
+     * @param maxPollIntervalMilliseconds longest amount of milliseconds to wait between polls of a supplier
+     * @param maxConcurrentPolls maximum number of suppliers that are polled at the same time
+     */
+    public APIv1StockPoller(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, long minPollIntervalMilliseconds, long maxPollIntervalMilliseconds, int maxConcurrentPolls)
+    {
+        this.apiOrgSession = apiOrgSession;
+        this.endpointTimeoutMilliseconds = endpointTimeoutMilliseconds;
+        this.minPollIntervalMilliseconds = Math.max(1, minPollIntervalMilliseconds);
+        this.maxPollIntervalMilliseconds = Math.max(this.minPollIntervalMilliseconds, maxPollIntervalMilliseconds);
+        
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        this.pollExecutor = new ScheduledThreadPoolExecutor(Math.max(1, maxConcurrentPolls), (Runnable runnable) -> {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pollExecutor.setRemoveOnCancelPolicy(true);
+    }
+    
+    /**
+     * starts polling the stock quantities of a supplier organisation, with the first poll made straight away
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to poll stock from
+     * @param customerAccountCode code of the supplier organisation's customer account to poll stock for, or an empty string
+     * @return true if polling started, false if the supplier is already being polled for the customer account
+     */
+    public boolean addSupplier(String supplierOrgID, String customerAccountCode)
+    {
+        SupplierPoll supplierPoll = new SupplierPoll(supplierOrgID, customerAccountCode);
+        if(supplierPolls.putIfAbsent(getSupplierKey(supplierOrgID, customerAccountCode), supplierPoll) != null){
+            return false;
+        }
+        
+        synchronized(supplierPoll){
+            if(!pollExecutor.isShutdown()){
+                supplierPoll.scheduledPoll = pollExecutor.schedule(supplierPoll, 0, TimeUnit.MILLISECONDS);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * stops polling the stock quantities of a supplier organisation. A poll already in progress finishes without notifying listeners
+     * @param supplierOrgID unique ID of the supplier organisation
+     * @param customerAccountCode code of the supplier organisation's customer account, or an empty string
+     */
+    public void removeSupplier(String supplierOrgID, String customerAccountCode)
+    {
+        SupplierPoll supplierPoll = supplierPolls.remove(getSupplierKey(supplierOrgID, customerAccountCode));
+        if(supplierPoll != null){
+            supplierPoll.cancel();
+        }
+    }
+    
+    /**
+     * gets the number of milliseconds currently waited between polls of a supplier organisation
+     * @param supplierOrgID unique ID of the supplier organisation
+     * @param customerAccountCode code of the supplier organisation's customer account, or an empty string
+     * @return polling interval, or -1 if the supplier is not being polled
+     */
+    public long getPollIntervalMilliseconds(String supplierOrgID, String customerAccountCode)
+    {
+        SupplierPoll supplierPoll = supplierPolls.get(getSupplierKey(supplierOrgID, customerAccountCode));
+        return (supplierPoll != null? supplierPoll.pollIntervalMilliseconds: -1);
+    }
+    
+    /**
+     * registers a listener to be notified of changed stock quantities. Listeners are called on the poller's threads
+     * @param stockChangeListener listener to add
+     */
+    public void addStockChangeListener(APIv1StockChangeListener stockChangeListener)
+    {
+        stockChangeListeners.add(stockChangeListener);
+    }
+    
+    /**
+     * unregisters a listener
+     * @param stockChangeListener listener to remove
+     */
+    public void removeStockChangeListener(APIv1StockChangeListener stockChangeListener)
+    {
+        stockChangeListeners.remove(stockChangeListener);
+    }
+    
+    /**
+     * stops polling all suppliers and shuts down the poller's threads
+     */
+    public void shutdown()
+    {
+        for(SupplierPoll supplierPoll: supplierPolls.values()){
+            supplierPoll.cancel();
+        }
+        supplierPolls.clear();
+        pollExecutor.shutdown();
+    }
+    
+    /**
+     * checks if two stock quantity records contain the same quantities
+     * @param stockQuantityRecord first stock quantity record
+     * @param otherStockQuantityRecord second stock quantity record
+     * @return true if all quantities are equal
+     */
+    private static boolean isSameQuantity(ESDRecordStockQuantity stockQuantityRecord, ESDRecordStockQuantity otherStockQuantityRecord)
+    {
+        return stockQuantityRecord.qtyAvailable == otherStockQuantityRecord.qtyAvailable && 
+            stockQuantityRecord.qtyOnHand == otherStockQuantityRecord.qtyOnHand && 
+            stockQuantityRecord.qtyOrdered == otherStockQuantityRecord.qtyOrdered && 
+            stockQuantityRecord.qtyOrderable == otherStockQuantityRecord.qtyOrderable && 
+            stockQuantityRecord.qtyBackordered == otherStockQuantityRecord.qtyBackordered && 
+            stockQuantityRecord.qtyReserved == otherStockQuantityRecord.qtyReserved && 
+            stockQuantityRecord.qtyConsigned == otherStockQuantityRecord.qtyConsigned;
+    }
+    
+    /**
+     * gets the key that a supplier's polling is stored by
+     * @param supplierOrgID unique ID of the supplier organisation
+     * @param customerAccountCode code of the supplier organisation's customer account
+     * @return supplier key
+     */
+    private static String getSupplierKey(String supplierOrgID, String customerAccountCode)
+    {
+        return supplierOrgID + APIv1SyncRecordKeys.KEY_SEPARATOR + (customerAccountCode == null? "": customerAccountCode);
+    }
+}
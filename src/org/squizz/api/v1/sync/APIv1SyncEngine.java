@@ -0,0 +1,229 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.sync;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.function.Function;
+import org.squizz.api.v1.APIv1ContentHash;
+import org.squizz.api.v1.APIv1OrgSession;
+import org.squizz.api.v1.endpoint.APIv1ESDocumentRecordIterator;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+
+/**
+ * Synchronises records of a type of data retrieved from a connected organisation, finding only the records that have been added, changed or removed since the previous synchronisation.
+ * Each run retrieves all records page by page from the platform's retrieve_esd endpoint, and compares a hash of each record's JSON content against a snapshot of the hashes of records retrieved in the previous run, keyed by each record's key.
+ * Records are only reported as removed once all records have been successfully retrieved, so a failed run never reports records as removed. The snapshot is saved to a file after each run, including failed runs, so that added and changed records are not reported again.
+ * Runs of the same engine are not performed concurrently.
+ * @param <T> class of the records being synchronised, such as ESDRecordProduct for products
+ */
+public class APIv1SyncEngine<T>
+{
+    private final APIv1OrgSession apiOrgSession;
+    private final int endpointTimeoutMilliseconds;
+    private final int retrieveTypeID;
+    private final String supplierOrgID;
+    private final String customerAccountCode;
+    private final Class<T> recordClass;
+    private final Function<? super T, String> keyExtractor;
+    private final Path snapshotFile;
+    private final ObjectWriter recordJSONWriter;
+    private String requestParameters = "";
+    private int pageSize = 0;
+    private int prefetchPages = 0;
+    private APIv1SyncSnapshot snapshot = null;
+    
+    /**
+     * creates an engine that identifies records using the keys known for the type of data being retrieved
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API for each page of records before giving up, set a positive number
+     * @param retrieveTypeID ID of the type of data to retrieve
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+     * @param recordClass class of the records being retrieved, which must match the type of data being retrieved
+     * @param snapshotFile path of the file that the snapshot of each synchronisation is saved to
+     */
+    public APIv1SyncEngine(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int retrieveTypeID, String supplierOrgID, String customerAccountCode, Class<T> recordClass, Path snapshotFile)
+    {
+        this(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode, recordClass, APIv1SyncRecordKeys.getKeyExtractor(retrieveTypeID), snapshotFile);
+    }
+    
+    /**
+     * creates an engine
+     * @param apiOrgSession existing organisation API session
+     * @param endpointTimeoutMilliseconds amount of milliseconds to wait after calling the the API for each page of records before giving up, set a positive number
+     * @param retrieveTypeID ID of the type of data to retrieve
+     * @param supplierOrgID unique ID of the supplier organisation in the SQUIZZ.com platform to obtain data from
+     * @param customerAccountCode code of the supplier organisation's customer account. Customer account only needs to be set if the supplier organisation has assigned multiple accounts to the organisation logged into the API session (customer org) and account specific data is being obtained
+     * @param recordClass class of the records being retrieved, which must match the type of data being retrieved
+     * @param keyExtractor function that gets the key uniquely identifying each record
+     * @param snapshotFile path of the file that the snapshot of each synchronisation is saved to
+     */
+    public APIv1SyncEngine(APIv1OrgSession apiOrgSession, int endpointTimeoutMilliseconds, int retrieveTypeID, String supplierOrgID, String customerAccountCode, Class<T> recordClass, Function<? super T, String> keyExtractor, Path snapshotFile)
+    {
+        this.apiOrgSession = apiOrgSession;
+        this.endpointTimeoutMilliseconds = endpointTimeoutMilliseconds;
+        this.retrieveTypeID = retrieveTypeID;
+        this.supplierOrgID = supplierOrgID;
+        this.customerAccountCode = customerAccountCode;
+        this.recordClass = recordClass;
+        this.keyExtractor = keyExtractor;
+        this.snapshotFile = snapshotFile;
+        this.recordJSONWriter = APIv1ContentHash.getWriter(recordClass);
+    }
+    
+    /**
+     * Retrieves all records from the platform and reports the records that have been added, changed or removed since the previous synchronisation
+     * @param syncListener listener that is given each change found
+     * @return result of the synchronisation
+     */
+    public synchronized APIv1SyncResult run(APIv1SyncListener<? super T> syncListener)
+    {
+        long recordsAdded = 0;
+        long recordsChanged = 0;
+        long recordsUnchanged = 0;
+        long recordsRemoved = 0;
+        
+        if(keyExtractor == null){
+            return new APIv1SyncResult(createFailureResponse(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_INCORRECT_DATA_TYPE, null), 0, 0, 0, 0);
+        }
+        
+        try{
+            //load the snapshot of the previous synchronisation
+            if(snapshot == null){
+                snapshot = APIv1SyncSnapshot.load(snapshotFile);
+            }
+            
+            //compare each record retrieved against the snapshot, updating the snapshot once the listener has been given any change
+            MessageDigest messageDigest = APIv1ContentHash.createMessageDigest();
+            HashSet<String> retrievedKeys = new HashSet<>(Math.max(16, (int)(snapshot.size() / 0.75f) + 1));
+            APIv1EndpointResponseESD endpointResponse;
+            boolean allRecordsRetrieved;
+            try(APIv1ESDocumentRecordIterator<T> recordIterator = new APIv1ESDocumentRecordIterator<>(apiOrgSession, endpointTimeoutMilliseconds, retrieveTypeID, supplierOrgID, customerAccountCode, requestParameters, pageSize, prefetchPages, recordClass))
+            {
+                while(recordIterator.hasNext())
+                {
+                    T record = recordIterator.next();
+                    String key = keyExtractor.apply(record);
+                    long recordHash = getRecordHash(record, messageDigest);
+                    Long previousRecordHash = snapshot.getRecordHash(key);
+                    
+                    if(previousRecordHash == null){
+                        syncListener.recordAdded(key, record);
+                        recordsAdded++;
+                    }else if(previousRecordHash != recordHash){
+                        syncListener.recordChanged(key, record);
+                        recordsChanged++;
+                    }else{
+                        recordsUnchanged++;
+                    }
+                    
+                    snapshot.putRecordHash(key, recordHash);
+                    retrievedKeys.add(key);
+                }
+                
+                endpointResponse = recordIterator.getLastResponse();
+                allRecordsRetrieved = !recordIterator.isFailed();
+            }
+            
+            //remove records that were not retrieved, only once all records have been retrieved
+            if(allRecordsRetrieved)
+            {
+                Iterator<String> snapshotKeys = snapshot.getKeys().iterator();
+                while(snapshotKeys.hasNext())
+                {
+                    String key = snapshotKeys.next();
+                    if(!retrievedKeys.contains(key)){
+                        syncListener.recordRemoved(key);
+                        snapshotKeys.remove();
+                        recordsRemoved++;
+                    }
+                }
+            }
+            
+            snapshot.save(snapshotFile);
+            return new APIv1SyncResult(endpointResponse, recordsAdded, recordsChanged, recordsUnchanged, recordsRemoved);
+        }
+        catch(IOException ex)
+        {
+            return new APIv1SyncResult(createFailureResponse(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_UNKNOWN, ex), recordsAdded, recordsChanged, recordsUnchanged, recordsRemoved);
+        }
+    }
+    
+    /**
+     * hashes the JSON content of a record
+     * @param record record to hash
+     * @param messageDigest digest used to hash the record
+     * @return first 64 bits of the hash of the record's content
+     * @throws IOException if the record could not be serialized
+     */
+    private long getRecordHash(T record, MessageDigest messageDigest) throws IOException
+    {
+        byte[] digest = APIv1ContentHash.hash(recordJSONWriter, record, messageDigest);
+        long recordHash = 0;
+        for(int i=0; i < 8; i++){
+            recordHash = (recordHash << 8) | (digest[i] & 0xFF);
+        }
+        return recordHash;
+    }
+    
+    /**
+     * creates a response describing why a synchronisation failed
+     * @param resultCode code of the failure
+     * @param ex exception that caused the failure, or null
+     * @return failure response
+     */
+    private APIv1EndpointResponseESD createFailureResponse(String resultCode, Exception ex)
+    {
+        APIv1EndpointResponseESD endpointResponse = new APIv1EndpointResponseESD();
+        endpointResponse.result = APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE;
+        endpointResponse.result_code = resultCode;
+        endpointResponse.result_message = apiOrgSession.getLangBundle().getString(resultCode) + (ex != null? "\n" + ex.getLocalizedMessage(): "");
+        return endpointResponse;
+    }
+    
+    /**
+     * gets the snapshot of the hashes of records from the last synchronisation
+     * @return snapshot, or null if no synchronisation has been run
+     */
+    public synchronized APIv1SyncSnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+    
+    /**
+     * sets additional parameters to place in the request URL when retrieving records
+     * @param requestParameters URL parameters. Ensure parameter values are URI encoded
+     */
+    public synchronized void setRequestParameters(String requestParameters)
+    {
+        this.requestParameters = (requestParameters == null? "": requestParameters);
+    }
+    
+    /**
+     * sets the maximum number of records retrieved in each call to the platform
+     * @param pageSize page size, set 0 or less to use the default page size
+     */
+    public synchronized void setPageSize(int pageSize)
+    {
+        this.pageSize = pageSize;
+    }
+    
+    /**
+     * sets the number of pages of records to retrieve in the background ahead of the records being compared
+     * @param prefetchPages number of pages to prefetch, set 0 to not prefetch pages
+     */
+    public synchronized void setPrefetchPages(int prefetchPages)
+    {
+        this.prefetchPages = prefetchPages;
+    }
+}
@@ -0,0 +1,34 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.sync;
+
+/**
+ * Receives the changes found between records retrieved from the platform and the records retrieved in the previous synchronisation
+ * @param <T> class of the records being synchronised
+ */
+public interface APIv1SyncListener<T>
+{
+    /**
+     * called when a record has been retrieved whose key did not exist in the previous synchronisation
+     * @param key key of the record
+     * @param record record retrieved
+     */
+    public void recordAdded(String key, T record);
+    
+    /**
+     * called when a record has been retrieved whose content has changed since the previous synchronisation
+     * @param key key of the record
+     * @param record record retrieved
+     */
+    public void recordChanged(String key, T record);
+    
+    /**
+     * called when a record from the previous synchronisation was no longer retrieved. Only called once all records have been successfully retrieved
+     * @param key key of the record that has been removed
+     */
+    public void recordRemoved(String key);
+}
@@ -0,0 +1,155 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.sync;
+
+import java.util.function.Function;
+import org.esd.EcommerceStandardsDocuments.*;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+
+/**
+ * Builds the keys that uniquely identify records of each type of data retrieved from the platform, used to match records between synchronisations.
+ * Keys made up of multiple values have their values separated by the unit separator control character, so that values containing other punctuation cannot produce the same key
+ */
+public class APIv1SyncRecordKeys
+{
+    /**
+     * character placed between the values of keys made up of multiple values
+     */
+    public static final char KEY_SEPARATOR = '\u001F';
+    
+    /**
+     * gets the function that builds the keys of records of a type of data retrieved from the platform
+     * @param retrieveTypeID ID of the type of data retrieved, matching one of the APIv1EndpointOrgRetrieveESDocument RETRIEVE_TYPE_ID constants
+     * @return function that builds the key of a record, or null if records of the type of data have no known key
+     */
+    public static Function<Object, String> getKeyExtractor(int retrieveTypeID)
+    {
+        switch(retrieveTypeID){
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS:
+                return record -> getProductKey((ESDRecordProduct)record);
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRICING:
+                return record -> getPriceKey((ESDRecordPrice)record);
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCT_STOCK:
+                return record -> getStockQuantityKey((ESDRecordStockQuantity)record);
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_CATEGORIES:
+                return record -> getCategoryKey((ESDRecordCategory)record);
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_ATTRIBUTES:
+                return record -> getAttributeValueKey((ESDRecordAttributeValue)record);
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_MAKERS:
+                return record -> getMakerKey((ESDRecordMaker)record);
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_MAKER_MODELS:
+                return record -> getMakerModelKey((ESDRecordMakerModel)record);
+            case APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_MAKER_MODEL_MAPPINGS:
+                return record -> getMakerModelMappingKey((ESDRecordMakerModelMapping)record);
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * gets the key of a product record
+     * @param productRecord product record
+     * @return key of the product
+     */
+    public static String getProductKey(ESDRecordProduct productRecord)
+    {
+        return joinKeyValues(productRecord.keyProductID);
+    }
+    
+    /**
+     * gets the key of a price record. Since a product, download or labour can have many prices, the key includes the price level, account, price group, sell unit and quantity break that the price applies to
+     * @param priceRecord price record
+     * @return key of the price
+     */
+    public static String getPriceKey(ESDRecordPrice priceRecord)
+    {
+        return joinKeyValues(priceRecord.keyProductID, priceRecord.keyDownloadID, priceRecord.keyLabourID, priceRecord.keyPriceLevelID, priceRecord.keyAccountID, priceRecord.keyPriceGroupID, priceRecord.keySellUnitID, Double.toString(priceRecord.quantity));
+    }
+    
+    /**
+     * gets the key of a stock quantity record
+     * @param stockQuantityRecord stock quantity record
+     * @return key of the product, download or labour that the stock quantity is for
+     */
+    public static String getStockQuantityKey(ESDRecordStockQuantity stockQuantityRecord)
+    {
+        return joinKeyValues(stockQuantityRecord.keyProductID, stockQuantityRecord.keyDownloadID, stockQuantityRecord.keyLabourID);
+    }
+    
+    /**
+     * gets the key of a category record
+     * @param categoryRecord category record
+     * @return key of the category
+     */
+    public static String getCategoryKey(ESDRecordCategory categoryRecord)
+    {
+        return joinKeyValues(categoryRecord.keyCategoryID);
+    }
+    
+    /**
+     * gets the key of an attribute value record
+     * @param attributeValueRecord attribute value record
+     * @return key of the product, download or labour combined with the attribute profile and attribute that the value is for
+     */
+    public static String getAttributeValueKey(ESDRecordAttributeValue attributeValueRecord)
+    {
+        return joinKeyValues(attributeValueRecord.keyProductID, attributeValueRecord.keyDownloadID, attributeValueRecord.keyLabourID, attributeValueRecord.keyAttributeProfileID, attributeValueRecord.keyAttributeID);
+    }
+    
+    /**
+     * gets the key of a maker record
+     * @param makerRecord maker record
+     * @return key of the maker
+     */
+    public static String getMakerKey(ESDRecordMaker makerRecord)
+    {
+        return joinKeyValues(makerRecord.keyMakerID);
+    }
+    
+    /**
+     * gets the key of a maker model record
+     * @param makerModelRecord maker model record
+     * @return key of the maker model
+     */
+    public static String getMakerModelKey(ESDRecordMakerModel makerModelRecord)
+    {
+        return joinKeyValues(makerModelRecord.keyMakerModelID);
+    }
+    
+    /**
+     * gets the key of a maker model mapping record
+     * @param makerModelMappingRecord maker model mapping record
+     * @return key of the maker model combined with the category and product, labour or download that it is mapped to
+     */
+    public static String getMakerModelMappingKey(ESDRecordMakerModelMapping makerModelMappingRecord)
+    {
+        return joinKeyValues(makerModelMappingRecord.keyMakerModelID, makerModelMappingRecord.keyCategoryID, makerModelMappingRecord.keyProductID, makerModelMappingRecord.keyLabourID, makerModelMappingRecord.keyDownloadID);
+    }
+    
+    /**
+     * joins values together into a key, treating null values as empty
+     * @param keyValues values making up the key
+     * @return key
+     */
+    private static String joinKeyValues(String... keyValues)
+    {
+        if(keyValues.length == 1){
+            return (keyValues[0] == null? "": keyValues[0]);
+        }
+        
+        StringBuilder key = new StringBuilder();
+        for(int i=0; i < keyValues.length; i++){
+            if(i > 0){
+                key.append(KEY_SEPARATOR);
+            }
+            if(keyValues[i] != null){
+                key.append(keyValues[i]);
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.sync;
+
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+
+/**
+ * Contains the outcome of running a synchronisation of records retrieved from the platform
+ */
+public class APIv1SyncResult
+{
+    private final APIv1EndpointResponseESD endpointResponse;
+    private final long recordsAdded;
+    private final long recordsChanged;
+    private final long recordsUnchanged;
+    private final long recordsRemoved;
+    
+    /**
+     * creates a result
+     * @param endpointResponse response from the last call made to the platform, or a response describing why the synchronisation failed
+     * @param recordsAdded number of records that were added
+     * @param recordsChanged number of records whose content changed
+     * @param recordsUnchanged number of records whose content did not change
+     * @param recordsRemoved number of records that were removed
+     */
+    public APIv1SyncResult(APIv1EndpointResponseESD endpointResponse, long recordsAdded, long recordsChanged, long recordsUnchanged, long recordsRemoved)
+    {
+        this.endpointResponse = endpointResponse;
+        this.recordsAdded = recordsAdded;
+        this.recordsChanged = recordsChanged;
+        this.recordsUnchanged = recordsUnchanged;
+        this.recordsRemoved = recordsRemoved;
+    }
+    
+    /**
+     * checks if all records were retrieved and the snapshot of the synchronisation was saved
+     * @return true if the synchronisation was successful
+     */
+    public boolean isSuccessful()
+    {
+        return endpointResponse.result.equalsIgnoreCase(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS);
+    }
+    
+    /**
+     * gets the response from the last call made to the platform, or if the synchronisation failed, the response describing why it failed
+     * @return endpoint response
+     */
+    public APIv1EndpointResponseESD getEndpointResponse()
+    {
+        return endpointResponse;
+    }
+    
+    /**
+     * gets the number of records retrieved whose keys did not exist in the previous synchronisation
+     * @return number of records added
+     */
+    public long getRecordsAdded()
+    {
+        return recordsAdded;
+    }
+    
+    /**
+     * gets the number of records retrieved whose content changed since the previous synchronisation
+     * @return number of records changed
+     */
+    public long getRecordsChanged()
+    {
+        return recordsChanged;
+    }
+    
+    /**
+     * gets the number of records retrieved whose content did not change since the previous synchronisation
+     * @return number of records unchanged
+     */
+    public long getRecordsUnchanged()
+    {
+        return recordsUnchanged;
+    }
+    
+    /**
+     * gets the number of records from the previous synchronisation that were no longer retrieved
+     * @return number of records removed
+     */
+    public long getRecordsRemoved()
+    {
+        return recordsRemoved;
+    }
+}
@@ -0,0 +1,151 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.sync;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.squizz.api.v1.APIv1AtomicFile;
+
+/**
+ * Stores the content hash of each record retrieved in a synchronisation, keyed by the record's key, which is compared against records retrieved in the next synchronisation to find the records that changed.
+ * Snapshots are saved as gzip compressed files, written to a temporary file first then moved over the existing file, so that a failed save never leaves a partially written snapshot
+ */
+public class APIv1SyncSnapshot
+{
+    /**
+     * number written at the start of snapshot files to identify them
+     */
+    private static final int FILE_MAGIC_NUMBER = 0x53515A53;
+    
+    /**
+     * version of the format of snapshot files
+     */
+    private static final int FILE_FORMAT_VERSION = 1;
+    
+    private final HashMap<String, Long> recordHashes;
+    
+    /**
+     * creates an empty snapshot
+     */
+    public APIv1SyncSnapshot()
+    {
+        this(new HashMap<String, Long>());
+    }
+    
+    /**
+     * creates a snapshot containing record hashes
+     * @param recordHashes map of record keys to the hashes of the records' content
+     */
+    private APIv1SyncSnapshot(HashMap<String, Long> recordHashes)
+    {
+        this.recordHashes = recordHashes;
+    }
+    
+    /**
+     * gets the hash of a record's content
+     * @param key key of the record
+     * @return hash of the record's content, or null if the record is not in the snapshot
+     */
+    public Long getRecordHash(String key)
+    {
+        return recordHashes.get(key);
+    }
+    
+    /**
+     * sets the hash of a record's content
+     * @param key key of the record
+     * @param recordHash hash of the record's content
+     * @return previous hash of the record's content, or null if the record was not in the snapshot
+     */
+    public Long putRecordHash(String key, long recordHash)
+    {
+        return recordHashes.put(key, recordHash);
+    }
+    
+    /**
+     * removes a record from the snapshot
+     * @param key key of the record
+     */
+    public void removeRecordHash(String key)
+    {
+        recordHashes.remove(key);
+    }
+    
+    /**
+     * gets the keys of all records in the snapshot
+     * @return set of record keys
+     */
+    public Set<String> getKeys()
+    {
+        return recordHashes.keySet();
+    }
+    
+    /**
+     * gets the number of records in the snapshot
+     * @return number of records
+     */
+    public int size()
+    {
+        return recordHashes.size();
+    }
+    
+    /**
+     * saves the snapshot into a file, replacing any existing file
+     * @param snapshotFile path of the file to save the snapshot to
+     * @throws IOException if the file could not be written
+     */
+    public void save(Path snapshotFile) throws IOException
+    {
+        APIv1AtomicFile.write(snapshotFile, (OutputStream outputStream) -> {
+            try(DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(outputStream)))){
+                dataOutputStream.writeInt(FILE_MAGIC_NUMBER);
+                dataOutputStream.writeInt(FILE_FORMAT_VERSION);
+                dataOutputStream.writeInt(recordHashes.size());
+                for(HashMap.Entry<String, Long> recordHash: recordHashes.entrySet()){
+                    dataOutputStream.writeUTF(recordHash.getKey());
+                    dataOutputStream.writeLong(recordHash.getValue());
+                }
+            }
+        });
+    }
+    
+    /**
+     * loads a snapshot from a file
+     * @param snapshotFile path of the file to load the snapshot from
+     * @return snapshot loaded from the file, or an empty snapshot if the file does not exist
+     * @throws IOException if the file could not be read, or is not a snapshot file
+     */
+    public static APIv1SyncSnapshot load(Path snapshotFile) throws IOException
+    {
+        if(!Files.exists(snapshotFile)){
+            return new APIv1SyncSnapshot();
+        }
+        
+        try(DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(snapshotFile))))){
+            if(dataInputStream.readInt() != FILE_MAGIC_NUMBER || dataInputStream.readInt() != FILE_FORMAT_VERSION){
+                throw new IOException("File is not a supported synchronisation snapshot: " + snapshotFile);
+            }
+            
+            int recordsAmount = dataInputStream.readInt();
+            HashMap<String, Long> recordHashes = new HashMap<>(Math.max(16, (int)(recordsAmount / 0.75f) + 1));
+            for(int i=0; i < recordsAmount; i++){
+                recordHashes.put(dataInputStream.readUTF(), dataInputStream.readLong());
+            }
+            return new APIv1SyncSnapshot(recordHashes);
+        }
+    }
+}
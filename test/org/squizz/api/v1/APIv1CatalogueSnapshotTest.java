@@ -0,0 +1,159 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import org.esd.EcommerceStandardsDocuments.ESDRecordPrice;
+import org.esd.EcommerceStandardsDocuments.ESDRecordProduct;
+import org.esd.EcommerceStandardsDocuments.ESDRecordStockQuantity;
+import org.esd.EcommerceStandardsDocuments.ESDocumentPrice;
+import org.esd.EcommerceStandardsDocuments.ESDocumentProduct;
+import org.esd.EcommerceStandardsDocuments.ESDocumentStockQuantity;
+import org.squizz.api.v1.catalogue.APIv1CatalogueIndex;
+import org.squizz.api.v1.catalogue.APIv1CatalogueProduct;
+import org.squizz.api.v1.catalogue.APIv1CatalogueSnapshot;
+import org.squizz.api.v1.catalogue.APIv1CatalogueSnapshotProduct;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Tests writing catalogues retrieved from the platform into snapshot files and reading them back, against a local stand-in of the platform's API
+ */
+public class APIv1CatalogueSnapshotTest
+{
+    private static final int PRODUCTS_AMOUNT = 40;
+    private static final int STOCK_QUANTITIES_AMOUNT = 25;
+    
+    /**
+     * tests that every value of the products, prices and stock quantities of a catalogue is read back unchanged from the catalogue's snapshot file
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testSnapshotRoundTrip(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Catalogue Snapshot Round Trip");
+        boolean testPassed = true;
+        
+        Path snapshotFile = null;
+        try{
+            //retrieve products, prices and stock quantities, with stock quantities for only some of the products
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgCatalogueSnapshot");
+            APIv1CatalogueIndex catalogueIndex = new APIv1CatalogueIndex();
+            catalogueIndex.addProducts((ESDocumentProduct)retrieveDocument(apiOrgSession, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, PRODUCTS_AMOUNT));
+            catalogueIndex.addPrices((ESDocumentPrice)retrieveDocument(apiOrgSession, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRICING, PRODUCTS_AMOUNT));
+            catalogueIndex.addStockQuantities((ESDocumentStockQuantity)retrieveDocument(apiOrgSession, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCT_STOCK, STOCK_QUANTITIES_AMOUNT));
+            
+            //add a product with text that is not ASCII, a value that is not set, and prices for breaks in quantity added out of order
+            ESDRecordProduct productRecord = (ESDRecordProduct)APIv1StubServer.createRecord(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, PRODUCTS_AMOUNT);
+            productRecord.name = "Café crème 商品 📦";
+            productRecord.barcode = null;
+            catalogueIndex.addProduct(productRecord);
+            for(double quantity: new double[]{10, 1, 100}){
+                ESDRecordPrice priceRecord = (ESDRecordPrice)APIv1StubServer.createRecord(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRICING, PRODUCTS_AMOUNT);
+                priceRecord.quantity = quantity;
+                priceRecord.price = 20 - quantity / 10;
+                catalogueIndex.addPrice(priceRecord);
+            }
+            
+            //write the snapshot then read it back
+            snapshotFile = Files.createTempFile("squizz-api-catalogue-snapshot", ".bin");
+            APIv1CatalogueSnapshot.write(snapshotFile, catalogueIndex);
+            APIv1CatalogueSnapshot catalogueSnapshot = APIv1CatalogueSnapshot.open(snapshotFile);
+            testPassed &= APIv1StubTestRunner.check(catalogueSnapshot.getProductCount() == catalogueIndex.size() && catalogueIndex.size() == PRODUCTS_AMOUNT + 1, "snapshot contains all products, count: " + catalogueSnapshot.getProductCount());
+            
+            int productsMatched = 0;
+            for(APIv1CatalogueProduct catalogueProduct: catalogueIndex.getProducts()){
+                if(isSameProduct(catalogueProduct, catalogueSnapshot.getProductByKeyProductID(catalogueProduct.getKeyProductID()))){
+                    productsMatched++;
+                }else{
+                    APIv1StubTestRunner.check(false, "product read back unchanged: " + catalogueProduct.getKeyProductID());
+                }
+            }
+            testPassed &= APIv1StubTestRunner.check(productsMatched == catalogueIndex.size(), "all products read back unchanged by their key, matched: " + productsMatched);
+            
+            //find products by code, and check that products not in the catalogue are not found
+            APIv1CatalogueSnapshotProduct snapshotProduct = catalogueSnapshot.getProductByProductCode(productRecord.productCode);
+            testPassed &= APIv1StubTestRunner.check(snapshotProduct != null && productRecord.name.equals(snapshotProduct.getName()) && snapshotProduct.getBarcode() == null, "product found by its code with its text read back unchanged");
+            testPassed &= APIv1StubTestRunner.check(snapshotProduct != null && snapshotProduct.getPriceCount() == 3 && snapshotProduct.getPrice(snapshotProduct.findPriceNumber("PL-" + (PRODUCTS_AMOUNT % 3), 50)) == 19, "price for a quantity found between quantity breaks");
+            testPassed &= APIv1StubTestRunner.check(catalogueSnapshot.getProductByKeyProductID("PROD-MISSING") == null && catalogueSnapshot.getProductByProductCode("CODE-MISSING") == null, "products not in the catalogue not found");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            try{
+                if(snapshotFile != null){
+                    Files.deleteIfExists(snapshotFile);
+                }
+            }catch(Exception ex){
+            }
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * retrieves a page of records from the stand-in server
+     */
+    private static Object retrieveDocument(APIv1OrgSession apiOrgSession, int retrieveTypeID, int recordsAmount) throws Exception
+    {
+        APIv1EndpointResponseESD endpointResponse = APIv1EndpointOrgRetrieveESDocument.call(apiOrgSession, 20000, retrieveTypeID, "stubSupplierOrg", "", recordsAmount, 0, "");
+        if(!APIv1StubServer.RESULT_CODE_SUCCESS.equals(endpointResponse.result_code)){
+            throw new Exception("records could not be retrieved: " + endpointResponse.result_code);
+        }
+        return endpointResponse.esDocument;
+    }
+    
+    /**
+     * checks that a product read from a snapshot has the same values as the product in the catalogue index that the snapshot was written from
+     */
+    private static boolean isSameProduct(APIv1CatalogueProduct catalogueProduct, APIv1CatalogueSnapshotProduct snapshotProduct)
+    {
+        if(snapshotProduct == null){
+            return false;
+        }
+        
+        ESDRecordProduct productRecord = catalogueProduct.getProductRecord();
+        boolean sameProduct = 
+            Objects.equals(productRecord.keyProductID, snapshotProduct.getKeyProductID()) &&
+            Objects.equals(productRecord.productCode, snapshotProduct.getProductCode()) &&
+            Objects.equals(productRecord.name, snapshotProduct.getName()) &&
+            Objects.equals(productRecord.barcode, snapshotProduct.getBarcode()) &&
+            Objects.equals(productRecord.brand, snapshotProduct.getBrand()) &&
+            Objects.equals(productRecord.unit, snapshotProduct.getUnit()) &&
+            Objects.equals(productRecord.keySellUnitID, snapshotProduct.getKeySellUnitID());
+        
+        ESDRecordStockQuantity stockQuantityRecord = catalogueProduct.getStockQuantityRecord();
+        if(stockQuantityRecord == null){
+            sameProduct &= !snapshotProduct.hasStockQuantity();
+        }else{
+            sameProduct &= snapshotProduct.hasStockQuantity() &&
+                stockQuantityRecord.qtyAvailable == snapshotProduct.getQtyAvailable() &&
+                stockQuantityRecord.qtyOnHand == snapshotProduct.getQtyOnHand() &&
+                stockQuantityRecord.qtyOrderable == snapshotProduct.getQtyOrderable();
+        }
+        
+        List<ESDRecordPrice> priceRecords = catalogueProduct.getPriceRecords();
+        sameProduct &= priceRecords.size() == snapshotProduct.getPriceCount();
+        for(int i=0; sameProduct && i < priceRecords.size(); i++){
+            ESDRecordPrice priceRecord = priceRecords.get(i);
+            sameProduct &= 
+                Objects.equals(priceRecord.keyPriceLevelID, snapshotProduct.getPriceKeyPriceLevelID(i)) &&
+                Objects.equals(priceRecord.keyAccountID, snapshotProduct.getPriceKeyAccountID(i)) &&
+                Objects.equals(priceRecord.keyPriceGroupID, snapshotProduct.getPriceKeyPriceGroupID(i)) &&
+                Objects.equals(priceRecord.keySellUnitID, snapshotProduct.getPriceKeySellUnitID(i)) &&
+                priceRecord.quantity == snapshotProduct.getPriceQuantity(i) &&
+                priceRecord.price == snapshotProduct.getPrice(i) &&
+                priceRecord.taxRate == snapshotProduct.getPriceTaxRate(i);
+        }
+        
+        return sameProduct;
+    }
+}
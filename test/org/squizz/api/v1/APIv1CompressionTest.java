@@ -0,0 +1,107 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.util.HashMap;
+import org.esd.EcommerceStandardsDocuments.ESDRecordProduct;
+import org.esd.EcommerceStandardsDocuments.ESDocumentConstants;
+import org.esd.EcommerceStandardsDocuments.ESDocumentProduct;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgImportESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Tests compressing the Ecommerce Standards Documents sent in requests, against a local stand-in of the platform's API
+ */
+public class APIv1CompressionTest
+{
+    /**
+     * tests that documents smaller than the uncompressed threshold are sent uncompressed, and larger documents are sent compressed, with all of their records imported
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testUncompressedThreshold(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Import With Uncompressed Threshold");
+        boolean testPassed = true;
+        
+        try{
+            //assign settings to the endpoint using a name followed by a path, which should be ignored
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgCompression");
+            APIv1CompressionSettings compressionSettings = new APIv1CompressionSettings(APIv1CompressionSettings.CODEC_GZIP, 1, 0, 4096);
+            apiOrgSession.setCompressionSettings(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD + APIv1Constants.API_PATH_SLASH + apiOrgSession.getSessionID(), compressionSettings);
+            testPassed &= APIv1StubTestRunner.check(apiOrgSession.getCompressionSettings(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD) == compressionSettings, "settings assigned to the endpoint's name");
+            
+            int[] recordsAmounts = new int[]{2, 500};
+            for(int i=0; i < recordsAmounts.length; i++){
+                long importedRecordsCount = stubServer.getImportedRecordsCount();
+                APIv1EndpointResponseESD endpointResponse = APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, createProductDocument(recordsAmounts[i]));
+                testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1StubServer.RESULT_CODE_SUCCESS, "document of " + recordsAmounts[i] + " records imported");
+                testPassed &= APIv1StubTestRunner.check(stubServer.getImportedRecordsCount() - importedRecordsCount == recordsAmounts[i], "server imported all records of the document of " + recordsAmounts[i] + " records");
+            }
+            
+            APIv1CompressionStatistics compressionStatistics = compressionSettings.getStatistics();
+            testPassed &= APIv1StubTestRunner.check(compressionStatistics.getRequestsUncompressed() == 1, "document smaller than the threshold sent uncompressed");
+            testPassed &= APIv1StubTestRunner.check(compressionStatistics.getRequestsCompressed() == 1, "document larger than the threshold sent compressed");
+            testPassed &= APIv1StubTestRunner.check(compressionStatistics.getSentBytes() < compressionStatistics.getRawBytes(), "compressed document sent smaller than serialized");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * tests that a document far larger than the uncompressed threshold is streamed compressed into the request as it is serialized, rather than being held in memory to find its length
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testStreamedAboveThreshold(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Import Streamed Above Uncompressed Threshold");
+        boolean testPassed = true;
+        
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgCompressionStreamed");
+            APIv1CompressionSettings compressionSettings = new APIv1CompressionSettings(APIv1CompressionSettings.CODEC_GZIP, 1, 0, 1024);
+            apiOrgSession.setCompressionSettings(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD, compressionSettings);
+            
+            int recordsAmount = 20000;
+            long importedRecordsCount = stubServer.getImportedRecordsCount();
+            long chunkedRequestCount = stubServer.getChunkedRequestCount(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD);
+            APIv1EndpointResponseESD endpointResponse = APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, createProductDocument(recordsAmount));
+            testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1StubServer.RESULT_CODE_SUCCESS, "document of " + recordsAmount + " records imported");
+            testPassed &= APIv1StubTestRunner.check(stubServer.getImportedRecordsCount() - importedRecordsCount == recordsAmount, "server imported all records of the document");
+            testPassed &= APIv1StubTestRunner.check(stubServer.getChunkedRequestCount(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD) - chunkedRequestCount == 1, "document streamed into the request with chunked transfer encoding");
+            
+            APIv1CompressionStatistics compressionStatistics = compressionSettings.getStatistics();
+            testPassed &= APIv1StubTestRunner.check(compressionStatistics.getRequestsCompressed() == 1 && compressionStatistics.getRequestsUncompressed() == 0, "document sent compressed");
+            testPassed &= APIv1StubTestRunner.check(compressionStatistics.getRawBytes() > recordsAmount * 100L && compressionStatistics.getSentBytes() < compressionStatistics.getRawBytes(), "whole serialized document recorded as compressed, serialized bytes: " + compressionStatistics.getRawBytes() + ", sent bytes: " + compressionStatistics.getSentBytes());
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * creates a document containing synthetic product records
+     * @param recordsAmount number of records to place in the document
+     * @return product document
+     */
+    public static ESDocumentProduct createProductDocument(int recordsAmount)
+    {
+        ESDRecordProduct[] productRecords = new ESDRecordProduct[recordsAmount];
+        for(int i=0; i < recordsAmount; i++){
+            productRecords[i] = (ESDRecordProduct)APIv1StubServer.createRecord(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, i);
+        }
+        return new ESDocumentProduct(ESDocumentConstants.RESULT_SUCCESS, "successfully obtained data", productRecords, new HashMap<String, String>());
+    }
+}
@@ -0,0 +1,127 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.esd.EcommerceStandardsDocuments.ESDRecordProduct;
+import org.squizz.api.v1.endpoint.APIv1ESDocumentPagePrefetcher;
+import org.squizz.api.v1.endpoint.APIv1ESDocumentRecordIterator;
+import org.squizz.api.v1.endpoint.APIv1ESDocumentRecordPage;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Tests retrieving pages of records in the background ahead of their consumer, against a local stand-in of the platform's API
+ */
+public class APIv1ESDocumentPagePrefetcherTest
+{
+    private static final int PAGE_SIZE = 70;
+    private static final int PREFETCH_PAGES = 4;
+    
+    /**
+     * tests that pages retrieved at the same time are returned to the consumer in the order of their records
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testPageOrder(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Prefetched Page Order");
+        boolean testPassed = true;
+        ExecutorService executor = Executors.newFixedThreadPool(PREFETCH_PAGES);
+        
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgPagePrefetcher");
+            apiOrgSession.setExecutor(executor);
+            int recordsAmount = APIv1StubServer.DEFAULT_RECORDS_AMOUNT;
+            int pagesAmount = recordsAmount / PAGE_SIZE + 1;
+            
+            //take each page, checking that it starts where the previous page ended and holds the records in order
+            long requestCount = stubServer.getRequestCount(APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD);
+            APIv1ESDocumentPagePrefetcher<ESDRecordProduct> pagePrefetcher = new APIv1ESDocumentPagePrefetcher<>(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, "stubSupplierOrg", "", "", PAGE_SIZE, PREFETCH_PAGES, ESDRecordProduct.class);
+            int recordIndex = 0;
+            int pagesTaken = 0;
+            boolean pagesInOrder = true;
+            APIv1ESDocumentRecordPage<ESDRecordProduct> page;
+            while((page = pagePrefetcher.nextPage()) != null){
+                pagesInOrder &= page.isSuccessful() && page.getRecordsStartIndex() == recordIndex;
+                for(ESDRecordProduct productRecord: page.getRecords()){
+                    pagesInOrder &= productRecord.keyProductID.equals("PROD-" + recordIndex);
+                    recordIndex++;
+                }
+                pagesTaken++;
+            }
+            testPassed &= APIv1StubTestRunner.check(pagesInOrder && recordIndex == recordsAmount, "all records taken in order");
+            testPassed &= APIv1StubTestRunner.check(pagesTaken == pagesAmount, pagesAmount + " pages taken");
+            
+            //wait for the pages requested past the last page to finish, then check that no more than the prefetched pages were requested past it
+            APIv1StubTestRunner.waitUntil(() -> stubServer.getRequestCount(APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD) - requestCount >= pagesAmount);
+            Thread.sleep(100);
+            long pagesRequested = stubServer.getRequestCount(APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD) - requestCount;
+            testPassed &= APIv1StubTestRunner.check(pagesRequested >= pagesAmount && pagesRequested < pagesAmount + PREFETCH_PAGES, "less than " + PREFETCH_PAGES + " pages requested past the last page");
+            
+            //iterate the records of prefetched pages
+            APIv1ESDocumentRecordIterator<ESDRecordProduct> recordIterator = APIv1EndpointOrgRetrieveESDocument.iterateRecordsPrefetched(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, "stubSupplierOrg", "", PAGE_SIZE, PREFETCH_PAGES, "", ESDRecordProduct.class);
+            recordIndex = 0;
+            boolean recordsInOrder = true;
+            while(recordIterator.hasNext()){
+                recordsInOrder &= recordIterator.next().keyProductID.equals("PROD-" + recordIndex);
+                recordIndex++;
+            }
+            testPassed &= APIv1StubTestRunner.check(recordsInOrder && recordIndex == recordsAmount && !recordIterator.isFailed(), "all prefetched records iterated in order");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            executor.shutdown();
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * tests that closing a prefetcher before its last page cancels the pages that it has not yet sent requests for
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testEarlyClose(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Prefetcher Early Close");
+        boolean testPassed = true;
+        long latencyMilliseconds = 200;
+        
+        //retrieve pages one at a time, so that pages wait to be sent while an earlier page is being retrieved
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgPagePrefetcherClose");
+            apiOrgSession.setExecutor(executor);
+            stubServer.setLatencyMilliseconds(latencyMilliseconds);
+            
+            long requestCount = stubServer.getRequestCount(APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD);
+            APIv1ESDocumentPagePrefetcher<ESDRecordProduct> pagePrefetcher = new APIv1ESDocumentPagePrefetcher<>(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, "stubSupplierOrg", "", "", PAGE_SIZE, PREFETCH_PAGES, ESDRecordProduct.class);
+            APIv1ESDocumentRecordPage<ESDRecordProduct> page = pagePrefetcher.nextPage();
+            testPassed &= APIv1StubTestRunner.check(page != null && page.isSuccessful() && page.getRecords().size() == PAGE_SIZE, "first page taken");
+            
+            //close the prefetcher with pages in flight, then wait for any page already being retrieved to finish
+            pagePrefetcher.close();
+            testPassed &= APIv1StubTestRunner.check(pagePrefetcher.nextPage() == null, "no page taken after closing");
+            Thread.sleep(latencyMilliseconds * 3);
+            
+            long pagesRequested = stubServer.getRequestCount(APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD) - requestCount;
+            testPassed &= APIv1StubTestRunner.check(pagesRequested >= 1 && pagesRequested <= 2, "pages waiting to be sent cancelled, " + pagesRequested + " pages requested");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            stubServer.setLatencyMilliseconds(0);
+            executor.shutdown();
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+}
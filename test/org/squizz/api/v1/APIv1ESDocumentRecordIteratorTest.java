@@ -0,0 +1,121 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.util.NoSuchElementException;
+import org.esd.EcommerceStandardsDocuments.ESDRecordProduct;
+import org.squizz.api.v1.endpoint.APIv1ESDocumentRecordIterator;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Tests iterating records retrieved page by page, against a local stand-in of the platform's API
+ */
+public class APIv1ESDocumentRecordIteratorTest
+{
+    private static final int RECORDS_AMOUNT = 250;
+    
+    /**
+     * tests that pages are retrieved until a page is returned with less records than the page size, including when the page size divides the number of records exactly
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testPaging(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Record Iterator Paging");
+        boolean testPassed = true;
+        
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgRecordIterator");
+            stubServer.setRecordsAmount(RECORDS_AMOUNT);
+            
+            //iterate with a page size that leaves a short last page, then with page sizes that divide the number of records exactly, which need an empty page to find the end
+            int[][] pageSizes = new int[][]{{100, 3}, {50, 6}, {RECORDS_AMOUNT, 2}};
+            for(int[] pageSize: pageSizes){
+                long requestCount = stubServer.getRequestCount(APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD);
+                APIv1ESDocumentRecordIterator<ESDRecordProduct> recordIterator = APIv1EndpointOrgRetrieveESDocument.iterateRecords(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, "stubSupplierOrg", "", pageSize[0], "", ESDRecordProduct.class);
+                testPassed &= checkRecords(recordIterator, RECORDS_AMOUNT, "page size " + pageSize[0]);
+                testPassed &= APIv1StubTestRunner.check(!recordIterator.isFailed() && recordIterator.getLastResponse().result.equals(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS), "iteration successful, page size " + pageSize[0]);
+                testPassed &= APIv1StubTestRunner.check(recordIterator.getPagesRetrieved() == pageSize[1] && stubServer.getRequestCount(APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD) - requestCount == pageSize[1], pageSize[1] + " pages retrieved, page size " + pageSize[0]);
+            }
+            
+            //iterate when there are no records, and through a stream of the records
+            stubServer.setRecordsAmount(0);
+            APIv1ESDocumentRecordIterator<ESDRecordProduct> recordIterator = APIv1EndpointOrgRetrieveESDocument.iterateRecords(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, "stubSupplierOrg", "", 100, "", ESDRecordProduct.class);
+            testPassed &= APIv1StubTestRunner.check(!recordIterator.hasNext() && !recordIterator.isFailed() && recordIterator.getPagesRetrieved() == 1, "no records iterated from an empty page");
+            
+            stubServer.setRecordsAmount(RECORDS_AMOUNT);
+            recordIterator = APIv1EndpointOrgRetrieveESDocument.iterateRecords(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, "stubSupplierOrg", "", 100, "", ESDRecordProduct.class);
+            testPassed &= APIv1StubTestRunner.check(recordIterator.stream().count() == RECORDS_AMOUNT, "all records streamed");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            stubServer.setRecordsAmount(APIv1StubServer.DEFAULT_RECORDS_AMOUNT);
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * tests that iteration stops when a page fails to be retrieved, reporting the response of the failed page
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testFailedPage(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Record Iterator Failed Page");
+        boolean testPassed = true;
+        
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgRecordIteratorFailure");
+            stubServer.setRecordsAmount(RECORDS_AMOUNT);
+            
+            //iterate the records of the first page, then destroy the session so that the second page fails
+            APIv1ESDocumentRecordIterator<ESDRecordProduct> recordIterator = APIv1EndpointOrgRetrieveESDocument.iterateRecords(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, "stubSupplierOrg", "", 100, "", ESDRecordProduct.class);
+            for(int i=0; i < 100; i++){
+                recordIterator.next();
+            }
+            apiOrgSession.destroyOrgSession();
+            
+            testPassed &= APIv1StubTestRunner.check(!recordIterator.hasNext(), "iteration stopped at the failed page");
+            testPassed &= APIv1StubTestRunner.check(recordIterator.isFailed() && recordIterator.getPagesRetrieved() == 2 && recordIterator.getRecordsIterated() == 100, "failure reported after the first page");
+            testPassed &= APIv1StubTestRunner.checkResultCode(recordIterator.getLastResponse(), APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_SESSION_INVALID, "response of the failed page kept");
+            
+            boolean nextFailed = false;
+            try{
+                recordIterator.next();
+            }catch(NoSuchElementException ex){
+                nextFailed = true;
+            }
+            testPassed &= APIv1StubTestRunner.check(nextFailed, "no record returned after the failed page");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            stubServer.setRecordsAmount(APIv1StubServer.DEFAULT_RECORDS_AMOUNT);
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * iterates all records, checking that each record is returned once in the order the stand-in server creates them
+     * @return true if the check passed
+     */
+    private static boolean checkRecords(APIv1ESDocumentRecordIterator<ESDRecordProduct> recordIterator, int recordsAmount, String description)
+    {
+        int recordIndex = 0;
+        boolean recordsInOrder = true;
+        while(recordIterator.hasNext()){
+            recordsInOrder &= recordIterator.next().keyProductID.equals("PROD-" + recordIndex);
+            recordIndex++;
+        }
+        return APIv1StubTestRunner.check(recordsInOrder && recordIndex == recordsAmount && recordIterator.getRecordsIterated() == recordsAmount, "all records iterated in order, " + description);
+    }
+}
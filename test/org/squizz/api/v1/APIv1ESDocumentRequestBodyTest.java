@@ -0,0 +1,121 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+import javafx.util.Pair;
+import org.esd.EcommerceStandardsDocuments.ESDRecordProduct;
+import org.esd.EcommerceStandardsDocuments.ESDocumentProduct;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgImportESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Tests serializing and compressing Ecommerce Standards Documents across multiple cores before they are sent, against a local stand-in of the platform's API
+ */
+public class APIv1ESDocumentRequestBodyTest
+{
+    /**
+     * tests that documents split into gzip members compressed on separate cores decompress into the same JSON as the document, with all of their records imported by the server,
+     * and that the lengths reported by each body match the bytes written
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testParallelMembers(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Parallel Compressed Request Body");
+        boolean testPassed = true;
+        
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgRequestBody");
+            APIv1BufferPool bufferPool = new APIv1BufferPool(8, APIv1BufferPool.DEFAULT_MAX_BUFFER_CAPACITY);
+            int cores = Runtime.getRuntime().availableProcessors();
+            int minRecords = APIv1ESDocumentRequestBody.MIN_RECORDS_PER_MEMBER;
+            
+            //serialize documents with records that fill no members, one member, and more members than there are cores, with and without header properties
+            testPassed &= checkBody(apiOrgSession, stubServer, APIv1CompressionTest.createProductDocument(0), cores, bufferPool, 1, "document without records");
+            testPassed &= checkBody(apiOrgSession, stubServer, APIv1CompressionTest.createProductDocument(1), cores, bufferPool, 1, "document of 1 record");
+            testPassed &= checkBody(apiOrgSession, stubServer, APIv1CompressionTest.createProductDocument(minRecords - 1), cores, bufferPool, 1, "document of " + (minRecords - 1) + " records");
+            testPassed &= checkBody(apiOrgSession, stubServer, APIv1CompressionTest.createProductDocument(minRecords), cores, bufferPool, 1, "document of " + minRecords + " records");
+            testPassed &= checkBody(apiOrgSession, stubServer, APIv1CompressionTest.createProductDocument(minRecords * 2), 4, bufferPool, 2, "document of " + (minRecords * 2) + " records split by its records");
+            testPassed &= checkBody(apiOrgSession, stubServer, APIv1CompressionTest.createProductDocument(minRecords * 5 + 7), 4, bufferPool, 4, "document of " + (minRecords * 5 + 7) + " records split by the parallelism");
+            testPassed &= checkBody(apiOrgSession, stubServer, APIv1CompressionTest.createProductDocument(minRecords * cores + 1), cores, bufferPool, cores, "document of more than " + minRecords + " records for each available core (" + cores + ")");
+            testPassed &= checkBody(apiOrgSession, stubServer, APIv1CompressionTest.createProductDocument(minRecords * 8 + 1), 8, bufferPool, 8, "document of more than " + minRecords + " records for each of 8 members");
+            
+            ESDocumentProduct headerlessDocument = new ESDocumentProduct();
+            headerlessDocument.dataRecords = APIv1CompressionTest.createProductDocument(minRecords * 3).dataRecords;
+            testPassed &= checkBody(apiOrgSession, stubServer, headerlessDocument, 3, bufferPool, 3, "document without header properties");
+            headerlessDocument.dataRecords = new ESDRecordProduct[0];
+            testPassed &= checkBody(apiOrgSession, stubServer, headerlessDocument, 3, bufferPool, 1, "document without header properties or records");
+            
+            testPassed &= APIv1StubTestRunner.check(bufferPool.getIdleBuffersCount() > 0, "buffers released back into their pool once the bodies were closed");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * serializes a document into a body, imports the body into the stand-in server, then writes the body again to check its content and lengths, and that its sizes were recorded once
+     */
+    private static boolean checkBody(APIv1OrgSession apiOrgSession, APIv1StubServer stubServer, ESDocumentProduct esDocument, int parallelism, APIv1BufferPool bufferPool, int expectedMembers, String description) throws Exception
+    {
+        APIv1CompressionSettings compressionSettings = new APIv1CompressionSettings(APIv1CompressionSettings.CODEC_GZIP, 1, 0, 0);
+        int recordsAmount = APIv1ESDocumentRecords.getRecordsCount(esDocument);
+        boolean checkPassed = true;
+        
+        try(APIv1ESDocumentRequestBody documentBody = APIv1ESDocumentRequestBody.serialize(esDocument, parallelism, bufferPool, compressionSettings)){
+            checkPassed &= APIv1StubTestRunner.check(documentBody.getMembersCount() == expectedMembers, description + " compressed into " + expectedMembers + " member(s), members: " + documentBody.getMembersCount());
+            
+            //import the body, which the server decompresses and counts the records of
+            long importedRecordsCount = stubServer.getImportedRecordsCount();
+            ArrayList<Pair<String, String>> requestHeaders = new ArrayList<>();
+            APIv1EndpointResponseESD endpointResponse = APIv1HTTPRequest.sendESDocumentHTTPRequest(apiOrgSession, APIv1Constants.HTTP_REQUEST_METHOD_POST, APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD + APIv1Constants.API_PATH_SLASH + apiOrgSession.getSessionID(), "import_type_id=" + APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, requestHeaders, documentBody, 20000, APIv1JSONMapper.getReader(APIv1EndpointResponse.class), new APIv1EndpointResponseESD());
+            checkPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1StubServer.RESULT_CODE_SUCCESS, description + " imported");
+            checkPassed &= APIv1StubTestRunner.check(stubServer.getImportedRecordsCount() - importedRecordsCount == recordsAmount, description + " had all " + recordsAmount + " records imported by the server");
+            
+            //write the body again, checking that its lengths match the bytes written, and that it decompresses into the same JSON as the document
+            ByteArrayOutputStream bodyOutputStream = new ByteArrayOutputStream();
+            documentBody.writeTo(bodyOutputStream);
+            byte[] documentJSON = decompress(bodyOutputStream.toByteArray());
+            JsonNode bodyTree = APIv1JSONMapper.getObjectMapper().readTree(documentJSON);
+            JsonNode documentTree = APIv1JSONMapper.getObjectMapper().readTree(APIv1JSONMapper.getWriter(esDocument.getClass()).writeValueAsBytes(esDocument));
+            checkPassed &= APIv1StubTestRunner.check(documentBody.getContentLength() == bodyOutputStream.size() && documentBody.getUncompressedLength() == documentJSON.length, description + " has lengths matching the bytes written");
+            checkPassed &= APIv1StubTestRunner.check(bodyTree.equals(documentTree), description + " decompresses into the same JSON as the document");
+            
+            //check that writing the body twice recorded its sizes once
+            APIv1CompressionStatistics compressionStatistics = compressionSettings.getStatistics();
+            checkPassed &= APIv1StubTestRunner.check(compressionStatistics.getRequestsCompressed() == 1 && compressionStatistics.getRawBytes() == documentJSON.length && compressionStatistics.getSentBytes() == bodyOutputStream.size(), description + " recorded in the compression statistics once");
+        }
+        
+        return checkPassed;
+    }
+    
+    /**
+     * decompresses every gzip member of a body into a single array of bytes
+     */
+    private static byte[] decompress(byte[] compressedBytes) throws IOException
+    {
+        ByteArrayOutputStream decompressedOutputStream = new ByteArrayOutputStream();
+        try(GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressedBytes))){
+            byte[] readBuffer = new byte[8192];
+            int bytesRead;
+            while((bytesRead = gzipInputStream.read(readBuffer)) != -1){
+                decompressedOutputStream.write(readBuffer, 0, bytesRead);
+            }
+        }
+        return decompressedOutputStream.toByteArray();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.squizz.api.v1.cache.APIv1ImportHashStore;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgImportESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Tests skipping the import of documents that have not changed since they were last imported, against local stand-ins of the platform's API
+ */
+public class APIv1ImportHashStoreTest
+{
+    /**
+     * tests that an unchanged document is only skipped when imported again into the same API, including after the store is loaded again from its file
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testSkipUnchangedImport(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Skip Unchanged Import");
+        boolean testPassed = true;
+        
+        APIv1StubServer otherStubServer = null;
+        Path storeFile = null;
+        try{
+            storeFile = Files.createTempFile("squizz-api-import-hashes", ".bin");
+            Files.delete(storeFile);
+            APIv1ImportHashStore importHashStore = new APIv1ImportHashStore(storeFile);
+            
+            //import the same document twice into the stand-in server
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgImportHash");
+            apiOrgSession.setImportHashStore(importHashStore);
+            testPassed &= checkImport(apiOrgSession, stubServer, 3, APIv1StubServer.RESULT_CODE_SUCCESS, 3, "first import of the document sent");
+            testPassed &= checkImport(apiOrgSession, stubServer, 3, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_SUCCESS_IMPORT_UNCHANGED, 0, "unchanged document skipped");
+            testPassed &= checkImport(apiOrgSession, stubServer, 4, APIv1StubServer.RESULT_CODE_SUCCESS, 4, "changed document sent");
+            
+            //import the document into another API with the same store, which has not yet received the document
+            otherStubServer = new APIv1StubServer(0);
+            otherStubServer.start();
+            APIv1OrgSession otherAPIOrgSession = APIv1StubTestRunner.createStubSession(otherStubServer, "stubOrgImportHash");
+            otherAPIOrgSession.setImportHashStore(importHashStore);
+            testPassed &= checkImport(otherAPIOrgSession, otherStubServer, 4, APIv1StubServer.RESULT_CODE_SUCCESS, 4, "document sent to another API for the same organisation");
+            
+            //load the store again from its file, checking that the hashes were kept
+            apiOrgSession.setImportHashStore(new APIv1ImportHashStore(storeFile));
+            testPassed &= APIv1StubTestRunner.check(apiOrgSession.getImportHashStore().size() == 2, "store loaded from its file with a hash for each API");
+            testPassed &= checkImport(apiOrgSession, stubServer, 4, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_SUCCESS_IMPORT_UNCHANGED, 0, "unchanged document skipped after the store was loaded");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            if(otherStubServer != null){
+                otherStubServer.stop();
+            }
+            try{
+                if(storeFile != null){
+                    Files.deleteIfExists(storeFile);
+                }
+            }catch(Exception ex){
+            }
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * imports a product document and checks the result code and the number of records the server imported
+     */
+    private static boolean checkImport(APIv1OrgSession apiOrgSession, APIv1StubServer stubServer, int recordsAmount, String expectedResultCode, int expectedRecordsImported, String description)
+    {
+        long importedRecordsCount = stubServer.getImportedRecordsCount();
+        APIv1EndpointResponseESD endpointResponse = APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, APIv1CompressionTest.createProductDocument(recordsAmount));
+        boolean checkPassed = APIv1StubTestRunner.checkResultCode(endpointResponse, expectedResultCode, description);
+        return APIv1StubTestRunner.check(stubServer.getImportedRecordsCount() - importedRecordsCount == expectedRecordsImported, "server imported " + expectedRecordsImported + " records") && checkPassed;
+    }
+}
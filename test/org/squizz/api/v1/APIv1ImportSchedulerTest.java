@@ -0,0 +1,260 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.util.Pair;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgImportESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.schedule.APIv1ImportScheduler;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Tests scheduling imports across organisations against a local stand-in of the platform's API
+ */
+public class APIv1ImportSchedulerTest
+{
+    private static final int ENDPOINT_TIMEOUT_MILLISECONDS = 20000;
+    
+    /**
+     * transport that records the imports sent through another transport, along with the most imports that were in progress at the same time
+     */
+    private static class ImportRecordingTransport implements APIv1HTTPTransport
+    {
+        private final APIv1HTTPTransport transport;
+        private final List<Integer> importTypeIDs;
+        private final AtomicInteger importsInProgress = new AtomicInteger(0);
+        private final AtomicInteger maxImportsInProgress = new AtomicInteger(0);
+        
+        public ImportRecordingTransport(APIv1HTTPTransport transport, List<Integer> importTypeIDs)
+        {
+            this.transport = transport;
+            this.importTypeIDs = importTypeIDs;
+        }
+        
+        @Override
+        public APIv1HTTPTransportResponse send(String requestMethod, String requestURL, ArrayList<Pair<String, String>> requestHeaders, APIv1HTTPRequestBody requestBody, int timeoutMilliseconds) throws IOException
+        {
+            if(!requestURL.contains(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD + APIv1Constants.API_PATH_SLASH)){
+                return transport.send(requestMethod, requestURL, requestHeaders, requestBody, timeoutMilliseconds);
+            }
+            
+            importTypeIDs.add(Integer.parseInt(requestURL.substring(requestURL.indexOf("import_type_id=") + "import_type_id=".length())));
+            maxImportsInProgress.accumulateAndGet(importsInProgress.incrementAndGet(), Math::max);
+            try{
+                return transport.send(requestMethod, requestURL, requestHeaders, requestBody, timeoutMilliseconds);
+            }finally{
+                importsInProgress.decrementAndGet();
+            }
+        }
+        
+        public int getMaxImportsInProgress()
+        {
+            return maxImportsInProgress.get();
+        }
+    }
+    
+    /**
+     * tests that queued jobs are run in order of the priority of their type of data, with stock quantities imported before pricing and products
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testPriority(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Import Scheduler Priority");
+        boolean testPassed = true;
+        
+        APIv1ImportScheduler importScheduler = new APIv1ImportScheduler(1, ENDPOINT_TIMEOUT_MILLISECONDS);
+        try{
+            List<Integer> importTypeIDs = Collections.synchronizedList(new ArrayList<Integer>());
+            APIv1OrgSession apiOrgSession = createRecordingSession(stubServer, "stubOrgSchedulerPriority", importTypeIDs);
+            stubServer.setLatencyMilliseconds(200);
+            
+            //submit a job that holds the scheduler's only thread, then queue jobs behind it in the reverse order of their priority
+            ArrayList<CompletableFuture<APIv1EndpointResponseESD>> responseFutures = new ArrayList<>();
+            responseFutures.add(importScheduler.submit(apiOrgSession, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, APIv1CompressionTest.createProductDocument(1)));
+            testPassed &= APIv1StubTestRunner.check(APIv1StubTestRunner.waitUntil(() -> importScheduler.getRunningImportsCount() == 1), "first job started");
+            responseFutures.add(importScheduler.submit(apiOrgSession, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, APIv1CompressionTest.createProductDocument(1)));
+            responseFutures.add(importScheduler.submit(apiOrgSession, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCT_PRICE_LEVEL_UNIT_PRICING, APIv1CompressionTest.createProductDocument(1)));
+            responseFutures.add(importScheduler.submit(apiOrgSession, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCT_STOCK_QUANTITIES, APIv1CompressionTest.createProductDocument(1)));
+            testPassed &= APIv1StubTestRunner.check(importScheduler.getQueueDepth() == 3, "jobs queued behind the first job");
+            
+            testPassed &= checkJobsSucceeded(responseFutures);
+            List<Integer> expectedImportTypeIDs = Arrays.asList(
+                APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS,
+                APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCT_STOCK_QUANTITIES,
+                APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCT_PRICE_LEVEL_UNIT_PRICING,
+                APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS);
+            testPassed &= APIv1StubTestRunner.check(expectedImportTypeIDs.equals(importTypeIDs), "stock quantities imported before pricing, and pricing before products, import type IDs: " + importTypeIDs);
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            stubServer.setLatencyMilliseconds(0);
+            importScheduler.shutdown();
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * tests that no organisation runs more imports at the same time than it is allowed, whilst the scheduler runs imports of different organisations at the same time
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testOrgConcurrencyLimit(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Import Scheduler Organisation Limits");
+        boolean testPassed = true;
+        
+        APIv1ImportScheduler importScheduler = new APIv1ImportScheduler(4, ENDPOINT_TIMEOUT_MILLISECONDS);
+        try{
+            ImportRecordingTransport[] orgTransports = new ImportRecordingTransport[2];
+            APIv1OrgSession[] apiOrgSessions = new APIv1OrgSession[orgTransports.length];
+            for(int i=0; i < apiOrgSessions.length; i++){
+                apiOrgSessions[i] = createRecordingSession(stubServer, "stubOrgSchedulerLimit" + i, Collections.synchronizedList(new ArrayList<Integer>()));
+                orgTransports[i] = (ImportRecordingTransport)apiOrgSessions[i].getTransport();
+            }
+            importScheduler.setMaxConcurrentImports(apiOrgSessions[0].getOrgID(), 2);
+            stubServer.setLatencyMilliseconds(100);
+            
+            //submit jobs for both organisations, more than the scheduler can run at once
+            ArrayList<CompletableFuture<APIv1EndpointResponseESD>> responseFutures = new ArrayList<>();
+            for(int i=0; i < 6; i++){
+                for(APIv1OrgSession apiOrgSession: apiOrgSessions){
+                    responseFutures.add(importScheduler.submit(apiOrgSession, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, APIv1CompressionTest.createProductDocument(1)));
+                }
+            }
+            
+            testPassed &= checkJobsSucceeded(responseFutures);
+            testPassed &= APIv1StubTestRunner.check(orgTransports[0].getMaxImportsInProgress() == 2, "organisation allowed 2 imports ran 2 at the same time, ran: " + orgTransports[0].getMaxImportsInProgress());
+            testPassed &= APIv1StubTestRunner.check(orgTransports[1].getMaxImportsInProgress() == APIv1ImportScheduler.DEFAULT_MAX_CONCURRENT_IMPORTS_PER_ORG, "organisation with the default limit never exceeded it, ran: " + orgTransports[1].getMaxImportsInProgress());
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            stubServer.setLatencyMilliseconds(0);
+            importScheduler.shutdown();
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * tests that jobs whose imports fail because the platform is busy are placed back into the queue, then complete once the platform is no longer busy
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testBusyRequeue(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Import Scheduler Busy Requeue");
+        boolean testPassed = true;
+        
+        APIv1ImportScheduler importScheduler = new APIv1ImportScheduler(1, ENDPOINT_TIMEOUT_MILLISECONDS);
+        try{
+            APIv1RetryPolicy requeuePolicy = new APIv1RetryPolicy(100, 20, 50);
+            requeuePolicy.removeRetryableResultCode(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_CONNECTION);
+            requeuePolicy.removeRetryableResultCode(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_RESPONSE);
+            importScheduler.setRequeuePolicy(requeuePolicy);
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgSchedulerBusy");
+            
+            //submit a job whilst all imports fail as busy, then stop the server being busy once the job has been requeued
+            stubServer.setImportBusyRate(1);
+            long importedRecordsCount = stubServer.getImportedRecordsCount();
+            CompletableFuture<APIv1EndpointResponseESD> responseFuture = importScheduler.submit(apiOrgSession, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, APIv1CompressionTest.createProductDocument(3));
+            testPassed &= APIv1StubTestRunner.check(APIv1StubTestRunner.waitUntil(() -> importScheduler.getJobsRequeued() >= 2), "job requeued whilst the server is busy");
+            testPassed &= APIv1StubTestRunner.check(!responseFuture.isDone(), "job not completed whilst the server is busy");
+            stubServer.setImportBusyRate(0);
+            
+            testPassed &= APIv1StubTestRunner.checkResultCode(responseFuture.get(APIv1StubTestRunner.WAIT_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS), APIv1StubServer.RESULT_CODE_SUCCESS, "job completed once the server was no longer busy");
+            testPassed &= APIv1StubTestRunner.check(stubServer.getImportedRecordsCount() - importedRecordsCount == 3, "server imported the job's records once");
+            testPassed &= APIv1StubTestRunner.check(importScheduler.getJobsCompleted() == 1, "job completed once");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            stubServer.setImportBusyRate(0);
+            importScheduler.shutdown();
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * tests that shutting down the scheduler completes queued jobs as aborted without importing them, whilst letting the running import finish
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testShutdown(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Import Scheduler Shutdown");
+        boolean testPassed = true;
+        
+        APIv1ImportScheduler importScheduler = new APIv1ImportScheduler(1, ENDPOINT_TIMEOUT_MILLISECONDS);
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgSchedulerShutdown");
+            stubServer.setLatencyMilliseconds(300);
+            
+            //start a job, queue more jobs behind it, then shut down the scheduler
+            long importedRecordsCount = stubServer.getImportedRecordsCount();
+            CompletableFuture<APIv1EndpointResponseESD> runningResponseFuture = importScheduler.submit(apiOrgSession, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, APIv1CompressionTest.createProductDocument(2));
+            testPassed &= APIv1StubTestRunner.check(APIv1StubTestRunner.waitUntil(() -> importScheduler.getRunningImportsCount() == 1), "first job started");
+            ArrayList<CompletableFuture<APIv1EndpointResponseESD>> queuedResponseFutures = new ArrayList<>();
+            for(int i=0; i < 3; i++){
+                queuedResponseFutures.add(importScheduler.submit(apiOrgSession, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, APIv1CompressionTest.createProductDocument(5)));
+            }
+            importScheduler.shutdown();
+            
+            for(CompletableFuture<APIv1EndpointResponseESD> queuedResponseFuture: queuedResponseFutures){
+                testPassed &= APIv1StubTestRunner.check(queuedResponseFuture.isDone(), "queued job completed on shutdown");
+                testPassed &= APIv1StubTestRunner.checkResultCode(queuedResponseFuture.get(), APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_ABORTED, "queued job aborted");
+            }
+            testPassed &= APIv1StubTestRunner.checkResultCode(importScheduler.submit(apiOrgSession, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, APIv1CompressionTest.createProductDocument(5)).get(), APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_ABORTED, "job submitted after shutdown aborted");
+            testPassed &= APIv1StubTestRunner.checkResultCode(runningResponseFuture.get(APIv1StubTestRunner.WAIT_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS), APIv1StubServer.RESULT_CODE_SUCCESS, "running job finished");
+            testPassed &= APIv1StubTestRunner.check(stubServer.getImportedRecordsCount() - importedRecordsCount == 2, "server only imported the running job's records");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            stubServer.setLatencyMilliseconds(0);
+            importScheduler.shutdown();
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * creates a session with the stand-in server whose imports are recorded
+     */
+    private static APIv1OrgSession createRecordingSession(APIv1StubServer stubServer, String orgID, List<Integer> importTypeIDs)
+    {
+        APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, orgID);
+        apiOrgSession.setTransport(new ImportRecordingTransport(apiOrgSession.getTransport(), importTypeIDs));
+        return apiOrgSession;
+    }
+    
+    /**
+     * waits for jobs to complete, checking that each job's import succeeded
+     */
+    private static boolean checkJobsSucceeded(List<CompletableFuture<APIv1EndpointResponseESD>> responseFutures) throws Exception
+    {
+        boolean checksPassed = true;
+        for(CompletableFuture<APIv1EndpointResponseESD> responseFuture: responseFutures){
+            APIv1EndpointResponseESD endpointResponse = responseFuture.get(APIv1StubTestRunner.WAIT_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+            checksPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1StubServer.RESULT_CODE_SUCCESS, "job imported");
+        }
+        return checksPassed;
+    }
+}
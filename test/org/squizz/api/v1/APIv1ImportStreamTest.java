@@ -0,0 +1,164 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgImportESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Tests importing Ecommerce Standards Documents that have already been serialized as JSON into files, against a local stand-in of the platform's API
+ */
+public class APIv1ImportStreamTest
+{
+    private static final String VALID_RECORDS_JSON = "{\"keyProductID\":\"1\",\"productCode\":\"P1\"},{\"keyProductID\":\"2\",\"productCode\":\"P2\"}";
+    
+    /**
+     * tests that a correctly formed file is imported with all of its records, with and without validating the document
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testImportValidFile(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Import ESD JSON File");
+        boolean testPassed = true;
+        
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgImportStream");
+            Path esDocumentFile = createDocumentFile("{\"version\":1.2,\"dataRecords\":[" + VALID_RECORDS_JSON + ",null]}");
+            
+            for(boolean validateDocument: new boolean[]{false, true}){
+                long importedRecordsCount = stubServer.getImportedRecordsCount();
+                APIv1EndpointResponseESD endpointResponse = APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, esDocumentFile, validateDocument);
+                testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1StubServer.RESULT_CODE_SUCCESS, "file imported, validating document: " + validateDocument);
+                testPassed &= APIv1StubTestRunner.check(stubServer.getImportedRecordsCount() - importedRecordsCount == 3, "server imported all records of the file, validating document: " + validateDocument);
+            }
+            Files.delete(esDocumentFile);
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * tests that files found to be incorrectly formed part way through being validated are rejected without the server importing any of their records,
+     * so that a document is never imported truncated at the point where it failed validation
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testImportInvalidFile(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Import Invalid ESD JSON File");
+        boolean testPassed = true;
+        
+        String[][] invalidDocuments = new String[][]{
+            {"{\"dataRecords\":[" + VALID_RECORDS_JSON + ",5," + VALID_RECORDS_JSON + "]}", APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_JSON_MALFORMED},
+            {"{\"dataRecords\":[" + VALID_RECORDS_JSON + "]} {}", APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_JSON_MALFORMED},
+            {"{\"dataRecords\":[" + VALID_RECORDS_JSON + ",{\"keyProductID\":}]}", APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_JSON_MALFORMED},
+            {"{\"dataRecords\":[" + VALID_RECORDS_JSON + "],\"totalDataRecords\":\"two\"}", APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_ESD_DOCUMENT_HEADER_MALFORMED},
+            {"[" + VALID_RECORDS_JSON + "]", APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_ESD_DOCUMENT_HEADER_MALFORMED}
+        };
+        
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgImportStream");
+            Path validDocumentFile = createDocumentFile("{\"dataRecords\":[" + VALID_RECORDS_JSON + "]}");
+            for(String[] invalidDocument: invalidDocuments)
+            {
+                Path esDocumentFile = createDocumentFile(invalidDocument[0]);
+                long importedRecordsCount = stubServer.getImportedRecordsCount();
+                
+                APIv1EndpointResponseESD endpointResponse = APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, esDocumentFile, true);
+                testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, invalidDocument[1], "invalid file rejected: " + invalidDocument[0]);
+                
+                //import a valid document after the invalid document, so that the server has finished with the invalid document's request before the records it imported are counted
+                endpointResponse = APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, validDocumentFile, true);
+                testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1StubServer.RESULT_CODE_SUCCESS, "valid file imported after the invalid file");
+                testPassed &= APIv1StubTestRunner.check(stubServer.getImportedRecordsCount() - importedRecordsCount == 2, "server imported no records of the invalid file");
+                Files.delete(esDocumentFile);
+            }
+            Files.delete(validDocumentFile);
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * tests that files and streams are sent uncompressed when the compression settings of the import endpoint do not compress request bodies, that only files are sent uncompressed below the settings' uncompressed threshold,
+     * and that files and streams can be imported without blocking the calling thread
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testImportCompressionSettings(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Import ESD JSON With Compression Settings");
+        boolean testPassed = true;
+        
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgImportStreamCompression");
+            String esDocumentJSON = "{\"dataRecords\":[" + VALID_RECORDS_JSON + "]}";
+            Path esDocumentFile = createDocumentFile(esDocumentJSON);
+            
+            //import the file and stream without compressing them
+            APIv1CompressionSettings compressionSettings = new APIv1CompressionSettings(APIv1CompressionSettings.CODEC_NONE, 0, 0, 0);
+            apiOrgSession.setCompressionSettings(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD, compressionSettings);
+            for(boolean validateDocument: new boolean[]{false, true}){
+                testPassed &= checkImport(stubServer, () -> APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, esDocumentFile, validateDocument), "file imported uncompressed, validating document: " + validateDocument);
+                testPassed &= checkImport(stubServer, () -> APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, new ByteArrayInputStream(esDocumentJSON.getBytes(StandardCharsets.UTF_8)), validateDocument), "stream imported uncompressed, validating document: " + validateDocument);
+            }
+            testPassed &= APIv1StubTestRunner.check(compressionSettings.getStatistics().getRequestsUncompressed() == 4 && compressionSettings.getStatistics().getRequestsCompressed() == 0, "files and streams sent uncompressed");
+            
+            //import the file and stream with a threshold larger than the document, which only the file's size is known to be below
+            compressionSettings = new APIv1CompressionSettings(APIv1CompressionSettings.CODEC_GZIP, 1, 0, 4096);
+            apiOrgSession.setCompressionSettings(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD, compressionSettings);
+            testPassed &= checkImport(stubServer, () -> APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, esDocumentFile, true), "file below the threshold imported");
+            testPassed &= checkImport(stubServer, () -> APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, new ByteArrayInputStream(esDocumentJSON.getBytes(StandardCharsets.UTF_8)), true), "stream imported");
+            testPassed &= APIv1StubTestRunner.check(compressionSettings.getStatistics().getRequestsUncompressed() == 1 && compressionSettings.getStatistics().getRequestsCompressed() == 1, "file below the threshold sent uncompressed, stream sent compressed");
+            
+            //import the file and stream without blocking
+            testPassed &= checkImport(stubServer, () -> APIv1EndpointOrgImportESDocument.callAsync(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, esDocumentFile, true).join(), "file imported without blocking");
+            testPassed &= checkImport(stubServer, () -> APIv1EndpointOrgImportESDocument.callAsync(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, new ByteArrayInputStream(esDocumentJSON.getBytes(StandardCharsets.UTF_8)), true).join(), "stream imported without blocking");
+            Files.delete(esDocumentFile);
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * checks that an import succeeded, with the server importing the two records of the document
+     */
+    private static boolean checkImport(APIv1StubServer stubServer, Supplier<APIv1EndpointResponseESD> importCall, String description)
+    {
+        long importedRecordsCount = stubServer.getImportedRecordsCount();
+        APIv1EndpointResponseESD endpointResponse = importCall.get();
+        return APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1StubServer.RESULT_CODE_SUCCESS, description) &&
+            APIv1StubTestRunner.check(stubServer.getImportedRecordsCount() - importedRecordsCount == 2, "server imported all records");
+    }
+    
+    /**
+     * writes the JSON of a document into a temporary file
+     */
+    static Path createDocumentFile(String esDocumentJSON) throws Exception
+    {
+        Path esDocumentFile = Files.createTempFile("squizz-api-test-", ".json");
+        Files.write(esDocumentFile, esDocumentJSON.getBytes(StandardCharsets.UTF_8));
+        return esDocumentFile;
+    }
+}
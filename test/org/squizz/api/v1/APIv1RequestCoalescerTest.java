@@ -0,0 +1,172 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Tests coalescing identical requests made at the same time, against a local stand-in of the platform's API
+ */
+public class APIv1RequestCoalescerTest
+{
+    private static final int CALLERS_AMOUNT = 8;
+    private static final int RECORDS_MAX_AMOUNT = 10;
+    
+    /**
+     * tests that identical retrieve requests made at the same time are sent once and share the response, that requests with different parameters are each sent, and that requests made after a response has returned are sent again
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testCoalesceRequests(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Request Coalescer");
+        boolean testPassed = true;
+        
+        ExecutorService executorService = Executors.newFixedThreadPool(CALLERS_AMOUNT);
+        try{
+            APIv1RequestCoalescer requestCoalescer = new APIv1RequestCoalescer();
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgCoalescer");
+            apiOrgSession.setRequestCoalescer(requestCoalescer);
+            APIv1RequestCountingTransport countingTransport = APIv1RequestCountingTransport.assignTo(apiOrgSession, APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD);
+            
+            //slow the server so that all callers make their requests while the first is in flight
+            stubServer.setLatencyMilliseconds(1000);
+            
+            //retrieve the same page from every caller at the same time
+            ArrayList<APIv1EndpointResponseESD> endpointResponses = callAtSameTime(executorService, apiOrgSession, new int[CALLERS_AMOUNT]);
+            testPassed &= APIv1StubTestRunner.check(countingTransport.getRequestCount() == 1 && requestCoalescer.getRequestsSent() == 1 && requestCoalescer.getRequestsCoalesced() == CALLERS_AMOUNT - 1, "identical requests sent once, requests sent to the server: " + countingTransport.getRequestCount() + ", coalesced: " + requestCoalescer.getRequestsCoalesced());
+            testPassed &= APIv1StubTestRunner.check(isEveryPageRetrieved(endpointResponses), "every caller given the retrieved page of records");
+            
+            //retrieve two different pages from half the callers each at the same time
+            int[] recordsStartIndexes = new int[CALLERS_AMOUNT];
+            for(int i=0; i < CALLERS_AMOUNT; i+=2){
+                recordsStartIndexes[i] = RECORDS_MAX_AMOUNT;
+            }
+            endpointResponses = callAtSameTime(executorService, apiOrgSession, recordsStartIndexes);
+            testPassed &= APIv1StubTestRunner.check(countingTransport.getRequestCount() == 3 && requestCoalescer.getRequestsCoalesced() == (CALLERS_AMOUNT - 1) + (CALLERS_AMOUNT - 2), "requests for different pages each sent once, requests sent to the server: " + countingTransport.getRequestCount());
+            testPassed &= APIv1StubTestRunner.check(isEveryPageRetrieved(endpointResponses), "every caller given the retrieved page of records");
+            
+            //retrieve the first page again now that no requests are in flight
+            stubServer.setLatencyMilliseconds(0);
+            APIv1EndpointResponseESD endpointResponse = retrievePage(apiOrgSession, 0);
+            testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1StubServer.RESULT_CODE_SUCCESS, "page retrieved after the earlier requests completed");
+            testPassed &= APIv1StubTestRunner.check(countingTransport.getRequestCount() == 4 && requestCoalescer.getInFlightRequestsCount() == 0, "request sent again once the identical request completed");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            stubServer.setLatencyMilliseconds(0);
+            executorService.shutdownNow();
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * tests that callers waiting on a coalesced request are released with the failure of the request when it throws an error rather than an exception
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testErrorReleasesCallers(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Request Coalescer Error");
+        boolean testPassed = true;
+        
+        ExecutorService executorService = Executors.newFixedThreadPool(CALLERS_AMOUNT);
+        try{
+            //make the first request wait until all callers are waiting on it, then fail with an error
+            APIv1RequestCoalescer requestCoalescer = new APIv1RequestCoalescer();
+            CountDownLatch failLatch = new CountDownLatch(1);
+            Supplier<APIv1EndpointResponseESD> failingCall = () -> {
+                try{
+                    failLatch.await();
+                }catch(InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                }
+                throw new StackOverflowError("stub error");
+            };
+            
+            ArrayList<Future<APIv1EndpointResponseESD>> responseFutures = new ArrayList<>();
+            for(int i=0; i < CALLERS_AMOUNT; i++){
+                responseFutures.add(executorService.submit(() -> requestCoalescer.call(stubServer.getAPIOrgURL(), "stubOrgCoalescerError", APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD, "", failingCall)));
+            }
+            testPassed &= APIv1StubTestRunner.check(APIv1StubTestRunner.waitUntil(() -> requestCoalescer.getRequestsCoalesced() == CALLERS_AMOUNT - 1), "callers waiting on the first request");
+            failLatch.countDown();
+            
+            //check that every caller is released with the error
+            int callersFailed = 0;
+            for(Future<APIv1EndpointResponseESD> responseFuture: responseFutures){
+                try{
+                    responseFuture.get(APIv1StubTestRunner.WAIT_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+                }catch(ExecutionException ex){
+                    callersFailed++;
+                }
+            }
+            testPassed &= APIv1StubTestRunner.check(callersFailed == CALLERS_AMOUNT && requestCoalescer.getInFlightRequestsCount() == 0, "every caller released with the error, failed: " + callersFailed);
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            executorService.shutdownNow();
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * retrieves pages of pricing from many callers that are released to make their requests at the same time, with each caller retrieving the page starting at its given index
+     */
+    private static ArrayList<APIv1EndpointResponseESD> callAtSameTime(ExecutorService executorService, APIv1OrgSession apiOrgSession, int[] recordsStartIndexes) throws Exception
+    {
+        CountDownLatch startLatch = new CountDownLatch(1);
+        ArrayList<Future<APIv1EndpointResponseESD>> responseFutures = new ArrayList<>();
+        for(int recordsStartIndex: recordsStartIndexes){
+            responseFutures.add(executorService.submit(() -> {
+                startLatch.await();
+                return retrievePage(apiOrgSession, recordsStartIndex);
+            }));
+        }
+        startLatch.countDown();
+        
+        ArrayList<APIv1EndpointResponseESD> endpointResponses = new ArrayList<>();
+        for(Future<APIv1EndpointResponseESD> responseFuture: responseFutures){
+            endpointResponses.add(responseFuture.get(APIv1StubTestRunner.WAIT_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS));
+        }
+        return endpointResponses;
+    }
+    
+    /**
+     * retrieves a page of pricing from the stand-in server
+     */
+    private static APIv1EndpointResponseESD retrievePage(APIv1OrgSession apiOrgSession, int recordsStartIndex)
+    {
+        return APIv1EndpointOrgRetrieveESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRICING, "stubSupplierOrg", "ACC1", RECORDS_MAX_AMOUNT, recordsStartIndex, "");
+    }
+    
+    /**
+     * checks that every response succeeded with a full page of records
+     */
+    private static boolean isEveryPageRetrieved(ArrayList<APIv1EndpointResponseESD> endpointResponses)
+    {
+        for(APIv1EndpointResponseESD endpointResponse: endpointResponses){
+            if(!APIv1StubServer.RESULT_CODE_SUCCESS.equals(endpointResponse.result_code) || endpointResponse.esDocument == null || APIv1ESDocumentRecords.getRecordsCount(endpointResponse.esDocument) != RECORDS_MAX_AMOUNT){
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import javafx.util.Pair;
+
+/**
+ * Transport used by tests that counts the requests sent through another transport to an endpoint
+ */
+public class APIv1RequestCountingTransport implements APIv1HTTPTransport
+{
+    private final APIv1HTTPTransport transport;
+    private final String endpointName;
+    private final AtomicLong requestCount = new AtomicLong(0);
+    
+    /**
+     * creates a transport
+     * @param transport transport to send requests through
+     * @param endpointName name of the endpoint to count requests of, such as retrieve_esd
+     */
+    public APIv1RequestCountingTransport(APIv1HTTPTransport transport, String endpointName)
+    {
+        this.transport = transport;
+        this.endpointName = endpointName;
+    }
+    
+    /**
+     * creates a transport counting the requests made by an API session, then assigns it to the session
+     * @param apiOrgSession API session to count requests of
+     * @param endpointName name of the endpoint to count requests of, such as retrieve_esd
+     * @return transport assigned to the session
+     */
+    public static APIv1RequestCountingTransport assignTo(APIv1OrgSession apiOrgSession, String endpointName)
+    {
+        APIv1RequestCountingTransport countingTransport = new APIv1RequestCountingTransport(apiOrgSession.getTransport(), endpointName);
+        apiOrgSession.setTransport(countingTransport);
+        return countingTransport;
+    }
+    
+    @Override
+    public APIv1HTTPTransportResponse send(String requestMethod, String requestURL, ArrayList<Pair<String, String>> requestHeaders, APIv1HTTPRequestBody requestBody, int timeoutMilliseconds) throws IOException
+    {
+        if(requestURL.contains(APIv1Constants.API_PATH_SLASH + endpointName + APIv1Constants.API_PATH_SLASH)){
+            requestCount.incrementAndGet();
+        }
+        return transport.send(requestMethod, requestURL, requestHeaders, requestBody, timeoutMilliseconds);
+    }
+    
+    /**
+     * gets the number of requests sent to the endpoint
+     * @return number of requests
+     */
+    public long getRequestCount()
+    {
+        return requestCount.get();
+    }
+}
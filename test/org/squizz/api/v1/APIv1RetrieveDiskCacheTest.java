@@ -0,0 +1,109 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.squizz.api.v1.cache.APIv1RetrieveDiskCache;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Tests caching documents retrieved from the platform on disk, against local stand-ins of the platform's API
+ */
+public class APIv1RetrieveDiskCacheTest
+{
+    private static final int RECORDS_MAX_AMOUNT = 5;
+    
+    /**
+     * tests that cached types of data are only retrieved once, including by a cache created again over the same directory, whilst data retrieved from another API or of types not cached is always retrieved
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testDiskCache(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Retrieve Disk Cache");
+        boolean testPassed = true;
+        
+        APIv1StubServer otherStubServer = null;
+        Path cacheDirectory = null;
+        try{
+            cacheDirectory = Files.createTempDirectory("squizz-api-retrieve-cache");
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgDiskCache");
+            apiOrgSession.setRetrieveCache(new APIv1RetrieveDiskCache(cacheDirectory));
+            APIv1RequestCountingTransport countingTransport = APIv1RequestCountingTransport.assignTo(apiOrgSession, APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD);
+            
+            //retrieve a slow moving type of data twice, which is cached by default
+            testPassed &= checkRetrieve(apiOrgSession, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_CATEGORIES, countingTransport, 1, "categories retrieved from the server");
+            testPassed &= checkRetrieve(apiOrgSession, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_CATEGORIES, countingTransport, 0, "categories retrieved again from the cache");
+            
+            //retrieve a type of data that is not cached by default twice
+            testPassed &= checkRetrieve(apiOrgSession, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, countingTransport, 1, "products retrieved from the server");
+            testPassed &= checkRetrieve(apiOrgSession, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, countingTransport, 1, "products retrieved again from the server");
+            
+            //create the cache again over the same directory, as if the application restarted
+            apiOrgSession.setRetrieveCache(new APIv1RetrieveDiskCache(cacheDirectory));
+            testPassed &= checkRetrieve(apiOrgSession, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_CATEGORIES, countingTransport, 0, "categories retrieved from the cache's directory after the cache was created again");
+            
+            //retrieve the same data for the same organisation from another API sharing the cache
+            otherStubServer = new APIv1StubServer(0);
+            otherStubServer.start();
+            APIv1OrgSession otherAPIOrgSession = APIv1StubTestRunner.createStubSession(otherStubServer, "stubOrgDiskCache");
+            otherAPIOrgSession.setRetrieveCache(apiOrgSession.getRetrieveCache());
+            APIv1RequestCountingTransport otherCountingTransport = APIv1RequestCountingTransport.assignTo(otherAPIOrgSession, APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD);
+            testPassed &= checkRetrieve(otherAPIOrgSession, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_CATEGORIES, otherCountingTransport, 1, "categories retrieved from another API instead of the data cached from the first API");
+            
+            //expire the cached categories
+            ((APIv1RetrieveDiskCache)apiOrgSession.getRetrieveCache()).setTimeToLive(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_CATEGORIES, 50);
+            Thread.sleep(100);
+            testPassed &= checkRetrieve(apiOrgSession, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_CATEGORIES, countingTransport, 1, "expired categories retrieved from the server");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            if(otherStubServer != null){
+                otherStubServer.stop();
+            }
+            deleteDirectory(cacheDirectory);
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * retrieves a page of records and checks that all of the page's records were returned, and how many requests were sent to the server
+     */
+    private static boolean checkRetrieve(APIv1OrgSession apiOrgSession, int retrieveTypeID, APIv1RequestCountingTransport countingTransport, long expectedRequests, String description)
+    {
+        long requestCount = countingTransport.getRequestCount();
+        APIv1EndpointResponseESD endpointResponse = APIv1EndpointOrgRetrieveESDocument.call(apiOrgSession, 20000, retrieveTypeID, "stubSupplierOrg", "", RECORDS_MAX_AMOUNT, 0, "");
+        boolean checkPassed = APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1StubServer.RESULT_CODE_SUCCESS, description);
+        return APIv1StubTestRunner.check(endpointResponse.esDocument != null && APIv1ESDocumentRecords.getRecordsCount(endpointResponse.esDocument) == RECORDS_MAX_AMOUNT && countingTransport.getRequestCount() - requestCount == expectedRequests, "page of records returned with " + expectedRequests + " request(s) sent to the server") && checkPassed;
+    }
+    
+    /**
+     * deletes a directory and all of the files within it, ignoring any errors
+     */
+    private static void deleteDirectory(Path directory)
+    {
+        if(directory == null){
+            return;
+        }
+        
+        try(Stream<Path> paths = Files.walk(directory)){
+            paths.sorted((Path path1, Path path2) -> path2.compareTo(path1)).forEach((Path path) -> {
+                try{
+                    Files.deleteIfExists(path);
+                }catch(Exception ex){
+                }
+            });
+        }catch(Exception ex){
+        }
+    }
+}
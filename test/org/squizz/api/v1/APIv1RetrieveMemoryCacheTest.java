@@ -0,0 +1,76 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import org.squizz.api.v1.cache.APIv1RetrieveMemoryCache;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Tests caching documents retrieved from the platform in memory, against a local stand-in of the platform's API
+ */
+public class APIv1RetrieveMemoryCacheTest
+{
+    private static final int RECORDS_MAX_AMOUNT = 5;
+    
+    /**
+     * tests that pricing retrieved for each customer account is cached, that the least recently used pages are evicted once the cache holds its maximum number of records, and that expired pages are retrieved again
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testMemoryCache(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Retrieve Memory Cache");
+        boolean testPassed = true;
+        
+        try{
+            //create a cache that holds up to two pages of records
+            APIv1RetrieveMemoryCache memoryCache = new APIv1RetrieveMemoryCache(RECORDS_MAX_AMOUNT * 2, 60000);
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgMemoryCache");
+            apiOrgSession.setRetrieveCache(memoryCache);
+            APIv1RequestCountingTransport countingTransport = APIv1RequestCountingTransport.assignTo(apiOrgSession, APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD);
+            
+            //retrieve pricing for two customer accounts, then retrieve both again
+            testPassed &= checkRetrieve(apiOrgSession, "ACC1", 0, countingTransport, 1, "first account's pricing retrieved from the server");
+            testPassed &= checkRetrieve(apiOrgSession, "ACC2", 0, countingTransport, 1, "second account's pricing retrieved from the server");
+            testPassed &= checkRetrieve(apiOrgSession, "ACC2", 0, countingTransport, 0, "second account's pricing retrieved from the cache");
+            testPassed &= checkRetrieve(apiOrgSession, "ACC1", 0, countingTransport, 0, "first account's pricing retrieved from the cache");
+            
+            //retrieve another page, which evicts the least recently used second account's pricing
+            testPassed &= checkRetrieve(apiOrgSession, "ACC1", RECORDS_MAX_AMOUNT, countingTransport, 1, "first account's second page of pricing retrieved from the server");
+            testPassed &= checkRetrieve(apiOrgSession, "ACC1", 0, countingTransport, 0, "first account's pricing kept in the cache");
+            testPassed &= checkRetrieve(apiOrgSession, "ACC2", 0, countingTransport, 1, "evicted second account's pricing retrieved from the server");
+            testPassed &= APIv1StubTestRunner.check(memoryCache.getEvictionCount() == 2 && memoryCache.size() == 2 && memoryCache.getTotalWeight() == RECORDS_MAX_AMOUNT * 2, "cache held within its maximum weight, evictions: " + memoryCache.getEvictionCount() + ", size: " + memoryCache.size() + ", weight: " + memoryCache.getTotalWeight());
+            testPassed &= APIv1StubTestRunner.check(memoryCache.getHitCount() == 3, "cache hits counted, hits: " + memoryCache.getHitCount());
+            
+            //cache pricing for a short time, then retrieve it once it has expired
+            memoryCache.setTimeToLive(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRICING, 50);
+            memoryCache.clear();
+            testPassed &= checkRetrieve(apiOrgSession, "ACC1", 0, countingTransport, 1, "pricing retrieved from the server after the cache was cleared");
+            Thread.sleep(100);
+            testPassed &= checkRetrieve(apiOrgSession, "ACC1", 0, countingTransport, 1, "expired pricing retrieved from the server");
+            testPassed &= APIv1StubTestRunner.check(memoryCache.getExpiredCount() == 1, "expired page counted");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * retrieves a page of pricing records for a customer account and checks that all of the page's records were returned, and how many requests were sent to the server
+     */
+    private static boolean checkRetrieve(APIv1OrgSession apiOrgSession, String customerAccountCode, int recordsStartIndex, APIv1RequestCountingTransport countingTransport, long expectedRequests, String description)
+    {
+        long requestCount = countingTransport.getRequestCount();
+        APIv1EndpointResponseESD endpointResponse = APIv1EndpointOrgRetrieveESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRICING, "stubSupplierOrg", customerAccountCode, RECORDS_MAX_AMOUNT, recordsStartIndex, "");
+        boolean checkPassed = APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1StubServer.RESULT_CODE_SUCCESS, description);
+        return APIv1StubTestRunner.check(endpointResponse.esDocument != null && APIv1ESDocumentRecords.getRecordsCount(endpointResponse.esDocument) == RECORDS_MAX_AMOUNT && countingTransport.getRequestCount() - requestCount == expectedRequests, "page of records returned with " + expectedRequests + " request(s) sent to the server") && checkPassed;
+    }
+}
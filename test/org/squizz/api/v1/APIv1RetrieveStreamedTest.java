@@ -0,0 +1,74 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.esd.EcommerceStandardsDocuments.ESDRecordProduct;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Tests retrieving records that are passed to a consumer as they are read from the response, against a local stand-in of the platform's API
+ */
+public class APIv1RetrieveStreamedTest
+{
+    private static final int MAX_ATTEMPTS = 3;
+    
+    /**
+     * tests that a streamed retrieval whose response fails is retried only if none of its records have been passed to the consumer,
+     * so that the consumer is never given the same records twice
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testNoRetryAfterRecordsConsumed(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Streamed Retrieval Retry");
+        boolean testPassed = true;
+        
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgRetrieveStreamed");
+            APIv1RetryPolicy retryPolicy = new APIv1RetryPolicy(MAX_ATTEMPTS, 1, 5);
+            retryPolicy.addRetryableResultCode(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_IO);
+            apiOrgSession.setRetryPolicy(retryPolicy);
+            
+            //retrieve all records from the stand-in server
+            ArrayList<ESDRecordProduct> productRecords = new ArrayList<>();
+            APIv1EndpointResponseESD endpointResponse = APIv1EndpointOrgRetrieveESDocument.callStreamed(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, "stubSupplierOrg", "", 5000, 0, "", ESDRecordProduct.class, productRecords::add);
+            testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1StubServer.RESULT_CODE_SUCCESS, "records retrieved");
+            testPassed &= APIv1StubTestRunner.check(productRecords.size() == APIv1StubServer.DEFAULT_RECORDS_AMOUNT, "all records passed to the consumer");
+            
+            //retrieve responses cut off before and after records have been read
+            String[][] truncatedResponses = new String[][]{
+                {"{\"resultStatus\":1,\"dataRecords\":[", "0", String.valueOf(MAX_ATTEMPTS)},
+                {"{\"resultStatus\":1,\"dataRecords\":[{\"keyProductID\":\"1\"},{\"keyProductID\":\"2\"},{\"keyProd", "2", "1"}
+            };
+            for(String[] truncatedResponse: truncatedResponses){
+                AtomicInteger attempts = new AtomicInteger(0);
+                apiOrgSession.setTransport((requestMethod, requestURL, requestHeaders, requestBody, timeoutMilliseconds) -> {
+                    attempts.incrementAndGet();
+                    return new APIv1HTTPTransportResponse(200, null, APIv1HTTPRequest.HTTP_HEADER_CONTENT_TYPE_JSON, new ByteArrayInputStream(truncatedResponse[0].getBytes(StandardCharsets.UTF_8)));
+                });
+                
+                productRecords.clear();
+                endpointResponse = APIv1EndpointOrgRetrieveESDocument.callStreamed(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, "stubSupplierOrg", "", 5000, 0, "", ESDRecordProduct.class, productRecords::add);
+                testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_IO, "truncated response failed after " + truncatedResponse[1] + " records");
+                testPassed &= APIv1StubTestRunner.check(productRecords.size() == Integer.parseInt(truncatedResponse[1]), truncatedResponse[1] + " records passed to the consumer once");
+                testPassed &= APIv1StubTestRunner.check(attempts.get() == Integer.parseInt(truncatedResponse[2]), "response failing after " + truncatedResponse[1] + " records sent " + truncatedResponse[2] + " times");
+            }
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+}
@@ -0,0 +1,201 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.ByteArrayInputStream;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.esd.EcommerceStandardsDocuments.ESDRecordOrderSale;
+import org.esd.EcommerceStandardsDocuments.ESDocumentConstants;
+import org.esd.EcommerceStandardsDocuments.ESDocumentOrderSale;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgImportESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgImportSalesOrder;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponse;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Tests retrying requests that fail with result codes that may succeed on another attempt, against a local stand-in of the platform's API
+ */
+public class APIv1RetryPolicyTest
+{
+    private static final int MAX_ATTEMPTS = 3;
+    
+    /**
+     * tests which results, endpoints and attempts a retry policy retries, and that its delays stay within their backoff limits
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testRetryDecisions(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Retry Policy Decisions");
+        boolean testPassed = true;
+        
+        try{
+            APIv1RetryPolicy retryPolicy = new APIv1RetryPolicy(MAX_ATTEMPTS, 100, 250);
+            testPassed &= APIv1StubTestRunner.check(retryPolicy.shouldRetry(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD, APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_BUSY, 1), "busy import retried");
+            testPassed &= APIv1StubTestRunner.check(!retryPolicy.shouldRetry(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD, APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_BUSY, MAX_ATTEMPTS), "busy import not retried once all attempts are made");
+            testPassed &= APIv1StubTestRunner.check(!retryPolicy.shouldRetry(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD, APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS, APIv1StubServer.RESULT_CODE_SUCCESS, 1), "successful import not retried");
+            testPassed &= APIv1StubTestRunner.check(!retryPolicy.shouldRetry(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD, APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_SESSION_INVALID, 1), "fatal result code not retried");
+            testPassed &= APIv1StubTestRunner.check(!retryPolicy.shouldRetry(APIv1Constants.API_ORG_ENDPOINT_IMPORT_SALES_ORDER_ESD, APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_CONNECTION, 1), "sales order import not retried");
+            testPassed &= APIv1StubTestRunner.check(APIv1RetryPolicy.isRetryableEndpoint(APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD + APIv1Constants.API_PATH_SLASH + "sessionID"), "endpoint followed by a session ID retryable");
+            
+            retryPolicy.addRetryableResultCode(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_IO);
+            testPassed &= APIv1StubTestRunner.check(retryPolicy.shouldRetry(APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD, APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_IO, 1), "added result code retried");
+            retryPolicy.removeRetryableResultCode(APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_BUSY);
+            testPassed &= APIv1StubTestRunner.check(!retryPolicy.shouldRetry(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD, APIv1EndpointResponse.ENDPOINT_RESULT_FAILURE, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_BUSY, 1), "removed result code not retried");
+            
+            //check that the delays of each attempt stay within their doubling limit, capped at the maximum delay
+            boolean delaysWithinLimits = true;
+            for(int i=0; i < 1000; i++){
+                delaysWithinLimits &= retryPolicy.getRetryDelayMilliseconds(1) <= 100;
+                delaysWithinLimits &= retryPolicy.getRetryDelayMilliseconds(2) <= 200;
+                delaysWithinLimits &= retryPolicy.getRetryDelayMilliseconds(3) <= 250;
+                delaysWithinLimits &= retryPolicy.getRetryDelayMilliseconds(100) <= 250 && retryPolicy.getRetryDelayMilliseconds(100) >= 0;
+            }
+            testPassed &= APIv1StubTestRunner.check(delaysWithinLimits, "retry delays within their backoff limits");
+            testPassed &= APIv1StubTestRunner.check(new APIv1RetryPolicy(MAX_ATTEMPTS, 0, 0).getRetryDelayMilliseconds(MAX_ATTEMPTS) == 0, "no delay without a base delay");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * tests that imports are retried while the platform's data imports are busy, except for imports of streams that cannot be sent again
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testRetryBusyImport(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Retry Busy Import");
+        boolean testPassed = true;
+        
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgRetryBusyImport");
+            apiOrgSession.setRetryPolicy(new APIv1RetryPolicy(MAX_ATTEMPTS, 1, 5));
+            String esDocumentJSON = "{\"dataRecords\":[{\"keyProductID\":\"1\",\"productCode\":\"P1\"}]}";
+            Path esDocumentFile = APIv1ImportStreamTest.createDocumentFile(esDocumentJSON);
+            
+            //import while every import is busy, which is sent the maximum number of times
+            stubServer.setImportBusyRate(1);
+            long requestCount = stubServer.getRequestCount(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD);
+            APIv1EndpointResponseESD endpointResponse = APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, APIv1CompressionTest.createProductDocument(10));
+            testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_BUSY, "busy document import failed");
+            testPassed &= APIv1StubTestRunner.check(stubServer.getRequestCount(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD) - requestCount == MAX_ATTEMPTS, "busy document import sent the maximum number of times");
+            
+            //import a file, which can be sent again, and a stream, which cannot
+            requestCount = stubServer.getRequestCount(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD);
+            endpointResponse = APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, esDocumentFile, true);
+            testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_BUSY, "busy file import failed");
+            testPassed &= APIv1StubTestRunner.check(stubServer.getRequestCount(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD) - requestCount == MAX_ATTEMPTS, "busy file import sent the maximum number of times");
+            
+            requestCount = stubServer.getRequestCount(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD);
+            endpointResponse = APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, new ByteArrayInputStream(esDocumentJSON.getBytes(StandardCharsets.UTF_8)), true);
+            testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_DATA_IMPORT_BUSY, "busy stream import failed");
+            testPassed &= APIv1StubTestRunner.check(stubServer.getRequestCount(APIv1Constants.API_ORG_ENDPOINT_IMPORT_ESD) - requestCount == 1, "busy stream import sent once");
+            
+            //import while only some imports are busy, which succeed once an attempt is not busy
+            stubServer.setImportBusyRate(0.5);
+            apiOrgSession.setRetryPolicy(new APIv1RetryPolicy(30, 1, 5));
+            for(int i=0; i < 5; i++){
+                long importedRecordsCount = stubServer.getImportedRecordsCount();
+                endpointResponse = APIv1EndpointOrgImportESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, APIv1CompressionTest.createProductDocument(10));
+                testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1StubServer.RESULT_CODE_SUCCESS, "partly busy document import " + i + " retried until imported");
+                testPassed &= APIv1StubTestRunner.check(stubServer.getImportedRecordsCount() - importedRecordsCount == 10, "partly busy document import " + i + " imported once");
+            }
+            Files.delete(esDocumentFile);
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            stubServer.setImportBusyRate(0);
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * tests that requests to endpoints that may not be safely sent more than once are never retried, while requests to other endpoints failing the same way are
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testNoRetryNonIdempotent(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "No Retry Of Non-Idempotent Endpoints");
+        boolean testPassed = true;
+        
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgRetryNonIdempotent");
+            apiOrgSession.setRetryPolicy(new APIv1RetryPolicy(MAX_ATTEMPTS, 1, 5));
+            
+            //fail every request as if the platform could not be connected to, which may happen after the platform has already received the request
+            APIv1HTTPTransport failingTransport = (requestMethod, requestURL, requestHeaders, requestBody, timeoutMilliseconds) -> {
+                throw new ConnectException("stand-in connection failure");
+            };
+            
+            APIv1RequestCountingTransport salesOrderTransport = new APIv1RequestCountingTransport(failingTransport, APIv1Constants.API_ORG_ENDPOINT_IMPORT_SALES_ORDER_ESD);
+            apiOrgSession.setTransport(salesOrderTransport);
+            ESDocumentOrderSale esDocumentOrderSale = new ESDocumentOrderSale(ESDocumentConstants.RESULT_SUCCESS, "successfully obtained data", new ESDRecordOrderSale[]{new ESDRecordOrderSale()}, new HashMap<String, String>());
+            APIv1EndpointResponseESD endpointResponse = APIv1EndpointOrgImportSalesOrder.call(apiOrgSession, 20000, esDocumentOrderSale, false);
+            testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_CONNECTION, "sales order import failed to connect");
+            testPassed &= APIv1StubTestRunner.check(salesOrderTransport.getRequestCount() == 1, "sales order import sent once");
+            
+            APIv1RequestCountingTransport retrieveTransport = new APIv1RequestCountingTransport(failingTransport, APIv1Constants.API_ORG_ENDPOINT_RETRIEVE_ESD);
+            apiOrgSession.setTransport(retrieveTransport);
+            endpointResponse = APIv1EndpointOrgRetrieveESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, "stubSupplierOrg", "");
+            testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_CONNECTION, "retrieval failed to connect");
+            testPassed &= APIv1StubTestRunner.check(retrieveTransport.getRequestCount() == MAX_ATTEMPTS, "retrieval sent the maximum number of times");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * tests that the result code of a failed attempt is not reported for a retried attempt that returns no result code of its own
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testRetryResetsResultCode(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Retry Resets Result Code");
+        boolean testPassed = true;
+        
+        try{
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgRetryResultCode");
+            apiOrgSession.setRetryPolicy(new APIv1RetryPolicy(MAX_ATTEMPTS, 1, 5));
+            
+            //fail the first attempt to connect, then return a document that has no result code
+            AtomicInteger attempts = new AtomicInteger(0);
+            apiOrgSession.setTransport((requestMethod, requestURL, requestHeaders, requestBody, timeoutMilliseconds) -> {
+                if(attempts.incrementAndGet() == 1){
+                    throw new ConnectException("stand-in connection failure");
+                }
+                return new APIv1HTTPTransportResponse(200, null, APIv1HTTPRequest.HTTP_HEADER_CONTENT_TYPE_JSON, new ByteArrayInputStream("{\"resultStatus\":1}".getBytes(StandardCharsets.UTF_8)));
+            });
+            
+            APIv1EndpointResponseESD endpointResponse = APIv1EndpointOrgRetrieveESDocument.call(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, "stubSupplierOrg", "");
+            testPassed &= APIv1StubTestRunner.check(attempts.get() == 2, "retrieval retried once");
+            testPassed &= APIv1StubTestRunner.checkResultCode(endpointResponse, APIv1EndpointResponse.ENDPOINT_RESULT_CODE_ERROR_UNKNOWN, "connection failure of the first attempt not reported");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+}
@@ -0,0 +1,138 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.esd.EcommerceStandardsDocuments.ESDRecordStockQuantity;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.stub.APIv1StubServer;
+import org.squizz.api.v1.sync.APIv1StockChangeListener;
+import org.squizz.api.v1.sync.APIv1StockPoller;
+
+/**
+ * Tests polling the stock quantities of a supplier organisation against a local stand-in of the platform's API
+ */
+public class APIv1StockPollerTest
+{
+    private static final long MIN_POLL_INTERVAL_MILLISECONDS = 50;
+    
+    /**
+     * tests that a listener throwing an exception neither stops other listeners from being notified of changed stock quantities, nor causes the changes to be notified again in later polls
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testFailingListener(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Poll Stock With Failing Listener");
+        boolean testPassed = true;
+        
+        final int recordsAmount = 20;
+        final int recordsAdded = 5;
+        final AtomicInteger changesNotified = new AtomicInteger(0);
+        final AtomicInteger failuresNotified = new AtomicInteger(0);
+        APIv1StockPoller stockPoller = null;
+        
+        try{
+            stubServer.setRecordsAmount(recordsAmount);
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgStockPoller");
+            final APIv1StockPoller poller = new APIv1StockPoller(apiOrgSession, 20000, MIN_POLL_INTERVAL_MILLISECONDS, MIN_POLL_INTERVAL_MILLISECONDS * 4, 1);
+            stockPoller = poller;
+            
+            //add a listener that always fails, then a listener that counts the changes and failures it is notified of
+            stockPoller.addStockChangeListener((String supplierOrgID, String customerAccountCode, ESDRecordStockQuantity previousStockQuantityRecord, ESDRecordStockQuantity stockQuantityRecord) -> {
+                throw new IllegalStateException("listener failed");
+            });
+            stockPoller.addStockChangeListener(new APIv1StockChangeListener(){
+                @Override
+                public void stockQuantityChanged(String supplierOrgID, String customerAccountCode, ESDRecordStockQuantity previousStockQuantityRecord, ESDRecordStockQuantity stockQuantityRecord){
+                    changesNotified.incrementAndGet();
+                }
+                
+                @Override
+                public void stockPollFailed(String supplierOrgID, String customerAccountCode, APIv1EndpointResponseESD response, RuntimeException exception){
+                    failuresNotified.incrementAndGet();
+                }
+            });
+            
+            //wait for the first poll to record the stock quantities, which lengthens the polling interval
+            stockPoller.addSupplier("stubSupplierOrg", "");
+            testPassed &= APIv1StubTestRunner.check(APIv1StubTestRunner.waitUntil(() -> poller.getPollIntervalMilliseconds("stubSupplierOrg", "") > MIN_POLL_INTERVAL_MILLISECONDS), "first poll finished");
+            testPassed &= APIv1StubTestRunner.check(changesNotified.get() == 0, "first poll notified no changes");
+            
+            //make new stock quantities available, then wait for them to be notified
+            stubServer.setRecordsAmount(recordsAmount + recordsAdded);
+            testPassed &= APIv1StubTestRunner.check(APIv1StubTestRunner.waitUntil(() -> changesNotified.get() >= recordsAdded), "second listener notified of the new stock quantities although the first listener failed");
+            testPassed &= APIv1StubTestRunner.check(failuresNotified.get() == recordsAdded, "failure of the first listener notified for each change");
+            
+            //wait for several more polls, checking that the changes are not notified again
+            Thread.sleep(MIN_POLL_INTERVAL_MILLISECONDS * 4 * 3);
+            testPassed &= APIv1StubTestRunner.check(changesNotified.get() == recordsAdded, "changes notified only once, notified: " + changesNotified.get());
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            if(stockPoller != null){
+                stockPoller.shutdown();
+            }
+            stubServer.setRecordsAmount(APIv1StubServer.DEFAULT_RECORDS_AMOUNT);
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * tests that the polling interval lengthens from the shortest possible interval, and that stock quantities no longer returned are notified as removed
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testRemovedStock(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Poll Removed Stock");
+        boolean testPassed = true;
+        
+        final int recordsAmount = 20;
+        final int recordsRemoved = 5;
+        final AtomicInteger removalsNotified = new AtomicInteger(0);
+        final AtomicInteger otherChangesNotified = new AtomicInteger(0);
+        APIv1StockPoller stockPoller = null;
+        
+        try{
+            stubServer.setRecordsAmount(recordsAmount);
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgStockPollerRemoved");
+            final APIv1StockPoller poller = new APIv1StockPoller(apiOrgSession, 20000, 1, MIN_POLL_INTERVAL_MILLISECONDS, 1);
+            stockPoller = poller;
+            stockPoller.addStockChangeListener((String supplierOrgID, String customerAccountCode, ESDRecordStockQuantity previousStockQuantityRecord, ESDRecordStockQuantity stockQuantityRecord) -> {
+                if(previousStockQuantityRecord != null && stockQuantityRecord == null){
+                    removalsNotified.incrementAndGet();
+                }else{
+                    otherChangesNotified.incrementAndGet();
+                }
+            });
+            
+            //wait for the polling interval to lengthen from a single millisecond
+            stockPoller.addSupplier("stubSupplierOrg", "");
+            testPassed &= APIv1StubTestRunner.check(APIv1StubTestRunner.waitUntil(() -> poller.getPollIntervalMilliseconds("stubSupplierOrg", "") >= MIN_POLL_INTERVAL_MILLISECONDS), "polling interval lengthened to the maximum interval");
+            
+            //stop returning some of the stock quantities, then wait for them to be notified as removed
+            stubServer.setRecordsAmount(recordsAmount - recordsRemoved);
+            testPassed &= APIv1StubTestRunner.check(APIv1StubTestRunner.waitUntil(() -> removalsNotified.get() >= recordsRemoved), "removed stock quantities notified");
+            
+            Thread.sleep(MIN_POLL_INTERVAL_MILLISECONDS * 3);
+            testPassed &= APIv1StubTestRunner.check(removalsNotified.get() == recordsRemoved && otherChangesNotified.get() == 0, "only the removals notified, once each");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            if(stockPoller != null){
+                stockPoller.shutdown();
+            }
+            stubServer.setRecordsAmount(APIv1StubServer.DEFAULT_RECORDS_AMOUNT);
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+}
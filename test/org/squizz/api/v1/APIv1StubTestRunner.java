@@ -0,0 +1,190 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Entry point to run the tests of the library that call a local stand-in of the SQUIZZ.com platform's API, which need no organisation API credentials or network access.
+ * Each test checks the behaviour of the library against the stand-in server, printing the result of each check. The runner exits with a status of 1 if any test fails
+ */
+public class APIv1StubTestRunner
+{
+    /**
+     * longest amount of milliseconds that tests wait for a condition to be met
+     */
+    public static final long WAIT_TIMEOUT_MILLISECONDS = 10000;
+    
+    public static void main(String[] args) throws Exception
+    {
+        int testNumber = 1;
+        int testsFailed = 0;
+        
+        System.out.println(APIv1OrgTestRunner.CONSOLE_LINE);
+        System.out.println("Testing SQUIZZ.com API Java Library: version 1, against a local stand-in API server");
+        System.out.println(APIv1OrgTestRunner.CONSOLE_LINE);
+        
+        //send the stand-in server's responses without delay, then start it
+        APIv1StubServer.enableNoDelay();
+        APIv1StubServer stubServer = new APIv1StubServer(0);
+        stubServer.start();
+        try{
+            //test importing ESD JSON files and streams
+            testsFailed += (APIv1ImportStreamTest.testImportValidFile(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1ImportStreamTest.testImportInvalidFile(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1ImportStreamTest.testImportCompressionSettings(testNumber++, stubServer)? 0: 1);
+            
+            //test compressing documents sent in requests
+            testsFailed += (APIv1CompressionTest.testUncompressedThreshold(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1CompressionTest.testStreamedAboveThreshold(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1ESDocumentRequestBodyTest.testParallelMembers(testNumber++, stubServer)? 0: 1);
+            
+            //test retrying failed requests
+            testsFailed += (APIv1RetryPolicyTest.testRetryDecisions(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1RetryPolicyTest.testRetryBusyImport(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1RetryPolicyTest.testNoRetryNonIdempotent(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1RetryPolicyTest.testRetryResetsResultCode(testNumber++, stubServer)? 0: 1);
+            
+            //test retrieving records passed to a consumer as they are read
+            testsFailed += (APIv1RetrieveStreamedTest.testNoRetryAfterRecordsConsumed(testNumber++, stubServer)? 0: 1);
+            
+            //test iterating retrieved records
+            testsFailed += (APIv1ESDocumentRecordIteratorTest.testPaging(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1ESDocumentRecordIteratorTest.testFailedPage(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1ESDocumentPagePrefetcherTest.testPageOrder(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1ESDocumentPagePrefetcherTest.testEarlyClose(testNumber++, stubServer)? 0: 1);
+            
+            //test skipping the import of unchanged documents
+            testsFailed += (APIv1ImportHashStoreTest.testSkipUnchangedImport(testNumber++, stubServer)? 0: 1);
+            
+            //test scheduling imports
+            testsFailed += (APIv1ImportSchedulerTest.testPriority(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1ImportSchedulerTest.testOrgConcurrencyLimit(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1ImportSchedulerTest.testBusyRequeue(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1ImportSchedulerTest.testShutdown(testNumber++, stubServer)? 0: 1);
+            
+            //test caching retrieved documents
+            testsFailed += (APIv1RetrieveDiskCacheTest.testDiskCache(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1RetrieveMemoryCacheTest.testMemoryCache(testNumber++, stubServer)? 0: 1);
+            
+            //test coalescing identical requests
+            testsFailed += (APIv1RequestCoalescerTest.testCoalesceRequests(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1RequestCoalescerTest.testErrorReleasesCallers(testNumber++, stubServer)? 0: 1);
+            
+            //test writing and reading catalogue snapshots
+            testsFailed += (APIv1CatalogueSnapshotTest.testSnapshotRoundTrip(testNumber++, stubServer)? 0: 1);
+            
+            //test synchronising records
+            testsFailed += (APIv1SyncEngineTest.testSyncChanges(testNumber++, stubServer)? 0: 1);
+            
+            //test polling stock quantities
+            testsFailed += (APIv1StockPollerTest.testFailingListener(testNumber++, stubServer)? 0: 1);
+            testsFailed += (APIv1StockPollerTest.testRemovedStock(testNumber++, stubServer)? 0: 1);
+        }finally{
+            stubServer.stop();
+        }
+        
+        System.out.println(APIv1OrgTestRunner.CONSOLE_LINE);
+        System.out.println("All Testing Finished - " + (testsFailed == 0? "all tests passed": testsFailed + " test(s) failed"));
+        System.exit(testsFailed == 0? 0: 1);
+    }
+    
+    /**
+     * creates an organisation API session that calls the stand-in server
+     * @param stubServer stand-in API server that has been started
+     * @param orgID ID of the organisation to create the session for
+     * @return session that has been created within the stand-in server
+     */
+    public static APIv1OrgSession createStubSession(APIv1StubServer stubServer, String orgID)
+    {
+        APIv1OrgSession apiOrgSession = new APIv1OrgSession(orgID, "stubKey", "stubPassword", 20000, APIv1Constants.SUPPORTED_LOCALES_EN_AU);
+        apiOrgSession.setAPIOrgURL(stubServer.getAPIOrgURL());
+        apiOrgSession.createOrgSession();
+        return apiOrgSession;
+    }
+    
+    /**
+     * prints the heading of a test
+     * @param testNumber number of the test being performed
+     * @param testName name of the test
+     */
+    public static void printTestStart(int testNumber, String testName)
+    {
+        System.out.println(APIv1OrgTestRunner.CONSOLE_LINE);
+        System.out.println("Test "+testNumber+" - "+testName);
+        System.out.println(APIv1OrgTestRunner.CONSOLE_LINE);
+    }
+    
+    /**
+     * prints the result of a test
+     * @param testNumber number of the test being performed
+     * @param testPassed true if all of the test's checks passed
+     * @return whether the test passed
+     */
+    public static boolean printTestFinish(int testNumber, boolean testPassed)
+    {
+        System.out.println("Test "+testNumber+" - Finished: " + (testPassed? "PASSED": "FAILED"));
+        return testPassed;
+    }
+    
+    /**
+     * prints the result of a check made by a test
+     * @param checkPassed true if the check passed
+     * @param description description of what was checked
+     * @return whether the check passed
+     */
+    public static boolean check(boolean checkPassed, String description)
+    {
+        System.out.println((checkPassed? "SUCCESS - ": "FAIL - ") + description);
+        return checkPassed;
+    }
+    
+    /**
+     * prints the result of a check that an endpoint was called with an expected result code
+     * @param endpointResponse response from calling the endpoint
+     * @param expectedResultCode result code the endpoint is expected to return
+     * @param description description of what was checked
+     * @return whether the check passed
+     */
+    public static boolean checkResultCode(APIv1EndpointResponseESD endpointResponse, String expectedResultCode, String description)
+    {
+        boolean checkPassed = check(expectedResultCode.equals(endpointResponse.result_code), description);
+        if(!checkPassed){
+            System.out.println("Endpoint Result: " + endpointResponse.result);
+            System.out.println("Endpoint Result Code: " + endpointResponse.result_code);
+            System.out.println("Endpoint Result Message: " + endpointResponse.result_message);
+        }
+        return checkPassed;
+    }
+    
+    /**
+     * condition waited on by a test
+     */
+    public interface Condition
+    {
+        public boolean isMet();
+    }
+    
+    /**
+     * waits for a condition to be met, checking it every few milliseconds
+     * @param condition condition to wait for
+     * @return true if the condition was met, false if it was not met before the wait timed out
+     * @throws InterruptedException if the thread was interrupted whilst waiting
+     */
+    public static boolean waitUntil(Condition condition) throws InterruptedException
+    {
+        long waitEndTime = System.currentTimeMillis() + WAIT_TIMEOUT_MILLISECONDS;
+        while(!condition.isMet()){
+            if(System.currentTimeMillis() > waitEndTime){
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
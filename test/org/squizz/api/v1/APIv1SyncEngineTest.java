@@ -0,0 +1,161 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import javafx.util.Pair;
+import org.esd.EcommerceStandardsDocuments.ESDRecordProduct;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+import org.squizz.api.v1.stub.APIv1StubServer;
+import org.squizz.api.v1.sync.APIv1SyncEngine;
+import org.squizz.api.v1.sync.APIv1SyncListener;
+import org.squizz.api.v1.sync.APIv1SyncResult;
+
+/**
+ * Tests synchronising records retrieved from a supplier organisation against a local stand-in of the platform's API
+ */
+public class APIv1SyncEngineTest
+{
+    private static final int PAGE_SIZE = 10;
+    
+    /**
+     * listener that counts the changes it is given
+     */
+    private static class CountingSyncListener implements APIv1SyncListener<ESDRecordProduct>
+    {
+        private final AtomicLong recordsAdded = new AtomicLong(0);
+        private final AtomicLong recordsChanged = new AtomicLong(0);
+        private final AtomicLong recordsRemoved = new AtomicLong(0);
+        
+        @Override
+        public void recordAdded(String key, ESDRecordProduct record){
+            recordsAdded.incrementAndGet();
+        }
+        
+        @Override
+        public void recordChanged(String key, ESDRecordProduct record){
+            recordsChanged.incrementAndGet();
+        }
+        
+        @Override
+        public void recordRemoved(String key){
+            recordsRemoved.incrementAndGet();
+        }
+    }
+    
+    /**
+     * transport that fails requests to retrieve pages of records past a set index, simulating the connection to the platform being lost part way through a synchronisation
+     */
+    private static class PageFailingTransport implements APIv1HTTPTransport
+    {
+        private final APIv1HTTPTransport transport;
+        private volatile int failFromRecordIndex = -1;
+        
+        public PageFailingTransport(APIv1HTTPTransport transport)
+        {
+            this.transport = transport;
+        }
+        
+        @Override
+        public APIv1HTTPTransportResponse send(String requestMethod, String requestURL, ArrayList<Pair<String, String>> requestHeaders, APIv1HTTPRequestBody requestBody, int timeoutMilliseconds) throws IOException
+        {
+            int startIndexPosition = requestURL.indexOf("records_start_index=");
+            if(failFromRecordIndex >= 0 && startIndexPosition >= 0){
+                String startIndex = requestURL.substring(startIndexPosition + "records_start_index=".length()).split("&")[0];
+                if(Integer.parseInt(startIndex) >= failFromRecordIndex){
+                    throw new IOException("connection lost");
+                }
+            }
+            return transport.send(requestMethod, requestURL, requestHeaders, requestBody, timeoutMilliseconds);
+        }
+    }
+    
+    /**
+     * tests that records added and removed between synchronisations are reported, that a synchronisation failing part way never reports records as removed, and that the snapshot is kept between engines
+     * @param testNumber number of the test being performed
+     * @param stubServer stand-in API server that has been started
+     * @return true if the test passed
+     */
+    public static boolean testSyncChanges(int testNumber, APIv1StubServer stubServer)
+    {
+        APIv1StubTestRunner.printTestStart(testNumber, "Synchronise Records");
+        boolean testPassed = true;
+        
+        Path snapshotFile = null;
+        try{
+            snapshotFile = Files.createTempFile("squizz-api-sync-snapshot", ".bin");
+            Files.delete(snapshotFile);
+            APIv1OrgSession apiOrgSession = APIv1StubTestRunner.createStubSession(stubServer, "stubOrgSync");
+            PageFailingTransport failingTransport = new PageFailingTransport(apiOrgSession.getTransport());
+            apiOrgSession.setTransport(failingTransport);
+            
+            //synchronise all records, then synchronise again with no changes
+            stubServer.setRecordsAmount(25);
+            APIv1SyncEngine<ESDRecordProduct> syncEngine = createSyncEngine(apiOrgSession, snapshotFile);
+            testPassed &= checkSync(syncEngine, true, 25, 0, 0, "first synchronisation added all records");
+            testPassed &= checkSync(syncEngine, true, 0, 25, 0, "synchronisation without changes");
+            
+            //remove records from the server
+            stubServer.setRecordsAmount(20);
+            testPassed &= checkSync(syncEngine, true, 0, 20, 5, "synchronisation removed the records no longer retrieved");
+            
+            //remove more records, failing the synchronisation after its first page
+            stubServer.setRecordsAmount(15);
+            failingTransport.failFromRecordIndex = PAGE_SIZE;
+            testPassed &= checkSync(syncEngine, false, 0, PAGE_SIZE, 0, "failed synchronisation removed no records");
+            testPassed &= APIv1StubTestRunner.check(syncEngine.getSnapshot().size() == 20, "snapshot kept the records not retrieved");
+            
+            //synchronise with a new engine that loads the snapshot from its file
+            failingTransport.failFromRecordIndex = -1;
+            testPassed &= checkSync(createSyncEngine(apiOrgSession, snapshotFile), true, 0, 15, 5, "synchronisation with the saved snapshot removed the records no longer retrieved");
+        }catch(Exception ex){
+            testPassed = APIv1StubTestRunner.check(false, "An error occurred when performing the test. Error: " + ex.getLocalizedMessage());
+        }finally{
+            stubServer.setRecordsAmount(APIv1StubServer.DEFAULT_RECORDS_AMOUNT);
+            try{
+                if(snapshotFile != null){
+                    Files.deleteIfExists(snapshotFile);
+                }
+            }catch(Exception ex){
+            }
+        }
+        
+        return APIv1StubTestRunner.printTestFinish(testNumber, testPassed);
+    }
+    
+    /**
+     * creates an engine that synchronises products in pages
+     */
+    private static APIv1SyncEngine<ESDRecordProduct> createSyncEngine(APIv1OrgSession apiOrgSession, Path snapshotFile)
+    {
+        APIv1SyncEngine<ESDRecordProduct> syncEngine = new APIv1SyncEngine<>(apiOrgSession, 20000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, "stubSupplierOrg", "", ESDRecordProduct.class, snapshotFile);
+        syncEngine.setPageSize(PAGE_SIZE);
+        return syncEngine;
+    }
+    
+    /**
+     * runs a synchronisation and checks the changes that were found, both in its result and given to its listener
+     */
+    private static boolean checkSync(APIv1SyncEngine<ESDRecordProduct> syncEngine, boolean expectedSuccessful, long expectedAdded, long expectedUnchanged, long expectedRemoved, String description)
+    {
+        CountingSyncListener syncListener = new CountingSyncListener();
+        APIv1SyncResult syncResult = syncEngine.run(syncListener);
+        
+        boolean checkPassed = 
+            syncResult.isSuccessful() == expectedSuccessful &&
+            syncResult.getRecordsAdded() == expectedAdded && syncListener.recordsAdded.get() == expectedAdded &&
+            syncResult.getRecordsChanged() == 0 && syncListener.recordsChanged.get() == 0 &&
+            syncResult.getRecordsUnchanged() == expectedUnchanged &&
+            syncResult.getRecordsRemoved() == expectedRemoved && syncListener.recordsRemoved.get() == expectedRemoved;
+        
+        return APIv1StubTestRunner.check(checkPassed, description + ", successful: " + syncResult.isSuccessful() + ", added: " + syncResult.getRecordsAdded() + ", changed: " + syncResult.getRecordsChanged() + ", unchanged: " + syncResult.getRecordsUnchanged() + ", removed: " + syncResult.getRecordsRemoved());
+    }
+}
@@ -0,0 +1,258 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.esd.EcommerceStandardsDocuments.*;
+import org.squizz.api.v1.APIv1JSONMapper;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgImportSalesOrder;
+import org.squizz.api.v1.endpoint.APIv1EndpointOrgRetrieveESDocument;
+import org.squizz.api.v1.endpoint.APIv1EndpointResponseESD;
+import org.squizz.api.v1.stub.APIv1StubServer;
+
+/**
+ * Measures the throughput and memory allocation of serializing, compressing, decompressing and parsing Ecommerce Standards Documents in the same way that the library does when calling the platform's API.
+ * Each benchmark is run repeatedly on a single thread for a warm up period, then measured for a set period, reporting the operations completed per second, the average time of each operation,
+ * and the number of bytes allocated on the heap by each operation (read from the JVM's per thread allocation counter). Compare results between builds to catch performance regressions.
+ * Arguments: [(optional)benchmark name filter] [(optional)seconds to measure each benchmark, default 3] [(optional)seconds to warm up each benchmark, default 2]
+ */
+public class APIv1BenchmarkRunner
+{
+    /**
+     * an operation being measured
+     */
+    private interface BenchmarkOperation
+    {
+        /**
+         * runs the operation once
+         * @return a value computed by the operation, which is consumed to stop the JIT compiler removing the operation's work
+         * @throws Exception if the operation failed
+         */
+        public long run() throws Exception;
+    }
+    
+    /**
+     * stream that discards the bytes written to it, counting them
+     */
+    private static class CountingOutputStream extends OutputStream
+    {
+        public long bytesWritten = 0;
+        
+        @Override
+        public void write(int b){
+            bytesWritten++;
+        }
+        
+        @Override
+        public void write(byte[] bytes, int offset, int length){
+            bytesWritten += length;
+        }
+    }
+    
+    private static final int[] DOCUMENT_RECORD_AMOUNTS = new int[]{100, 5000, 100000};
+    private static final String RESULT_FORMAT = "%-44s %14s %14s %16s%n";
+    
+    private static com.sun.management.ThreadMXBean threadMXBean;
+    private static String benchmarkFilter = "";
+    private static long measureNanoseconds;
+    private static long warmUpNanoseconds;
+    private static long consumedValues = 0;
+    
+    public static void main(String[] args) throws Exception
+    {
+        benchmarkFilter = (args.length > 0? args[0]: "");
+        measureNanoseconds = (long)((args.length > 1? Double.parseDouble(args[1]): 3) * 1e9);
+        warmUpNanoseconds = (long)((args.length > 2? Double.parseDouble(args[2]): 2) * 1e9);
+        
+        //enable measuring the memory allocated by the benchmarking thread
+        threadMXBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        
+        System.out.printf(RESULT_FORMAT, "Benchmark", "ops/s", "ms/op", "bytes/op");
+        
+        //serialize documents into gzip compressed JSON, in the same way that documents are sent in the body of requests
+        for(int recordsAmount: DOCUMENT_RECORD_AMOUNTS){
+            final ESDocumentProduct esDocumentProduct = createProductDocument(recordsAmount);
+            final ObjectWriter productWriter = APIv1JSONMapper.getWriter(ESDocumentProduct.class);
+            runBenchmark("serialize.gzip.product." + recordsAmount, () -> serializeCompressed(productWriter, esDocumentProduct));
+        }
+        for(int ordersAmount: new int[]{1, 100}){
+            final ESDocumentOrderSale esDocumentOrderSale = createOrderSaleDocument(ordersAmount, 50);
+            final ObjectWriter orderSaleWriter = APIv1JSONMapper.getWriter(ESDocumentOrderSale.class);
+            runBenchmark("serialize.gzip.ordersale." + ordersAmount + "x50lines", () -> serializeCompressed(orderSaleWriter, esDocumentOrderSale));
+        }
+        
+        //decompress and deserialize documents, in the same way that documents returned in responses are read
+        for(int recordsAmount: DOCUMENT_RECORD_AMOUNTS){
+            final byte[] compressedDocument = toCompressedJSON(APIv1JSONMapper.getWriter(ESDocumentProduct.class), createProductDocument(recordsAmount));
+            final ObjectReader productReader = APIv1JSONMapper.getReader(ESDocumentProduct.class);
+            runBenchmark("deserialize.gunzip.product." + recordsAmount, () -> {
+                ESDocumentProduct esDocumentProduct = productReader.readValue(new GZIPInputStream(new ByteArrayInputStream(compressedDocument), 8192));
+                return esDocumentProduct.dataRecords.length;
+            });
+        }
+        
+        //parse the order line indexes returned in the configs of documents from importing sales orders
+        final ESDocument esDocumentOrdersReturned = createOrderResultDocument(100, 50);
+        runBenchmark("config.parse.orderlines.100x50", () -> {
+            return APIv1EndpointOrgImportSalesOrder.getUnmatchedOrderLines(esDocumentOrdersReturned).size() + 
+                APIv1EndpointOrgImportSalesOrder.getUnpricedOrderLines(esDocumentOrdersReturned).size();
+        });
+        
+        System.out.println("(consumed " + consumedValues + ")");
+    }
+    
+    /**
+     * runs a benchmark if its name matches the filter, then outputs its results
+     * @param name name of the benchmark
+     * @param operation operation to measure
+     * @throws Exception if the operation failed
+     */
+    private static void runBenchmark(String name, BenchmarkOperation operation) throws Exception
+    {
+        if(!name.contains(benchmarkFilter)){
+            return;
+        }
+        
+        //run the operation until the JIT compiler has optimised it
+        long warmUpEndTime = System.nanoTime() + warmUpNanoseconds;
+        while(System.nanoTime() < warmUpEndTime){
+            consumedValues += operation.run();
+        }
+        
+        //measure the operation for the set period, running it at least once
+        long threadID = Thread.currentThread().getId();
+        long operations = 0;
+        long startAllocatedBytes = threadMXBean.getThreadAllocatedBytes(threadID);
+        long startTime = System.nanoTime();
+        long elapsedNanoseconds;
+        do{
+            consumedValues += operation.run();
+            operations++;
+            elapsedNanoseconds = System.nanoTime() - startTime;
+        }while(elapsedNanoseconds < measureNanoseconds);
+        long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadID) - startAllocatedBytes;
+        
+        System.out.printf(RESULT_FORMAT, name, 
+            String.format("%.2f", operations / (elapsedNanoseconds / 1e9)), 
+            String.format("%.4f", elapsedNanoseconds / 1e6 / operations), 
+            String.format("%,d", allocatedBytes / operations));
+    }
+    
+    /**
+     * serializes a document into gzip compressed JSON, discarding the output
+     * @param jsonWriter writer of the document's class
+     * @param esDocument document to serialize
+     * @return number of compressed bytes written
+     * @throws IOException if the document could not be serialized
+     */
+    private static long serializeCompressed(ObjectWriter jsonWriter, ESDocument esDocument) throws IOException
+    {
+        CountingOutputStream countingOutputStream = new CountingOutputStream();
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(countingOutputStream);
+        jsonWriter.writeValue(gzipOutputStream, esDocument);
+        gzipOutputStream.finish();
+        return countingOutputStream.bytesWritten;
+    }
+    
+    /**
+     * serializes a document into gzip compressed JSON
+     * @param jsonWriter writer of the document's class
+     * @param esDocument document to serialize
+     * @return compressed bytes
+     * @throws IOException if the document could not be serialized
+     */
+    private static byte[] toCompressedJSON(ObjectWriter jsonWriter, ESDocument esDocument) throws IOException
+    {
+        ByteArrayOutputStream compressedBytes = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressedBytes);
+        jsonWriter.writeValue(gzipOutputStream, esDocument);
+        gzipOutputStream.finish();
+        return compressedBytes.toByteArray();
+    }
+    
+    /**
+     * creates a document containing synthetic product records
+     * @param recordsAmount number of records to place in the document
+     * @return product document
+     */
+    private static ESDocumentProduct createProductDocument(int recordsAmount)
+    {
+        ESDRecordProduct[] productRecords = new ESDRecordProduct[recordsAmount];
+        for(int i=0; i < recordsAmount; i++){
+            productRecords[i] = (ESDRecordProduct)APIv1StubServer.createRecord(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, i);
+        }
+        return new ESDocumentProduct(ESDocumentConstants.RESULT_SUCCESS, "successfully obtained data", productRecords, new HashMap<String, String>());
+    }
+    
+    /**
+     * creates a document containing synthetic sales orders
+     * @param ordersAmount number of orders to place in the document
+     * @param linesAmount number of lines to place in each order
+     * @return sales order document
+     */
+    private static ESDocumentOrderSale createOrderSaleDocument(int ordersAmount, int linesAmount)
+    {
+        ESDRecordOrderSale[] orderRecords = new ESDRecordOrderSale[ordersAmount];
+        for(int i=0; i < ordersAmount; i++)
+        {
+            ESDRecordOrderSale orderRecord = new ESDRecordOrderSale();
+            orderRecord.keySalesOrderID = "SO-" + i;
+            orderRecord.salesOrderCode = "SO-" + i;
+            orderRecord.keyCustomerAccountID = "CUST-" + (i % 20);
+            orderRecord.lines = new ArrayList<>();
+            for(int j=0; j < linesAmount; j++){
+                ESDRecordOrderSaleLine orderLine = new ESDRecordOrderSaleLine();
+                orderLine.lineType = ESDocumentConstants.ORDER_LINE_TYPE_PRODUCT;
+                orderLine.keyProductID = "PROD-" + j;
+                orderLine.productCode = "CODE-" + j;
+                orderLine.productName = "Stub Product " + j;
+                orderLine.quantity = 1 + (j % 5);
+                orderLine.priceExTax = 10 + j;
+                orderLine.priceIncTax = (10 + j) * 1.1;
+                orderRecord.lines.add(orderLine);
+            }
+            orderRecords[i] = orderRecord;
+        }
+        return new ESDocumentOrderSale(ESDocumentConstants.RESULT_SUCCESS, "successfully obtained data", orderRecords, new HashMap<String, String>());
+    }
+    
+    /**
+     * creates a document returned from importing sales orders, with every order line marked as unmatched and unpriced
+     * @param ordersAmount number of orders imported
+     * @param linesAmount number of lines in each order
+     * @return document containing the configs of the import's result
+     */
+    private static ESDocument createOrderResultDocument(int ordersAmount, int linesAmount)
+    {
+        StringBuilder orderLineIndexes = new StringBuilder();
+        for(int i=0; i < ordersAmount; i++){
+            for(int j=0; j < linesAmount; j++){
+                if(orderLineIndexes.length() > 0){
+                    orderLineIndexes.append(',');
+                }
+                orderLineIndexes.append(i).append(':').append(j);
+            }
+        }
+        
+        ESDocument esDocument = new ESDocument(ESDocumentConstants.RESULT_SUCCESS, "");
+        esDocument.configs = new HashMap<>();
+        esDocument.configs.put(APIv1EndpointResponseESD.ESD_CONFIG_ORDERS_WITH_UNMATCHED_LINES, orderLineIndexes.toString());
+        esDocument.configs.put(APIv1EndpointResponseESD.ESD_CONFIG_ORDERS_WITH_UNPRICED_LINES, orderLineIndexes.toString());
+        return esDocument;
+    }
+}
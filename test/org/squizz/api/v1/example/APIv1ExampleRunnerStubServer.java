@@ -0,0 +1,104 @@
+/**
+* Copyright (C) Squizz PTY LTD
+* This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+* This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with this program.  If not, see http://www.gnu.org/licenses/.
+*/
+package org.squizz.api.v1.example;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import org.squizz.api.v1.*;
+import org.squizz.api.v1.endpoint.*;
+import org.squizz.api.v1.stub.APIv1StubServer;
+import org.esd.EcommerceStandardsDocuments.*;
+
+/**
+ * Shows an example of running the stand-in API server locally, pointing an organisation API session at it, then measuring the throughput and latency of retrieving and importing data without calling the SQUIZZ.com platform
+ */
+public class APIv1ExampleRunnerStubServer 
+{
+    public static void main(String[] args) throws Exception
+    {
+        //obtain the settings of the test, in this example from optional command line arguments
+        int requestsAmount = (args.length > 0? Integer.parseInt(args[0]): 200);
+        int recordsPerPage = (args.length > 1? Integer.parseInt(args[1]): 1000);
+        long latencyMilliseconds = (args.length > 2? Long.parseLong(args[2]): 20);
+        int concurrentRequests = (args.length > 3? Integer.parseInt(args[3]): 16);
+        
+        //send the stand-in server's responses without delay, so that its throughput is not capped by delayed acknowledgements
+        APIv1StubServer.enableNoDelay();
+        
+        //start the stand-in server on any free port
+        APIv1StubServer stubServer = new APIv1StubServer(0);
+        stubServer.setLatencyMilliseconds(latencyMilliseconds);
+        stubServer.setRecordsAmount(recordsPerPage * 10);
+        stubServer.start();
+        System.out.println("Stub API server listening at: " + stubServer.getAPIOrgURL());
+        
+        //create an API session that calls the stand-in server, with any credentials
+        APIv1OrgSession apiOrgSession = new APIv1OrgSession("stub-org", "stub-key", "stub-password", 20000, APIv1Constants.SUPPORTED_LOCALES_EN_AU);
+        apiOrgSession.setAPIOrgURL(stubServer.getAPIOrgURL());
+        apiOrgSession.setMaxConcurrentRequests(concurrentRequests);
+        
+        APIv1EndpointResponse endpointResponse = apiOrgSession.createOrgSession();
+        if(!endpointResponse.result.equals(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS)){
+            System.out.println("FAIL - API session failed to be created. Reason: " + endpointResponse.result_message  + " Error Code: " + endpointResponse.result_code);
+            stubServer.stop();
+            return;
+        }
+        
+        //retrieve pages of products concurrently, timing how long each call takes
+        long startTime = System.nanoTime();
+        ArrayList<CompletableFuture<Long>> calls = new ArrayList<>();
+        for(int i=0; i < requestsAmount; i++)
+        {
+            final int recordsStartIndex = (i % 10) * recordsPerPage;
+            calls.add(CompletableFuture.supplyAsync(() -> {
+                long callStartTime = System.nanoTime();
+                APIv1EndpointResponseESD endpointResponseESD = APIv1EndpointOrgRetrieveESDocument.call(apiOrgSession, 60000, APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, "stub-supplier", "", recordsPerPage, recordsStartIndex, "");
+                return (endpointResponseESD.result.equals(APIv1EndpointResponse.ENDPOINT_RESULT_SUCCESS)? System.nanoTime() - callStartTime: -1L);
+            }, apiOrgSession.getExecutor()));
+        }
+        
+        long failedCalls = 0;
+        long totalCallNanoseconds = 0;
+        long maxCallNanoseconds = 0;
+        for(CompletableFuture<Long> call: calls){
+            long callNanoseconds = call.get();
+            if(callNanoseconds < 0){
+                failedCalls++;
+            }else{
+                totalCallNanoseconds += callNanoseconds;
+                maxCallNanoseconds = Math.max(maxCallNanoseconds, callNanoseconds);
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+        long successfulCalls = requestsAmount - failedCalls;
+        
+        System.out.println(APIv1OrgTestRunner.CONSOLE_LINE);
+        System.out.println("         Retrieve Calls: " + requestsAmount + " (" + failedCalls + " failed)");
+        System.out.println("       Records Per Call: " + recordsPerPage);
+        System.out.println("    Throughput (call/s): " + String.format("%.1f", requestsAmount / elapsedSeconds));
+        System.out.println("  Throughput (record/s): " + String.format("%.0f", successfulCalls * recordsPerPage / elapsedSeconds));
+        System.out.println("  Mean Call Latency (ms): " + String.format("%.1f", (successfulCalls > 0? totalCallNanoseconds / 1e6 / successfulCalls: 0)));
+        System.out.println("   Max Call Latency (ms): " + String.format("%.1f", maxCallNanoseconds / 1e6));
+        System.out.println(APIv1OrgTestRunner.CONSOLE_LINE);
+        
+        //import a document of products into the stand-in server
+        ESDRecordProduct[] productRecords = new ESDRecordProduct[recordsPerPage];
+        for(int i=0; i < productRecords.length; i++){
+            productRecords[i] = (ESDRecordProduct)APIv1StubServer.createRecord(APIv1EndpointOrgRetrieveESDocument.RETRIEVE_TYPE_ID_PRODUCTS, i);
+        }
+        ESDocumentProduct esDocumentProduct = new ESDocumentProduct(ESDocumentConstants.RESULT_SUCCESS, "successfully obtained data", productRecords, new HashMap<String, String>());
+        
+        startTime = System.nanoTime();
+        APIv1EndpointResponseESD endpointResponseESD = APIv1EndpointOrgImportESDocument.call(apiOrgSession, 60000, APIv1EndpointOrgImportESDocument.IMPORT_TYPE_ID_PRODUCTS, esDocumentProduct);
+        System.out.println("Import Result: " + endpointResponseESD.result + " in " + String.format("%.1f", (System.nanoTime() - startTime) / 1e6) + "ms, records imported into stub server: " + stubServer.getImportedRecordsCount());
+        
+        //destroy the session and stop the server
+        apiOrgSession.destroyOrgSession();
+        stubServer.stop();
+    }
+}